@@ -0,0 +1,66 @@
+package com.serwisspolecznosciowy.Application;
+
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Entities used by benchmarks. Ids of users are random (with fixed seed), like in real database,
+ * so bitmaps and hash sets are not built from one continuous range.
+ */
+public final class BenchmarkData {
+
+    public static final int MAX_USER_ID = 10_000_000;
+
+    private BenchmarkData() {
+    }
+
+    public static User user(Integer id) {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setPassword("$2a$12$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchmar");
+        user.setProfilePicture("https://example.com/pictures/user" + id + ".png");
+        return user;
+    }
+
+    public static Post post(Integer id, User author, int numberOfLikes) {
+        Post post = new Post();
+        post.setId(id);
+        post.setBody("Body of post number " + id + " written by " + author.getUsername() + " with a few more words to look like real post.");
+        post.setCreated(LocalDateTime.now());
+        post.setUser(author);
+        post.setLikeList(likes(id, numberOfLikes));
+        post.setDislikeList(new ArrayList<>());
+        post.setCommentList(new ArrayList<>());
+        post.setNumberOfComments(0);
+        post.setLikeCount(numberOfLikes);
+        return post;
+    }
+
+    public static List<Like> likes(Integer postId, int numberOfLikes) {
+        List<Like> likeList = new ArrayList<>(numberOfLikes);
+        for (int userId : userIds(postId, numberOfLikes)) {
+            Like like = new Like();
+            like.setId(likeList.size() + 1);
+            like.setUserId(userId);
+            like.setPostLikeId(postId);
+            like.setUsername("user" + userId);
+            likeList.add(like);
+        }
+        return likeList;
+    }
+
+    /**
+     * @return distinct user ids, always the same for the same post
+     */
+    public static int[] userIds(Integer postId, int count) {
+        return new Random(postId).ints(1, MAX_USER_ID).distinct().limit(count).toArray();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of viral post with full lists of likes and dislikes (PostDto) and with summary of them (PostSummaryDto).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactionSummaryPayloadBenchmark {
+
+    private static final int NUMBER_OF_LIKES = 50_000;
+
+    private static final int NUMBER_OF_DISLIKES = 5_000;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private PostDto postDto;
+
+    private PostSummaryDto postSummaryDto;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        List<LikeDto> likeDtoList = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_LIKES; i++) {
+            likeDtoList.add(new LikeDto("user" + i));
+        }
+        List<DislikeDto> dislikeDtoList = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DISLIKES; i++) {
+            dislikeDtoList.add(new DislikeDto("user" + i));
+        }
+        postDto = new PostDto("viral post", created, null, likeDtoList, dislikeDtoList, "author", null, 0);
+        postSummaryDto = new PostSummaryDto(1, "viral post", created, null,
+                new ReactionSummaryDto(NUMBER_OF_LIKES, true, List.of("user0", "user1", "user2")),
+                new ReactionSummaryDto(NUMBER_OF_DISLIKES, false, List.of("user0", "user1", "user2")), "author", null, 0, null);
+    }
+
+    @Benchmark
+    public byte[] serializePostDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(postDto);
+    }
+
+    @Benchmark
+    public byte[] serializePostSummaryDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(postSummaryDto);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.serwisspolecznosciowy.Application.mappers;
+
+import com.serwisspolecznosciowy.Application.BenchmarkData;
+import com.serwisspolecznosciowy.Application.dto.LikeDto;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of post with its likes to PostDto, the same as done for every post of feed page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int numberOfLikes;
+
+    private final PostMapper postMapper = new PostMapperImpl();
+
+    private final LikeMapper likeMapper = new LikeMapperImpl();
+
+    private final DislikeMapper dislikeMapper = new DislikeMapperImpl();
+
+    private Post post;
+
+    @Setup
+    public void setUp() {
+        post = BenchmarkData.post(1, BenchmarkData.user(1), numberOfLikes);
+    }
+
+    @Benchmark
+    public List<LikeDto> likeListToLikeDtoList() {
+        return likeMapper.likeListToLikeDtoList(post.getLikeList());
+    }
+
+    @Benchmark
+    public PostDto postToPostDto() {
+        return postMapper.postToPostDto(post, post.getUser(), likeMapper.likeListToLikeDtoList(post.getLikeList()),
+                dislikeMapper.dislikeListToDislikeDtoList(post.getDislikeList()));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search of username containing keyword among million users: trigram index compared with scanning all usernames,
+ * which is the same work as 'like %keyword%' query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigramIndexBenchmark {
+
+    private static final int NUMBER_OF_USERS = 1_000_000;
+
+    private static final int NUMBER_OF_KEYWORDS = 200;
+
+    private static final int LIMIT = 1000;
+
+    private final List<String> usernames = new ArrayList<>(NUMBER_OF_USERS);
+
+    private final List<String> keywords = new ArrayList<>(NUMBER_OF_KEYWORDS);
+
+    private TrigramIndex trigramIndex;
+
+    private int nextKeyword;
+
+    @Setup
+    public void setUp() {
+        TestData testData = new TestData();
+        Random random = new Random(42);
+        trigramIndex = new TrigramIndex();
+        for (int id = 1; id <= NUMBER_OF_USERS; id++) {
+            String username = testData.randomWord(random) + "_" + testData.randomWord(random) + id;
+            usernames.add(TextTokenizer.normalize(username));
+            trigramIndex.add(id, username);
+        }
+        for (int i = 0; i < NUMBER_OF_KEYWORDS; i++) {
+            String username = usernames.get(random.nextInt(NUMBER_OF_USERS));
+            int start = random.nextInt(username.length() - 5);
+            keywords.add(username.substring(start, start + 5));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> searchInTrigramIndex() {
+        return trigramIndex.search(nextKeyword(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> scanAllUsernames() {
+        String keyword = nextKeyword();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_USERS && ids.size() < LIMIT; i++) {
+            if (usernames.get(i).contains(keyword)) {
+                ids.add(i + 1);
+            }
+        }
+        return ids;
+    }
+
+    private String nextKeyword() {
+        nextKeyword = (nextKeyword + 1) % NUMBER_OF_KEYWORDS;
+        return keywords.get(nextKeyword);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.search.UsernamePrefixIndex.Suggestion;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Username autocomplete among million users with prefixes of 1 to 4 letters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsernamePrefixIndexBenchmark {
+
+    private static final int NUMBER_OF_USERS = 1_000_000;
+
+    private static final int NUMBER_OF_PREFIXES = 10_000;
+
+    private final List<String> prefixes = new ArrayList<>(NUMBER_OF_PREFIXES);
+
+    private UsernamePrefixIndex usernamePrefixIndex;
+
+    private int nextPrefix;
+
+    @Setup
+    public void setUp() {
+        TestData testData = new TestData();
+        Random random = new Random(42);
+        List<Suggestion> suggestions = new ArrayList<>(NUMBER_OF_USERS);
+        for (int id = 1; id <= NUMBER_OF_USERS; id++) {
+            /* most users have a few posts, some of them a lot */
+            int popularity = (int) (1 / (random.nextDouble() + 0.001));
+            suggestions.add(new Suggestion(id, testData.randomWord(random) + "_" + testData.randomWord(random), popularity));
+        }
+        usernamePrefixIndex = UsernamePrefixIndex.build(suggestions, 10);
+        for (int i = 0; i < NUMBER_OF_PREFIXES; i++) {
+            String username = suggestions.get(random.nextInt(NUMBER_OF_USERS)).getUsername();
+            prefixes.add(username.substring(0, 1 + random.nextInt(4)));
+        }
+    }
+
+    @Benchmark
+    public List<Suggestion> complete() {
+        nextPrefix = (nextPrefix + 1) % NUMBER_OF_PREFIXES;
+        return usernamePrefixIndex.complete(prefixes.get(nextPrefix), 10, Collections.emptySet());
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.serwisspolecznosciowy.Application.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticated requests per second of the same user with BCrypt of the same cost as in WebSecurityConfig and with AuthenticationCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingAuthenticationProviderBenchmark {
+
+    private static final String USERNAME = "benchmark12!A";
+
+    private static final String PASSWORD = "Benchmark12!A";
+
+    private CachingAuthenticationProvider cachedProvider;
+
+    private CachingAuthenticationProvider uncachedProvider;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(12);
+        DaoAuthenticationProvider jdbcAuthenticationProvider = new DaoAuthenticationProvider();
+        jdbcAuthenticationProvider.setUserDetailsService(new InMemoryUserDetailsManager(
+                User.withUsername(USERNAME).password(passwordEncoder.encode(PASSWORD)).roles("USER").build()));
+        jdbcAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+        cachedProvider = new CachingAuthenticationProvider(jdbcAuthenticationProvider, authenticationCache(true));
+        uncachedProvider = new CachingAuthenticationProvider(jdbcAuthenticationProvider, authenticationCache(false));
+    }
+
+    @Benchmark
+    public Authentication authenticateWithBCrypt() {
+        return uncachedProvider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+    }
+
+    @Benchmark
+    public Authentication authenticateFromCache() {
+        return cachedProvider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+    }
+
+    private static AuthenticationCache authenticationCache(boolean enabled) {
+        AuthenticationCache authenticationCache = new AuthenticationCache();
+        ReflectionTestUtils.setField(authenticationCache, "enabled", enabled);
+        ReflectionTestUtils.setField(authenticationCache, "ttlInSeconds", 60L);
+        ReflectionTestUtils.setField(authenticationCache, "maxSize", 100L);
+        authenticationCache.buildCache();
+        return authenticationCache;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.BenchmarkData;
+import com.serwisspolecznosciowy.Application.cache.SerializedPage;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.mappers.DislikeMapperImpl;
+import com.serwisspolecznosciowy.Application.mappers.LikeMapperImpl;
+import com.serwisspolecznosciowy.Application.mappers.PostMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of feed page (as returned by getAllPostsDto) to JSON bytes, the same as done by FeedJsonService,
+ * compared with writing page already cached as bytes (SerializedPage) to response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"0", "20", "200"})
+    private int likesPerPost;
+
+    /* configured like ObjectMapper of the application (Java time module, no timestamps) */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<PostDto> page;
+
+    private SerializedPage serializedPage;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        PostMapperImpl postMapper = new PostMapperImpl();
+        LikeMapperImpl likeMapper = new LikeMapperImpl();
+        DislikeMapperImpl dislikeMapper = new DislikeMapperImpl();
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int postId = 1; postId <= PAGE_SIZE; postId++) {
+            User author = BenchmarkData.user(postId % 10 + 1);
+            Post post = BenchmarkData.post(postId, author, likesPerPost);
+            page.add(postMapper.postToPostDto(post, author, likeMapper.likeListToLikeDtoList(post.getLikeList()),
+                    dislikeMapper.dislikeListToDislikeDtoList(post.getDislikeList())));
+        }
+        serializedPage = SerializedPage.of(objectMapper.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeSerializedPage() {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(serializedPage.getJson().length);
+        response.writeBytes(serializedPage.getJson());
+        return response.toByteArray();
+    }
+
+}
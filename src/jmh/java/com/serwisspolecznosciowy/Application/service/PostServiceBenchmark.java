@@ -0,0 +1,105 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.BenchmarkData;
+import com.serwisspolecznosciowy.Application.cache.ReactionBitmapCache;
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Hot paths of adding like to post: duplicate check answered from reaction bitmap
+ * and copy of like list which is mapped to response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostServiceBenchmark {
+
+    private static final Integer POST_ID = 1;
+
+    @Param({"10", "100000"})
+    private int numberOfLikes;
+
+    private PostService postService;
+
+    private Post post;
+
+    private User user;
+
+    private Like like;
+
+    @Setup
+    public void setUp() {
+        post = BenchmarkData.post(POST_ID, BenchmarkData.user(1), numberOfLikes);
+        /* user who has not liked the post yet - the common case */
+        user = BenchmarkData.user(BenchmarkData.MAX_USER_ID + 1);
+        like = new Like();
+        like.setUserId(user.getId());
+        like.setPostLikeId(POST_ID);
+        like.setUsername(user.getUsername());
+
+        LikeRepository likeRepository = Mockito.mock(LikeRepository.class);
+        Mockito.when(likeRepository.findUserIdsByPostLikeId(POST_ID))
+                .thenReturn(Arrays.stream(BenchmarkData.userIds(POST_ID, numberOfLikes)).boxed().collect(Collectors.toList()));
+        ReactionBitmapCache reactionBitmapCache = new ReactionBitmapCache();
+        ReflectionTestUtils.setField(reactionBitmapCache, "likeRepository", likeRepository);
+        ReflectionTestUtils.setField(reactionBitmapCache, "enabled", true);
+        ReflectionTestUtils.setField(reactionBitmapCache, "minReactions", 1);
+        ReflectionTestUtils.setField(reactionBitmapCache, "maxWeightInMegabytes", 16L);
+        ReflectionTestUtils.invokeMethod(reactionBitmapCache, "buildCaches");
+
+        postService = new PostService();
+        ReflectionTestUtils.setField(postService, "reactionBitmapCache", reactionBitmapCache);
+        /* bitmap is loaded by first check, benchmark measures only lookups */
+        postService.checkUserNotAlreadyAddOneLikeToPost(user, post);
+    }
+
+    @Benchmark
+    public Post checkUserNotAlreadyAddOneLikeToPost() {
+        postService.checkUserNotAlreadyAddOneLikeToPost(user, post);
+        return post;
+    }
+
+    /* copy done by addOneLikeToPost before mapping */
+    @Benchmark
+    public List<Like> copyLikeListToLinkedList() {
+        List<Like> likeList = new LinkedList<>();
+        likeList.addAll(post.getLikeList());
+        likeList.add(like);
+        return likeList;
+    }
+
+    /* baseline for the copy above */
+    @Benchmark
+    public List<Like> copyLikeListToArrayList() {
+        List<Like> likeList = new ArrayList<>(post.getLikeList().size() + 1);
+        likeList.addAll(post.getLikeList());
+        likeList.add(like);
+        return likeList;
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.serwisspolecznosciowy.Application.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeds database with synthetic users, posts, comments, likes and dislikes ('dataset.*' arguments, see fields).
+ * Popularity of posts is Zipfian (a few posts get most of likes, dislikes and comments) and so is activity of authors.
+ * Rows are added after existing ones with batched inserts, one transaction per batch - for MySQL add
+ * 'rewriteBatchedStatements=true' to url, otherwise every row is a separate round trip.
+ * Every generated user has username 'load_user_{id}' and password from 'dataset.password', so LoadHarness can log in.
+ * <p>
+ * mvn -P benchmark -DskipTests test-compile exec:exec@generate-dataset -Ddataset.args="--dataset.users=1000000 --dataset.posts=2000000"
+ */
+@Slf4j
+public class DatasetGenerator {
+
+    static final String USERNAME_PREFIX = "load_user_";
+
+    static final String DEFAULT_PASSWORD = "LoadTest12!A";
+
+    private static final String[] WORDS = ("java spring post comment like friend photo holiday weekend music movie game coffee " +
+            "sport football city travel family work school book food dinner party birthday summer winter news code " +
+            "hello today tomorrow great amazing funny happy sad new old best morning evening night").split(" ");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Random random;
+
+    private final int numberOfUsers;
+
+    private final int numberOfPosts;
+
+    private final int numberOfComments;
+
+    private final long numberOfLikes;
+
+    private final long numberOfDislikes;
+
+    /* exponent of Zipf distribution of likes, dislikes and comments per post */
+    private final double popularityExponent;
+
+    /* exponent of Zipf distribution of posts per author */
+    private final double authorsExponent;
+
+    private final int batchSize;
+
+    private final int days;
+
+    private final String password;
+
+    /* posts are created in order of ids, like in the application, one after 'secondsPerPost' */
+    private final LocalDateTime firstPostCreated;
+
+    private final long secondsPerPost;
+
+    DatasetGenerator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Environment environment) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.random = new Random(environment.getProperty("dataset.seed", Long.class, 42L));
+        this.numberOfUsers = environment.getProperty("dataset.users", Integer.class, 100_000);
+        this.numberOfPosts = environment.getProperty("dataset.posts", Integer.class, 200_000);
+        this.numberOfComments = environment.getProperty("dataset.comments", Integer.class, 500_000);
+        this.numberOfLikes = environment.getProperty("dataset.likes", Long.class, 2_000_000L);
+        this.numberOfDislikes = environment.getProperty("dataset.dislikes", Long.class, 200_000L);
+        this.popularityExponent = environment.getProperty("dataset.popularity-exponent", Double.class, 1.0);
+        this.authorsExponent = environment.getProperty("dataset.authors-exponent", Double.class, 1.2);
+        this.batchSize = environment.getProperty("dataset.batch-size", Integer.class, 1000);
+        this.days = environment.getProperty("dataset.days", Integer.class, 365);
+        this.password = environment.getProperty("dataset.password", DEFAULT_PASSWORD);
+        this.firstPostCreated = LocalDateTime.now().minusDays(days);
+        this.secondsPerPost = Math.max(1, ChronoUnit.SECONDS.between(firstPostCreated, LocalDateTime.now()) / numberOfPosts);
+    }
+
+    public static void main(String[] args) throws MetaDataAccessException {
+        try (ConfigurableApplicationContext context = LoadTestApplication.run(args, WebApplicationType.NONE)) {
+            DatasetGenerator generator = new DatasetGenerator(context.getBean(JdbcTemplate.class),
+                    new TransactionTemplate(context.getBean(PlatformTransactionManager.class)), context.getEnvironment());
+            generator.generate();
+        }
+    }
+
+    void generate() throws MetaDataAccessException {
+        long start = System.nanoTime();
+        int firstUserId = nextId("users");
+        int firstPostId = nextId("posts");
+
+        ZipfianDistribution popularity = new ZipfianDistribution(numberOfPosts, popularityExponent);
+        int[] postByRank = ZipfianDistribution.shuffledRanks(numberOfPosts, random);
+        int[] likesPerPost = spread(numberOfLikes, popularity, postByRank);
+        int[] dislikesPerPost = spread(numberOfDislikes, popularity, postByRank);
+        int[] commentsPerPost = new int[numberOfPosts];
+        for (int i = 0; i < numberOfComments; i++) {
+            commentsPerPost[postByRank[popularity.sample(random)]]++;
+        }
+
+        insertUsers(firstUserId);
+        insertPosts(firstPostId, firstUserId, likesPerPost, dislikesPerPost, commentsPerPost);
+        insertComments(firstPostId, firstUserId, commentsPerPost);
+        insertReactions("likes", "post_like_id", firstPostId, firstUserId, likesPerPost);
+        insertReactions("dislikes", "post_dislike_id", firstPostId, firstUserId, dislikesPerPost);
+        moveIdGenerators(firstUserId + numberOfUsers, firstPostId + numberOfPosts);
+        log.info("Dataset generated in {} s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    /**
+     * @return number of reactions of every post, the most popular post gets the biggest share, no more than one per user
+     */
+    private int[] spread(long total, ZipfianDistribution popularity, int[] postByRank) {
+        int[] perPost = new int[numberOfPosts];
+        for (int rank = 0; rank < popularity.size(); rank++) {
+            double expected = total * popularity.probability(rank);
+            /* fraction decides randomly, so the long tail gets some reactions too */
+            long count = (long) expected + (random.nextDouble() < expected - Math.floor(expected) ? 1 : 0);
+            perPost[postByRank[rank]] = (int) Math.min(count, numberOfUsers);
+        }
+        return perPost;
+    }
+
+    private void insertUsers(int firstUserId) {
+        String passwordHash = new BCryptPasswordEncoder(12).encode(password);
+        LocalDateTime now = LocalDateTime.now();
+        Batch batch = new Batch("users", "insert into users (id, username, password, created, role, enabled) values (?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < numberOfUsers; i++) {
+            int userId = firstUserId + i;
+            batch.add(userId, USERNAME_PREFIX + userId, passwordHash, timestamp(now.minusMinutes(random.nextInt(days * 24 * 60 + 1))),
+                    "ROLE_USER", true);
+        }
+        batch.finish();
+    }
+
+    private void insertPosts(int firstPostId, int firstUserId, int[] likesPerPost, int[] dislikesPerPost, int[] commentsPerPost) {
+        ZipfianDistribution authors = new ZipfianDistribution(numberOfUsers, authorsExponent);
+        int[] userByRank = ZipfianDistribution.shuffledRanks(numberOfUsers, random);
+        Batch batch = new Batch("posts", "insert into posts (id, body, created, user_id, number_of_comments, like_count, dislike_count) " +
+                "values (?, ?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < numberOfPosts; i++) {
+            batch.add(firstPostId + i, text(5, 40), timestamp(postCreated(i)), firstUserId + userByRank[authors.sample(random)],
+                    commentsPerPost[i], likesPerPost[i], dislikesPerPost[i]);
+        }
+        batch.finish();
+    }
+
+    private void insertComments(int firstPostId, int firstUserId, int[] commentsPerPost) {
+        LocalDateTime now = LocalDateTime.now();
+        Batch batch = new Batch("comments", "insert into comments (body, created, post_id, user_id, like_count, dislike_count) " +
+                "values (?, ?, ?, ?, 0, 0)");
+        for (int i = 0; i < numberOfPosts; i++) {
+            LocalDateTime postCreated = postCreated(i);
+            int secondsToNow = (int) Math.max(1, ChronoUnit.SECONDS.between(postCreated, now));
+            for (int j = 0; j < commentsPerPost[i]; j++) {
+                batch.add(text(1, 20), timestamp(postCreated.plusSeconds(random.nextInt(secondsToNow))), firstPostId + i,
+                        firstUserId + random.nextInt(numberOfUsers));
+            }
+        }
+        batch.finish();
+    }
+
+    private void insertReactions(String table, String postColumn, int firstPostId, int firstUserId, int[] reactionsPerPost) {
+        Batch batch = new Batch(table, "insert into " + table + " (user_id, " + postColumn + ", username) values (?, ?, ?)");
+        for (int i = 0; i < numberOfPosts; i++) {
+            for (int userIndex : distinctUsers(reactionsPerPost[i])) {
+                int userId = firstUserId + userIndex;
+                batch.add(userId, firstPostId + i, USERNAME_PREFIX + userId);
+            }
+        }
+        batch.finish();
+    }
+
+    /* unique index allows one reaction of user to post (Floyd's sampling without replacement) */
+    private Set<Integer> distinctUsers(int count) {
+        Set<Integer> users = new HashSet<>(count * 2);
+        for (int candidate = numberOfUsers - count; candidate < numberOfUsers; candidate++) {
+            int userIndex = random.nextInt(candidate + 1);
+            users.add(users.contains(userIndex) ? candidate : userIndex);
+        }
+        return users;
+    }
+
+    private LocalDateTime postCreated(int postIndex) {
+        return firstPostCreated.plusSeconds(postIndex * secondsPerPost);
+    }
+
+    private String text(int minWords, int maxWords) {
+        int words = minWords + random.nextInt(maxWords - minWords + 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.length() > 255 ? text.substring(0, 255) : text.toString();
+    }
+
+    private int nextId(String table) {
+        Integer maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Integer.class);
+        return maxId == null ? 1 : maxId + 1;
+    }
+
+    /* users have ids from hibernate_sequence and posts from auto increment, next created row must not get id of generated one */
+    private void moveIdGenerators(int nextUserId, int nextPostId) throws MetaDataAccessException {
+        String database = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+        if ("H2".equals(database)) {
+            jdbcTemplate.execute("alter sequence hibernate_sequence restart with " + nextUserId);
+            jdbcTemplate.execute("alter table posts alter column id restart with " + nextPostId);
+        } else {
+            /* MySQL moves auto increment itself */
+            jdbcTemplate.update("update hibernate_sequence set next_val = greatest(next_val, ?)", nextUserId);
+        }
+    }
+
+    private static Timestamp timestamp(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime);
+    }
+
+    /**
+     * Rows of one table inserted by batches, each batch in its own transaction.
+     */
+    private class Batch {
+
+        private final String table;
+
+        private final String sql;
+
+        private final List<Object[]> rows = new ArrayList<>(batchSize);
+
+        private final long start = System.nanoTime();
+
+        private long inserted;
+
+        Batch(String table, String sql) {
+            this.table = table;
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void finish() {
+            flush();
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Inserted {} rows into {} in {} ms ({} rows/s)", inserted, table, millis, inserted * 1000 / millis);
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, rows));
+            inserted += rows.size();
+            rows.clear();
+            if (inserted % (batchSize * 100L) == 0) {
+                log.info("Inserted {} rows into {}", inserted, table);
+            }
+        }
+
+    }
+
+}
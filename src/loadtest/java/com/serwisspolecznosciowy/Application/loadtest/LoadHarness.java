@@ -0,0 +1,269 @@
+package com.serwisspolecznosciowy.Application.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.pagination.FeedCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application on database seeded by DatasetGenerator and drives its controllers over HTTP with mixed
+ * read/write workload ('load.*' arguments). Every thread is one logged in user (session cookie, like browser) which sends
+ * the next request right after response (closed model, optional 'load.think-time-ms'). Requests sent during warmup
+ * are not measured. At the end throughput and p50/p99/p999 latency of every operation are printed and saved as JSON.
+ * Latency is measured from sending request, so when the application is saturated it does not include time which
+ * request would wait for free thread - compare throughput of runs too, not only percentiles.
+ * Operations 'feed-cursor-first', 'feed-cursor-deep' and 'feed-offset-deep' compare the first page of keyset feed with pages
+ * about 'load.deep-page' deep read by cursor and by offset, so latency of deep pages is measured on the same dataset.
+ * <p>
+ * mvn -P benchmark -DskipTests test-compile exec:exec@load-test -Dload.args="--load.threads=32 --load.duration-seconds=120"
+ */
+@Slf4j
+public class LoadHarness {
+
+    private static final String DEFAULT_MIX = "feed:32,feed-cursor-first:1,feed-cursor-deep:1,feed-offset-deep:1,feed-summary:10," +
+            "post:20,comments:15,like:10,dislike:2,add-comment:5,add-post:3";
+
+    /* latency up to 1 minute with 3 significant digits */
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final URI server;
+
+    private final int threads;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    private final long thinkTimeMillis;
+
+    private final String password;
+
+    private final Workload workload;
+
+    private final File resultFile;
+
+    LoadHarness(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, Environment environment) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.server = URI.create("http://localhost:" + environment.getRequiredProperty("local.server.port"));
+        this.threads = environment.getProperty("load.threads", Integer.class, 16);
+        this.warmup = Duration.ofSeconds(environment.getProperty("load.warmup-seconds", Integer.class, 15));
+        this.duration = Duration.ofSeconds(environment.getProperty("load.duration-seconds", Integer.class, 60));
+        this.thinkTimeMillis = environment.getProperty("load.think-time-ms", Long.class, 0L);
+        this.password = environment.getProperty("load.password", DatasetGenerator.DEFAULT_PASSWORD);
+        this.resultFile = new File(environment.getProperty("load.result-file", "target/load-test-result.json"));
+        List<Integer> postIds = jdbcTemplate.queryForList("select id from posts order by like_count desc, id desc limit ?", Integer.class,
+                environment.getProperty("load.posts", Integer.class, 100_000));
+        int numberOfFeedPages = jdbcTemplate.queryForObject("select count(*) from posts", Integer.class) / Operation.PAGE_SIZE;
+        int numberOfDeepPages = Math.min(environment.getProperty("load.deep-pages", Integer.class, 1000), numberOfFeedPages / 2);
+        int firstDeepPage = Math.min(environment.getProperty("load.deep-page", Integer.class, 10_000), numberOfFeedPages - numberOfDeepPages);
+        this.workload = new Workload(environment.getProperty("load.mix", DEFAULT_MIX), postIds,
+                environment.getProperty("load.popularity-exponent", Double.class, 1.0), environment.getProperty("load.pages", Integer.class, 50),
+                firstDeepPage, deepCursors(firstDeepPage, numberOfDeepPages));
+        log.info("Deep feed pages: {} - {} of {}", firstDeepPage, firstDeepPage + numberOfDeepPages - 1, numberOfFeedPages);
+    }
+
+    /* cursor of page is the last post of previous page, pages are 0-based like offset pages */
+    private List<String> deepCursors(int firstDeepPage, int numberOfDeepPages) {
+        if (firstDeepPage < 1 || numberOfDeepPages < 1) {
+            return List.of();
+        }
+        List<String> cursors = jdbcTemplate.query("select created, id from posts order by created desc, id desc limit ? offset ?",
+                (resultSet, rowNum) -> rowNum % Operation.PAGE_SIZE == 0
+                        ? new FeedCursor(resultSet.getTimestamp("created").toLocalDateTime(), resultSet.getInt("id")).encode() : null,
+                numberOfDeepPages * Operation.PAGE_SIZE, firstDeepPage * Operation.PAGE_SIZE - 1);
+        cursors.removeIf(Objects::isNull);
+        return cursors;
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = LoadTestApplication.run(args, WebApplicationType.SERVLET)) {
+            LoadHarness harness = new LoadHarness(context.getBean(JdbcTemplate.class), context.getBean(ObjectMapper.class), context.getEnvironment());
+            harness.run();
+        }
+    }
+
+    void run() throws Exception {
+        List<String> usernames = jdbcTemplate.queryForList("select username from users where username like ? and enabled = true order by id limit ?",
+                String.class, DatasetGenerator.USERNAME_PREFIX + "%", threads);
+        if (usernames.size() < threads) {
+            throw new IllegalStateException("Database has only " + usernames.size() + " generated users, " + threads + " are needed!");
+        }
+        log.info("Load test of {} with {} users: {} s warmup, {} s measurement", server, threads, warmup.toSeconds(), duration.toSeconds());
+        long measurementStart = System.nanoTime() + warmup.toNanos();
+        long end = measurementStart + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Operation, Statistics>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            VirtualUser user = new VirtualUser(usernames.get(i), new Random(i), measurementStart, end);
+            futures.add(executor.submit(user::run));
+        }
+        Map<Operation, Statistics> statistics = new EnumMap<>(Operation.class);
+        Statistics total = new Statistics();
+        for (Future<Map<Operation, Statistics>> future : futures) {
+            future.get().forEach((operation, operationStatistics) -> {
+                statistics.computeIfAbsent(operation, key -> new Statistics()).add(operationStatistics);
+                total.add(operationStatistics);
+            });
+        }
+        executor.shutdown();
+        report(statistics, total);
+    }
+
+    private void report(Map<Operation, Statistics> statistics, Statistics total) throws IOException {
+        double seconds = duration.toMillis() / 1000.0;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        statistics.forEach((operation, operationStatistics) -> rows.add(operationStatistics.toRow(operation.getName(), seconds)));
+        rows.add(total.toRow("total", seconds));
+
+        StringBuilder table = new StringBuilder(String.format("%n%-18s %9s %10s %9s %9s %9s %9s %9s %7s%n",
+                "operation", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "rejected", "errors"));
+        for (Map<String, Object> row : rows) {
+            table.append(String.format("%-18s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9d %7d%n", row.values().toArray()));
+        }
+        log.info("Result of load test:{}", table);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("threads", threads);
+        result.put("warmupSeconds", warmup.toSeconds());
+        result.put("durationSeconds", duration.toSeconds());
+        result.put("thinkTimeMillis", thinkTimeMillis);
+        result.put("operations", rows);
+        resultFile.getAbsoluteFile().getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile, result);
+        log.info("Result of load test saved to {}", resultFile.getAbsolutePath());
+    }
+
+    /**
+     * One logged in user which sends requests in loop.
+     */
+    private class VirtualUser {
+
+        private final Random random;
+
+        private final long measurementStart;
+
+        private final long end;
+
+        private final String authorization;
+
+        /* cookies keep session, so password is verified only by the first request */
+        private final HttpClient httpClient = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        private final Map<Operation, Statistics> statistics = new EnumMap<>(Operation.class);
+
+        VirtualUser(String username, Random random, long measurementStart, long end) {
+            this.random = random;
+            this.measurementStart = measurementStart;
+            this.end = end;
+            this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<Operation, Statistics> run() throws InterruptedException {
+            while (System.nanoTime() < end) {
+                Operation operation = workload.next(random);
+                long start = System.nanoTime();
+                int status;
+                try {
+                    status = httpClient.send(operation.request(server, workload, random)
+                                    .header("Authorization", authorization)
+                                    .timeout(Duration.ofSeconds(30))
+                                    .build(),
+                            HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (IOException ex) {
+                    log.warn("Request {} failed: {}", operation.getName(), ex.getMessage());
+                    status = -1;
+                }
+                long finish = System.nanoTime();
+                if (start >= measurementStart && finish <= end) {
+                    statistics.computeIfAbsent(operation, key -> new Statistics()).record(finish - start, status);
+                }
+                if (thinkTimeMillis > 0) {
+                    Thread.sleep(thinkTimeMillis);
+                }
+            }
+            return statistics;
+        }
+
+    }
+
+    /**
+     * Latency histogram and status counters of operation.
+     */
+    private static class Statistics {
+
+        private final Histogram latencyMicros = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+
+        /* client errors are expected, e.g. the second like of user to the same post */
+        private long rejected;
+
+        private long errors;
+
+        void record(long nanos, int status) {
+            latencyMicros.recordValue(Math.min(HIGHEST_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (status >= 400 && status < 500) {
+                rejected++;
+            } else if (status < 200 || status >= 500) {
+                errors++;
+            }
+        }
+
+        void add(Statistics other) {
+            latencyMicros.add(other.latencyMicros);
+            rejected += other.rejected;
+            errors += other.errors;
+        }
+
+        Map<String, Object> toRow(String operation, double seconds) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("operation", operation);
+            row.put("requests", latencyMicros.getTotalCount());
+            row.put("throughput", latencyMicros.getTotalCount() / seconds);
+            row.put("p50Ms", millis(latencyMicros.getValueAtPercentile(50)));
+            row.put("p99Ms", millis(latencyMicros.getValueAtPercentile(99)));
+            row.put("p999Ms", millis(latencyMicros.getValueAtPercentile(99.9)));
+            row.put("maxMs", millis(latencyMicros.getMaxValue()));
+            row.put("rejected", rejected);
+            row.put("errors", errors);
+            return row;
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.serwisspolecznosciowy.Application.loadtest;
+
+import com.serwisspolecznosciowy.Application.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the application for DatasetGenerator and LoadHarness. Without 'spring.datasource.url' in arguments
+ * file H2 database in MySQL mode (target/dataset) is used, so both tools work without local MySQL.
+ * Every setting can be changed by argument '--name=value', the same as for the application.
+ */
+final class LoadTestApplication {
+
+    static final String H2_URL = "jdbc:h2:file:./target/dataset/social-network;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    private LoadTestApplication() {
+    }
+
+    static ConfigurableApplicationContext run(String[] args, WebApplicationType webApplicationType) {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        if (!hasArgument(args, "spring.datasource.url")) {
+            defaults.put("spring.datasource.url", H2_URL);
+            defaults.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            defaults.put("spring.datasource.username", "sa");
+            defaults.put("spring.datasource.password", "");
+            defaults.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+            defaults.put("spring.jpa.hibernate.ddl-auto", "update");
+        }
+        /* every statement would be printed */
+        defaults.put("spring.jpa.show-sql", "false");
+        defaults.put("server.port", "0");
+        defaults.put("management.server.port", "0");
+
+        /* command line arguments override application.properties, default properties of SpringApplication do not */
+        List<String> allArgs = new ArrayList<>(Arrays.asList(args));
+        defaults.forEach((name, value) -> {
+            if (!hasArgument(args, name)) {
+                allArgs.add("--" + name + "=" + value);
+            }
+        });
+        return new SpringApplicationBuilder(Application.class)
+                .web(webApplicationType)
+                .run(allArgs.toArray(new String[0]));
+    }
+
+    private static boolean hasArgument(String[] args, String name) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + name + "="));
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.serwisspolecznosciowy.Application.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Requests sent by LoadHarness, every one to real controller. Posts are chosen by Workload, so popular posts
+ * are read and liked more often than the others. Feed pages about 'load.deep-page' deep are read with cursor
+ * (keyset pagination) and with offset as baseline, every request of them reads other page, so it is rarely cached.
+ */
+enum Operation {
+
+    FEED("feed") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/all/dto?page=" + workload.page(random) + "&size=" + PAGE_SIZE);
+        }
+    },
+    FEED_CURSOR_FIRST("feed-cursor-first") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/feed/dto?size=" + PAGE_SIZE);
+        }
+    },
+    FEED_CURSOR_DEEP("feed-cursor-deep") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/feed/dto?size=" + PAGE_SIZE + "&after=" + workload.deepCursor(random));
+        }
+    },
+    FEED_OFFSET_DEEP("feed-offset-deep") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/all/dto?page=" + workload.deepPage(random) + "&size=" + PAGE_SIZE);
+        }
+    },
+    FEED_SUMMARY("feed-summary") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/feed/summary/dto?size=" + PAGE_SIZE);
+        }
+    },
+    POST("post") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/post/dto/" + workload.post(random));
+        }
+    },
+    COMMENTS("comments") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return get(server, "/comment/all/dto/" + workload.post(random));
+        }
+    },
+    LIKE("like") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return post(server, "/post/like/dto/" + workload.post(random), null);
+        }
+    },
+    DISLIKE("dislike") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return post(server, "/post/dislike/dto/" + workload.post(random), null);
+        }
+    },
+    ADD_COMMENT("add-comment") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return post(server, "/comment/add/" + workload.post(random), "{\"body\":\"Comment added by load test\"}");
+        }
+    },
+    ADD_POST("add-post") {
+        @Override
+        HttpRequest.Builder request(URI server, Workload workload, Random random) {
+            return post(server, "/post/add/dto", "{\"body\":\"Post added by load test\"}");
+        }
+    };
+
+    static final int PAGE_SIZE = 10;
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    abstract HttpRequest.Builder request(URI server, Workload workload, Random random);
+
+    static Operation byName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation: '" + name + "', known operations: "
+                        + Arrays.toString(Arrays.stream(values()).map(Operation::getName).toArray())));
+    }
+
+    private static HttpRequest.Builder get(URI server, String path) {
+        return HttpRequest.newBuilder(server.resolve(path))
+                .header("Accept-Encoding", "gzip")
+                .GET();
+    }
+
+    private static HttpRequest.Builder post(URI server, String path, String json) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(server.resolve(path));
+        if (json == null) {
+            return request.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        return request.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+}
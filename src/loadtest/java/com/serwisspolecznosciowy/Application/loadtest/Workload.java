@@ -0,0 +1,102 @@
+package com.serwisspolecznosciowy.Application.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Script of load test: mix of operations with weights, e.g. 'feed:40,post:20,like:10', and popularity of posts and feed pages.
+ * Deep feed pages are chosen uniformly from window which starts at 'load.deep-page', the same pages for cursor and offset.
+ */
+class Workload {
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    private final int[] cumulativeWeights;
+
+    /* posts ordered from the most liked one */
+    private final List<Integer> postIds;
+
+    private final ZipfianDistribution posts;
+
+    private final ZipfianDistribution pages;
+
+    private final int firstDeepPage;
+
+    /* cursors pointing directly after the last post of page firstDeepPage - 1, firstDeepPage, ... */
+    private final List<String> deepCursors;
+
+    Workload(String mix, List<Integer> postIds, double popularityExponent, int numberOfPages, int firstDeepPage, List<String> deepCursors) {
+        Map<Operation, Integer> weights = parse(mix);
+        cumulativeWeights = new int[weights.size()];
+        int sum = 0;
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            sum += weight.getValue();
+            cumulativeWeights[operations.size()] = sum;
+            operations.add(weight.getKey());
+        }
+        if (postIds.isEmpty()) {
+            throw new IllegalStateException("Database has no posts, generate dataset first!");
+        }
+        this.postIds = postIds;
+        this.posts = new ZipfianDistribution(postIds.size(), popularityExponent);
+        this.pages = new ZipfianDistribution(numberOfPages, popularityExponent);
+        if (deepCursors.isEmpty() && (operations.contains(Operation.FEED_CURSOR_DEEP) || operations.contains(Operation.FEED_OFFSET_DEEP))) {
+            throw new IllegalStateException("Database has not enough posts for deep feed pages, generate more posts or lower 'load.deep-page'!");
+        }
+        this.firstDeepPage = firstDeepPage;
+        this.deepCursors = deepCursors;
+    }
+
+    List<Operation> getOperations() {
+        return operations;
+    }
+
+    Operation next(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations.get(i);
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    int post(Random random) {
+        return postIds.get(posts.sample(random));
+    }
+
+    /* most of users read only the first pages of feed */
+    int page(Random random) {
+        return pages.sample(random);
+    }
+
+    int deepPage(Random random) {
+        return firstDeepPage + random.nextInt(deepCursors.size());
+    }
+
+    String deepCursor(Random random) {
+        return deepCursors.get(random.nextInt(deepCursors.size()));
+    }
+
+    private static Map<Operation, Integer> parse(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Wrong entry: '" + entry + "' of mix, expected 'operation:weight'");
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight > 0) {
+                weights.merge(Operation.byName(nameAndWeight[0].trim()), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix: '" + mix + "' has no operation with positive weight");
+        }
+        return weights;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.serwisspolecznosciowy.Application.dto.*;
+import com.serwisspolecznosciowy.Application.entity.*;
+import org.hibernate.Hibernate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Estimates how many bytes of heap cached value takes, so cache can be limited by memory instead of number of entries.
+ * Page of 10 posts and page of 1000 posts are one entry each, but they have totally different size.
+ * Values are estimated for 64-bit JVM with compressed references - the goal is a stable approximation, not exact size.
+ * Value with not initialized lazy collection would grow after it is weighed, so it gets weight bigger than any cache
+ * and cache removes it at once (see CachedEntities).
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int UNKNOWN_OBJECT = 64;
+    private static final int INTEGER = 16;
+    private static final int BOOLEAN = 16;
+    private static final int LOCAL_DATE_TIME = 48;
+    private static final int KEY = 64;
+    private static final long UNWEIGHABLE = Integer.MAX_VALUE;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = KEY + estimate(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    public long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return estimateString((String) value);
+        } else if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof LocalDateTime) {
+            return LOCAL_DATE_TIME;
+        } else if (value instanceof SerializedPage) {
+            SerializedPage serializedPage = (SerializedPage) value;
+            return OBJECT_HEADER + 2 * REFERENCE + estimateBytes(serializedPage.getJson()) + estimateBytes(serializedPage.getGzippedJson());
+        } else if (value instanceof Collection) {
+            return estimateCollection((Collection<?>) value);
+        } else if (value instanceof PostDto) {
+            return estimatePostDto((PostDto) value);
+        } else if (value instanceof CommentDto) {
+            return estimateCommentDto((CommentDto) value);
+        } else if (value instanceof LikeDto) {
+            return OBJECT_HEADER + REFERENCE + estimateString(((LikeDto) value).getUsername());
+        } else if (value instanceof DislikeDto) {
+            return OBJECT_HEADER + REFERENCE + estimateString(((DislikeDto) value).getUsername());
+        } else if (value instanceof PostSummaryDto) {
+            return estimatePostSummaryDto((PostSummaryDto) value);
+        } else if (value instanceof CommentSummaryDto) {
+            return estimateCommentSummaryDto((CommentSummaryDto) value);
+        } else if (value instanceof ReactionSummaryDto) {
+            ReactionSummaryDto reactionSummaryDto = (ReactionSummaryDto) value;
+            return OBJECT_HEADER + 3 * REFERENCE + INTEGER + BOOLEAN + estimate(reactionSummaryDto.getFirstUsernames());
+        } else if (value instanceof UserDto) {
+            return estimateUserDto((UserDto) value);
+        } else if (value instanceof Post) {
+            return estimatePost((Post) value);
+        } else if (value instanceof Comment) {
+            return estimateComment((Comment) value);
+        } else if (value instanceof Like) {
+            return OBJECT_HEADER + 5 * REFERENCE + 4 * INTEGER + estimateString(((Like) value).getUsername());
+        } else if (value instanceof Dislike) {
+            return OBJECT_HEADER + 5 * REFERENCE + 4 * INTEGER + estimateString(((Dislike) value).getUsername());
+        } else if (value instanceof User) {
+            return estimateUser((User) value);
+        }
+        return UNKNOWN_OBJECT;
+    }
+
+    private long estimateString(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return 40 + 2L * value.length();
+    }
+
+    private long estimateBytes(byte[] value) {
+        if (value == null) {
+            return 0;
+        }
+        return OBJECT_HEADER + value.length;
+    }
+
+    private long estimateCollection(Collection<?> collection) {
+        if (!Hibernate.isInitialized(collection)) {
+            return UNWEIGHABLE;
+        }
+        long weight = 40;
+        for (Object element : collection) {
+            weight += REFERENCE + estimate(element);
+        }
+        return weight;
+    }
+
+    private long estimatePostDto(PostDto postDto) {
+        return OBJECT_HEADER + 8 * REFERENCE
+                + estimateString(postDto.getBody())
+                + estimate(postDto.getCreated())
+                + estimate(postDto.getUpdated())
+                + estimate(postDto.getLikeDtoList())
+                + estimate(postDto.getDislikeDtoList())
+                + estimateString(postDto.getUsername())
+                + estimateString(postDto.getProfilePicture())
+                + estimate(postDto.getNumberOfComments());
+    }
+
+    private long estimateCommentDto(CommentDto commentDto) {
+        return OBJECT_HEADER + 6 * REFERENCE
+                + estimateString(commentDto.getBody())
+                + estimate(commentDto.getCreated())
+                + estimate(commentDto.getUpdated())
+                + estimate(commentDto.getLikeDtoList())
+                + estimate(commentDto.getDislikeDtoList())
+                + estimate(commentDto.getUser());
+    }
+
+    private long estimatePostSummaryDto(PostSummaryDto postSummaryDto) {
+        return OBJECT_HEADER + 10 * REFERENCE + INTEGER
+                + estimateString(postSummaryDto.getBody())
+                + estimate(postSummaryDto.getCreated())
+                + estimate(postSummaryDto.getUpdated())
+                + estimate(postSummaryDto.getLikes())
+                + estimate(postSummaryDto.getDislikes())
+                + estimateString(postSummaryDto.getUsername())
+                + estimateString(postSummaryDto.getProfilePicture())
+                + estimate(postSummaryDto.getNumberOfComments())
+                + estimate(postSummaryDto.getNewestComments());
+    }
+
+    private long estimateCommentSummaryDto(CommentSummaryDto commentSummaryDto) {
+        return OBJECT_HEADER + 8 * REFERENCE + 2 * INTEGER
+                + estimateString(commentSummaryDto.getBody())
+                + estimate(commentSummaryDto.getCreated())
+                + estimate(commentSummaryDto.getUpdated())
+                + estimate(commentSummaryDto.getLikes())
+                + estimate(commentSummaryDto.getDislikes())
+                + estimate(commentSummaryDto.getUser());
+    }
+
+    private long estimateUserDto(UserDto userDto) {
+        return OBJECT_HEADER + 4 * REFERENCE
+                + estimateString(userDto.getUsername())
+                + estimateString(userDto.getProfilePicture())
+                + estimate(userDto.getCreated())
+                + estimate(userDto.getUpdated());
+    }
+
+    private long estimatePost(Post post) {
+        return OBJECT_HEADER + 9 * REFERENCE + INTEGER
+                + estimateString(post.getBody())
+                + estimate(post.getCreated())
+                + estimate(post.getUpdated())
+                + estimate(post.getUser())
+                + estimate(post.getCommentList())
+                + estimate(post.getLikeList())
+                + estimate(post.getDislikeList())
+                + estimate(post.getNumberOfComments());
+    }
+
+    private long estimateComment(Comment comment) {
+        return OBJECT_HEADER + 8 * REFERENCE + INTEGER
+                + estimateString(comment.getBody())
+                + estimate(comment.getCreated())
+                + estimate(comment.getUpdated())
+                + estimate(comment.getPostId())
+                + estimate(comment.getUser())
+                + estimate(comment.getLikeList())
+                + estimate(comment.getDislikeList());
+    }
+
+    private long estimateUser(User user) {
+        return OBJECT_HEADER + 8 * REFERENCE + INTEGER + BOOLEAN
+                + estimateString(user.getUsername())
+                + estimateString(user.getPassword())
+                + estimate(user.getCreated())
+                + estimate(user.getUpdated())
+                + estimateString(user.getRole())
+                + estimateString(user.getProfilePicture());
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.serwisspolecznosciowy.Application.entity.Comment;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import org.hibernate.Hibernate;
+
+import java.util.List;
+
+/**
+ * Entities are cached with every lazy collection which Jackson serializes already initialized. Otherwise serialization
+ * of cached page (open session in view) would initialize them in place and cached value would grow after it was weighed.
+ * Collections are loaded in batches (@BatchSize), so a page costs a few queries.
+ */
+public final class CachedEntities {
+
+    private CachedEntities() {
+    }
+
+    public static List<Post> initializePosts(List<Post> postList) {
+        for (Post post : postList) {
+            Hibernate.initialize(post.getLikeList());
+            Hibernate.initialize(post.getDislikeList());
+            Hibernate.initialize(post.getCommentList());
+            if (post.getCommentList() != null) {
+                initializeComments(post.getCommentList());
+            }
+        }
+        return postList;
+    }
+
+    public static List<Comment> initializeComments(List<Comment> commentList) {
+        for (Comment comment : commentList) {
+            Hibernate.initialize(comment.getLikeList());
+            Hibernate.initialize(comment.getDislikeList());
+        }
+        return commentList;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Versions of posts used as strong ETags, so conditional GET is answered with 304 before post is loaded and mapped to DTO.
+ * Every change of post (edit, reaction, comment) gets the next number of one sequence as version of the post, changes
+ * which can affect any post (deleted user, new profile picture) set the version of all posts.
+ * Version of cached page is number given to page when it was loaded and the newest version of posts on the page,
+ * so it is computed from a few numbers instead of hashing body of page.
+ * Version is changed when change is made and again after commit, so page loaded before commit doesn't keep ETag of the change.
+ * Versions are kept in memory, ETags contain time of start of application, so ETags of previous run never match.
+ * Only changes made through this instance (and repairs of counters by ReactionCounterReconciliationService) change versions,
+ * so with more instances a change made by other one is not seen here. ETags contain also number of 'cache.etag.ttl-seconds'
+ * period, so ETag is valid at most that long and stale 304 is limited like stale cached pages.
+ */
+@Component
+public class ContentVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /* 0 - ETags don't expire */
+    @Value("${cache.etag.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Integer, Long> postVersions = new ConcurrentHashMap<>();
+
+    private volatile long allPostsVersion;
+
+    /* cache name -> page key -> page */
+    private final Map<String, Map<Object, Page>> pagesForCache = new ConcurrentHashMap<>();
+
+    public void postChanged(Integer postId) {
+        nowAndAfterCommit(() -> postVersions.put(postId, sequence.incrementAndGet()));
+    }
+
+    public void allPostsChanged() {
+        nowAndAfterCommit(() -> allPostsVersion = sequence.incrementAndGet());
+    }
+
+    public void registerPage(String cacheName, Object key, Collection<Integer> postIds) {
+        pagesForCache.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>())
+                .put(key, new Page(sequence.incrementAndGet(), List.copyOf(postIds)));
+    }
+
+    public void removePage(String cacheName, Object key) {
+        Map<Object, Page> pages = pagesForCache.get(cacheName);
+        if (pages != null) {
+            pages.remove(key);
+        }
+    }
+
+    public void clearPages(String cacheName) {
+        pagesForCache.remove(cacheName);
+    }
+
+    /**
+     * ETag of post and of list of its comments - every change of comment is also change of post.
+     */
+    public String postETag(Integer postId) {
+        return eTag(Math.max(allPostsVersion, postVersions.getOrDefault(postId, 0L)));
+    }
+
+    /**
+     * @return ETag of cached page or null when page is not cached yet
+     */
+    public String pageETag(String cacheName, Object key, boolean gzipped) {
+        Map<Object, Page> pages = pagesForCache.get(cacheName);
+        Page page = pages != null ? pages.get(key) : null;
+        if (page == null) {
+            return null;
+        }
+        long version = allPostsVersion;
+        for (Integer postId : page.postIds) {
+            version = Math.max(version, postVersions.getOrDefault(postId, 0L));
+        }
+        return eTag(page.loadedVersion + "-" + version + (gzipped ? "-gzip" : ""));
+    }
+
+    /**
+     * @param ifNoneMatch value of 'If-None-Match' header of request, can be null
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String requestETag : ifNoneMatch.split(",")) {
+            String trimmedETag = requestETag.trim();
+            /* If-None-Match uses weak comparison */
+            if (trimmedETag.equals("*") || trimmedETag.replaceFirst("^W/", "").equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String eTag(Object version) {
+        long period = ttlSeconds > 0 ? clock.getAsLong() / (ttlSeconds * 1000) : 0;
+        return "\"" + epoch + "-" + Long.toString(period, Character.MAX_RADIX) + "-" + version + "\"";
+    }
+
+    private void nowAndAfterCommit(Runnable change) {
+        change.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        }
+    }
+
+    private static class Page {
+
+        private final long loadedVersion;
+
+        private final List<Integer> postIds;
+
+        private Page(long loadedVersion, List<Integer> postIds) {
+            this.loadedVersion = loadedVersion;
+            this.postIds = postIds;
+        }
+
+    }
+
+}
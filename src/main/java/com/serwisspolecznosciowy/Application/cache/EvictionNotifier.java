@@ -0,0 +1,32 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tells listener about entries removed by cache itself (size limit, expiration, value too big to store), not by evict/clear.
+ * Caches are built before FeedCacheInvalidator exists, so listener is set later.
+ */
+public class EvictionNotifier {
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile Consumer<Object> listener = key -> { };
+
+    public void setListener(Consumer<Object> listener) {
+        this.listener = listener;
+    }
+
+    public void evicted(Object key) {
+        evictions.incrementAndGet();
+        listener.accept(key);
+    }
+
+    /**
+     * Number of entries removed by cache itself since it was built.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+}
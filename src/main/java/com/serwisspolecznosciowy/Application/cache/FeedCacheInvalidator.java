@@ -0,0 +1,229 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.*;
+
+/**
+ * Evicts only these cached pages which can contain changed post or comment.
+ * Services register ids of posts/comments for every page they load into cache. When post or comment changes
+ * only pages with this id are evicted. New or deleted post/comment moves every next page (offset pagination),
+ * so in that case all pages of the affected caches are cleared.
+ * Pages serialized to JSON have the same keys as pages of DTO cache they were made of, so they are evicted together.
+ * Every change also changes versions of posts (ContentVersions) used as ETags.
+ * Pages are evicted after transaction which changed data is committed, before that concurrent request would load old data
+ * into cache again. Page is registered after it is stored in cache, page loaded while one of its posts/comments changed
+ * is not kept at all (SingleFlightCache), and pages removed by cache itself (size limit, expiration) are forgotten.
+ */
+@Component
+@Slf4j
+public class FeedCacheInvalidator {
+
+    private static final String[] POST_CACHES = {POSTS_WITH_COMMENTS, ALL_POSTS_DTO, ALL_POSTS_SUMMARY_DTO};
+    private static final String[] COMMENT_CACHES = {ALL_COMMENTS, ALL_COMMENTS_DTO, ALL_COMMENTS_SUMMARY_DTO};
+
+    /* DTO cache -> cache of the same pages serialized to JSON */
+    private static final Map<String, String> SERIALIZED_CACHES = Map.of(ALL_POSTS_DTO, ALL_POSTS_DTO_JSON);
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ContentVersions contentVersions;
+
+    /* cache name -> post or comment id -> keys of cached pages which contain it */
+    private final Map<String, Map<Integer, Set<Object>>> pageKeysByIdForCache = new ConcurrentHashMap<>();
+
+    /* cache name -> key of cached page -> ids of posts or comments on it */
+    private final Map<String, Map<Object, List<Integer>>> idsByPageKeyForCache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void forgetPagesEvictedByCache() {
+        for (String cacheName : concat(POST_CACHES, COMMENT_CACHES)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof SingleFlightCache) {
+                ((SingleFlightCache) cache).getEvictionNotifier().setListener(key -> {
+                    forgetPage(cacheName, key);
+                    /* serialized page would not be evicted any more when its page is forgotten */
+                    Cache serializedCache = getSerializedCache(cacheName);
+                    if (serializedCache != null) {
+                        serializedCache.evict(key);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Called by loader of page, page is registered after it is stored in cache.
+     */
+    public void registerPage(String cacheName, Object key, Collection<Integer> ids) {
+        List<Integer> pageIds = List.copyOf(ids);
+        SingleFlightCache.loadedIds(pageIds);
+        SingleFlightCache.afterStore(() -> {
+            List<Integer> oldIds = idsByPageKeyForCache.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>()).put(key, pageIds);
+            if (oldIds != null) {
+                unlinkPage(cacheName, key, oldIds);
+            }
+            Map<Integer, Set<Object>> pageKeysById = pageKeysByIdForCache.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>());
+            for (Integer id : pageIds) {
+                pageKeysById.computeIfAbsent(id, pageId -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            if (Arrays.asList(POST_CACHES).contains(cacheName)) {
+                contentVersions.registerPage(cacheName, key, pageIds);
+            }
+        });
+    }
+
+    public void evictPostChanged(Integer postId) {
+        contentVersions.postChanged(postId);
+        afterCommit(() -> {
+            for (String cacheName : POST_CACHES) {
+                evictPagesWithId(cacheName, postId);
+            }
+        });
+    }
+
+    public void evictPostAddedOrDeleted() {
+        afterCommit(() -> {
+            for (String cacheName : POST_CACHES) {
+                clearCache(cacheName);
+            }
+        });
+    }
+
+    /* version of deleted post is changed, so conditional GET doesn't answer 304 for post which doesn't exist */
+    public void evictPostDeleted(Integer postId) {
+        contentVersions.postChanged(postId);
+        evictPostAddedOrDeleted();
+    }
+
+    public void evictCommentChanged(Integer commentId, Integer postId) {
+        afterCommit(() -> {
+            for (String cacheName : COMMENT_CACHES) {
+                evictPagesWithId(cacheName, commentId);
+            }
+        });
+        /* post pages contains comments of post and number of comments */
+        evictPostChanged(postId);
+    }
+
+    public void evictCommentAddedOrDeleted(Integer postId) {
+        afterCommit(() -> {
+            for (String cacheName : COMMENT_CACHES) {
+                clearCache(cacheName);
+            }
+        });
+        evictPostChanged(postId);
+    }
+
+    /* posts and comments of deleted user can be on any page */
+    public void evictAllPostsAndComments() {
+        contentVersions.allPostsChanged();
+        afterCommit(() -> {
+            for (String cacheName : concat(POST_CACHES, COMMENT_CACHES)) {
+                clearCache(cacheName);
+            }
+        });
+    }
+
+    private void evictPagesWithId(String cacheName, Integer id) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        Cache serializedCache = getSerializedCache(cacheName);
+        /* page with this id can be loaded now and not registered yet */
+        invalidateLoadsWithId(cache, id);
+        invalidateLoadsWithId(serializedCache, id);
+        Map<Integer, Set<Object>> pageKeysById = pageKeysByIdForCache.get(cacheName);
+        Set<Object> pageKeys = pageKeysById != null ? pageKeysById.remove(id) : null;
+        if (pageKeys != null) {
+            for (Object key : pageKeys) {
+                cache.evict(key);
+                if (serializedCache != null) {
+                    serializedCache.evict(key);
+                }
+                forgetPage(cacheName, key);
+            }
+            log.debug("Evicted {} pages with id: {} from cache: '{}'", pageKeys.size(), id, cacheName);
+        }
+    }
+
+    private void forgetPage(String cacheName, Object key) {
+        Map<Object, List<Integer>> idsByPageKey = idsByPageKeyForCache.get(cacheName);
+        List<Integer> ids = idsByPageKey != null ? idsByPageKey.remove(key) : null;
+        if (ids != null) {
+            unlinkPage(cacheName, key, ids);
+        }
+        contentVersions.removePage(cacheName, key);
+    }
+
+    private void unlinkPage(String cacheName, Object key, List<Integer> ids) {
+        Map<Integer, Set<Object>> pageKeysById = pageKeysByIdForCache.get(cacheName);
+        if (pageKeysById == null) {
+            return;
+        }
+        for (Integer id : ids) {
+            pageKeysById.computeIfPresent(id, (pageId, pageKeys) -> {
+                pageKeys.remove(key);
+                return pageKeys.isEmpty() ? null : pageKeys;
+            });
+        }
+    }
+
+    private void clearCache(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+        Cache serializedCache = getSerializedCache(cacheName);
+        if (serializedCache != null) {
+            serializedCache.clear();
+        }
+        pageKeysByIdForCache.remove(cacheName);
+        idsByPageKeyForCache.remove(cacheName);
+        contentVersions.clearPages(cacheName);
+    }
+
+    private static void invalidateLoadsWithId(Cache cache, Integer id) {
+        if (cache instanceof SingleFlightCache) {
+            ((SingleFlightCache) cache).invalidateLoadsWithId(id);
+        }
+    }
+
+    private static List<String> concat(String[] cacheNames, String[] otherCacheNames) {
+        List<String> allCacheNames = new ArrayList<>(Arrays.asList(cacheNames));
+        allCacheNames.addAll(Arrays.asList(otherCacheNames));
+        return allCacheNames;
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private Cache getSerializedCache(String cacheName) {
+        String serializedCacheName = SERIALIZED_CACHES.get(cacheName);
+        return serializedCacheName != null ? cacheManager.getCache(serializedCacheName) : null;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to live with random jitter. Cached pages are evicted by FeedCacheInvalidator when data changes,
+ * TTL is only a safety net. Jitter spreads expiration of entries loaded at the same moment,
+ * so they are not reloaded from database all at once.
+ */
+public class JitteredExpiry implements Expiry<Object, Object> {
+
+    private final long timeToLiveInNanos;
+
+    private final long maxJitterInNanos;
+
+    public JitteredExpiry(long timeToLiveInSeconds, double jitterFraction) {
+        this.timeToLiveInNanos = TimeUnit.SECONDS.toNanos(timeToLiveInSeconds);
+        this.maxJitterInNanos = (long) (timeToLiveInNanos * jitterFraction);
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        if (maxJitterInNanos == 0) {
+            return timeToLiveInNanos;
+        }
+        return timeToLiveInNanos + ThreadLocalRandom.current().nextLong(-maxJitterInNanos, maxJitterInNanos + 1);
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Spring cache which keeps values encoded by ValueCodec in OffHeapStore. Every hit decodes value again,
+ * so it fits caches of big pages, where shorter GC pauses are worth more than decoding.
+ */
+public class OffHeapCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+
+    private final OffHeapStore store;
+
+    private final ValueCodec codec;
+
+    public OffHeapCache(String name, OffHeapStore store, ValueCodec codec) {
+        super(false);
+        this.name = name;
+        this.store = store;
+        this.codec = codec;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        byte[] bytes = store.get(key);
+        return bytes != null ? codec.decode(bytes) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = lookup(key);
+        if (value != null) {
+            return (T) value;
+        }
+        try {
+            T loadedValue = valueLoader.call();
+            put(key, loadedValue);
+            return loadedValue;
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            store.evict(key);
+            return;
+        }
+        store.put(key, codec.encode(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        store.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return store.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public OffHeapStore getNativeCache() {
+        return store;
+    }
+
+}
@@ -0,0 +1,361 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bytes of cached values kept outside of heap in direct ByteBuffer slabs, only index (key -> slab, offset, length) is on heap,
+ * so big caches don't make GC pauses longer.
+ * Values are appended to the current slab. When all slabs are in use the oldest one is reused: its entries are removed,
+ * except entries read since they were written, which are written again (second chance), so hot pages stay in cache.
+ * Slab which has no live entries left (all evicted) is reused at once. Bytes of removed entries in slabs which are not reused
+ * yet are reported as fragmentation.
+ * Expired entries are removed when they are read or by removeExpired, removed entries are reported to EvictionNotifier.
+ */
+public class OffHeapStore {
+
+    private final int slabSize;
+
+    private final int maxSlabs;
+
+    private final long timeToLiveInNanos;
+
+    private final long maxJitterInNanos;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    /* slabs with entries from the oldest to the current one, which is the last */
+    private final Deque<Integer> slabsInUse = new ArrayDeque<>();
+
+    private final Deque<Integer> freeSlabs = new ArrayDeque<>();
+
+    private final Map<Object, Location> index = new HashMap<>();
+
+    /* keys written to slab, some of them can be already removed or written again to other slab */
+    private final List<List<Object>> keysInSlab = new ArrayList<>();
+
+    private final List<Long> liveBytesInSlab = new ArrayList<>();
+
+    private int writeOffset;
+
+    private long liveBytes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private final EvictionNotifier evictionNotifier;
+
+    public OffHeapStore(long maxSizeInBytes, int slabSize, long timeToLiveInSeconds, double jitterFraction) {
+        this(maxSizeInBytes, slabSize, timeToLiveInSeconds, jitterFraction, new EvictionNotifier());
+    }
+
+    public OffHeapStore(long maxSizeInBytes, int slabSize, long timeToLiveInSeconds, double jitterFraction, EvictionNotifier evictionNotifier) {
+        this.evictionNotifier = evictionNotifier;
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.max(1, maxSizeInBytes / slabSize);
+        this.timeToLiveInNanos = TimeUnit.SECONDS.toNanos(timeToLiveInSeconds);
+        this.maxJitterInNanos = (long) (timeToLiveInNanos * jitterFraction);
+    }
+
+    /**
+     * @return copy of bytes stored for key or null when there is no such entry or it expired
+     */
+    public byte[] get(Object key) {
+        Location expiredLocation;
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null) {
+                misses.increment();
+                return null;
+            }
+            if (isExpired(location)) {
+                misses.increment();
+                expiredLocation = location;
+            } else {
+                location.accessed = true;
+                byte[] bytes = new byte[location.length];
+                slabs.get(location.slab).duplicate().position(location.offset).get(bytes);
+                hits.increment();
+                return bytes;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        /* read lock can't be upgraded, entry could be written again in the meantime */
+        lock.writeLock().lock();
+        try {
+            if (index.get(key) == expiredLocation) {
+                removeExpired(key);
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all expired entries, so they don't wait in index until their slab is reused.
+     *
+     * @return number of removed entries
+     */
+    public int removeExpired() {
+        lock.writeLock().lock();
+        try {
+            List<Object> expiredKeys = new ArrayList<>();
+            index.forEach((key, location) -> {
+                if (isExpired(location)) {
+                    expiredKeys.add(key);
+                }
+            });
+            expiredKeys.forEach(this::removeExpired);
+            return expiredKeys.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeExpired(Object key) {
+        remove(key);
+        expirations.increment();
+        evictionNotifier.evicted(key);
+    }
+
+    private static boolean isExpired(Location location) {
+        return location.expiresAt - System.nanoTime() < 0;
+    }
+
+    /**
+     * @return false when bytes are bigger than slab and can't be stored
+     */
+    public boolean put(Object key, byte[] bytes) {
+        lock.writeLock().lock();
+        try {
+            remove(key);
+            if (bytes.length > slabSize) {
+                rejected.increment();
+                evictionNotifier.evicted(key);
+                return false;
+            }
+            write(key, bytes, newExpiresAt());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean evict(Object key) {
+        lock.writeLock().lock();
+        try {
+            return remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            while (!slabsInUse.isEmpty()) {
+                releaseSlab(slabsInUse.pollFirst());
+            }
+            liveBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Object key, byte[] bytes, long expiresAt) {
+        /* reused slab can be filled again by entries which got second chance, then the next one is reused */
+        while (slabsInUse.isEmpty() || writeOffset + bytes.length > slabSize) {
+            nextSlab();
+        }
+        int slab = slabsInUse.peekLast();
+        slabs.get(slab).duplicate().position(writeOffset).put(bytes);
+        index.put(key, new Location(slab, writeOffset, bytes.length, expiresAt));
+        keysInSlab.get(slab).add(key);
+        liveBytesInSlab.set(slab, liveBytesInSlab.get(slab) + bytes.length);
+        liveBytes += bytes.length;
+        writeOffset += bytes.length;
+    }
+
+    private void nextSlab() {
+        if (freeSlabs.isEmpty() && slabs.size() < maxSlabs) {
+            slabs.add(ByteBuffer.allocateDirect(slabSize));
+            keysInSlab.add(new ArrayList<>());
+            liveBytesInSlab.add(0L);
+            freeSlabs.add(slabs.size() - 1);
+        }
+        if (!freeSlabs.isEmpty()) {
+            slabsInUse.addLast(freeSlabs.pollFirst());
+            writeOffset = 0;
+        } else {
+            reuseOldestSlab();
+        }
+    }
+
+    private void reuseOldestSlab() {
+        int oldestSlab = slabsInUse.pollFirst();
+        Map<Object, byte[]> secondChance = new LinkedHashMap<>();
+        Map<Object, Long> expirationOfSecondChance = new HashMap<>();
+        for (Object key : keysInSlab.get(oldestSlab)) {
+            Location location = index.get(key);
+            if (location == null || location.slab != oldestSlab) {
+                continue;
+            }
+            if (location.accessed && !isExpired(location)) {
+                byte[] bytes = new byte[location.length];
+                slabs.get(oldestSlab).duplicate().position(location.offset).get(bytes);
+                secondChance.put(key, bytes);
+                expirationOfSecondChance.put(key, location.expiresAt);
+            } else {
+                evictions.increment();
+                evictionNotifier.evicted(key);
+            }
+            index.remove(key);
+            liveBytes -= location.length;
+        }
+        keysInSlab.get(oldestSlab).clear();
+        liveBytesInSlab.set(oldestSlab, 0L);
+        slabsInUse.addLast(oldestSlab);
+        writeOffset = 0;
+        /* all of them were in this slab, so they fit into it again; they are not accessed any more, next time they are removed */
+        secondChance.forEach((key, bytes) -> write(key, bytes, expirationOfSecondChance.get(key)));
+    }
+
+    private boolean remove(Object key) {
+        Location location = index.remove(key);
+        if (location == null) {
+            return false;
+        }
+        liveBytes -= location.length;
+        long liveBytesOfSlab = liveBytesInSlab.get(location.slab) - location.length;
+        liveBytesInSlab.set(location.slab, liveBytesOfSlab);
+        if (liveBytesOfSlab == 0 && !Objects.equals(location.slab, slabsInUse.peekLast())) {
+            slabsInUse.remove(location.slab);
+            releaseSlab(location.slab);
+        }
+        return true;
+    }
+
+    private void releaseSlab(Integer slab) {
+        keysInSlab.get(slab).clear();
+        liveBytesInSlab.set(slab, 0L);
+        freeSlabs.addLast(slab);
+    }
+
+    private long newExpiresAt() {
+        long jitter = maxJitterInNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(-maxJitterInNanos, maxJitterInNanos + 1);
+        return System.nanoTime() + timeToLiveInNanos + jitter;
+    }
+
+    public long getEntries() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Off-heap memory allocated by slabs, it is not released until application stops.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slabs.size() * slabSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Part of bytes written to slabs in use which belong to removed entries or are left unused at the end of slab.
+     */
+    public double getFragmentation() {
+        lock.readLock().lock();
+        try {
+            long writtenBytes = slabsInUse.isEmpty() ? 0 : (long) (slabsInUse.size() - 1) * slabSize + writeOffset;
+            return writtenBytes == 0 ? 0 : 1 - (double) liveBytes / writtenBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries removed because their slab was reused, without entries evicted by FeedCacheInvalidator.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of values which were not stored because they are bigger than slab.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of expired entries removed when they were read or by removeExpired.
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    private static class Location {
+
+        private final int slab;
+
+        private final int offset;
+
+        private final int length;
+
+        private final long expiresAt;
+
+        /* set by readers under read lock, only a hint for second chance */
+        private volatile boolean accessed;
+
+        private Location(int slab, int offset, int length, long expiresAt) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
+import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Compressed bitmaps of ids of users who liked/disliked hot posts (posts with at least 'reactions.bitmap.min-reactions' reactions).
+ * Duplicate check of reaction to hot post is answered from memory instead of database.
+ * Bitmap can miss reaction added by other instance of application - then insert is rejected by unique index
+ * and the reaction is added to bitmap. So answer "already reacted" is always correct and "not reacted" is verified by the index.
+ * Disabled by default ('reactions.bitmap.enabled').
+ */
+@Component
+@Slf4j
+public class ReactionBitmapCache {
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private DislikeRepository dislikeRepository;
+
+    @Value("${reactions.bitmap.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reactions.bitmap.min-reactions:1000}")
+    private int minReactions;
+
+    @Value("${reactions.bitmap.max-weight-mb:16}")
+    private long maxWeightInMegabytes;
+
+    private Cache<Integer, RoaringBitmap> postLikes;
+
+    private Cache<Integer, RoaringBitmap> postDislikes;
+
+    @PostConstruct
+    void buildCaches() {
+        postLikes = buildCache();
+        postDislikes = buildCache();
+    }
+
+    /* bitmap is weighed when it is loaded, later it grows a little with every new reaction */
+    private Cache<Integer, RoaringBitmap> buildCache() {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxWeightInMegabytes * BYTES_IN_MEGABYTE)
+                .weigher((Integer postId, RoaringBitmap bitmap) -> bitmap.getSizeInBytes())
+                .build();
+    }
+
+    /**
+     * @return empty when post is not tracked and database has to be checked
+     */
+    public Optional<Boolean> hasLikedPost(Integer postId, Integer userId, Integer numberOfLikes) {
+        return contains(postLikes, postId, userId, numberOfLikes, likeRepository::findUserIdsByPostLikeId);
+    }
+
+    public Optional<Boolean> hasDislikedPost(Integer postId, Integer userId, Integer numberOfDislikes) {
+        return contains(postDislikes, postId, userId, numberOfDislikes, dislikeRepository::findUserIdsByPostDislikeId);
+    }
+
+    public void addPostLike(Integer postId, Integer userId) {
+        addAfterCommit(postLikes, postId, userId);
+    }
+
+    public void addPostDislike(Integer postId, Integer userId) {
+        addAfterCommit(postDislikes, postId, userId);
+    }
+
+    /**
+     * Adds reaction which was found in database (rejected by unique index) but was missing in bitmap.
+     */
+    public void addExistingPostLike(Integer postId, Integer userId) {
+        if (enabled) {
+            add(postLikes, postId, userId);
+        }
+    }
+
+    public void addExistingPostDislike(Integer postId, Integer userId) {
+        if (enabled) {
+            add(postDislikes, postId, userId);
+        }
+    }
+
+    private Optional<Boolean> contains(Cache<Integer, RoaringBitmap> cache, Integer postId, Integer userId, Integer numberOfReactions,
+                                       Function<Integer, List<Integer>> findUserIds) {
+        if (!enabled || numberOfReactions == null || numberOfReactions < minReactions) {
+            return Optional.empty();
+        }
+        RoaringBitmap bitmap = cache.get(postId, id -> loadBitmap(id, findUserIds));
+        synchronized (bitmap) {
+            return Optional.of(bitmap.contains(userId));
+        }
+    }
+
+    private RoaringBitmap loadBitmap(Integer postId, Function<Integer, List<Integer>> findUserIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        findUserIds.apply(postId).forEach(bitmap::add);
+        bitmap.runOptimize();
+        log.info("Loaded bitmap of {} reactions for hot post with id: {} ({} bytes)", bitmap.getCardinality(), postId, bitmap.getSizeInBytes());
+        return bitmap;
+    }
+
+    /* reaction rolled back must not stay in bitmap, otherwise user could never react again */
+    private void addAfterCommit(Cache<Integer, RoaringBitmap> cache, Integer postId, Integer userId) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(cache, postId, userId);
+                }
+            });
+        } else {
+            add(cache, postId, userId);
+        }
+    }
+
+    private void add(Cache<Integer, RoaringBitmap> cache, Integer postId, Integer userId) {
+        RoaringBitmap bitmap = cache.getIfPresent(postId);
+        if (bitmap != null) {
+            synchronized (bitmap) {
+                bitmap.add(userId);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Page already encoded as UTF-8 JSON, cached so hot pages are written to response without running Jackson on every request.
+ * Pages bigger than MIN_GZIP_SIZE are also kept gzipped for clients which accept gzip encoding.
+ */
+@Getter
+public class SerializedPage {
+
+    static final int MIN_GZIP_SIZE = 1024;
+
+    private final byte[] json;
+
+    /* null when page is too small to be worth compressing */
+    private final byte[] gzippedJson;
+
+    private SerializedPage(byte[] json, byte[] gzippedJson) {
+        this.json = json;
+        this.gzippedJson = gzippedJson;
+    }
+
+    public static SerializedPage of(byte[] json) {
+        return new SerializedPage(json, json.length >= MIN_GZIP_SIZE ? gzip(json) : null);
+    }
+
+    /* page read back from off-heap cache, gzip is already done */
+    static SerializedPage of(byte[] json, byte[] gzippedJson) {
+        return new SerializedPage(json, gzippedJson);
+    }
+
+    /**
+     * @param acceptEncoding value of 'Accept-Encoding' header of request, can be null
+     */
+    public boolean canBeSentGzipped(String acceptEncoding) {
+        return gzippedJson != null && isGzipAccepted(acceptEncoding);
+    }
+
+    /**
+     * @param acceptEncoding value of 'Accept-Encoding' header of request, can be null
+     */
+    public static boolean isGzipAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] nameAndQuality = encoding.trim().split(";");
+            if (nameAndQuality[0].trim().equalsIgnoreCase("gzip")) {
+                return nameAndQuality.length == 1 || !nameAndQuality[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+}
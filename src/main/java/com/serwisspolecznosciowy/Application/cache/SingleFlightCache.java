@@ -0,0 +1,262 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache decorator which runs only one loader per key at the same time (used by @Cacheable(sync = true)).
+ * When many requests miss the same page together, the first one loads it from database and the others
+ * wait for its result instead of running the same query in parallel.
+ * Value loaded while its key was evicted (or cache was cleared) or while post/comment recorded by its loader changed
+ * is returned to waiting requests, but it is not kept in cache, because it can be loaded from data before the change.
+ * Changes of other posts/comments don't affect it, so frequent likes don't stop pages from being cached.
+ */
+public class SingleFlightCache implements Cache {
+
+    /* the innermost load running in this thread, loader of other cache can be called inside of loader */
+    private static final ThreadLocal<Load> CURRENT_LOAD = new ThreadLocal<>();
+
+    private final Cache delegate;
+
+    private final EvictionNotifier evictionNotifier;
+
+    private final ConcurrentMap<Object, Load> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder savedLoads = new LongAdder();
+
+    private final LongAdder loadNanos = new LongAdder();
+
+    public SingleFlightCache(Cache delegate) {
+        this(delegate, new EvictionNotifier());
+    }
+
+    public SingleFlightCache(Cache delegate, EvictionNotifier evictionNotifier) {
+        this.delegate = delegate;
+        this.evictionNotifier = evictionNotifier;
+    }
+
+    /**
+     * Runs action after value loaded by current thread is stored in cache, or at once when thread doesn't load any value.
+     * Page registered before it is stored could be evicted in the meantime and then stored, so it would never be evicted again.
+     */
+    public static void afterStore(Runnable action) {
+        Load load = CURRENT_LOAD.get();
+        if (load != null) {
+            load.afterStoreActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Records ids of posts or comments read by loaders running in current thread (also by outer ones, e.g. serialized page
+     * made of page of DTOs), value is not cached when any of them changes before it is stored.
+     */
+    public static void loadedIds(Collection<Integer> ids) {
+        for (Load load = CURRENT_LOAD.get(); load != null; load = load.outer) {
+            load.loadedIds.addAll(ids);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cachedValue = delegate.get(key);
+        if (cachedValue != null) {
+            return (T) cachedValue.get();
+        }
+        Load outerLoad = CURRENT_LOAD.get();
+        Load newLoad = new Load(outerLoad);
+        Load loadInFlight = loadsInFlight.putIfAbsent(key, newLoad);
+        if (loadInFlight != null) {
+            savedLoads.increment();
+            return (T) waitForLoad(key, valueLoader, loadInFlight.result);
+        }
+        long loadStart = System.nanoTime();
+        try {
+            loads.increment();
+            T value;
+            CURRENT_LOAD.set(newLoad);
+            try {
+                value = valueLoader.call();
+            } finally {
+                restoreCurrentLoad(outerLoad);
+            }
+            long evictionsBefore = evictionNotifier.getEvictions();
+            delegate.put(key, value);
+            newLoad.afterStoreActions.forEach(Runnable::run);
+            if (newLoad.isStale()) {
+                delegate.evict(key);
+                evictionNotifier.evicted(key);
+            } else if (evictionNotifier.getEvictions() != evictionsBefore && delegate.get(key) == null) {
+                /* cache removed value before actions registered it */
+                evictionNotifier.evicted(key);
+            }
+            newLoad.result.complete(value);
+            return value;
+        } catch (Exception ex) {
+            newLoad.result.completeExceptionally(ex);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } finally {
+            loadNanos.add(System.nanoTime() - loadStart);
+            loadsInFlight.remove(key, newLoad);
+        }
+    }
+
+    private static void restoreCurrentLoad(Load load) {
+        if (load != null) {
+            CURRENT_LOAD.set(load);
+        } else {
+            CURRENT_LOAD.remove();
+        }
+    }
+
+    private Object waitForLoad(Object key, Callable<?> valueLoader, CompletableFuture<Object> loadInFlight) {
+        try {
+            return loadInFlight.get();
+        } catch (ExecutionException ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    /**
+     * Number of loaders which were really executed.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Number of requests which waited for loader started by other request instead of running own one.
+     */
+    public long getSavedLoads() {
+        return savedLoads.sum();
+    }
+
+    /**
+     * Total time of loaders which were really executed, including failed ones.
+     */
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * Values being loaded now which contain post or comment with this id are not kept in cache, used when it changed
+     * but page with it is not registered yet. Load started after this call reads committed change, so it is not affected.
+     */
+    public void invalidateLoadsWithId(Integer id) {
+        for (Load load : loadsInFlight.values()) {
+            load.changedIds.add(id);
+        }
+    }
+
+    public EvictionNotifier getEvictionNotifier() {
+        return evictionNotifier;
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        invalidateLoad(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        invalidateLoad(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        invalidateAllLoads();
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        invalidateAllLoads();
+        return delegate.invalidate();
+    }
+
+    private void invalidateLoad(Object key) {
+        Load load = loadsInFlight.get(key);
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    private void invalidateAllLoads() {
+        for (Load load : loadsInFlight.values()) {
+            load.stale = true;
+        }
+    }
+
+    private static class Load {
+
+        private final Load outer;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        /* actions registered by loader, they run after its value is stored */
+        private final List<Runnable> afterStoreActions = new ArrayList<>();
+
+        /* changed only by loading thread */
+        private final Set<Integer> loadedIds = new HashSet<>();
+
+        private final Set<Integer> changedIds = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean stale;
+
+        private Load(Load outer) {
+            this.outer = outer;
+        }
+
+        private boolean isStale() {
+            return stale || !Collections.disjoint(loadedIds, changedIds);
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts cached value to bytes stored by OffHeapStore and back.
+ */
+public interface ValueCodec {
+
+    byte[] encode(Object value);
+
+    Object decode(byte[] bytes);
+
+    /**
+     * Value is stored as JSON and read as given type, e.g. list of DTOs.
+     */
+    static ValueCodec json(ObjectMapper objectMapper, JavaType type) {
+        return new ValueCodec() {
+            @Override
+            public byte[] encode(Object value) {
+                try {
+                    return objectMapper.writeValueAsBytes(value);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            @Override
+            public Object decode(byte[] bytes) {
+                try {
+                    return objectMapper.readValue(bytes, type);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Page already serialized to JSON is stored as it is: length of JSON, JSON and gzipped JSON.
+     */
+    static ValueCodec serializedPage() {
+        return new ValueCodec() {
+            @Override
+            public byte[] encode(Object value) {
+                SerializedPage serializedPage = (SerializedPage) value;
+                byte[] json = serializedPage.getJson();
+                byte[] gzippedJson = serializedPage.getGzippedJson() != null ? serializedPage.getGzippedJson() : new byte[0];
+                return ByteBuffer.allocate(Integer.BYTES + json.length + gzippedJson.length)
+                        .putInt(json.length).put(json).put(gzippedJson).array();
+            }
+
+            @Override
+            public Object decode(byte[] bytes) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                byte[] json = new byte[buffer.getInt()];
+                buffer.get(json);
+                byte[] gzippedJson = new byte[buffer.remaining()];
+                buffer.get(gzippedJson);
+                return SerializedPage.of(json, gzippedJson.length > 0 ? gzippedJson : null);
+            }
+        };
+    }
+
+}
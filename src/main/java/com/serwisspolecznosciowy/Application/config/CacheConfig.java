@@ -1,48 +1,183 @@
 package com.serwisspolecznosciowy.Application.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.serwisspolecznosciowy.Application.cache.*;
+import com.serwisspolecznosciowy.Application.dto.CommentDto;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
 @EnableScheduling
+@Slf4j
 public class CacheConfig {
 
+    public static final String POSTS_WITH_COMMENTS = "PostsWithComments";
+    public static final String ALL_POSTS_DTO = "AllPostsDto";
+    public static final String ALL_POSTS_DTO_JSON = "AllPostsDtoJson";
+    public static final String ALL_COMMENTS = "AllComments";
+    public static final String ALL_COMMENTS_DTO = "AllCommentsDto";
+    public static final String ALL_POSTS_SUMMARY_DTO = "AllPostsSummaryDto";
+    public static final String ALL_COMMENTS_SUMMARY_DTO = "AllCommentsSummaryDto";
+    public static final String USERS_BY_USERNAME = "UsersByUsername";
+
+    private static final long DEFAULT_MAX_WEIGHT_IN_MEGABYTES = 16;
+    private static final long DEFAULT_TIME_TO_LIVE_IN_SECONDS = 300;
+    private static final double DEFAULT_TIME_TO_LIVE_JITTER = 0.1;
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final int DEFAULT_SLAB_SIZE_IN_KILOBYTES = 1024;
+    private static final double DEFAULT_MAX_DIRECT_MEMORY_PART = 0.75;
+
+    /* caches which can be kept off-heap, their values are encoded to bytes by these codecs */
+    private static final Map<String, ValueCodec> OFF_HEAP_CODECS = offHeapCodecs();
+
     @Autowired
     CacheManager cacheManager;
 
     @Bean
-    public CacheManager cacheManager() {
+    public static CacheManager cacheManager(Environment environment) {
         SimpleCacheManager simpleCacheManager = new SimpleCacheManager();
         List<Cache> caches = new ArrayList<>();
-        caches.add(new ConcurrentMapCache("PostsWithComments"));
-        caches.add(new ConcurrentMapCache("AllPostsDto"));
-        caches.add(new ConcurrentMapCache("AllComments"));
-        caches.add(new ConcurrentMapCache("AllCommentsDto"));
+        double offHeapScale = offHeapScale(environment, maxDirectMemory());
+        caches.add(buildCache(POSTS_WITH_COMMENTS, environment, offHeapScale));
+        caches.add(buildCache(ALL_POSTS_DTO, environment, offHeapScale));
+        caches.add(buildCache(ALL_POSTS_DTO_JSON, environment, offHeapScale));
+        caches.add(buildCache(ALL_COMMENTS, environment, offHeapScale));
+        caches.add(buildCache(ALL_COMMENTS_DTO, environment, offHeapScale));
+        caches.add(buildCache(ALL_POSTS_SUMMARY_DTO, environment, offHeapScale));
+        caches.add(buildCache(ALL_COMMENTS_SUMMARY_DTO, environment, offHeapScale));
+        caches.add(buildCache(USERS_BY_USERNAME, environment, offHeapScale));
         simpleCacheManager.setCaches(caches);
         return simpleCacheManager;
     }
 
-    public void evictAllCaches() {
-        cacheManager.getCacheNames().stream()
-                .forEach(cacheName -> cacheManager.getCache(cacheName).clear());
+    /**
+     * Every cache is limited by estimated size of cached values in bytes (property 'cache.{cacheName}.max-weight-mb').
+     * When cache is full Caffeine evicts entries with W-TinyLFU policy, so pages which are rarely requested are removed first.
+     * Changed data is evicted by FeedCacheInvalidator, entries expire after 'cache.{cacheName}.ttl-seconds'
+     * (+/- 'cache.ttl-jitter' part of it) only as a safety net.
+     * Cache of DTOs can be moved off-heap by 'cache.{cacheName}.off-heap-mb', then it is kept in OffHeapStore slabs
+     * of 'cache.off-heap.slab-size-kb' instead of Caffeine, its size is multiplied by offHeapScale.
+     * Caches are wrapped by SingleFlightCache, so methods with @Cacheable(sync = true) load missing page only once.
+     * Entries removed by cache itself are reported by EvictionNotifier, so FeedCacheInvalidator forgets their pages.
+     */
+    private static Cache buildCache(String cacheName, Environment environment, double offHeapScale) {
+        long maxWeightInMegabytes = environment.getProperty("cache." + cacheName + ".max-weight-mb", Long.class, DEFAULT_MAX_WEIGHT_IN_MEGABYTES);
+        long timeToLiveInSeconds = environment.getProperty("cache." + cacheName + ".ttl-seconds", Long.class, DEFAULT_TIME_TO_LIVE_IN_SECONDS);
+        double timeToLiveJitter = environment.getProperty("cache.ttl-jitter", Double.class, DEFAULT_TIME_TO_LIVE_JITTER);
+        long offHeapInMegabytes = environment.getProperty("cache." + cacheName + ".off-heap-mb", Long.class, 0L);
+        EvictionNotifier evictionNotifier = new EvictionNotifier();
+        if (offHeapInMegabytes > 0) {
+            if (OFF_HEAP_CODECS.containsKey(cacheName)) {
+                int slabSizeInKilobytes = environment.getProperty("cache.off-heap.slab-size-kb", Integer.class, DEFAULT_SLAB_SIZE_IN_KILOBYTES);
+                long offHeapInBytes = Math.max((long) (offHeapInMegabytes * BYTES_IN_MEGABYTE * offHeapScale), slabSizeInKilobytes * 1024L);
+                OffHeapStore store = new OffHeapStore(offHeapInBytes, slabSizeInKilobytes * 1024, timeToLiveInSeconds,
+                        timeToLiveJitter, evictionNotifier);
+                return new SingleFlightCache(new OffHeapCache(cacheName, store, OFF_HEAP_CODECS.get(cacheName)), evictionNotifier);
+            }
+            log.warn("Cache: '{}' can not be kept off-heap, it is kept on heap.", cacheName);
+        }
+        return new SingleFlightCache(new CaffeineCache(cacheName, Caffeine.newBuilder()
+                .maximumWeight(maxWeightInMegabytes * BYTES_IN_MEGABYTE)
+                .weigher(new CacheEntryWeigher())
+                .expireAfter(new JitteredExpiry(timeToLiveInSeconds, timeToLiveJitter))
+                .evictionListener((key, value, cause) -> evictionNotifier.evicted(key))
+                .recordStats()
+                .build()), evictionNotifier);
+    }
+
+    /**
+     * Slabs are allocated in direct memory, which is limited by -XX:MaxDirectMemorySize (by default as big as max heap).
+     * When off-heap caches together need more than 'cache.off-heap.max-direct-memory-part' of it, they are shrunk
+     * proportionally - otherwise allocating slabs would end with OutOfMemoryError and the rest is needed by NIO buffers.
+     */
+    static double offHeapScale(Environment environment, long maxDirectMemory) {
+        long offHeapInBytes = 0;
+        for (String cacheName : OFF_HEAP_CODECS.keySet()) {
+            offHeapInBytes += environment.getProperty("cache." + cacheName + ".off-heap-mb", Long.class, 0L) * BYTES_IN_MEGABYTE;
+        }
+        double maxDirectMemoryPart = environment.getProperty("cache.off-heap.max-direct-memory-part", Double.class, DEFAULT_MAX_DIRECT_MEMORY_PART);
+        long offHeapLimitInBytes = (long) (maxDirectMemory * maxDirectMemoryPart);
+        if (offHeapInBytes <= offHeapLimitInBytes) {
+            return 1;
+        }
+        log.warn("Off-heap caches need {} bytes, but only {} bytes of direct memory can be used by them, their sizes are shrunk. " +
+                "Set -XX:MaxDirectMemorySize bigger to keep configured sizes.", offHeapInBytes, offHeapLimitInBytes);
+        return (double) offHeapLimitInBytes / offHeapInBytes;
+    }
+
+    private static long maxDirectMemory() {
+        String maxDirectMemorySize = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption("MaxDirectMemorySize").getValue();
+        long maxDirectMemory = Long.parseLong(maxDirectMemorySize);
+        /* 0 - option is not set, JVM uses max heap size */
+        return maxDirectMemory > 0 ? maxDirectMemory : Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Caches of DTOs are stored as JSON - entities (with lazy collections) can't be kept off-heap.
+     */
+    private static Map<String, ValueCodec> offHeapCodecs() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return Map.of(
+                ALL_POSTS_DTO, ValueCodec.json(objectMapper, objectMapper.getTypeFactory().constructCollectionType(List.class, PostDto.class)),
+                ALL_POSTS_DTO_JSON, ValueCodec.serializedPage(),
+                ALL_COMMENTS_DTO, ValueCodec.json(objectMapper, objectMapper.getTypeFactory().constructCollectionType(List.class, CommentDto.class)),
+                ALL_POSTS_SUMMARY_DTO, ValueCodec.json(objectMapper, objectMapper.getTypeFactory().constructCollectionType(List.class, PostSummaryDto.class)),
+                ALL_COMMENTS_SUMMARY_DTO, ValueCodec.json(objectMapper, objectMapper.getTypeFactory().constructCollectionType(List.class, CommentSummaryDto.class)));
+    }
+
+    /* Caffeine removes expired entries itself, off-heap entries which are not read again wait for this sweep */
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.MINUTES)
+    public void removeExpiredOffHeapEntries() {
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Object nativeCache = cacheManager.getCache(cacheName).getNativeCache();
+            if (nativeCache instanceof OffHeapStore) {
+                ((OffHeapStore) nativeCache).removeExpired();
+            }
+        }
     }
 
-    @Scheduled(fixedRate = 30, timeUnit=TimeUnit.SECONDS)
-    public void evictAllCachesAtIntervals() {
-        evictAllCaches();
+    @Scheduled(fixedRate = 5, timeUnit = TimeUnit.MINUTES)
+    public void logCacheStatistics() {
+        for (String cacheName : cacheManager.getCacheNames()) {
+            SingleFlightCache cache = (SingleFlightCache) cacheManager.getCache(cacheName);
+            if (cache.getNativeCache() instanceof OffHeapStore) {
+                OffHeapStore store = (OffHeapStore) cache.getNativeCache();
+                log.info("Off-heap cache: '{}' hits: {}, misses: {}, evictions: {}, expirations: {}, rejected: {}, entries: {}, allocated bytes: {}, " +
+                                "live bytes: {}, fragmentation: {}%, loads: {}, saved loads: {}", cacheName, store.getHits(), store.getMisses(),
+                        store.getEvictions(), store.getExpirations(), store.getRejected(), store.getEntries(), store.getAllocatedBytes(), store.getLiveBytes(),
+                        Math.round(store.getFragmentation() * 100), cache.getLoads(), cache.getSavedLoads());
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+            CacheStats stats = nativeCache.stats();
+            log.info("Cache: '{}' hits: {}, misses: {}, evictions: {}, evicted bytes: {}, entries: {}, loads: {}, saved loads: {}", cacheName,
+                    stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.evictionWeight(), nativeCache.estimatedSize(),
+                    cache.getLoads(), cache.getSavedLoads());
+        }
     }
 
 }
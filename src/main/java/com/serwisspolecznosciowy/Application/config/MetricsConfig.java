@@ -0,0 +1,20 @@
+package com.serwisspolecznosciowy.Application.config;
+
+import com.serwisspolecznosciowy.Application.cache.SingleFlightCache;
+import com.serwisspolecznosciowy.Application.monitoring.SingleFlightCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Caches from CacheConfig are bound to registry by Spring Boot like its own caches (tags 'cache' and 'cache.manager').
+     */
+    @Bean
+    public CacheMeterBinderProvider<SingleFlightCache> singleFlightCacheMeterBinderProvider() {
+        return SingleFlightCacheMetrics::new;
+    }
+
+}
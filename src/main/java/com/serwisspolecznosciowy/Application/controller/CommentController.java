@@ -1,18 +1,22 @@
 package com.serwisspolecznosciowy.Application.controller;
 
+import com.serwisspolecznosciowy.Application.cache.ContentVersions;
 import com.serwisspolecznosciowy.Application.dto.CommentBodyDto;
 import com.serwisspolecznosciowy.Application.dto.CommentDto;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionPageDto;
 import com.serwisspolecznosciowy.Application.entity.Comment;
 import com.serwisspolecznosciowy.Application.entity.User;
 import com.serwisspolecznosciowy.Application.exception.*;
 import com.serwisspolecznosciowy.Application.service.CommentService;
-import com.serwisspolecznosciowy.Application.service.PostService;
+import com.serwisspolecznosciowy.Application.service.ReactionService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -31,7 +35,10 @@ public class CommentController {
     UserService userService;
 
     @Autowired
-    PostService postService;
+    ReactionService reactionService;
+
+    @Autowired
+    ContentVersions contentVersions;
 
     @PostMapping("/add/{postId}")
     @Operation(summary = "Add new comment by post id", description = "User needs to provide only comment body in request body and post id in patch. " +
@@ -60,7 +67,7 @@ public class CommentController {
     @GetMapping("/all/dto")
     @Operation(summary = "Get all comments", description = "Default comment page is set as 0 and page size is set for 10.\nIf you want see more comments than 10 set size for bigger or change page.\n" +
             "Page way of sort is set as DESC (from the newest to the older) based on date of created. " +
-            "This method also using cache with is refreshed after 30 seconds.",
+            "This method also using cache which is refreshed after every change of posts or comments.",
             parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0"), @Parameter(name = "sort", example = "DESC")})
     public ResponseEntity<List<CommentDto>> getAllCommentsDto(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, Sort.Direction sort) {
         Integer pageNumber = page != null && page > 0 ? page : 0;
@@ -70,6 +77,48 @@ public class CommentController {
         return ResponseEntity.ok(commentService.getAllCommentsDto(pageNumber, pageSize, wayOfSort));
     }
 
+    @GetMapping("/all/summary/dto")
+    @Operation(summary = "Get all comments with summary of likes and dislikes", description = "Works like '/comment/all/dto', but instead of full lists of likes " +
+            "and dislikes every comment contains only number of reactions, first usernames and flag if login user reacted. " +
+            "Full lists are available page by page under '/comment/{commentId}/likes' and '/comment/{commentId}/dislikes'.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0"), @Parameter(name = "sort", example = "DESC")})
+    public ResponseEntity<List<CommentSummaryDto>> getAllCommentsSummaryDto(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, Sort.Direction sort) {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
+        Sort.Direction wayOfSort = sort != null ? sort : Sort.Direction.DESC;
+        log.info("Start to get all comments summary dto.");
+        List<CommentSummaryDto> commentSummaryDtoList = commentService.getAllCommentsSummaryDto(pageNumber, pageSize, wayOfSort);
+        return ResponseEntity.ok(reactionService.markCommentReactionsOfUser(commentSummaryDtoList, userService.getLoginUser()));
+    }
+
+    @GetMapping("/{commentId}/likes")
+    @Operation(summary = "Get usernames of users who like comment", description = "Default page size is set for 50. Response contains 'nextCursor' - " +
+            "to get next page provide it as 'cursor' parameter. When 'nextCursor' is empty there is no more likes.",
+            parameters = { @Parameter(name = "size", example = "50"), @Parameter(name = "cursor", example = "")})
+    public ResponseEntity<ReactionPageDto> getCommentLikes(@PathVariable Integer commentId, @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 50;
+        log.info("Start to get likes of comment with id: " + commentId);
+        try {
+            return ResponseEntity.ok(reactionService.getCommentLikes(commentId, cursor, pageSize));
+        } catch (CommentNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{commentId}/dislikes")
+    @Operation(summary = "Get usernames of users who dislike comment", description = "Default page size is set for 50. Response contains 'nextCursor' - " +
+            "to get next page provide it as 'cursor' parameter. When 'nextCursor' is empty there is no more dislikes.",
+            parameters = { @Parameter(name = "size", example = "50"), @Parameter(name = "cursor", example = "")})
+    public ResponseEntity<ReactionPageDto> getCommentDislikes(@PathVariable Integer commentId, @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 50;
+        log.info("Start to get dislikes of comment with id: " + commentId);
+        try {
+            return ResponseEntity.ok(reactionService.getCommentDislikes(commentId, cursor, pageSize));
+        } catch (CommentNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Comment> getCommentByCommentId(@PathVariable Integer id) {
         log.info("Start to get comment with id: " + id);
@@ -97,7 +146,6 @@ public class CommentController {
     public ResponseEntity<Void> deleteCommentByCommentIdAndPostId(@PathVariable Integer commentId, @PathVariable Integer postId) {
         log.info("Start to delete comment with id: " + commentId);
         try {
-            postService.subtractOneCommentForNumberOfCommentForPostByPostId(postId);
             commentService.deleteCommentById(commentId);
             log.info("Comment with id: " + commentId + " was deleted.");
             return new ResponseEntity(HttpStatus.NO_CONTENT);
@@ -110,10 +158,13 @@ public class CommentController {
     }
 
     @GetMapping("/body")
-    public ResponseEntity<List<Comment>> getCommentsListByKeywordInCommentBody(@RequestParam String body) throws CommentNotFoundException {
+    public ResponseEntity<List<Comment>> getCommentsListByKeywordInCommentBody(@RequestParam String body, @RequestParam(required = false) Integer page,
+                                                                              @RequestParam(required = false) Integer size) throws CommentNotFoundException {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
         log.info("Start to get comment with body: " + body);
         try {
-            return ResponseEntity.ok(commentService.getCommentsByBody(body));
+            return ResponseEntity.ok(commentService.getCommentsByBody(body, pageNumber, pageSize));
         } catch (CommentNotFoundException e) {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
@@ -122,11 +173,16 @@ public class CommentController {
     @GetMapping("/body/dto")
     @Operation(summary = "Get comments list by keyword in comment body", description = "Keyword is not sensitive - you can provide small or " +
             "capital characters and polish marks. Maybe rather that error in case when we not found body we should return empty list and information about that - to discuss." +
-            "But probably in real app I will not allows user to do that due to too many records.")
-    public ResponseEntity<List<CommentDto>> getCommentsDtoListByKeywordInCommentBody(@RequestParam String body) {
+            "But probably in real app I will not allows user to do that due to too many records. " +
+            "Every word of keyword has to be found in comment (also as beginning of longer word), the best matching comments are first.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0")})
+    public ResponseEntity<List<CommentDto>> getCommentsDtoListByKeywordInCommentBody(@RequestParam String body, @RequestParam(required = false) Integer page,
+                                                                                    @RequestParam(required = false) Integer size) {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
         log.info("Start to get comment with body: " + body);
         try {
-            return ResponseEntity.ok(commentService.getCommentsDtoByBody(body));
+            return ResponseEntity.ok(commentService.getCommentsDtoByBody(body, pageNumber, pageSize));
         } catch (CommentNotFoundException e) {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
@@ -143,6 +199,8 @@ public class CommentController {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (DuplicateUsernameException ex) {
             return new ResponseEntity(ex.getMessage(), HttpStatus.CONFLICT);
+        } catch (ReactionQueueFullException exc) {
+            return new ResponseEntity(exc.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -157,6 +215,30 @@ public class CommentController {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (DuplicateUsernameException ex) {
             return new ResponseEntity(ex.getMessage(), HttpStatus.CONFLICT);
+        } catch (ReactionQueueFullException exc) {
+            return new ResponseEntity(exc.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping("/likes/dto/{commentId}")
+    @Operation(summary = "Get number of likes by comment id", description = "Method allows user to see how many people like specified comment.")
+    public ResponseEntity<Integer> getNumberOfLikesByCommentId(@PathVariable Integer commentId) {
+        log.info("Start to get number of likes for comment with id: " + commentId);
+        try {
+            return ResponseEntity.ok(commentService.getNumberOfLikesByCommentId(commentId));
+        } catch (CommentNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/dislikes/dto/{commentId}")
+    @Operation(summary = "Get number of dislikes by comment id", description = "Method allows user to see how many people dislike specified comment.")
+    public ResponseEntity<Integer> getNumberOfDislikesByCommentId(@PathVariable Integer commentId) {
+        log.info("Start to get number of dislikes for comment with id: " + commentId);
+        try {
+            return ResponseEntity.ok(commentService.getNumberOfDislikesByCommentId(commentId));
+        } catch (CommentNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
 
@@ -179,11 +261,18 @@ public class CommentController {
     @GetMapping("/all/dto/{postId}")
     @Operation(summary = "Get comment by post id", description = "This method was created only for test " +
             "purpose. In normal app probably I will not allows that for users because they don't know post id and " +
-            "can't find them.")
-    public ResponseEntity<List<CommentDto>> getCommentDtoListByPostId(@PathVariable Integer postId) {
+            "can't find them. Response has ETag - when comments didn't change since response with ETag from 'If-None-Match' " +
+            "header, response is 304 without body.")
+    public ResponseEntity<List<CommentDto>> getCommentDtoListByPostId(@PathVariable Integer postId,
+                                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Start to get all comments by post with id: ", postId);
+        /* every change of comment changes version of its post */
+        String eTag = contentVersions.postETag(postId);
+        if (ContentVersions.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
-            return ResponseEntity.ok(commentService.getCommentsDtoListByPostId(postId));
+            return ResponseEntity.ok().eTag(eTag).body(commentService.getCommentsDtoListByPostId(postId));
         } catch (PostNotFoundException e) {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
@@ -1,18 +1,33 @@
 package com.serwisspolecznosciowy.Application.controller;
 
+import com.serwisspolecznosciowy.Application.cache.ContentVersions;
+import com.serwisspolecznosciowy.Application.cache.SerializedPage;
 import com.serwisspolecznosciowy.Application.dto.PostBodyDto;
 import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostFeedDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryFeedDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionPageDto;
 import com.serwisspolecznosciowy.Application.entity.Post;
 import com.serwisspolecznosciowy.Application.entity.User;
 import com.serwisspolecznosciowy.Application.exception.*;
+import com.serwisspolecznosciowy.Application.service.FeedJsonService;
 import com.serwisspolecznosciowy.Application.service.PostService;
+import com.serwisspolecznosciowy.Application.service.ReactionService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +35,8 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Optional;
 
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_POSTS_DTO;
+
 @RestController
 @Slf4j
 @RequestMapping("/post")
@@ -28,9 +45,18 @@ public class PostController {
     @Autowired
     PostService postService;
 
+    @Autowired
+    FeedJsonService feedJsonService;
+
     @Autowired
     UserService userService;
 
+    @Autowired
+    ReactionService reactionService;
+
+    @Autowired
+    ContentVersions contentVersions;
+
     @PostMapping("/add/dto")
     @Operation(summary = "Add new post", description = "User need to provide only body/context for new post.")
     public ResponseEntity<PostDto> addNewPost(@RequestBody PostBodyDto postBodyDto) throws UserNotFoundException {
@@ -54,14 +80,135 @@ public class PostController {
     @GetMapping("/all/dto")
     @Operation(summary = "Get all posts with authors names, author  profile picture and list of likes only with username", description = "Default post page is set as 0 and page size is set for 10.\nIf you want see more post than 10 set size for bigger or change page.\n" +
             "Page way of sort is set as DESC (from the newest to the older) based on date of created. " +
-            "This method also using cache with is refreshed after 30 seconds.",
-            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0"), @Parameter(name = "sort", example = "DESC")})
-    public ResponseEntity<List<PostDto>> getAllPostsDto(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, Sort.Direction sort) {
+            "This method also using cache which is refreshed after every change of posts or comments. Cached page is kept as JSON (and gzip " +
+            "when client accepts it), so it is sent without serializing it again. Response has ETag - when it is sent back " +
+            "in 'If-None-Match' header and the page didn't change, response is 304 without body.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0"), @Parameter(name = "sort", example = "DESC")},
+            responses = @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = PostDto.class)))))
+    public ResponseEntity<byte[]> getAllPostsDto(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, Sort.Direction sort,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Integer pageNumber = page != null && page > 0 ? page : 0;
         Integer pageSize = size != null && size > 0 ? size : 10;
         Sort.Direction wayOfSort = sort != null ? sort : Sort.Direction.DESC;
         log.info("Start to get all posts dto");
-        return ResponseEntity.ok(postService.getAllPostsDto(pageNumber, pageSize, wayOfSort));
+        /* gzipped and plain page are different representations, so they have different ETags. Client which accepts gzip
+           still got plain page when it was too small to be gzipped, so it can send back ETag of either of them */
+        Object pageKey = SimpleKeyGenerator.generateKey(pageNumber, pageSize, wayOfSort);
+        String plainETag = contentVersions.pageETag(ALL_POSTS_DTO, pageKey, false);
+        String gzippedETag = SerializedPage.isGzipAccepted(acceptEncoding) ? contentVersions.pageETag(ALL_POSTS_DTO, pageKey, true) : null;
+        String notModifiedETag = ContentVersions.matches(ifNoneMatch, gzippedETag) ? gzippedETag
+                : ContentVersions.matches(ifNoneMatch, plainETag) ? plainETag : null;
+        if (notModifiedETag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(notModifiedETag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        SerializedPage serializedPage = feedJsonService.getAllPostsDtoJson(pageNumber, pageSize, wayOfSort);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        /* ETag follows representation which is really written, page is registered when it is loaded,
+           so ETag is known after the first request */
+        boolean gzipped = serializedPage.canBeSentGzipped(acceptEncoding);
+        String eTag = contentVersions.pageETag(ALL_POSTS_DTO, pageKey, gzipped);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (gzipped) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(serializedPage.getGzippedJson());
+        }
+        return response.body(serializedPage.getJson());
+    }
+
+    @GetMapping("/feed/dto")
+    @Operation(summary = "Get posts feed from the newest to the older", description = "Default page size is set for 10. " +
+            "Response contains 'nextCursor' - to get next page provide it as 'after' parameter. When 'nextCursor' is empty there is no more posts. " +
+            "Unlike '/post/all/dto' time of response is the same for first and for very deep pages.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "after", example = "")})
+    public ResponseEntity<PostFeedDto> getPostsFeed(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 10;
+        log.info("Start to get posts feed");
+        try {
+            return ResponseEntity.ok(postService.getPostsFeed(after, pageSize));
+        } catch (InvalidCursorException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/timeline/dto")
+    @Operation(summary = "Get home timeline of login user", description = "Posts of followed users and own posts from the newest to the older, " +
+            "default page size is set for 10. Response contains 'nextCursor' - to get next page provide it as 'after' parameter. " +
+            "When 'nextCursor' is empty there is no more posts. Timeline keeps 500 newest posts.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "after", example = "")})
+    public ResponseEntity<PostFeedDto> getHomeTimeline(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 10;
+        log.info("Start to get home timeline");
+        try {
+            return ResponseEntity.ok(postService.getHomeTimeline(after, pageSize));
+        } catch (InvalidCursorException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/all/summary/dto")
+    @Operation(summary = "Get all posts with summary of likes and dislikes", description = "Works like '/post/all/dto', but instead of full lists of likes " +
+            "and dislikes every post contains only number of reactions, first usernames and flag if login user reacted. " +
+            "Full lists are available page by page under '/post/{postId}/likes' and '/post/{postId}/dislikes'.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0"), @Parameter(name = "sort", example = "DESC")})
+    public ResponseEntity<List<PostSummaryDto>> getAllPostsSummaryDto(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, Sort.Direction sort) {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
+        Sort.Direction wayOfSort = sort != null ? sort : Sort.Direction.DESC;
+        log.info("Start to get all posts summary dto");
+        List<PostSummaryDto> postSummaryDtoList = postService.getAllPostsSummaryDto(pageNumber, pageSize, wayOfSort);
+        return ResponseEntity.ok(reactionService.markPostReactionsOfUser(postSummaryDtoList, userService.getLoginUser()));
+    }
+
+    @GetMapping("/feed/summary/dto")
+    @Operation(summary = "Get posts feed with summary of likes and dislikes", description = "Works like '/post/feed/dto', but instead of full lists of likes " +
+            "and dislikes every post contains only number of reactions, first usernames and flag if login user reacted. " +
+            "When 'comments' is set every post contains also its newest comments (at most 10), so the whole feed page is rendered with one request.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "after", example = ""), @Parameter(name = "comments", example = "3")})
+    public ResponseEntity<PostSummaryFeedDto> getPostsSummaryFeed(@RequestParam(required = false) String after, @RequestParam(required = false) Integer size,
+                                                                  @RequestParam(required = false) Integer comments) {
+        Integer pageSize = size != null && size > 0 ? size : 10;
+        Integer commentsPerPost = comments != null && comments > 0 ? comments : 0;
+        log.info("Start to get posts summary feed");
+        try {
+            PostSummaryFeedDto postSummaryFeedDto = postService.getPostsSummaryFeed(after, pageSize, commentsPerPost);
+            postSummaryFeedDto.setPostSummaryDtoList(reactionService.markPostReactionsOfUser(postSummaryFeedDto.getPostSummaryDtoList(), userService.getLoginUser()));
+            return ResponseEntity.ok(postSummaryFeedDto);
+        } catch (InvalidCursorException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/{postId}/likes")
+    @Operation(summary = "Get usernames of users who like post", description = "Default page size is set for 50. Response contains 'nextCursor' - " +
+            "to get next page provide it as 'cursor' parameter. When 'nextCursor' is empty there is no more likes.",
+            parameters = { @Parameter(name = "size", example = "50"), @Parameter(name = "cursor", example = "")})
+    public ResponseEntity<ReactionPageDto> getPostLikes(@PathVariable Integer postId, @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 50;
+        log.info("Start to get likes of post with id: " + postId);
+        try {
+            return ResponseEntity.ok(reactionService.getPostLikes(postId, cursor, pageSize));
+        } catch (PostNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{postId}/dislikes")
+    @Operation(summary = "Get usernames of users who dislike post", description = "Default page size is set for 50. Response contains 'nextCursor' - " +
+            "to get next page provide it as 'cursor' parameter. When 'nextCursor' is empty there is no more dislikes.",
+            parameters = { @Parameter(name = "size", example = "50"), @Parameter(name = "cursor", example = "")})
+    public ResponseEntity<ReactionPageDto> getPostDislikes(@PathVariable Integer postId, @RequestParam(required = false) Integer cursor, @RequestParam(required = false) Integer size) {
+        Integer pageSize = size != null && size > 0 ? size : 50;
+        log.info("Start to get dislikes of post with id: " + postId);
+        try {
+            return ResponseEntity.ok(reactionService.getPostDislikes(postId, cursor, pageSize));
+        } catch (PostNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
     }
 
     @PutMapping("/edit/dto/{postId}")
@@ -112,11 +259,18 @@ public class PostController {
     @GetMapping("/dto/{id}")
     @Operation(summary = "Get post by id", description = "Only login user can search post by id. This " +
             "method was created only for test purpose. In normal app probably I will not allows that" +
-            " for users because they don't know post id and can't find them.")
-    public ResponseEntity<PostDto> getPostDtoById(@PathVariable Integer id) throws PostNotFoundException {
+            " for users because they don't know post id and can't find them. Response has ETag - when post didn't change " +
+            "since response with ETag from 'If-None-Match' header, response is 304 without body.")
+    public ResponseEntity<PostDto> getPostDtoById(@PathVariable Integer id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws PostNotFoundException {
         log.info("Start to get post dto with id: " + id);
+        /* taken before post is loaded, so change made during loading gives new ETag next time */
+        String eTag = contentVersions.postETag(id);
+        if (ContentVersions.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
-            return ResponseEntity.ok(postService.findPostDtoById(id));
+            return ResponseEntity.ok().eTag(eTag).body(postService.findPostDtoById(id));
         } catch (PostNotFoundException e) {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
@@ -124,11 +278,16 @@ public class PostController {
 
     @GetMapping("/body/dto")
     @Operation(summary = "Get posts by keyword in post body", description = "Keyword is not sensitive - you can provide small or " +
-            "capital characters and polish marks.")
-    public ResponseEntity<List<PostDto>> getPostDtoListByKeywordInPostBody(@RequestParam String keywordInBody) throws PostNotFoundException {
+            "capital characters and polish marks. Every word of keyword has to be found in post (also as beginning of longer word), " +
+            "the best matching posts are first.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0")})
+    public ResponseEntity<List<PostDto>> getPostDtoListByKeywordInPostBody(@RequestParam String keywordInBody, @RequestParam(required = false) Integer page,
+                                                                           @RequestParam(required = false) Integer size) throws PostNotFoundException {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
         log.info("Start to get posts with specific text in keywordInBody: " + keywordInBody);
         try {
-            return ResponseEntity.ok(postService.getPostDtoListByBody(keywordInBody));
+            return ResponseEntity.ok(postService.getPostDtoListByBody(keywordInBody, pageNumber, pageSize));
         } catch (PostNotFoundException e) {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         }
@@ -144,6 +303,8 @@ public class PostController {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (DuplicateUsernameException ex) {
             return new ResponseEntity(ex.getMessage(), HttpStatus.CONFLICT);
+        } catch (ReactionQueueFullException exc) {
+            return new ResponseEntity(exc.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -157,6 +318,8 @@ public class PostController {
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (DuplicateUsernameException ex) {
             return new ResponseEntity(ex.getMessage(), HttpStatus.CONFLICT);
+        } catch (ReactionQueueFullException exc) {
+            return new ResponseEntity(exc.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
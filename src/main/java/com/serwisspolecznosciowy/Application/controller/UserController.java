@@ -1,11 +1,14 @@
 package com.serwisspolecznosciowy.Application.controller;
 
 import com.serwisspolecznosciowy.Application.dto.NewUserDto;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
 import com.serwisspolecznosciowy.Application.dto.UserDto;
 import com.serwisspolecznosciowy.Application.entity.User;
 import com.serwisspolecznosciowy.Application.exception.*;
+import com.serwisspolecznosciowy.Application.service.FollowService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -24,6 +27,9 @@ public class UserController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    FollowService followService;
+
     @GetMapping("/all")
     public ResponseEntity<List<User>> getUsers() {
         log.info("Start to get all users");
@@ -44,10 +50,15 @@ public class UserController {
 
     @GetMapping("/all/username/dto")
     @Operation(summary = "Get users by keyword in username", description = "Keyword is not sensitive - you can provide small or " +
-            "capital characters and polish marks. Method is returning empty list with message if not found eny.")
-    public ResponseEntity<List<UserDto>> getUserDtoListByKeywordInUsername(@RequestParam String keyword) {
+            "capital characters and polish marks. Results are paginated and limited to first 1000 users found. " +
+            "Method is returning empty list with message if not found eny.",
+            parameters = { @Parameter(name = "size", example = "10"), @Parameter(name = "page", example = "0")})
+    public ResponseEntity<List<UserDto>> getUserDtoListByKeywordInUsername(@RequestParam String keyword, @RequestParam(required = false) Integer page,
+                                                                           @RequestParam(required = false) Integer size) {
+        Integer pageNumber = page != null && page > 0 ? page : 0;
+        Integer pageSize = size != null && size > 0 ? size : 10;
         log.info("Start to get user by keyword: '" + keyword + "' in username.");
-        List<UserDto> userDtoList = userService.findUserByKeywordInUsername(keyword);
+        List<UserDto> userDtoList = userService.findUserByKeywordInUsername(keyword, pageNumber, pageSize);
         if (!userDtoList.isEmpty()) {
             return ResponseEntity.ok(userDtoList);
         } else {
@@ -55,6 +66,15 @@ public class UserController {
         }
     }
 
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Get usernames starting with prefix", description = "Prefix is not sensitive - you can provide small or " +
+            "capital characters and polish marks. Users with the most posts are first. Default size is 10 and it is also the biggest one.",
+            parameters = { @Parameter(name = "prefix", example = "ada"), @Parameter(name = "size", example = "10")})
+    public ResponseEntity<List<String>> getUsernamesByPrefix(@RequestParam String prefix, @RequestParam(required = false) Integer size) {
+        Integer limit = size != null && size > 0 ? size : 10;
+        return ResponseEntity.ok(userService.findUsernamesByPrefix(prefix, limit));
+    }
+
     @PostMapping("/add/dto")
     @Operation(summary = "Add new user", description = "User need to provide correct username and password. User profile picture is optional.")
     public ResponseEntity<UserDto> addNewUser(@Valid @RequestBody NewUserDto newUserDto) throws Exception {
@@ -123,10 +143,16 @@ public class UserController {
 
     @DeleteMapping("/delete/dto/{userId}")
     @Operation(summary = "Delete user by id", description = "Only user with admin right or owner, login user can" +
-            "delete specific user. User need to provide user id but in fronted it will be done automatically.")
-    public ResponseEntity<Void> deleteUserById(@PathVariable Integer userId) {
+            "delete specific user. User need to provide user id but in fronted it will be done automatically. " +
+            "User with a lot of posts and comments can be deleted in background with 'async' set for true - user is blocked at once " +
+            "and progress of deletion is returned.",
+            parameters = { @Parameter(name = "async", example = "false")})
+    public ResponseEntity<UserDeletionProgressDto> deleteUserById(@PathVariable Integer userId, @RequestParam(required = false) boolean async) {
         log.info("Start to delete user with id: " + userId);
         try {
+            if (async) {
+                return new ResponseEntity(userService.deleteUserByIdInBackground(userId), HttpStatus.ACCEPTED);
+            }
             userService.deleteUserById(userId);
             log.info("User with id: " + userId + " deleted successfully!");
             return new ResponseEntity(HttpStatus.NO_CONTENT);
@@ -138,6 +164,46 @@ public class UserController {
         }
     }
 
+    @GetMapping("/delete/progress/{userId}")
+    @Operation(summary = "Get progress of deleting user in background", description = "Only user with admin right or owner can see it.")
+    public ResponseEntity<UserDeletionProgressDto> getUserDeletionProgress(@PathVariable Integer userId) {
+        try {
+            return ResponseEntity.ok(userService.getUserDeletionProgress(userId));
+        } catch (UserNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (UserForbiddenAccessException ex) {
+            return new ResponseEntity(ex.getMessage(), HttpStatus.FORBIDDEN);
+        }
+    }
+
+    @PostMapping("/follow/{userId}")
+    @Operation(summary = "Follow user", description = "New posts of followed user are shown in home timeline '/post/timeline/dto' of login user.")
+    public ResponseEntity<Void> followUser(@PathVariable Integer userId) {
+        log.info("Start to follow user with id: " + userId);
+        try {
+            followService.followUser(userId);
+            return new ResponseEntity(HttpStatus.NO_CONTENT);
+        } catch (UserNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (SelfFollowException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (AlreadyFollowedException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @DeleteMapping("/follow/{userId}")
+    @Operation(summary = "Unfollow user", description = "Posts of unfollowed user are removed from home timeline of login user.")
+    public ResponseEntity<Void> unfollowUser(@PathVariable Integer userId) {
+        log.info("Start to unfollow user with id: " + userId);
+        try {
+            followService.unfollowUser(userId);
+            return new ResponseEntity(HttpStatus.NO_CONTENT);
+        } catch (FollowNotFoundException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @GetMapping("/post/{postId}")
     public ResponseEntity<UserDto> getUserByPostId(@PathVariable Integer postId) {
         log.info("Start to get user by post id: " + postId);
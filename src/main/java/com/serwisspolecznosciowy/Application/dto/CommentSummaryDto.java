@@ -0,0 +1,33 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentSummaryDto {
+
+    private Integer id;
+
+    private Integer postId;
+
+    @NotNull
+    private String body;
+
+    @NotNull
+    private LocalDateTime created;
+
+    private LocalDateTime updated;
+
+    private ReactionSummaryDto likes;
+
+    private ReactionSummaryDto dislikes;
+
+    private UserDto user;
+
+}
@@ -0,0 +1,18 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostFeedDto {
+
+    private List<PostDto> postDtoList;
+
+    private String nextCursor;
+
+}
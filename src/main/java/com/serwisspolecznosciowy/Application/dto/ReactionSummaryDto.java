@@ -0,0 +1,20 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionSummaryDto {
+
+    private Integer count;
+
+    private Boolean reactedByCurrentUser;
+
+    private List<String> firstUsernames;
+
+}
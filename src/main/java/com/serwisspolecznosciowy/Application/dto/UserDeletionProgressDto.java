@@ -0,0 +1,34 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDeletionProgressDto {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String FINISHED = "FINISHED";
+    public static final String FAILED = "FAILED";
+
+    private Integer userId;
+
+    private String status;
+
+    private long totalPosts;
+
+    private long deletedPosts;
+
+    private long totalComments;
+
+    private long deletedComments;
+
+    private LocalDateTime started;
+
+    private LocalDateTime finished;
+
+}
@@ -1,6 +1,7 @@
 package com.serwisspolecznosciowy.Application.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -34,10 +35,19 @@ public class Comment {
     private User user;
 
     @OneToMany(cascade = CascadeType.DETACH)
+    @BatchSize(size = 100)
     @JoinColumn(name = "commentLikeId", updatable = false, insertable = false)
     private List<Like> likeList;
 
     @OneToMany(cascade = CascadeType.DETACH)
+    @BatchSize(size = 100)
     @JoinColumn(name = "commentDislikeId", updatable = false, insertable = false)
     private List<Dislike> dislikeList;
+
+    /* changed only by atomic update queries in CommentRepository */
+    @Column(updatable = false)
+    private Integer likeCount = 0;
+
+    @Column(updatable = false)
+    private Integer dislikeCount = 0;
 }
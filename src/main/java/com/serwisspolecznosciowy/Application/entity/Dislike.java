@@ -10,7 +10,10 @@ import javax.persistence.*;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "dislikes")
+@Table(name = "dislikes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_dislikes_post_dislike_id_user_id", columnNames = {"postDislikeId", "user_id"}),
+        @UniqueConstraint(name = "uk_dislikes_comment_dislike_id_user_id", columnNames = {"commentDislikeId", "user_id"})
+})
 public class Dislike {
 
     @Id
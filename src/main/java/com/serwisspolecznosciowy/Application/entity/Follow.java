@@ -0,0 +1,33 @@
+package com.serwisspolecznosciowy.Application.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "follows", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_follows_follower_id_followed_id", columnNames = {"follower_id", "followed_id"})
+}, indexes = {
+        @Index(name = "idx_follows_followed_id_follower_id", columnList = "followed_id, follower_id")
+})
+public class Follow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "follower_id")
+    private Integer followerId;
+
+    @Column(name = "followed_id")
+    private Integer followedId;
+
+    private LocalDateTime created;
+
+}
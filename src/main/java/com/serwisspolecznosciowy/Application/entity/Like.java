@@ -10,7 +10,10 @@ import javax.persistence.*;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "likes")
+@Table(name = "likes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_likes_post_like_id_user_id", columnNames = {"postLikeId", "user_id"}),
+        @UniqueConstraint(name = "uk_likes_comment_like_id_user_id", columnNames = {"commentLikeId", "user_id"})
+})
 public class Like {
 
     @Id
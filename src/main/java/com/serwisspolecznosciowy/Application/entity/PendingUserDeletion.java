@@ -0,0 +1,27 @@
+package com.serwisspolecznosciowy.Application.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * User which is being deleted in background. Row is removed in the same transaction as the user, so row left
+ * after shutdown means deletion was interrupted and it is started again.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "pending_user_deletions")
+public class PendingUserDeletion {
+
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    private LocalDateTime started;
+
+}
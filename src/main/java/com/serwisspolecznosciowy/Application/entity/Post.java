@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -33,17 +34,28 @@ public class Post {
     private User user;
 
     @OneToMany(cascade = CascadeType.DETACH)
+    @BatchSize(size = 100)
     @JoinColumn(name = "postId", updatable = false, insertable = false)
     private List<Comment> commentList;
 
     @OneToMany(cascade = CascadeType.DETACH)
+    @BatchSize(size = 100)
     @JoinColumn(name = "postLikeId", updatable = false, insertable = false)
     private List<Like> likeList;
 
     @OneToMany(cascade = CascadeType.DETACH)
+    @BatchSize(size = 100)
     @JoinColumn(name = "postDislikeId", updatable = false, insertable = false)
     private List<Dislike> dislikeList;
 
+    /* counters are changed only by atomic update queries in PostRepository */
+    @Column(updatable = false)
     private Integer numberOfComments;
 
+    @Column(updatable = false)
+    private Integer likeCount = 0;
+
+    @Column(updatable = false)
+    private Integer dislikeCount = 0;
+
 }
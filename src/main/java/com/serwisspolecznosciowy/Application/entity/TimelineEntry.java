@@ -0,0 +1,34 @@
+package com.serwisspolecznosciowy.Application.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Post pushed to home timeline of user (follower of author or author himself), backing store of TimelineStore.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "timeline_entries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_timeline_entries_user_id_post_id", columnNames = {"user_id", "post_id"})
+})
+public class TimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "post_id")
+    private Integer postId;
+
+    @Column(name = "author_id")
+    private Integer authorId;
+
+}
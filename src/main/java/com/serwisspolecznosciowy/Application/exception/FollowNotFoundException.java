@@ -0,0 +1,13 @@
+package com.serwisspolecznosciowy.Application.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class FollowNotFoundException extends Exception {
+
+    public FollowNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.serwisspolecznosciowy.Application.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ReactionQueueFullException extends RuntimeException {
+
+    public ReactionQueueFullException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import com.serwisspolecznosciowy.Application.cache.OffHeapStore;
+import com.serwisspolecznosciowy.Application.cache.SingleFlightCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of caches from CacheConfig: hits, misses and evictions come from Caffeine or OffHeapStore,
+ * loads and their time from SingleFlightCache, so only loaders which were really executed are counted.
+ */
+public class SingleFlightCacheMetrics extends CacheMeterBinder<SingleFlightCache> {
+
+    public SingleFlightCacheMetrics(SingleFlightCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        SingleFlightCache cache = getCache();
+        if (cache == null) {
+            return null;
+        }
+        return offHeapStore(cache) != null ? offHeapStore(cache).getEntries() : caffeineCache(cache).estimatedSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        SingleFlightCache cache = getCache();
+        if (cache == null) {
+            return 0;
+        }
+        return offHeapStore(cache) != null ? offHeapStore(cache).getHits() : caffeineCache(cache).stats().hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        SingleFlightCache cache = getCache();
+        if (cache == null) {
+            return null;
+        }
+        return offHeapStore(cache) != null ? offHeapStore(cache).getMisses() : caffeineCache(cache).stats().missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        SingleFlightCache cache = getCache();
+        if (cache == null) {
+            return null;
+        }
+        return offHeapStore(cache) != null ? offHeapStore(cache).getEvictions() : caffeineCache(cache).stats().evictionCount();
+    }
+
+    /* every executed loader puts its value into cache */
+    @Override
+    protected long putCount() {
+        SingleFlightCache cache = getCache();
+        return cache != null ? cache.getLoads() : 0;
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        SingleFlightCache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        FunctionTimer.builder("cache.loads", cache, SingleFlightCache::getLoads, SingleFlightCache::getLoadNanos, TimeUnit.NANOSECONDS)
+                .tags(getTagsWithCacheName())
+                .description("Loaders executed on cache miss and their time")
+                .register(registry);
+        FunctionCounter.builder("cache.loads.saved", cache, SingleFlightCache::getSavedLoads)
+                .tags(getTagsWithCacheName())
+                .description("Requests which waited for loader of other request instead of running own one")
+                .register(registry);
+        OffHeapStore store = offHeapStore(cache);
+        if (store != null) {
+            Gauge.builder("cache.off.heap.allocated", store, OffHeapStore::getAllocatedBytes)
+                    .tags(getTagsWithCacheName())
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("Direct memory allocated by slabs")
+                    .register(registry);
+            Gauge.builder("cache.off.heap.live", store, OffHeapStore::getLiveBytes)
+                    .tags(getTagsWithCacheName())
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("Bytes of cached values")
+                    .register(registry);
+            Gauge.builder("cache.off.heap.fragmentation", store, OffHeapStore::getFragmentation)
+                    .tags(getTagsWithCacheName())
+                    .description("Part of written bytes which belong to removed values")
+                    .register(registry);
+            FunctionCounter.builder("cache.off.heap.rejected", store, OffHeapStore::getRejected)
+                    .tags(getTagsWithCacheName())
+                    .description("Values bigger than slab which were not cached")
+                    .register(registry);
+        } else {
+            Gauge.builder("cache.weight", cache, weightedCache -> caffeineCache(weightedCache).policy().eviction()
+                            .map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                    .tags(getTagsWithCacheName())
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("Estimated heap size of cached values")
+                    .register(registry);
+        }
+    }
+
+    private static OffHeapStore offHeapStore(SingleFlightCache cache) {
+        return cache.getNativeCache() instanceof OffHeapStore ? (OffHeapStore) cache.getNativeCache() : null;
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache(SingleFlightCache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+    }
+
+}
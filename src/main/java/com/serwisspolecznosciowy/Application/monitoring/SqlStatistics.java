@@ -0,0 +1,57 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import lombok.Getter;
+
+/**
+ * SQL statements, fetched rows and time spent in JDBC by one HTTP request.
+ * Statistics are collected only by thread which handles request - work of background threads is not counted.
+ */
+@Getter
+public class SqlStatistics {
+
+    /* statistics of finished request are kept as request attribute, e.g. for tests */
+    public static final String REQUEST_ATTRIBUTE = SqlStatistics.class.getName();
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+
+    private long rows;
+
+    private long jdbcNanos;
+
+    public static void start() {
+        CURRENT.set(new SqlStatistics());
+    }
+
+    /**
+     * @return statistics of current thread or null when they are not collected
+     */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatistics finish() {
+        SqlStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    void addStatement(long nanos) {
+        statements++;
+        jdbcNanos += nanos;
+    }
+
+    void addFetch(boolean rowFetched, long nanos) {
+        if (rowFetched) {
+            rows++;
+        }
+        jdbcNanos += nanos;
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements, " + rows + " rows, " + jdbcNanos / 1_000_000 + " ms";
+    }
+
+}
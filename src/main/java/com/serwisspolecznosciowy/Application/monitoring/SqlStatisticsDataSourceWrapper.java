@@ -0,0 +1,27 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every DataSource by proxy which reports JDBC calls to SqlStatisticsListener.
+ */
+@Component
+public class SqlStatisticsDataSourceWrapper implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                    .methodListener(new SqlStatisticsListener())
+                    .proxyResultSet()
+                    .build();
+        }
+        return bean;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects SqlStatistics of every request (together with authentication) and records them as metrics
+ * 'sql.statements', 'sql.rows' and 'sql.time' tagged with controller and its method, so N+1 queries show up per endpoint.
+ * With 'sql.statistics.header-enabled' response also has headers with statistics - body is buffered until request ends,
+ * so use it only for debugging.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@Slf4j
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String ROWS_HEADER = "X-Sql-Rows";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sql.statistics.header-enabled:false}")
+    private boolean headerEnabled;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper bufferedResponse = headerEnabled ? new ContentCachingResponseWrapper(response) : null;
+        SqlStatistics.start();
+        SqlStatistics statistics;
+        try {
+            filterChain.doFilter(request, bufferedResponse != null ? bufferedResponse : response);
+        } finally {
+            statistics = SqlStatistics.finish();
+        }
+        request.setAttribute(SqlStatistics.REQUEST_ATTRIBUTE, statistics);
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod) {
+            record((HandlerMethod) handler, statistics);
+        }
+        if (bufferedResponse != null) {
+            bufferedResponse.setHeader(STATEMENTS_HEADER, String.valueOf(statistics.getStatements()));
+            bufferedResponse.setHeader(ROWS_HEADER, String.valueOf(statistics.getRows()));
+            bufferedResponse.setHeader(TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(statistics.getJdbcNanos())));
+            bufferedResponse.copyBodyToResponse();
+        }
+    }
+
+    private void record(HandlerMethod handlerMethod, SqlStatistics statistics) {
+        String controller = handlerMethod.getBeanType().getSimpleName();
+        String method = handlerMethod.getMethod().getName();
+        DistributionSummary.builder("sql.statements")
+                .description("SQL statements executed by one request")
+                .tags("controller", controller, "method", method)
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        DistributionSummary.builder("sql.rows")
+                .description("Rows fetched from database by one request")
+                .tags("controller", controller, "method", method)
+                .register(meterRegistry)
+                .record(statistics.getRows());
+        Timer.builder("sql.time")
+                .description("Time spent in JDBC by one request")
+                .tags("controller", controller, "method", method)
+                .register(meterRegistry)
+                .record(statistics.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        log.debug("Request handled by {}.{}: {}", controller, method, statistics);
+    }
+
+}
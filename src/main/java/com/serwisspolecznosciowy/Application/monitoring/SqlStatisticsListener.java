@@ -0,0 +1,41 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Counts every 'execute...' call of JDBC statement (batch is one statement - one round trip to database)
+ * and rows read from result sets into SqlStatistics of current thread.
+ */
+public class SqlStatisticsListener implements MethodExecutionListener {
+
+    private static final String START_NANOS = "sqlStatisticsStartNanos";
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        if (SqlStatistics.current() != null) {
+            executionContext.addCustomValue(START_NANOS, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        SqlStatistics statistics = SqlStatistics.current();
+        Long startNanos = executionContext.getCustomValue(START_NANOS, Long.class);
+        if (statistics == null || startNanos == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        Object target = executionContext.getTarget();
+        String methodName = executionContext.getMethod().getName();
+        if (target instanceof Statement && methodName.startsWith("execute")) {
+            statistics.addStatement(nanos);
+        } else if (target instanceof ResultSet && methodName.equals("next")) {
+            statistics.addFetch(Boolean.TRUE.equals(executionContext.getResult()), nanos);
+        }
+    }
+
+}
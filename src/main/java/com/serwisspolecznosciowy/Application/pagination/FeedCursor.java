@@ -0,0 +1,48 @@
+package com.serwisspolecznosciowy.Application.pagination;
+
+import com.serwisspolecznosciowy.Application.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the post feed. Feed is sorted by (created, id) so the cursor keeps both values of the last returned post,
+ * next page starts directly after them without counting skipped rows like offset pagination does.
+ * For clients the cursor is an opaque base64 string.
+ */
+@Data
+@AllArgsConstructor
+@Slf4j
+public class FeedCursor {
+
+    private static final String SEPARATOR = ",";
+
+    private LocalDateTime created;
+
+    private Integer id;
+
+    public String encode() {
+        String rawCursor = created.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(rawCursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        try {
+            String rawCursor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] cursorParts = rawCursor.split(SEPARATOR);
+            if (cursorParts.length != 2) {
+                throw new IllegalArgumentException("Cursor must contain date of created and id!");
+            }
+            return new FeedCursor(LocalDateTime.parse(cursorParts[0]), Integer.valueOf(cursorParts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.error("Error in method: decode! Cursor: '{}' is not valid!", cursor);
+            throw new InvalidCursorException("Cursor: '" + cursor + "' is not valid!");
+        }
+    }
+
+}
@@ -2,25 +2,118 @@ package com.serwisspolecznosciowy.Application.repository;
 
 import com.serwisspolecznosciowy.Application.entity.Comment;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
-    List<Comment> findAllByPostIdIn(List<Integer> postsIds);
+    /* ids of 'limit' newest comments of every post, the whole feed page in one query */
+    @Query(value = "select r.id from (" +
+            "select c.id, row_number() over (partition by c.post_id order by c.created desc, c.id desc) as position " +
+            "from comments c where c.post_id in (:postIds)) r where r.position <= :limit", nativeQuery = true)
+    List<Integer> findNewestIdsByPostIdIn(@Param("postIds") List<Integer> postIds, @Param("limit") Integer limit);
 
+    @EntityGraph(attributePaths = "user")
+    @Query("Select c From Comment c where c.id in :ids order by c.created desc, c.id desc")
+    List<Comment> findAllWithUserByIdIn(@Param("ids") List<Integer> ids);
+
+    @EntityGraph(attributePaths = "user")
     @Query("Select p From Comment p")
     List<Comment> findAllComments(Pageable page);
 
     Optional<List<Comment>> findAllCommentByUserId(Integer userId);
 
+    /* authors of all comments are loaded by the same query */
+    @EntityGraph(attributePaths = "user")
     List<Comment> findAllCommentsByPostId(Integer postId);
 
-    List<Comment> findAllByBodyContaining(String body);
+    @Query("Select c.likeCount From Comment c where c.id = :commentId")
+    Optional<Integer> findLikeCountById(@Param("commentId") Integer commentId);
+
+    @Query("Select c.dislikeCount From Comment c where c.id = :commentId")
+    Optional<Integer> findDislikeCountById(@Param("commentId") Integer commentId);
+
+    @Transactional
+    @Modifying
+    @Query("Update Comment c set c.likeCount = c.likeCount + :delta where c.id = :commentId")
+    int addToLikeCount(@Param("commentId") Integer commentId, @Param("delta") Integer delta);
+
+    @Transactional
+    @Modifying
+    @Query("Update Comment c set c.dislikeCount = c.dislikeCount + :delta where c.id = :commentId")
+    int addToDislikeCount(@Param("commentId") Integer commentId, @Param("delta") Integer delta);
+
+    @Query("Select c.id From Comment c where c.id > :lastId order by c.id")
+    List<Integer> findIdsAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select c.id as id, c.body as body From Comment c where c.id > :lastId order by c.id")
+    List<IndexedBody> findBodiesAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select c.id as id, c.body as body From Comment c where c.created >= :since or c.updated >= :since")
+    List<IndexedBody> findBodiesChangedSince(@Param("since") LocalDateTime since);
+
+    @Query("Select c.id as id, c.body as body From Comment c where c.id in :ids")
+    List<IndexedBody> findBodiesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "select c.id from comments c where c.id in (:commentIds) " +
+            "and (c.like_count <> (select count(*) from likes l where l.comment_like_id = c.id) " +
+            "or c.dislike_count <> (select count(*) from dislikes d where d.comment_dislike_id = c.id))", nativeQuery = true)
+    List<Integer> findIdsWithDriftedReactionCounters(@Param("commentIds") List<Integer> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update comments c set c.like_count = (select count(*) from likes l where l.comment_like_id = c.id), " +
+            "c.dislike_count = (select count(*) from dislikes d where d.comment_dislike_id = c.id) where c.id in (:commentIds)", nativeQuery = true)
+    int repairReactionCounters(@Param("commentIds") List<Integer> commentIds);
+
+    @Query("Select c.id From Comment c where c.user.id = :userId order by c.id")
+    List<Integer> findIdsByUserId(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query("Select c.id From Comment c where c.user.id = :userId or c.postId in (Select p.id From Post p where p.user.id = :userId)")
+    List<Integer> findIdsByUserIdOrPostUserId(@Param("userId") Integer userId);
+
+    @Query("Select c.id From Comment c where c.postId in (:postIds)")
+    List<Integer> findIdsByPostIdIn(@Param("postIds") List<Integer> postIds);
+
+    @Query("Select count(c) From Comment c where c.user.id = :userId")
+    long countByUserId(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update comments c set c.like_count = c.like_count - (select count(*) from likes l where l.comment_like_id = c.id and l.user_id = :userId) " +
+            "where c.id in (select l.comment_like_id from likes l where l.user_id = :userId)", nativeQuery = true)
+    int subtractLikesOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update comments c set c.dislike_count = c.dislike_count - (select count(*) from dislikes d where d.comment_dislike_id = c.id and d.user_id = :userId) " +
+            "where c.id in (select d.comment_dislike_id from dislikes d where d.user_id = :userId)", nativeQuery = true)
+    int subtractDislikesOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from comments where user_id = :userId or post_id in (select p.id from posts p where p.user_id = :userId)", nativeQuery = true)
+    int deleteAllByUserIdOrPostUserId(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from comments where id in (:commentIds)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("commentIds") List<Integer> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from comments where post_id in (:postIds)", nativeQuery = true)
+    int deleteAllByPostIdIn(@Param("postIds") List<Integer> postIds);
 
 }
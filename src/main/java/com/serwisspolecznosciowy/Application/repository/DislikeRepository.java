@@ -1,8 +1,13 @@
 package com.serwisspolecznosciowy.Application.repository;
 
 import com.serwisspolecznosciowy.Application.entity.Dislike;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,4 +16,50 @@ public interface DislikeRepository extends JpaRepository<Dislike, Integer> {
 
     List<Dislike> findByPostDislikeId(Integer postId);
 
+    boolean existsByPostDislikeIdAndUserId(Integer postId, Integer userId);
+
+    boolean existsByCommentDislikeIdAndUserId(Integer commentId, Integer userId);
+
+    @Query("Select d.userId From Dislike d where d.postDislikeId = :postId")
+    List<Integer> findUserIdsByPostDislikeId(@Param("postId") Integer postId);
+
+    List<Dislike> findByPostDislikeIdAndIdGreaterThanOrderById(Integer postId, Integer lastDislikeId, Pageable pageable);
+
+    List<Dislike> findByCommentDislikeIdAndIdGreaterThanOrderById(Integer commentId, Integer lastDislikeId, Pageable pageable);
+
+    @Query(value = "select r.post_dislike_id as targetId, r.username as username from (" +
+            "select d.post_dislike_id, d.username, row_number() over (partition by d.post_dislike_id order by d.id) as position " +
+            "from dislikes d where d.post_dislike_id in (:postIds)) r where r.position <= :limit order by r.post_dislike_id, r.position", nativeQuery = true)
+    List<ReactionUsername> findFirstUsernamesByPostIds(@Param("postIds") List<Integer> postIds, @Param("limit") Integer limit);
+
+    @Query(value = "select r.comment_dislike_id as targetId, r.username as username from (" +
+            "select d.comment_dislike_id, d.username, row_number() over (partition by d.comment_dislike_id order by d.id) as position " +
+            "from dislikes d where d.comment_dislike_id in (:commentIds)) r where r.position <= :limit order by r.comment_dislike_id, r.position", nativeQuery = true)
+    List<ReactionUsername> findFirstUsernamesByCommentIds(@Param("commentIds") List<Integer> commentIds, @Param("limit") Integer limit);
+
+    @Query("Select d.postDislikeId From Dislike d where d.userId = :userId and d.postDislikeId in (:postIds)")
+    List<Integer> findPostIdsDislikedByUser(@Param("userId") Integer userId, @Param("postIds") List<Integer> postIds);
+
+    @Query("Select d.commentDislikeId From Dislike d where d.userId = :userId and d.commentDislikeId in (:commentIds)")
+    List<Integer> findCommentIdsDislikedByUser(@Param("userId") Integer userId, @Param("commentIds") List<Integer> commentIds);
+
+    /* reactions of user and reactions of user's posts and comments, also comments of other users to user's posts */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from dislikes where user_id = :userId " +
+            "or post_dislike_id in (select p.id from posts p where p.user_id = :userId) " +
+            "or comment_dislike_id in (select c.id from comments c where c.user_id = :userId or c.post_id in (select p.id from posts p where p.user_id = :userId))", nativeQuery = true)
+    int deleteAllOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from dislikes where comment_dislike_id in (:commentIds)", nativeQuery = true)
+    int deleteAllByCommentIdIn(@Param("commentIds") List<Integer> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from dislikes where post_dislike_id in (:postIds) " +
+            "or comment_dislike_id in (select c.id from comments c where c.post_id in (:postIds))", nativeQuery = true)
+    int deleteAllOfPostsIn(@Param("postIds") List<Integer> postIds);
+
 }
@@ -0,0 +1,41 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.Follow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, Integer> {
+
+    boolean existsByFollowerIdAndFollowedId(Integer followerId, Integer followedId);
+
+    long countByFollowedId(Integer followedId);
+
+    /* followers are read in chunks by keyset on index (followed_id, follower_id) */
+    @Query("Select f.followerId From Follow f where f.followedId = :followedId and f.followerId > :lastFollowerId order by f.followerId")
+    List<Integer> findFollowerIdsAfter(@Param("followedId") Integer followedId, @Param("lastFollowerId") Integer lastFollowerId, Pageable pageable);
+
+    @Query("Select f.followedId From Follow f where f.followerId = :followerId")
+    List<Integer> findFollowedIds(@Param("followerId") Integer followerId);
+
+    @Query("Select f.followedId From Follow f group by f.followedId having count(f) >= :minFollowers")
+    List<Integer> findFollowedIdsWithFollowersAtLeast(@Param("minFollowers") long minFollowers);
+
+    @Transactional
+    @Modifying
+    @Query("Delete From Follow f where f.followerId = :followerId and f.followedId = :followedId")
+    int deleteByFollowerIdAndFollowedId(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from follows where follower_id = :userId or followed_id = :userId", nativeQuery = true)
+    int deleteAllOfUser(@Param("userId") Integer userId);
+
+}
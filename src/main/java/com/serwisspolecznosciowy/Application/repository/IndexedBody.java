@@ -0,0 +1,12 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+/**
+ * Id and body of post or comment read to build full-text search index.
+ */
+public interface IndexedBody {
+
+    Integer getId();
+
+    String getBody();
+
+}
@@ -0,0 +1,12 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+/**
+ * Id and username of user read to build username search index.
+ */
+public interface IndexedUsername {
+
+    Integer getId();
+
+    String getUsername();
+
+}
@@ -1,8 +1,13 @@
 package com.serwisspolecznosciowy.Application.repository;
 
 import com.serwisspolecznosciowy.Application.entity.Like;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,4 +16,50 @@ public interface LikeRepository extends JpaRepository<Like, Integer> {
 
     List<Like> findByPostLikeId(Integer postId);
 
+    boolean existsByPostLikeIdAndUserId(Integer postId, Integer userId);
+
+    boolean existsByCommentLikeIdAndUserId(Integer commentId, Integer userId);
+
+    @Query("Select l.userId From Like l where l.postLikeId = :postId")
+    List<Integer> findUserIdsByPostLikeId(@Param("postId") Integer postId);
+
+    List<Like> findByPostLikeIdAndIdGreaterThanOrderById(Integer postId, Integer lastLikeId, Pageable pageable);
+
+    List<Like> findByCommentLikeIdAndIdGreaterThanOrderById(Integer commentId, Integer lastLikeId, Pageable pageable);
+
+    @Query(value = "select r.post_like_id as targetId, r.username as username from (" +
+            "select l.post_like_id, l.username, row_number() over (partition by l.post_like_id order by l.id) as position " +
+            "from likes l where l.post_like_id in (:postIds)) r where r.position <= :limit order by r.post_like_id, r.position", nativeQuery = true)
+    List<ReactionUsername> findFirstUsernamesByPostIds(@Param("postIds") List<Integer> postIds, @Param("limit") Integer limit);
+
+    @Query(value = "select r.comment_like_id as targetId, r.username as username from (" +
+            "select l.comment_like_id, l.username, row_number() over (partition by l.comment_like_id order by l.id) as position " +
+            "from likes l where l.comment_like_id in (:commentIds)) r where r.position <= :limit order by r.comment_like_id, r.position", nativeQuery = true)
+    List<ReactionUsername> findFirstUsernamesByCommentIds(@Param("commentIds") List<Integer> commentIds, @Param("limit") Integer limit);
+
+    @Query("Select l.postLikeId From Like l where l.userId = :userId and l.postLikeId in (:postIds)")
+    List<Integer> findPostIdsLikedByUser(@Param("userId") Integer userId, @Param("postIds") List<Integer> postIds);
+
+    @Query("Select l.commentLikeId From Like l where l.userId = :userId and l.commentLikeId in (:commentIds)")
+    List<Integer> findCommentIdsLikedByUser(@Param("userId") Integer userId, @Param("commentIds") List<Integer> commentIds);
+
+    /* reactions of user and reactions of user's posts and comments, also comments of other users to user's posts */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from likes where user_id = :userId " +
+            "or post_like_id in (select p.id from posts p where p.user_id = :userId) " +
+            "or comment_like_id in (select c.id from comments c where c.user_id = :userId or c.post_id in (select p.id from posts p where p.user_id = :userId))", nativeQuery = true)
+    int deleteAllOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from likes where comment_like_id in (:commentIds)", nativeQuery = true)
+    int deleteAllByCommentIdIn(@Param("commentIds") List<Integer> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from likes where post_like_id in (:postIds) " +
+            "or comment_like_id in (select c.id from comments c where c.post_id in (:postIds))", nativeQuery = true)
+    int deleteAllOfPostsIn(@Param("postIds") List<Integer> postIds);
+
 }
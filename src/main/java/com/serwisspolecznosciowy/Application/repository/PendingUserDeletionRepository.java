@@ -0,0 +1,24 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.PendingUserDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface PendingUserDeletionRepository extends JpaRepository<PendingUserDeletion, Integer> {
+
+    @Query("Select p.userId From PendingUserDeletion p order by p.started")
+    List<Integer> findAllUserIds();
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from pending_user_deletions where user_id = :userId", nativeQuery = true)
+    int deleteByUserId(@Param("userId") Integer userId);
+
+}
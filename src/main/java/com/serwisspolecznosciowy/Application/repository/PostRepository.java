@@ -2,20 +2,129 @@ package com.serwisspolecznosciowy.Application.repository;
 
 import com.serwisspolecznosciowy.Application.entity.Post;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Integer> {
 
+    @EntityGraph(attributePaths = "user")
     @Query("Select p From Post p")
     List<Post> findAllPostsWithComments(Pageable pageable);
 
+    @EntityGraph(attributePaths = "user")
+    @Query("Select p From Post p order by p.created desc, p.id desc")
+    List<Post> findPostsFeedFirstPage(Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("Select p From Post p where p.created < :created or (p.created = :created and p.id < :id) order by p.created desc, p.id desc")
+    List<Post> findPostsFeedPageAfter(@Param("created") LocalDateTime created, @Param("id") Integer id, Pageable pageable);
+
     Optional<List<Post>> findAllByUserId(Integer userId);
 
-    List<Post> findAllByBodyContaining(String keywordInBody);
+    @Query("Select p.likeCount From Post p where p.id = :postId")
+    Optional<Integer> findLikeCountById(@Param("postId") Integer postId);
+
+    @Query("Select p.dislikeCount From Post p where p.id = :postId")
+    Optional<Integer> findDislikeCountById(@Param("postId") Integer postId);
+
+    @Transactional
+    @Modifying
+    @Query("Update Post p set p.likeCount = p.likeCount + :delta where p.id = :postId")
+    int addToLikeCount(@Param("postId") Integer postId, @Param("delta") Integer delta);
+
+    @Transactional
+    @Modifying
+    @Query("Update Post p set p.dislikeCount = p.dislikeCount + :delta where p.id = :postId")
+    int addToDislikeCount(@Param("postId") Integer postId, @Param("delta") Integer delta);
+
+    @Transactional
+    @Modifying
+    @Query("Update Post p set p.numberOfComments = p.numberOfComments + :delta where p.id = :postId")
+    int addToNumberOfComments(@Param("postId") Integer postId, @Param("delta") Integer delta);
+
+    @Query("Select p.id From Post p where p.id > :lastId order by p.id")
+    List<Integer> findIdsAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select p.id as id, p.body as body From Post p where p.id > :lastId order by p.id")
+    List<IndexedBody> findBodiesAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select p.id as id, p.body as body From Post p where p.created >= :since or p.updated >= :since")
+    List<IndexedBody> findBodiesChangedSince(@Param("since") LocalDateTime since);
+
+    @Query("Select p.id as id, p.body as body From Post p where p.id in :ids")
+    List<IndexedBody> findBodiesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "select p.id from posts p where p.id in (:postIds) " +
+            "and (p.like_count <> (select count(*) from likes l where l.post_like_id = p.id) " +
+            "or p.dislike_count <> (select count(*) from dislikes d where d.post_dislike_id = p.id))", nativeQuery = true)
+    List<Integer> findIdsWithDriftedReactionCounters(@Param("postIds") List<Integer> postIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update posts p set p.like_count = (select count(*) from likes l where l.post_like_id = p.id), " +
+            "p.dislike_count = (select count(*) from dislikes d where d.post_dislike_id = p.id) where p.id in (:postIds)", nativeQuery = true)
+    int repairReactionCounters(@Param("postIds") List<Integer> postIds);
+
+    @Query("Select p.id From Post p where p.user.id = :userId order by p.id")
+    List<Integer> findIdsByUserId(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query("Select p.id From Post p where p.user.id = :userId")
+    List<Integer> findAllIdsByUserId(@Param("userId") Integer userId);
+
+    /* (user_id, id) is the index of foreign key in InnoDB, so newest posts of every author are read from index */
+    @Query("Select p.id From Post p where p.user.id in :userIds and p.id < :beforeId order by p.id desc")
+    List<Integer> findIdsByUserIdInBefore(@Param("userIds") Collection<Integer> userIds, @Param("beforeId") Integer beforeId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("Select p From Post p where p.id in :ids")
+    List<Post> findAllWithUserByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("Select count(p) From Post p where p.user.id = :userId")
+    long countByUserId(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update posts p set p.like_count = p.like_count - (select count(*) from likes l where l.post_like_id = p.id and l.user_id = :userId) " +
+            "where p.id in (select l.post_like_id from likes l where l.user_id = :userId)", nativeQuery = true)
+    int subtractLikesOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update posts p set p.dislike_count = p.dislike_count - (select count(*) from dislikes d where d.post_dislike_id = p.id and d.user_id = :userId) " +
+            "where p.id in (select d.post_dislike_id from dislikes d where d.user_id = :userId)", nativeQuery = true)
+    int subtractDislikesOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update posts p set p.number_of_comments = p.number_of_comments - (select count(*) from comments c where c.post_id = p.id and c.user_id = :userId) " +
+            "where p.user_id <> :userId and p.id in (select c.post_id from comments c where c.user_id = :userId)", nativeQuery = true)
+    int subtractCommentsOfUser(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update posts p set p.number_of_comments = p.number_of_comments - (select count(*) from comments c where c.post_id = p.id and c.id in (:commentIds)) " +
+            "where p.id in (select c.post_id from comments c where c.id in (:commentIds))", nativeQuery = true)
+    int subtractComments(@Param("commentIds") List<Integer> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from posts where user_id = :userId", nativeQuery = true)
+    int deleteAllByUserId(@Param("userId") Integer userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from posts where id in (:postIds)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("postIds") List<Integer> postIds);
+
 }
@@ -0,0 +1,14 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+/**
+ * Id, username and number of posts of user read to build username autocomplete.
+ */
+public interface RankedUsername {
+
+    Integer getId();
+
+    String getUsername();
+
+    Long getPostCount();
+
+}
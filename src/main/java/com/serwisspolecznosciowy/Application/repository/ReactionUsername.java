@@ -0,0 +1,12 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+/**
+ * Username of user who reacted to post or comment with id 'targetId'.
+ */
+public interface ReactionUsername {
+
+    Integer getTargetId();
+
+    String getUsername();
+
+}
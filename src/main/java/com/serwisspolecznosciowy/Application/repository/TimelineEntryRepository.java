@@ -0,0 +1,39 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.TimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, Integer> {
+
+    @Query("Select t.postId From TimelineEntry t where t.userId = :userId order by t.postId desc")
+    List<Integer> findNewestPostIds(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query("Select t.userId From TimelineEntry t group by t.userId having count(t) > :maxEntries")
+    List<Integer> findUserIdsWithEntriesMoreThan(@Param("maxEntries") long maxEntries);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from timeline_entries where user_id = :userId and post_id < :postId", nativeQuery = true)
+    int deleteAllOlderThan(@Param("userId") Integer userId, @Param("postId") Integer postId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from timeline_entries where user_id = :userId and author_id = :authorId", nativeQuery = true)
+    int deleteAllOfAuthor(@Param("userId") Integer userId, @Param("authorId") Integer authorId);
+
+    /* entries of user's posts in timelines of followers are deleted with posts by foreign key */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from timeline_entries where user_id = :userId", nativeQuery = true)
+    int deleteAllByUserId(@Param("userId") Integer userId);
+
+}
@@ -1,11 +1,15 @@
 package com.serwisspolecznosciowy.Application.repository;
 
 import com.serwisspolecznosciowy.Application.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,10 +18,25 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     Optional<User> findByUsername(String username);
 
-    @Query(value = "SELECT * FROM `portal-spolecznosciowy`.`users` where username like %:keyword%", nativeQuery = true)
-    List<User> findByUsernameLike(@Param(value = "keyword") String keyword);
+    @Query("Select u.id From User u where u.id > :lastId order by u.id")
+    List<Integer> findIdsAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select u.id as id, u.username as username From User u where u.id > :lastId order by u.id")
+    List<IndexedUsername> findUsernamesAfter(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("Select u.id as id, u.username as username From User u where u.id in :ids")
+    List<IndexedUsername> findUsernamesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("Select u.id as id, u.username as username, count(p.id) as postCount From User u left join Post p on p.user = u " +
+            "where u.id > :lastId group by u.id, u.username order by u.id")
+    List<RankedUsername> findRankedUsernamesAfter(@Param("lastId") Integer lastId, Pageable pageable);
 
     @Query(value = "select u.* from `portal-spolecznosciowy`.`users` u left join `portal-spolecznosciowy`.`posts` p on p.user_id = u.id where p.id = :postId", nativeQuery = true)
     Optional<User> findByPostId(@Param(value = "postId") Integer postId);
 
+    @Transactional
+    @Modifying
+    @Query(value = "delete from users where id = :userId", nativeQuery = true)
+    int deleteUserById(@Param("userId") Integer userId);
+
 }
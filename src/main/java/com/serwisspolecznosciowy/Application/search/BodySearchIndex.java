@@ -0,0 +1,255 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.repository.CommentRepository;
+import com.serwisspolecznosciowy.Application.repository.IndexedBody;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Full-text search index of post and comment bodies, replaces 'like %keyword%' queries which scanned whole tables.
+ * Index is loaded with the first search: from snapshot file in 'search.index.directory' when it exists, otherwise from database.
+ * After loading, and then every 'search.index.catch-up-interval-minutes', index catches up with changes made in database
+ * since the snapshot (e.g. by other instance of application) and snapshot is saved again.
+ * Posts and comments added, edited or deleted by this instance are updated in index right after commit.
+ */
+@Component
+@Slf4j
+public class BodySearchIndex {
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE_NAME = "body-search-index.bin";
+    /* rows saved in the meantime by other transactions or with a bit different clock are read again in the next catch up */
+    private static final long CATCH_UP_OVERLAP_IN_SECONDS = 60;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Value("${search.index.directory:search-index}")
+    private String directory;
+
+    @Value("${search.index.batch-size:1000}")
+    private int batchSize;
+
+    private final InvertedIndex postIndex = new InvertedIndex();
+
+    private final InvertedIndex commentIndex = new InvertedIndex();
+
+    private volatile boolean loaded;
+
+    /* changes saved in database before this time are already in index */
+    private volatile LocalDateTime synchronizedUntil;
+
+    public List<Integer> searchPostIds(String keyword, int pageNumber, int pageSize) {
+        loadIfNeeded();
+        return postIndex.search(keyword, pageNumber, pageSize);
+    }
+
+    public List<Integer> searchCommentIds(String keyword, int pageNumber, int pageSize) {
+        loadIfNeeded();
+        return commentIndex.search(keyword, pageNumber, pageSize);
+    }
+
+    public void indexPost(Integer postId, String body) {
+        afterCommit(() -> postIndex.add(postId, body));
+    }
+
+    public void removePost(Integer postId) {
+        afterCommit(() -> postIndex.remove(postId));
+    }
+
+    public void indexComment(Integer commentId, String body) {
+        afterCommit(() -> commentIndex.add(commentId, body));
+    }
+
+    public void removeComments(Collection<Integer> commentIds) {
+        afterCommit(() -> commentIds.forEach(commentIndex::remove));
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /* before index is loaded changes are skipped - they are read from database while loading or in the next catch up */
+    private void afterCommit(Runnable update) {
+        if (!loaded) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (readSnapshot()) {
+                catchUp();
+            } else {
+                build();
+            }
+            loaded = true;
+            writeSnapshot();
+        }
+    }
+
+    private void build() {
+        LocalDateTime started = LocalDateTime.now().minusSeconds(CATCH_UP_OVERLAP_IN_SECONDS);
+        postIndex.clear();
+        commentIndex.clear();
+        addAll(postIndex, postRepository::findBodiesAfter);
+        addAll(commentIndex, commentRepository::findBodiesAfter);
+        synchronizedUntil = started;
+        log.info("Search index built from database. Posts: {}, comments: {}.", postIndex.size(), commentIndex.size());
+    }
+
+    private void addAll(InvertedIndex index, BiFunction<Integer, Pageable, List<IndexedBody>> findBodiesAfter) {
+        int lastId = 0;
+        List<IndexedBody> bodies;
+        do {
+            bodies = findBodiesAfter.apply(lastId, PageRequest.of(0, batchSize));
+            for (IndexedBody body : bodies) {
+                index.add(body.getId(), body.getBody());
+                lastId = body.getId();
+            }
+        } while (bodies.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.catch-up-interval-minutes:5}",
+            initialDelayString = "${search.index.catch-up-interval-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    public synchronized void catchUpAndSave() {
+        if (!loaded) {
+            return;
+        }
+        catchUp();
+        writeSnapshot();
+    }
+
+    private void catchUp() {
+        LocalDateTime started = LocalDateTime.now().minusSeconds(CATCH_UP_OVERLAP_IN_SECONDS);
+        int postChanges = catchUp(postIndex, postRepository::findIdsAfter, postRepository::findBodiesChangedSince, postRepository::findBodiesByIdIn);
+        int commentChanges = catchUp(commentIndex, commentRepository::findIdsAfter, commentRepository::findBodiesChangedSince, commentRepository::findBodiesByIdIn);
+        synchronizedUntil = started;
+        log.info("Search index caught up with database. Changed posts: {}, changed comments: {}.", postChanges, commentChanges);
+    }
+
+    /**
+     * Removes documents which are not in database anymore, adds missing ones and updates documents edited since last synchronization.
+     * Only ids are read for the whole table, bodies only of changed rows.
+     */
+    private int catchUp(InvertedIndex index, BiFunction<Integer, Pageable, List<Integer>> findIdsAfter,
+                        Function<LocalDateTime, List<IndexedBody>> findBodiesChangedSince, Function<Collection<Integer>, List<IndexedBody>> findBodiesByIdIn) {
+        /* read before database, so document added to index meanwhile is never taken as deleted */
+        RoaringBitmap idsInIndex = index.getIds();
+        RoaringBitmap idsInDatabase = new RoaringBitmap();
+        int lastId = 0;
+        List<Integer> ids;
+        do {
+            ids = findIdsAfter.apply(lastId, PageRequest.of(0, batchSize));
+            ids.forEach(idsInDatabase::add);
+            lastId = ids.isEmpty() ? lastId : ids.get(ids.size() - 1);
+        } while (ids.size() == batchSize);
+
+        RoaringBitmap deleted = RoaringBitmap.andNot(idsInIndex, idsInDatabase);
+        deleted.forEach((int id) -> index.remove(id));
+        RoaringBitmap missing = RoaringBitmap.andNot(idsInDatabase, idsInIndex);
+        List<Integer> batch = new ArrayList<>(batchSize);
+        for (int id : missing) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                findBodiesByIdIn.apply(batch).forEach(body -> index.add(body.getId(), body.getBody()));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            findBodiesByIdIn.apply(batch).forEach(body -> index.add(body.getId(), body.getBody()));
+        }
+        List<IndexedBody> changed = findBodiesChangedSince.apply(synchronizedUntil);
+        changed.forEach(body -> index.add(body.getId(), body.getBody()));
+        return deleted.getCardinality() + missing.getCardinality() + changed.size();
+    }
+
+    private boolean readSnapshot() {
+        Path snapshot = Paths.get(directory, SNAPSHOT_FILE_NAME);
+        if (!Files.exists(snapshot)) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (input.readInt() != SNAPSHOT_VERSION) {
+                log.info("Search index snapshot has old format and will be rebuilt.");
+                return false;
+            }
+            synchronizedUntil = LocalDateTime.parse(input.readUTF());
+            postIndex.readFrom(input);
+            commentIndex.readFrom(input);
+            log.info("Search index read from snapshot. Posts: {}, comments: {}.", postIndex.size(), commentIndex.size());
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.error("Error in method readSnapshot! Search index snapshot: {} can not be read and will be rebuilt.", snapshot, ex);
+            return false;
+        }
+    }
+
+    /* written to temporary file first, so crash during writing never leaves broken snapshot */
+    private void writeSnapshot() {
+        Path snapshot = Paths.get(directory, SNAPSHOT_FILE_NAME);
+        try {
+            Files.createDirectories(snapshot.getParent());
+            Path temporary = Files.createTempFile(snapshot.getParent(), SNAPSHOT_FILE_NAME, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeUTF(synchronizedUntil.toString());
+                postIndex.writeTo(output);
+                commentIndex.writeTo(output);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.error("Error in method writeSnapshot! Search index snapshot: {} can not be saved.", snapshot, ex);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void saveOnShutdown() {
+        if (loaded) {
+            writeSnapshot();
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index of texts with integer ids (posts or comments).
+ * Every term has posting list of ids stored as compressed RoaringBitmap, every document keeps its terms with frequencies
+ * for ranking and for removing it from posting lists when text is changed or deleted.
+ * Every query word matches terms which start with it and document has to match all words of query.
+ * Results are ranked with BM25.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* sorted, so all terms with given prefix are one sub map */
+    private final NavigableMap<String, RoaringBitmap> postings = new TreeMap<>();
+
+    private final Map<Integer, IndexedDocument> documents = new HashMap<>();
+
+    private long totalLength;
+
+    public void add(Integer id, String text) {
+        IndexedDocument document = IndexedDocument.of(TextTokenizer.tokenize(text));
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            documents.put(id, document);
+            totalLength += document.length;
+            for (String term : document.terms) {
+                postings.computeIfAbsent(term, newTerm -> new RoaringBitmap()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(Integer id) {
+        IndexedDocument document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length;
+        for (String term : document.terms) {
+            RoaringBitmap ids = postings.get(term);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RoaringBitmap getIds() {
+        lock.readLock().lock();
+        try {
+            return RoaringBitmap.bitmapOf(documents.keySet().stream().mapToInt(Integer::intValue).toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of documents on requested page, the best matching first
+     */
+    public List<Integer> search(String query, int pageNumber, int pageSize) {
+        Set<String> queryWords = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (queryWords.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matchingIds = null;
+            Map<String, RoaringBitmap> matchedTerms = new HashMap<>();
+            for (String word : queryWords) {
+                SortedMap<String, RoaringBitmap> termsWithPrefix = postings.subMap(word, word + Character.MAX_VALUE);
+                if (termsWithPrefix.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                RoaringBitmap idsOfWord = RoaringBitmap.or(termsWithPrefix.values().iterator());
+                matchingIds = matchingIds == null ? idsOfWord : RoaringBitmap.and(matchingIds, idsOfWord);
+                matchedTerms.putAll(termsWithPrefix);
+            }
+            if (matchingIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return topScored(score(matchingIds, matchedTerms), pageNumber, pageSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Double> score(RoaringBitmap matchingIds, Map<String, RoaringBitmap> matchedTerms) {
+        int numberOfDocuments = documents.size();
+        double averageLength = (double) totalLength / numberOfDocuments;
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Map.Entry<String, RoaringBitmap> term : matchedTerms.entrySet()) {
+            int documentFrequency = term.getValue().getCardinality();
+            double idf = Math.log(1 + (numberOfDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (int id : RoaringBitmap.and(term.getValue(), matchingIds)) {
+                IndexedDocument document = documents.get(id);
+                int frequency = document.frequencyOf(term.getKey());
+                double normalizedFrequency = frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * document.length / averageLength));
+                scores.merge(id, idf * normalizedFrequency, Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    /* keeps only as many results as needed for requested page, equal scores - newer (higher id) first */
+    private List<Integer> topScored(Map<Integer, Double> scores, int pageNumber, int pageSize) {
+        long limit = Math.min((long) (pageNumber + 1) * pageSize, Integer.MAX_VALUE);
+        Comparator<Map.Entry<Integer, Double>> byScore = Map.Entry.<Integer, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(byScore);
+        for (Map.Entry<Integer, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Integer> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().getKey());
+        }
+        Collections.reverse(ids);
+        int from = (int) Math.min((long) pageNumber * pageSize, ids.size());
+        return ids.subList(from, ids.size());
+    }
+
+    /**
+     * Writes documents with their term frequencies, posting lists are rebuilt from them when index is read.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        lock.readLock().lock();
+        try {
+            output.writeInt(documents.size());
+            for (Map.Entry<Integer, IndexedDocument> entry : documents.entrySet()) {
+                IndexedDocument document = entry.getValue();
+                output.writeInt(entry.getKey());
+                output.writeInt(document.terms.length);
+                for (int i = 0; i < document.terms.length; i++) {
+                    output.writeUTF(document.terms[i]);
+                    output.writeInt(document.frequencies[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void readFrom(DataInput input) throws IOException {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            int numberOfDocuments = input.readInt();
+            for (int i = 0; i < numberOfDocuments; i++) {
+                int id = input.readInt();
+                int numberOfTerms = input.readInt();
+                String[] terms = new String[numberOfTerms];
+                int[] frequencies = new int[numberOfTerms];
+                for (int j = 0; j < numberOfTerms; j++) {
+                    terms[j] = input.readUTF();
+                    frequencies[j] = input.readInt();
+                }
+                IndexedDocument document = new IndexedDocument(terms, frequencies);
+                documents.put(id, document);
+                totalLength += document.length;
+                for (String term : terms) {
+                    postings.computeIfAbsent(term, newTerm -> new RoaringBitmap()).add(id);
+                }
+            }
+            postings.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* terms are sorted, so frequency of term is found with binary search */
+    private static class IndexedDocument {
+
+        private final String[] terms;
+
+        private final int[] frequencies;
+
+        private final int length;
+
+        private IndexedDocument(String[] terms, int[] frequencies) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+            this.length = Arrays.stream(frequencies).sum();
+        }
+
+        private static IndexedDocument of(List<String> tokens) {
+            SortedMap<String, Integer> frequencyByTerm = new TreeMap<>();
+            tokens.forEach(token -> frequencyByTerm.merge(token, 1, Integer::sum));
+            String[] terms = frequencyByTerm.keySet().toArray(new String[0]);
+            int[] frequencies = frequencyByTerm.values().stream().mapToInt(Integer::intValue).toArray();
+            return new IndexedDocument(terms, frequencies);
+        }
+
+        private int frequencyOf(String term) {
+            int index = Arrays.binarySearch(terms, term);
+            return index >= 0 ? frequencies[index] : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower case words without polish marks, so 'Żółć' and 'zolc' are the same term
+ * (the same way as case and accent insensitive collation of database compared them before).
+ */
+public final class TextTokenizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NOT_LETTER_OR_DIGIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /* longer words (e.g. links without spaces) are cut, nobody searches for them whole */
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : NOT_LETTER_OR_DIGIT.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+            }
+        }
+        return tokens;
+    }
+
+    static String normalize(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        /* 'ł' is a separate letter, not 'l' with combining mark, so it is not removed by decomposition */
+        String withoutMarks = COMBINING_MARKS.matcher(Normalizer.normalize(lowerCase, Normalizer.Form.NFD)).replaceAll("");
+        return withoutMarks.replace('ł', 'l');
+    }
+
+}
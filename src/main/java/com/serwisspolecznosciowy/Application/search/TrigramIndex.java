@@ -0,0 +1,152 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring index of short texts with integer ids (usernames).
+ * Every three following characters of text (trigram) have posting list of ids stored as RoaringBitmap,
+ * so text containing query has to be in posting lists of all trigrams of query. Intersection of them
+ * is checked with the whole query, because trigrams found in text don't have to follow each other.
+ */
+public class TrigramIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, RoaringBitmap> postings = new HashMap<>();
+
+    /* texts after normalization, compared with query */
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    private final RoaringBitmap ids = new RoaringBitmap();
+
+    public void add(Integer id, String text) {
+        String normalizedText = TextTokenizer.normalize(text);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            texts.put(id, normalizedText);
+            ids.add(id);
+            for (String trigram : trigramsOf(normalizedText)) {
+                postings.computeIfAbsent(trigram, newTrigram -> new RoaringBitmap()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(Integer id) {
+        String normalizedText = texts.remove(id);
+        if (normalizedText == null) {
+            return;
+        }
+        ids.remove(id);
+        for (String trigram : trigramsOf(normalizedText)) {
+            RoaringBitmap idsOfTrigram = postings.get(trigram);
+            idsOfTrigram.remove(id);
+            if (idsOfTrigram.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            texts.clear();
+            ids.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RoaringBitmap getIds() {
+        lock.readLock().lock();
+        try {
+            return ids.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return at most limit ids of texts containing query (case and polish marks insensitive), in ascending order
+     */
+    public List<Integer> search(String query, int limit) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String normalizedQuery = TextTokenizer.normalize(query);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = candidatesFor(normalizedQuery);
+            List<Integer> matchingIds = new ArrayList<>(Math.min(limit, candidates.getCardinality()));
+            PeekableIntIterator iterator = candidates.getIntIterator();
+            while (iterator.hasNext() && matchingIds.size() < limit) {
+                int id = iterator.next();
+                if (texts.get(id).contains(normalizedQuery)) {
+                    matchingIds.add(id);
+                }
+            }
+            return matchingIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* query shorter than trigram can be anywhere, so all texts are checked */
+    private RoaringBitmap candidatesFor(String normalizedQuery) {
+        if (normalizedQuery.length() < GRAM_LENGTH) {
+            return ids;
+        }
+        List<RoaringBitmap> postingLists = new ArrayList<>();
+        for (String trigram : trigramsOf(normalizedQuery)) {
+            RoaringBitmap idsOfTrigram = postings.get(trigram);
+            if (idsOfTrigram == null) {
+                return new RoaringBitmap();
+            }
+            postingLists.add(idsOfTrigram);
+        }
+        /* the shortest lists first, so intermediate results are as small as possible */
+        postingLists.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap candidates = postingLists.get(0).clone();
+        for (int i = 1; i < postingLists.size() && !candidates.isEmpty(); i++) {
+            candidates.and(postingLists.get(i));
+        }
+        return candidates;
+    }
+
+    private static Set<String> trigramsOf(String normalizedText) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalizedText.length(); i++) {
+            trigrams.add(normalizedText.substring(i, i + GRAM_LENGTH));
+        }
+        return trigrams;
+    }
+
+}
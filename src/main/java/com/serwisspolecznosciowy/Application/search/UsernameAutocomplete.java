@@ -0,0 +1,144 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.repository.RankedUsername;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import com.serwisspolecznosciowy.Application.search.UsernamePrefixIndex.Suggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Username autocomplete ("@mention" and user search box), the most active users (with the most posts) first.
+ * Index is loaded in background when application is started and rebuilt every 'search.autocomplete.rebuild-interval-minutes',
+ * which also refreshes numbers of posts. Users added or deleted by this instance in the meantime are kept aside
+ * and merged with results of index.
+ */
+@Component
+@Slf4j
+public class UsernameAutocomplete {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${search.index.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${search.autocomplete.max-size:10}")
+    private int maxSize;
+
+    private volatile UsernamePrefixIndex prefixIndex;
+
+    /* users added after index was built, they have no posts yet */
+    private final Map<Integer, Suggestion> addedUsers = new ConcurrentHashMap<>();
+
+    private final Set<Integer> deletedUserIds = ConcurrentHashMap.newKeySet();
+
+    /* database can be not available when application is started, then index is loaded with the first request */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                log.error("Error in method loadOnStartup! Username autocomplete will be loaded with the first request.", ex);
+            }
+        }, "username-autocomplete-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * @return at most size (not more than 'search.autocomplete.max-size') usernames starting with prefix
+     */
+    public List<String> complete(String prefix, int size) {
+        int limit = Math.min(size, maxSize);
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        UsernamePrefixIndex index = prefixIndex != null ? prefixIndex : loadIfNeeded();
+        List<Suggestion> suggestions = new ArrayList<>(index.complete(prefix, limit, deletedUserIds));
+        String normalizedPrefix = TextTokenizer.normalize(prefix);
+        addedUsers.values().stream()
+                .filter(suggestion -> TextTokenizer.normalize(suggestion.getUsername()).startsWith(normalizedPrefix))
+                .forEach(suggestions::add);
+        /* user added while index was rebuilt can be both in index and in added users */
+        Set<Integer> ids = new HashSet<>();
+        return suggestions.stream()
+                .filter(suggestion -> ids.add(suggestion.getId()))
+                .sorted(Comparator.comparingInt(Suggestion::getPopularity).reversed()
+                        .thenComparing(suggestion -> TextTokenizer.normalize(suggestion.getUsername())))
+                .limit(limit)
+                .map(Suggestion::getUsername)
+                .collect(Collectors.toList());
+    }
+
+    public void addUser(Integer userId, String username) {
+        afterCommit(() -> {
+            deletedUserIds.remove(userId);
+            addedUsers.put(userId, new Suggestion(userId, username, 0));
+        });
+    }
+
+    public void removeUser(Integer userId) {
+        afterCommit(() -> {
+            addedUsers.remove(userId);
+            deletedUserIds.add(userId);
+        });
+    }
+
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private synchronized UsernamePrefixIndex loadIfNeeded() {
+        if (prefixIndex == null) {
+            rebuild();
+        }
+        return prefixIndex;
+    }
+
+    @Scheduled(fixedDelayString = "${search.autocomplete.rebuild-interval-minutes:60}",
+            initialDelayString = "${search.autocomplete.rebuild-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public synchronized void rebuild() {
+        /* changes made before rebuild are in database, so they are read into new index; later ones are kept aside */
+        Set<Integer> addedBefore = new HashSet<>(addedUsers.keySet());
+        Set<Integer> deletedBefore = new HashSet<>(deletedUserIds);
+        List<Suggestion> suggestions = new ArrayList<>();
+        int lastId = 0;
+        List<RankedUsername> usernames;
+        do {
+            usernames = userRepository.findRankedUsernamesAfter(lastId, PageRequest.of(0, batchSize));
+            for (RankedUsername username : usernames) {
+                suggestions.add(new Suggestion(username.getId(), username.getUsername(), Math.toIntExact(username.getPostCount())));
+                lastId = username.getId();
+            }
+        } while (usernames.size() == batchSize);
+        UsernamePrefixIndex index = UsernamePrefixIndex.build(suggestions, maxSize);
+        prefixIndex = index;
+        addedUsers.keySet().removeAll(addedBefore);
+        deletedUserIds.removeAll(deletedBefore);
+        log.info("Username autocomplete built. Users: {}, estimated size: {} KB.", index.size(), index.estimatedSizeInBytes() / 1024);
+    }
+
+}
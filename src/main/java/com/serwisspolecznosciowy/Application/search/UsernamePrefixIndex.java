@@ -0,0 +1,193 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Immutable prefix index of usernames for autocomplete, the most popular users with given prefix first.
+ * Usernames are kept sorted in arrays, so users with the same prefix are one range found with binary search
+ * (the same as subtree of trie, but without nodes and pointers). Ranges longer than {@link #SCAN_THRESHOLD}
+ * have the most popular users computed while building, shorter ranges are scanned.
+ */
+public class UsernamePrefixIndex {
+
+    static final int SCAN_THRESHOLD = 256;
+
+    /* usernames after normalization, sorted */
+    private final String[] keys;
+
+    private final String[] usernames;
+
+    private final int[] ids;
+
+    private final int[] popularity;
+
+    /* positions of the most popular users for every prefix with more than SCAN_THRESHOLD users */
+    private final Map<String, int[]> topOfLargePrefixes = new HashMap<>();
+
+    private final int topSize;
+
+    private UsernamePrefixIndex(List<Suggestion> suggestions, int topSize) {
+        int size = suggestions.size();
+        List<String> normalizedUsernames = new ArrayList<>(size);
+        suggestions.forEach(suggestion -> normalizedUsernames.add(TextTokenizer.normalize(suggestion.getUsername())));
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.<Integer, String>comparing(normalizedUsernames::get).thenComparing(i -> suggestions.get(i).getId()));
+        this.keys = new String[size];
+        this.usernames = new String[size];
+        this.ids = new int[size];
+        this.popularity = new int[size];
+        for (int position = 0; position < size; position++) {
+            Suggestion suggestion = suggestions.get(order[position]);
+            String key = normalizedUsernames.get(order[position]);
+            keys[position] = key;
+            /* the same object when username is already normalized, so it is not stored twice */
+            usernames[position] = key.equals(suggestion.getUsername()) ? key : suggestion.getUsername();
+            ids[position] = suggestion.getId();
+            popularity[position] = suggestion.getPopularity();
+        }
+        this.topSize = topSize;
+        computeTopOfLargePrefixes(0, size, 0);
+    }
+
+    /**
+     * @param topSize the biggest number of suggestions which can be requested
+     */
+    public static UsernamePrefixIndex build(List<Suggestion> suggestions, int topSize) {
+        return new UsernamePrefixIndex(suggestions, topSize);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /* range [from, to) contains keys with the same first 'depth' characters, children ranges are split by next character */
+    private void computeTopOfLargePrefixes(int from, int to, int depth) {
+        if (to - from <= SCAN_THRESHOLD) {
+            return;
+        }
+        topOfLargePrefixes.put(keys[from].substring(0, depth), topPositions(from, to, topSize, Collections.emptySet()));
+        int childFrom = from;
+        /* key equal to prefix is sorted before all longer keys */
+        while (childFrom < to && keys[childFrom].length() == depth) {
+            childFrom++;
+        }
+        while (childFrom < to) {
+            char next = keys[childFrom].charAt(depth);
+            int childTo = childFrom + 1;
+            while (childTo < to && keys[childTo].charAt(depth) == next) {
+                childTo++;
+            }
+            computeTopOfLargePrefixes(childFrom, childTo, depth + 1);
+            childFrom = childTo;
+        }
+    }
+
+    /**
+     * @return at most limit users which username starts with prefix (case and polish marks insensitive),
+     * the most popular first, then in alphabetical order
+     */
+    public List<Suggestion> complete(String prefix, int limit, Set<Integer> excludedIds) {
+        String normalizedPrefix = TextTokenizer.normalize(prefix);
+        int from = lowerBound(normalizedPrefix);
+        int to = lowerBound(normalizedPrefix + Character.MAX_VALUE);
+        int[] positions = null;
+        if (to - from > SCAN_THRESHOLD && limit <= topSize) {
+            positions = topOfLargePrefixes.get(normalizedPrefix);
+            int excluded = (int) Arrays.stream(positions).filter(position -> excludedIds.contains(ids[position])).count();
+            /* deleted users among the most popular ones - the whole range is scanned until next rebuild */
+            if (excluded > 0 && positions.length - excluded < limit) {
+                positions = null;
+            }
+        }
+        if (positions == null) {
+            positions = topPositions(from, to, limit, excludedIds);
+        }
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, positions.length));
+        for (int position : positions) {
+            if (suggestions.size() < limit && !excludedIds.contains(ids[position])) {
+                suggestions.add(new Suggestion(ids[position], usernames[position], popularity[position]));
+            }
+        }
+        return suggestions;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /* keeps only limit the most popular positions, positions are in alphabetical order, so earlier wins with equal popularity */
+    private int[] topPositions(int from, int to, int limit, Set<Integer> excludedIds) {
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.<Integer>comparingInt(position -> popularity[position])
+                .thenComparing(Comparator.<Integer>reverseOrder()));
+        for (int position = from; position < to; position++) {
+            if (excludedIds.contains(ids[position])) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(position);
+            } else if (limit > 0 && popularity[position] > popularity[best.peek()]) {
+                best.poll();
+                best.add(position);
+            }
+        }
+        int[] positions = new int[best.size()];
+        for (int i = positions.length - 1; i >= 0; i--) {
+            positions[i] = best.poll();
+        }
+        return positions;
+    }
+
+    /**
+     * Approximate number of bytes used by index, with 64-bit JVM, compressed references and compact strings.
+     */
+    public long estimatedSizeInBytes() {
+        long bytes = arraySize(keys.length, 4) * 2 + arraySize(ids.length, 4) * 2;
+        for (int position = 0; position < keys.length; position++) {
+            bytes += stringSize(keys[position]);
+            if (usernames[position] != keys[position]) {
+                bytes += stringSize(usernames[position]);
+            }
+        }
+        /* hash map node with key and top positions array */
+        for (Map.Entry<String, int[]> top : topOfLargePrefixes.entrySet()) {
+            bytes += 32 + 4 + stringSize(top.getKey()) + arraySize(top.getValue().length, 4);
+        }
+        return bytes + arraySize(topOfLargePrefixes.size(), 4);
+    }
+
+    private static long stringSize(String text) {
+        boolean latin1 = text.chars().allMatch(character -> character < 256);
+        return 24 + arraySize(text.length(), latin1 ? 1 : 2);
+    }
+
+    private static long arraySize(int length, int elementSize) {
+        return (16 + (long) length * elementSize + 7) / 8 * 8;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Suggestion {
+
+        private final int id;
+
+        private final String username;
+
+        private final int popularity;
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.repository.IndexedUsername;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substring search of usernames, replaces 'like %keyword%' query which scanned whole users table.
+ * Index is built from database with the first search and every 'search.index.catch-up-interval-minutes' catches up
+ * with users added or deleted by other instances of application. Users added or deleted by this instance are updated
+ * in index right after commit.
+ */
+@Component
+@Slf4j
+public class UsernameSearchIndex {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${search.index.batch-size:1000}")
+    private int batchSize;
+
+    /* matches after this number are not returned, so very short keyword never pages through all users */
+    @Value("${search.username.max-results:1000}")
+    private int maxResults;
+
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+
+    private volatile boolean loaded;
+
+    /**
+     * @return ids of users on requested page, in order of adding users
+     */
+    public List<Integer> searchUserIds(String keyword, int pageNumber, int pageSize) {
+        loadIfNeeded();
+        long from = (long) pageNumber * pageSize;
+        if (from >= maxResults) {
+            return Collections.emptyList();
+        }
+        List<Integer> ids = trigramIndex.search(keyword, (int) Math.min(from + pageSize, maxResults));
+        return ids.subList((int) Math.min(from, ids.size()), ids.size());
+    }
+
+    public void indexUser(Integer userId, String username) {
+        afterCommit(() -> trigramIndex.add(userId, username));
+    }
+
+    public void removeUser(Integer userId) {
+        afterCommit(() -> trigramIndex.remove(userId));
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /* before index is loaded changes are skipped - they are read from database while loading */
+    private void afterCommit(Runnable update) {
+        if (!loaded) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            int lastId = 0;
+            List<IndexedUsername> usernames;
+            do {
+                usernames = userRepository.findUsernamesAfter(lastId, PageRequest.of(0, batchSize));
+                for (IndexedUsername username : usernames) {
+                    trigramIndex.add(username.getId(), username.getUsername());
+                    lastId = username.getId();
+                }
+            } while (usernames.size() == batchSize);
+            loaded = true;
+            log.info("Username search index built from database. Users: {}.", trigramIndex.size());
+        }
+    }
+
+    /**
+     * Removes users which are not in database anymore and adds missing ones. Usernames can't be changed,
+     * so only ids are read for the whole table and usernames only of missing users.
+     */
+    @Scheduled(fixedDelayString = "${search.index.catch-up-interval-minutes:5}",
+            initialDelayString = "${search.index.catch-up-interval-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    public synchronized void catchUp() {
+        if (!loaded) {
+            return;
+        }
+        /* read before database, so user added to index meanwhile is never taken as deleted */
+        RoaringBitmap idsInIndex = trigramIndex.getIds();
+        RoaringBitmap idsInDatabase = new RoaringBitmap();
+        int lastId = 0;
+        List<Integer> ids;
+        do {
+            ids = userRepository.findIdsAfter(lastId, PageRequest.of(0, batchSize));
+            ids.forEach(idsInDatabase::add);
+            lastId = ids.isEmpty() ? lastId : ids.get(ids.size() - 1);
+        } while (ids.size() == batchSize);
+
+        RoaringBitmap deleted = RoaringBitmap.andNot(idsInIndex, idsInDatabase);
+        deleted.forEach((int id) -> trigramIndex.remove(id));
+        RoaringBitmap missing = RoaringBitmap.andNot(idsInDatabase, idsInIndex);
+        List<Integer> batch = new ArrayList<>(batchSize);
+        for (int id : missing) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                userRepository.findUsernamesByIdIn(batch).forEach(username -> trigramIndex.add(username.getId(), username.getUsername()));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            userRepository.findUsernamesByIdIn(batch).forEach(username -> trigramIndex.add(username.getId(), username.getUsername()));
+        }
+        log.info("Username search index caught up with database. Deleted users: {}, added users: {}.",
+                deleted.getCardinality(), missing.getCardinality());
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.serwisspolecznosciowy.Application.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Successful authentications of the last 'security.authentication-cache.ttl-seconds' seconds.
+ * Key is SHA-256 of username and password, so raw password is never kept in memory and BCrypt runs only when
+ * the credentials are not in cache. Entries of user are evicted when password, enabled flag or the user itself is changed.
+ * Every eviction changes generation of user, so authentication which checked old password before eviction and finished after it
+ * is not cached. Generations are kept in fixed number of stripes, users sharing stripe only miss the cache once more.
+ */
+@Component
+@Slf4j
+public class AuthenticationCache {
+
+    @Value("${security.authentication-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.authentication-cache.ttl-seconds:60}")
+    private long ttlInSeconds;
+
+    @Value("${security.authentication-cache.max-size:10000}")
+    private long maxSize;
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private Cache<String, Authentication> authentications;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    void buildCache() {
+        authentications = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlInSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Authentication get(String username, String password) {
+        return enabled ? authentications.getIfPresent(key(username, password)) : null;
+    }
+
+    /**
+     * Read before credentials are checked and passed to put.
+     */
+    public long generation(String username) {
+        return generations.get(stripe(username));
+    }
+
+    /**
+     * Stores authentication only when user was not evicted since generation was read.
+     */
+    public void put(String username, String password, long generation, Authentication authentication) {
+        if (!enabled || generation(username) != generation) {
+            return;
+        }
+        String key = key(username, password);
+        authentications.put(key, authentication);
+        /* eviction between the check and put could miss this entry */
+        if (generation(username) != generation) {
+            authentications.invalidate(key);
+        }
+    }
+
+    public void evictUser(String username) {
+        generations.incrementAndGet(stripe(username));
+        authentications.asMap().values().removeIf(authentication -> authentication.getName().equals(username));
+        log.info("Cached authentications of username: {} evicted.", username);
+    }
+
+    private static int stripe(String username) {
+        return Math.floorMod(username.hashCode(), GENERATION_STRIPES);
+    }
+
+    private String key(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            /* separator, so 'ab' + 'c' and 'a' + 'bc' give different keys */
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available!", ex);
+        }
+    }
+
+}
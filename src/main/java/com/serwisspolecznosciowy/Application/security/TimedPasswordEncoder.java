@@ -0,0 +1,52 @@
+package com.serwisspolecznosciowy.Application.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records time of every password verification as metric 'security.password.verification' - BCrypt is deliberately slow,
+ * so requests which miss AuthenticationCache can be told apart from slow database or endpoint.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final Timer matchedTimer;
+
+    private final Timer mismatchedTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.matchedTimer = verificationTimer("matched", meterRegistry);
+        this.mismatchedTimer = verificationTimer("mismatched", meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        (matches ? matchedTimer : mismatchedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private static Timer verificationTimer(String result, MeterRegistry meterRegistry) {
+        return Timer.builder("security.password.verification")
+                .description("Time of verification of password hash")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+}
@@ -1,14 +1,17 @@
 package com.serwisspolecznosciowy.Application.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeIn;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.jdbc.JdbcDaoImpl;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import javax.sql.DataSource;
@@ -21,13 +24,25 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.jdbcAuthentication()
-                .dataSource(dataSource)
-                .passwordEncoder(new BCryptPasswordEncoder(12))
-                .usersByUsernameQuery("select username, password, enabled from users where username =?")
-                .authoritiesByUsernameQuery("select username, role from users where username =?");
+        JdbcDaoImpl userDetailsService = new JdbcDaoImpl();
+        userDetailsService.setDataSource(dataSource);
+        userDetailsService.setUsersByUsernameQuery("select username, password, enabled from users where username =?");
+        userDetailsService.setAuthoritiesByUsernameQuery("select username, role from users where username =?");
+
+        DaoAuthenticationProvider jdbcAuthenticationProvider = new DaoAuthenticationProvider();
+        jdbcAuthenticationProvider.setUserDetailsService(userDetailsService);
+        jdbcAuthenticationProvider.setPasswordEncoder(new TimedPasswordEncoder(new BCryptPasswordEncoder(12), meterRegistry));
+
+        /* every request sends Basic credentials, verified ones are cached to skip database queries and BCrypt */
+        auth.authenticationProvider(new CachingAuthenticationProvider(jdbcAuthenticationProvider, authenticationCache));
     }
 
     @Override
@@ -43,14 +58,24 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                         "/v3/api-docs/**",
                         "/swagger-ui/index.html**",
                         "/swagger-ui/**",
-                        "/swagger-ui.html"
+                        "/swagger-ui.html",
+                        /* actuator is served only on local management port (management.server.address) */
+                        "/actuator/health",
+                        "/actuator/prometheus"
                 ).permitAll()
                 .antMatchers(
                         "/user/password/dto/{userId}",
                         "/user/delete/{}",
+                        "/user/delete/progress/{userId}",
                         "/user/picture/dto/{userId}",
                         "/user/all/username/dto",
+                        "/user/autocomplete",
                         "/post/all/dto",
+                        "/post/feed/dto",
+                        "/post/all/summary/dto",
+                        "/post/feed/summary/dto",
+                        "/post/{postId}/likes",
+                        "/post/{postId}/dislikes",
                         "/post/edit/dto/{postId}",
                         "/post/add/dto",
                         "/post/dto/{id}",
@@ -62,11 +87,16 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                         "/post/dislikes/dto/{postId}",
                         "/comment/add/{postId}",
                         "/comment/all/dto",
+                        "/comment/all/summary/dto",
+                        "/comment/{commentId}/likes",
+                        "/comment/{commentId}/dislikes",
                         "/comment/dto/{id}",
                         "/comment/delete/{id}",
                         "/comment/body/dto",
                         "/comment/like/{commentId}",
                         "/comment/dislike/{commentId}",
+                        "/comment/likes/dto/{commentId}",
+                        "/comment/dislikes/dto/{commentId}",
                         "/comment/edit/dto/{commentId}",
                         "/comment/all/dto/{postId}"
                 ).hasAnyRole("USER", "ADMIN")
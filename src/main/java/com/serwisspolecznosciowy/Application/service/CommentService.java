@@ -1,7 +1,10 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.CachedEntities;
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
 import com.serwisspolecznosciowy.Application.dto.CommentBodyDto;
 import com.serwisspolecznosciowy.Application.dto.CommentDto;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
 import com.serwisspolecznosciowy.Application.dto.DislikeDto;
 import com.serwisspolecznosciowy.Application.dto.LikeDto;
 import com.serwisspolecznosciowy.Application.entity.*;
@@ -12,15 +15,25 @@ import com.serwisspolecznosciowy.Application.mappers.LikeMapper;
 import com.serwisspolecznosciowy.Application.repository.CommentRepository;
 import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
 import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_COMMENTS;
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_COMMENTS_DTO;
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_COMMENTS_SUMMARY_DTO;
 
 @Service
 @Slf4j
@@ -50,6 +63,19 @@ public class CommentService {
     @Autowired
     private DislikeMapper dislikeMapper;
 
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Autowired
+    private ReactionService reactionService;
+
+    @Autowired
+    private ReactionWriteBehindQueue reactionWriteBehindQueue;
+
+    @Autowired
+    private BodySearchIndex bodySearchIndex;
+
+    @Transactional(rollbackFor = PostNotFoundException.class)
     public CommentDto addNewComment(Integer postId, CommentBodyDto commentBodyDto) throws PostNotFoundException {
         User loginUser = userService.getLoginUser();
         Comment comment = new Comment();
@@ -61,10 +87,13 @@ public class CommentService {
         comment.setUser(loginUser);
         comment.setLikeList(Collections.emptyList());
         comment.setDislikeList(Collections.emptyList());
+        /* counter is updated first: it takes exclusive lock of post row, then insert of comment needs only that lock
+           (foreign key check). Insert first would take shared lock and two comments to the same post would deadlock
+           waiting for exclusive one on InnoDB. Throws when post doesn't exist, so comment is not inserted */
+        postService.addToNumberOfComments(postId, 1);
         commentRepository.save(comment);
-
-        Post postById = postService.findPostById(postId);
-        postById.setNumberOfComments(postById.getNumberOfComments() + 1);
+        bodySearchIndex.indexComment(comment.getId(), commentBody);
+        feedCacheInvalidator.evictCommentAddedOrDeleted(postId);
 
         log.info("New comment with body: '" + commentBody + "' added to database.");
         return commentMapper.commentToCommentDto(comment, loginUser, Collections.emptyList(), Collections.emptyList());
@@ -79,15 +108,18 @@ public class CommentService {
         }
     }
 
-    @Cacheable(cacheNames = "AllComments")
+    @Cacheable(cacheNames = "AllComments", sync = true)
     public List<Comment> getAllComments(Integer pageNumber, Integer pageSize, Sort.Direction sort) {
-        return commentRepository.findAllComments(PageRequest.of(pageNumber, pageSize, Sort.by(sort, "created")));
+        List<Comment> commentList = commentRepository.findAllComments(PageRequest.of(pageNumber, pageSize, Sort.by(sort, "created")));
+        feedCacheInvalidator.registerPage(ALL_COMMENTS, SimpleKeyGenerator.generateKey(pageNumber, pageSize, sort), getCommentIds(commentList));
+        return CachedEntities.initializeComments(commentList);
     }
 
-    @Cacheable(cacheNames = "AllCommentsDto")
+    @Cacheable(cacheNames = "AllCommentsDto", sync = true)
     public List<CommentDto> getAllCommentsDto(Integer pageNumber, Integer pageSize, Sort.Direction wayOfSort) {
         List<CommentDto> commentDtoList = new ArrayList<>();
         List<Comment> commentList = commentRepository.findAllComments(PageRequest.of(pageNumber, pageSize, Sort.by(wayOfSort, "created")));
+        feedCacheInvalidator.registerPage(ALL_COMMENTS_DTO, SimpleKeyGenerator.generateKey(pageNumber, pageSize, wayOfSort), getCommentIds(commentList));
         for (Comment comment : commentList) {
             User user = comment.getUser();
             CommentDto commentDto = commentMapper.commentToCommentDto(comment, user, likeMapper.likeListToLikeDtoList(comment.getLikeList()), dislikeMapper.dislikeListToDislikeDtoList(comment.getDislikeList()));
@@ -96,6 +128,17 @@ public class CommentService {
         return commentDtoList;
     }
 
+    @Cacheable(cacheNames = "AllCommentsSummaryDto", sync = true)
+    public List<CommentSummaryDto> getAllCommentsSummaryDto(Integer pageNumber, Integer pageSize, Sort.Direction wayOfSort) {
+        List<Comment> commentList = commentRepository.findAllComments(PageRequest.of(pageNumber, pageSize, Sort.by(wayOfSort, "created")));
+        feedCacheInvalidator.registerPage(ALL_COMMENTS_SUMMARY_DTO, SimpleKeyGenerator.generateKey(pageNumber, pageSize, wayOfSort), getCommentIds(commentList));
+        return reactionService.commentListToCommentSummaryDtoList(commentList);
+    }
+
+    private List<Integer> getCommentIds(List<Comment> commentList) {
+        return commentList.stream().map(Comment::getId).collect(Collectors.toList());
+    }
+
     public Comment getCommentById(Integer id) throws CommentNotFoundException {
         Optional<Comment> optionalComment = commentRepository.findById(id);
         if (optionalComment.isPresent()) {
@@ -111,11 +154,16 @@ public class CommentService {
         return commentMapper.commentToCommentDto(comment, comment.getUser(), likeMapper.likeListToLikeDtoList(comment.getLikeList()), dislikeMapper.dislikeListToDislikeDtoList(comment.getDislikeList()));
     }
 
-    public void deleteCommentById(Integer commentId) throws CommentNotFoundException, UserForbiddenAccessException {
+    @Transactional(rollbackFor = {CommentNotFoundException.class, PostNotFoundException.class})
+    public void deleteCommentById(Integer commentId) throws CommentNotFoundException, UserForbiddenAccessException, PostNotFoundException {
         Comment commentFromDb = getCommentById(commentId);
         User loginUser = userService.getLoginUser();
         if (isCommentWasCreatedByLoginUserOrUserHaveRoleAdmin(loginUser, commentFromDb)) {
+            /* the same order of locks as in addNewComment: post row first, then comment */
+            postService.addToNumberOfComments(commentFromDb.getPostId(), -1);
             commentRepository.deleteById(commentId);
+            feedCacheInvalidator.evictCommentAddedOrDeleted(commentFromDb.getPostId());
+            bodySearchIndex.removeComments(List.of(commentId));
         } else {
             log.error("Error in method: deleteCommentById. User with id: " + loginUser.getId() + " has no permission to delete comment with id: " + commentId + "!");
             throw new UserForbiddenAccessException("You are not authorized to delete this comment!");
@@ -131,8 +179,8 @@ public class CommentService {
         return Collections.emptyList();
     }
 
-    public List<Comment> getCommentsByBody(String body) throws CommentNotFoundException {
-        List<Comment> commentList = commentRepository.findAllByBodyContaining(body);
+    public List<Comment> getCommentsByBody(String body, Integer pageNumber, Integer pageSize) throws CommentNotFoundException {
+        List<Comment> commentList = findCommentsByBody(body, pageNumber, pageSize);
         if (!commentList.isEmpty()) {
             return commentList;
         } else {
@@ -141,16 +189,27 @@ public class CommentService {
         }
     }
 
-    public List<CommentDto> getCommentsDtoByBody(String body) throws CommentNotFoundException {
-        Optional<List<Comment>> commentList = Optional.ofNullable(commentRepository.findAllByBodyContaining(body));
-        if (commentList.isPresent()) {
-            return commentMapper.commentListToCommentDtoList(commentList.get());
+    public List<CommentDto> getCommentsDtoByBody(String body, Integer pageNumber, Integer pageSize) throws CommentNotFoundException {
+        List<Comment> commentList = findCommentsByBody(body, pageNumber, pageSize);
+        if (!commentList.isEmpty()) {
+            return commentMapper.commentListToCommentDtoList(commentList);
         } else {
             log.error("Error in method: getCommentsDtoByBody. Not found any comment with provided keyword: '" + body  + "' in our database!");
             throw new CommentNotFoundException("Not found any comment with keyword: '" + body  + "' in our database!");
         }
     }
 
+    /* the best matching comments first, in order returned by index */
+    private List<Comment> findCommentsByBody(String body, Integer pageNumber, Integer pageSize) {
+        List<Integer> commentIds = bodySearchIndex.searchCommentIds(body, pageNumber, pageSize);
+        if (commentIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Comment> commentsById = commentRepository.findAllById(commentIds).stream().collect(Collectors.toMap(Comment::getId, Function.identity()));
+        return commentIds.stream().map(commentsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Transactional(rollbackFor = CommentNotFoundException.class)
     public CommentDto addOneLikeToComment(Integer commentId) throws CommentNotFoundException {
         User user = userService.getLoginUser();
         Optional<Comment> optionalComment = commentRepository.findById(commentId);
@@ -161,7 +220,14 @@ public class CommentService {
             like.setUserId(user.getId());
             like.setCommentLikeId(comment.getId());
             like.setUsername(user.getUsername());
-            likeRepository.save(like);
+            if (reactionWriteBehindQueue.isEnabled()) {
+                /* like is written in the next batch, cache is refreshed after that */
+                reactionWriteBehindQueue.addCommentLike(commentId, comment.getPostId(), user.getId(), user.getUsername());
+            } else {
+                saveLike(like);
+                commentRepository.addToLikeCount(commentId, 1);
+                feedCacheInvalidator.evictCommentChanged(commentId, comment.getPostId());
+            }
 
             List<Like> likeList = new LinkedList<>();
             likeList.addAll(comment.getLikeList());
@@ -172,7 +238,7 @@ public class CommentService {
             dislikeList.addAll(comment.getDislikeList());
             List<DislikeDto> dislikeDtoList = dislikeMapper.dislikeListToDislikeDtoList(dislikeList);
 
-            return commentMapper.commentToCommentDto(commentRepository.save(comment), user, likeDtoList, dislikeDtoList);
+            return commentMapper.commentToCommentDto(comment, user, likeDtoList, dislikeDtoList);
         } else {
             log.error("Error in method: addOneLikeToComment. Not found comment with id: '" + commentId  + "'!");
             throw new CommentNotFoundException("Unable to add like to comment because not found comment with  id: '" + commentId  + "' in our database!");
@@ -180,12 +246,23 @@ public class CommentService {
     }
 
     private void checkUserNotAlreadyAddOneLikeToComment(User user, Comment comment) {
-        if (comment.getLikeList().stream().anyMatch(currentLike -> currentLike.getUserId().equals(user.getId()))) {
+        if (likeRepository.existsByCommentLikeIdAndUserId(comment.getId(), user.getId())) {
             log.error("Error in method checkUserNotAlreadyAddOneLikeToComment! User can add only once like to specified comment!");
             throw new DuplicateUsernameException("User can add only once like to specified comment!");
         }
     }
 
+    /* unique index rejects like added in the same time by parallel request */
+    private void saveLike(Like like) {
+        try {
+            likeRepository.save(like);
+        } catch (DataIntegrityViolationException ex) {
+            log.error("Error in method saveLike! User can add only once like to specified comment!");
+            throw new DuplicateUsernameException("User can add only once like to specified comment!");
+        }
+    }
+
+    @Transactional(rollbackFor = CommentNotFoundException.class)
     public CommentDto addOneDisLikeToComment(Integer commentId) throws CommentNotFoundException {
         User user = userService.getLoginUser();
         Optional<Comment> optionalComment = commentRepository.findById(commentId);
@@ -196,7 +273,13 @@ public class CommentService {
             dislike.setCommentDislikeId(comment.getId());
             dislike.setUserId(user.getId());
             dislike.setUsername(user.getUsername());
-            dislikeRepository.save(dislike);
+            if (reactionWriteBehindQueue.isEnabled()) {
+                reactionWriteBehindQueue.addCommentDislike(commentId, comment.getPostId(), user.getId(), user.getUsername());
+            } else {
+                saveDislike(dislike);
+                commentRepository.addToDislikeCount(commentId, 1);
+                feedCacheInvalidator.evictCommentChanged(commentId, comment.getPostId());
+            }
 
             List<Like> likeList = new LinkedList<>();
             likeList.addAll(comment.getLikeList());
@@ -206,7 +289,7 @@ public class CommentService {
             dislikeList.addAll(comment.getDislikeList());
             dislikeList.add(dislike);
             List<DislikeDto> dislikeDtoList = dislikeMapper.dislikeListToDislikeDtoList(dislikeList);
-            return commentMapper.commentToCommentDto(commentRepository.save(comment), user, likeDtoList, dislikeDtoList);
+            return commentMapper.commentToCommentDto(comment, user, likeDtoList, dislikeDtoList);
         } else {
             log.error("Error in method: addOneDisLikeToComment. Not found comment with id: '" + commentId  + "' in our database!");
             throw new CommentNotFoundException("Unable to add dislike to comment because not found comment with  id: '" + commentId  + "' in our database!");
@@ -214,12 +297,41 @@ public class CommentService {
     }
 
     private void checkUserNotAlreadyAddOneDisikeToComment(User user, Comment comment) {
-        if (comment.getDislikeList().stream().anyMatch(userInDislikeList -> userInDislikeList.getUserId().equals(user.getId()))) {
+        if (dislikeRepository.existsByCommentDislikeIdAndUserId(comment.getId(), user.getId())) {
             log.error("Error in method addOneDisLikeToPost! User can add only once dislike to specified comment!");
             throw new DuplicateUsernameException("User can add only once dislike to specified comment!");
         }
     }
 
+    private void saveDislike(Dislike dislike) {
+        try {
+            dislikeRepository.save(dislike);
+        } catch (DataIntegrityViolationException ex) {
+            log.error("Error in method saveDislike! User can add only once dislike to specified comment!");
+            throw new DuplicateUsernameException("User can add only once dislike to specified comment!");
+        }
+    }
+
+    public Integer getNumberOfLikesByCommentId(Integer commentId) throws CommentNotFoundException {
+        Optional<Integer> likeCount = commentRepository.findLikeCountById(commentId);
+        if (likeCount.isPresent()) {
+            return likeCount.get();
+        } else {
+            log.error("Error in method: getNumberOfLikesByCommentId. Not found comment with id: '" + commentId + "'!");
+            throw new CommentNotFoundException("Comment with id: '" + commentId + "' not found in our database!");
+        }
+    }
+
+    public Integer getNumberOfDislikesByCommentId(Integer commentId) throws CommentNotFoundException {
+        Optional<Integer> dislikeCount = commentRepository.findDislikeCountById(commentId);
+        if (dislikeCount.isPresent()) {
+            return dislikeCount.get();
+        } else {
+            log.error("Error in method: getNumberOfDislikesByCommentId. Not found comment with id: '" + commentId + "'!");
+            throw new CommentNotFoundException("Comment with id: '" + commentId + "' not found in our database!");
+        }
+    }
+
     public CommentDto editComment(CommentBodyDto commentBodyDto, User loginUser, Integer commentId) throws CommentNotFoundException, UserForbiddenAccessException {
         Comment commentToEdit = getCommentById(commentId);
         String body = commentBodyDto.getBody();
@@ -228,6 +340,8 @@ public class CommentService {
             commentToEdit.setBody(body);
             commentToEdit.setUpdated(LocalDateTime.now());
             commentRepository.save(commentToEdit);
+            feedCacheInvalidator.evictCommentChanged(commentId, commentToEdit.getPostId());
+            bodySearchIndex.indexComment(commentId, body);
 
         } else {
             log.error("Error in method editComment. Username: {} have not permission to edit specified comment with id: {}", loginUser.getUsername(), commentId);
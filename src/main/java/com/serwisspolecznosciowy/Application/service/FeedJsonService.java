@@ -0,0 +1,36 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.cache.SerializedPage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pages of feed serialized to JSON once and cached as bytes. Keys are the same as keys of pages in DTO cache,
+ * FeedCacheInvalidator evicts serialized page together with DTO page.
+ */
+@Service
+@Slf4j
+public class FeedJsonService {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Cacheable(cacheNames = "AllPostsDtoJson", sync = true)
+    public SerializedPage getAllPostsDtoJson(Integer pageNumber, Integer pageSize, Sort.Direction wayOfSort) {
+        try {
+            return SerializedPage.of(objectMapper.writeValueAsBytes(postService.getAllPostsDto(pageNumber, pageSize, wayOfSort)));
+        } catch (JsonProcessingException ex) {
+            log.error("Error in method: getAllPostsDtoJson! Page: {} of posts can not be serialized.", pageNumber, ex);
+            throw new IllegalStateException("Page: " + pageNumber + " of posts can not be serialized!", ex);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.entity.Follow;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.exception.AlreadyFollowedException;
+import com.serwisspolecznosciowy.Application.exception.FollowNotFoundException;
+import com.serwisspolecznosciowy.Application.exception.SelfFollowException;
+import com.serwisspolecznosciowy.Application.exception.UserNotFoundException;
+import com.serwisspolecznosciowy.Application.repository.FollowRepository;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Login user follows other users, their new posts are pushed to home timeline of login user (see TimelineStore).
+ */
+@Service
+@Slf4j
+public class FollowService {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private TimelineStore timelineStore;
+
+    public void followUser(Integer userId) throws UserNotFoundException {
+        User loginUser = userService.getLoginUser();
+        if (loginUser.getId().equals(userId)) {
+            log.error("User with id: {} tried to follow himself!", userId);
+            throw new SelfFollowException("User can not follow himself!");
+        }
+        userService.findUserById(userId);
+        if (followRepository.existsByFollowerIdAndFollowedId(loginUser.getId(), userId)) {
+            log.error("User with id: {} already follows user with id: {}!", loginUser.getId(), userId);
+            throw new AlreadyFollowedException("User with id: " + userId + " is already followed!");
+        }
+        try {
+            followRepository.save(new Follow(null, loginUser.getId(), userId, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException ex) {
+            /* the same follow added by concurrent request, rejected by unique index */
+            log.error("User with id: {} already follows user with id: {}!", loginUser.getId(), userId);
+            throw new AlreadyFollowedException("User with id: " + userId + " is already followed!");
+        }
+        timelineStore.followed(loginUser.getId(), userId);
+        log.info("User with id: {} follows user with id: {}.", loginUser.getId(), userId);
+    }
+
+    public void unfollowUser(Integer userId) throws FollowNotFoundException {
+        User loginUser = userService.getLoginUser();
+        if (followRepository.deleteByFollowerIdAndFollowedId(loginUser.getId(), userId) == 0) {
+            log.error("User with id: {} doesn't follow user with id: {}!", loginUser.getId(), userId);
+            throw new FollowNotFoundException("User with id: " + userId + " is not followed!");
+        }
+        timelineStore.unfollowed(loginUser.getId(), userId);
+        log.info("User with id: {} unfollowed user with id: {}.", loginUser.getId(), userId);
+    }
+
+}
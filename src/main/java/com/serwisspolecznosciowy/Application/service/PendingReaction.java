@@ -0,0 +1,81 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Like or dislike waiting in ReactionWriteBehindQueue. Two pending reactions are equal when the same user
+ * reacts the same way to the same post or comment, so queue keeps only one of them.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+public class PendingReaction {
+
+    public enum Kind {
+
+        POST_LIKE("insert into likes (user_id, post_like_id, username) values (?, ?, ?) on duplicate key update id = id",
+                "update posts set like_count = like_count + ? where id = ?",
+                "update posts set like_count = (select count(*) from likes where post_like_id = ?) where id = ?"),
+        POST_DISLIKE("insert into dislikes (user_id, post_dislike_id, username) values (?, ?, ?) on duplicate key update id = id",
+                "update posts set dislike_count = dislike_count + ? where id = ?",
+                "update posts set dislike_count = (select count(*) from dislikes where post_dislike_id = ?) where id = ?"),
+        COMMENT_LIKE("insert into likes (user_id, comment_like_id, username) values (?, ?, ?) on duplicate key update id = id",
+                "update comments set like_count = like_count + ? where id = ?",
+                "update comments set like_count = (select count(*) from likes where comment_like_id = ?) where id = ?"),
+        COMMENT_DISLIKE("insert into dislikes (user_id, comment_dislike_id, username) values (?, ?, ?) on duplicate key update id = id",
+                "update comments set dislike_count = dislike_count + ? where id = ?",
+                "update comments set dislike_count = (select count(*) from dislikes where comment_dislike_id = ?) where id = ?");
+
+        /* reaction rejected by unique index is not inserted (0 affected rows), so counter is increased only for inserted rows;
+           other errors (post, comment or user deleted meanwhile - foreign keys, too long value) are not ignored */
+        private final String insertSql;
+
+        private final String addToCounterSql;
+
+        /* counts reactions again when driver doesn't report which rows were inserted */
+        private final String recountSql;
+
+        Kind(String insertSql, String addToCounterSql, String recountSql) {
+            this.insertSql = insertSql;
+            this.addToCounterSql = addToCounterSql;
+            this.recountSql = recountSql;
+        }
+
+        public String getInsertSql() {
+            return insertSql;
+        }
+
+        public String getAddToCounterSql() {
+            return addToCounterSql;
+        }
+
+        public String getRecountSql() {
+            return recountSql;
+        }
+
+        public boolean isPostReaction() {
+            return this == POST_LIKE || this == POST_DISLIKE;
+        }
+
+    }
+
+    @EqualsAndHashCode.Include
+    private final Kind kind;
+
+    /* id of post or comment */
+    @EqualsAndHashCode.Include
+    private final Integer targetId;
+
+    @EqualsAndHashCode.Include
+    private final Integer userId;
+
+    private final String username;
+
+    /* id of post which contains reacted comment, for post reactions the same as targetId */
+    private final Integer postId;
+
+}
@@ -1,30 +1,51 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.CachedEntities;
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.cache.ReactionBitmapCache;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
 import com.serwisspolecznosciowy.Application.dto.DislikeDto;
 import com.serwisspolecznosciowy.Application.dto.LikeDto;
 import com.serwisspolecznosciowy.Application.dto.PostBodyDto;
 import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostFeedDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryFeedDto;
 import com.serwisspolecznosciowy.Application.entity.*;
 import com.serwisspolecznosciowy.Application.exception.DuplicateUsernameException;
+import com.serwisspolecznosciowy.Application.exception.InvalidCursorException;
 import com.serwisspolecznosciowy.Application.exception.PostEmptyBodyException;
 import com.serwisspolecznosciowy.Application.exception.PostNotFoundException;
 import com.serwisspolecznosciowy.Application.exception.UserForbiddenAccessException;
 import com.serwisspolecznosciowy.Application.mappers.DislikeMapper;
 import com.serwisspolecznosciowy.Application.mappers.LikeMapper;
 import com.serwisspolecznosciowy.Application.mappers.PostMapper;
+import com.serwisspolecznosciowy.Application.pagination.FeedCursor;
 import com.serwisspolecznosciowy.Application.repository.CommentRepository;
 import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
 import com.serwisspolecznosciowy.Application.repository.LikeRepository;
 import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_POSTS_DTO;
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_POSTS_SUMMARY_DTO;
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.POSTS_WITH_COMMENTS;
 
 @Service
 @Slf4j
@@ -54,6 +75,27 @@ public class PostService {
     @Autowired
     DislikeMapper dislikeMapper;
 
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Autowired
+    private ReactionService reactionService;
+
+    @Autowired
+    private ReactionBitmapCache reactionBitmapCache;
+
+    @Autowired
+    private ReactionWriteBehindQueue reactionWriteBehindQueue;
+
+    @Autowired
+    private BodySearchIndex bodySearchIndex;
+
+    @Autowired
+    private TimelineStore timelineStore;
+
+    @Value("${feed.comments.max-per-post:10}")
+    private Integer maxCommentsPerPost;
+
 
     public PostDto addNewPost(PostBodyDto postBodyDto) throws PostEmptyBodyException {
         User loginUser = userService.getLoginUser();
@@ -67,6 +109,9 @@ public class PostService {
         post.setDislikeList(Collections.emptyList());
         post.setNumberOfComments(0);
         postRepository.save(post);
+        feedCacheInvalidator.evictPostAddedOrDeleted();
+        bodySearchIndex.indexPost(post.getId(), body);
+        timelineStore.postAdded(post.getId(), loginUser.getId());
         return postMapper.postToPostDto(post, loginUser, Collections.emptyList(), Collections.emptyList());
     }
 
@@ -79,15 +124,109 @@ public class PostService {
         }
     }
 
-    @Cacheable(cacheNames = "PostsWithComments")
+    @Cacheable(cacheNames = "PostsWithComments", sync = true)
     public List<Post> getAllPostsWithComments(Integer pageNumber, Integer pageSize, Sort.Direction sort) {
-        return postRepository.findAllPostsWithComments(PageRequest.of(pageNumber, pageSize, Sort.by(sort, "created")));
+        List<Post> postList = postRepository.findAllPostsWithComments(PageRequest.of(pageNumber, pageSize, Sort.by(sort, "created")));
+        feedCacheInvalidator.registerPage(POSTS_WITH_COMMENTS, SimpleKeyGenerator.generateKey(pageNumber, pageSize, sort), getPostIds(postList));
+        return CachedEntities.initializePosts(postList);
     }
 
-    @Cacheable(cacheNames = "AllPostsDto")
+    @Cacheable(cacheNames = "AllPostsDto", sync = true)
     public List<PostDto> getAllPostsDto(Integer pageNumber, Integer pageSize, Sort.Direction wayOfSort) {
-        List<PostDto> postsListDto = new ArrayList<>();
         List<Post> postList = postRepository.findAllPostsWithComments(PageRequest.of(pageNumber, pageSize, Sort.by(wayOfSort, "created")));
+        feedCacheInvalidator.registerPage(ALL_POSTS_DTO, SimpleKeyGenerator.generateKey(pageNumber, pageSize, wayOfSort), getPostIds(postList));
+        return postListToPostDtoList(postList);
+    }
+
+    @Cacheable(cacheNames = "AllPostsSummaryDto", sync = true)
+    public List<PostSummaryDto> getAllPostsSummaryDto(Integer pageNumber, Integer pageSize, Sort.Direction wayOfSort) {
+        List<Post> postList = postRepository.findAllPostsWithComments(PageRequest.of(pageNumber, pageSize, Sort.by(wayOfSort, "created")));
+        feedCacheInvalidator.registerPage(ALL_POSTS_SUMMARY_DTO, SimpleKeyGenerator.generateKey(pageNumber, pageSize, wayOfSort), getPostIds(postList));
+        return reactionService.postListToPostSummaryDtoList(postList);
+    }
+
+    private List<Integer> getPostIds(List<Post> postList) {
+        return postList.stream().map(Post::getId).collect(Collectors.toList());
+    }
+
+    public PostFeedDto getPostsFeed(String after, Integer pageSize) {
+        List<Post> postList = findPostsFeedPage(after, pageSize);
+        return new PostFeedDto(postListToPostDtoList(postList), getNextFeedCursor(postList, pageSize));
+    }
+
+    /**
+     * Home timeline of login user: ids of posts are read from TimelineStore with one lookup, then posts of the whole page
+     * are loaded by one query. Cursor is id of the last post of previous page.
+     */
+    public PostFeedDto getHomeTimeline(String after, Integer pageSize) {
+        User loginUser = userService.getLoginUser();
+        List<Integer> postIds = timelineStore.getTimelinePostIds(loginUser.getId(), decodeTimelineCursor(after), pageSize);
+        List<Post> postList = Collections.emptyList();
+        if (!postIds.isEmpty()) {
+            /* in order of timeline, deleted posts are skipped */
+            Map<Integer, Post> postsById = postRepository.findAllWithUserByIdIn(postIds).stream().collect(Collectors.toMap(Post::getId, Function.identity()));
+            postList = postIds.stream().map(postsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+        String nextCursor = postIds.size() < pageSize ? null : String.valueOf(postIds.get(postIds.size() - 1));
+        return new PostFeedDto(postListToPostDtoList(postList), nextCursor);
+    }
+
+    private Integer decodeTimelineCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(after);
+        } catch (NumberFormatException e) {
+            log.error("Error in method: decodeTimelineCursor! Cursor: '{}' is not valid!", after);
+            throw new InvalidCursorException("Cursor: '" + after + "' is not valid!");
+        }
+    }
+
+    /**
+     * @param commentsPerPost number of the newest comments embedded in every post (not more than 'feed.comments.max-per-post'),
+     *                        so client doesn't have to ask for comments of every post separately
+     */
+    public PostSummaryFeedDto getPostsSummaryFeed(String after, Integer pageSize, Integer commentsPerPost) {
+        List<Post> postList = findPostsFeedPage(after, pageSize);
+        List<PostSummaryDto> postSummaryDtoList = reactionService.postListToPostSummaryDtoList(postList);
+        int limit = Math.min(commentsPerPost, maxCommentsPerPost);
+        if (limit > 0 && !postList.isEmpty()) {
+            addNewestComments(postSummaryDtoList, limit);
+        }
+        return new PostSummaryFeedDto(postSummaryDtoList, getNextFeedCursor(postList, pageSize));
+    }
+
+    /* two queries for the whole page: ids of the newest comments of every post, then comments with authors */
+    private void addNewestComments(List<PostSummaryDto> postSummaryDtoList, int commentsPerPost) {
+        List<Integer> postIds = postSummaryDtoList.stream().map(PostSummaryDto::getId).collect(Collectors.toList());
+        List<Integer> commentIds = commentRepository.findNewestIdsByPostIdIn(postIds, commentsPerPost);
+        List<Comment> commentList = commentIds.isEmpty() ? Collections.emptyList() : commentRepository.findAllWithUserByIdIn(commentIds);
+        Map<Integer, List<CommentSummaryDto>> commentsByPostId = reactionService.commentListToCommentSummaryDtoList(commentList).stream()
+                .collect(Collectors.groupingBy(CommentSummaryDto::getPostId));
+        for (PostSummaryDto postSummaryDto : postSummaryDtoList) {
+            postSummaryDto.setNewestComments(commentsByPostId.getOrDefault(postSummaryDto.getId(), new ArrayList<>()));
+        }
+    }
+
+    private List<Post> findPostsFeedPage(String after, Integer pageSize) {
+        if (after == null || after.isBlank()) {
+            return postRepository.findPostsFeedFirstPage(PageRequest.of(0, pageSize));
+        }
+        FeedCursor cursor = FeedCursor.decode(after);
+        return postRepository.findPostsFeedPageAfter(cursor.getCreated(), cursor.getId(), PageRequest.of(0, pageSize));
+    }
+
+    private String getNextFeedCursor(List<Post> postList, Integer pageSize) {
+        if (postList.size() < pageSize) {
+            return null;
+        }
+        Post lastPost = postList.get(postList.size() - 1);
+        return new FeedCursor(lastPost.getCreated(), lastPost.getId()).encode();
+    }
+
+    private List<PostDto> postListToPostDtoList(List<Post> postList) {
+        List<PostDto> postsListDto = new ArrayList<>();
         for (Post post : postList) {
             User user = post.getUser();
             PostDto postDto = postMapper.postToPostDto(post, user, likeMapper.likeListToLikeDtoList(post.getLikeList()), dislikeMapper.dislikeListToDislikeDtoList(post.getDislikeList()));
@@ -104,6 +243,8 @@ public class PostService {
             postToEdit.setBody(body);
             postToEdit.setUpdated(LocalDateTime.now());
             postRepository.save(postToEdit);
+            feedCacheInvalidator.evictPostChanged(postId);
+            bodySearchIndex.indexPost(postId, body);
 
         } else {
             log.error("Error in method editPost. Username: {} have not permission to edit post with id: {}", userFromDb.getUsername(), postId + "!");
@@ -146,6 +287,12 @@ public class PostService {
                 commentRepository.deleteAll(commentList);
                 /* delete specific post */
                 postRepository.deleteById(postId);
+                feedCacheInvalidator.evictPostDeleted(postId);
+                bodySearchIndex.removePost(postId);
+                bodySearchIndex.removeComments(commentList.stream().map(Comment::getId).collect(Collectors.toList()));
+                if (!commentList.isEmpty()) {
+                    feedCacheInvalidator.evictCommentAddedOrDeleted(postId);
+                }
             } else {
                 log.error("Error in method: deletePostById! User with username '" + userFromDb.getUsername()
                         + "' don't have permission to delete post with id: " + postId + " !!!!");
@@ -162,22 +309,20 @@ public class PostService {
         return Collections.emptyList();
     }
 
-    public List<PostDto> getPostDtoListByBody(String keywordInBody) throws PostNotFoundException {
-        List<PostDto> postsListDto = new ArrayList<>();
-        List<Post> postList = postRepository.findAllByBodyContaining(keywordInBody);
-        if (!postList.isEmpty()) {
-            for (Post post : postList) {
-                User user = post.getUser();
-                PostDto postDto = postMapper.postToPostDto(post, user, likeMapper.likeListToLikeDtoList(post.getLikeList()), dislikeMapper.dislikeListToDislikeDtoList(post.getDislikeList()));
-                postsListDto.add(postDto);
-            }
-            return postsListDto;
+    public List<PostDto> getPostDtoListByBody(String keywordInBody, Integer pageNumber, Integer pageSize) throws PostNotFoundException {
+        List<Integer> postIds = bodySearchIndex.searchPostIds(keywordInBody, pageNumber, pageSize);
+        if (!postIds.isEmpty()) {
+            /* the best matching posts first, in order returned by index */
+            Map<Integer, Post> postsById = postRepository.findAllById(postIds).stream().collect(Collectors.toMap(Post::getId, Function.identity()));
+            List<Post> postList = postIds.stream().map(postsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+            return postListToPostDtoList(postList);
         } else {
             log.error("Error in method: getPostByBody! Not found any post with keyword: '" + keywordInBody + "' in our database!");
             throw new PostNotFoundException("Not found any post with keyword: '" + keywordInBody + "' in our database!");
         }
     }
 
+    @Transactional(rollbackFor = PostNotFoundException.class)
     public PostDto addOneLikeToPost(Integer postId) throws PostNotFoundException {
         User user = userService.getLoginUser();
         Optional<Post> optionalPost = postRepository.findById(postId);
@@ -188,7 +333,15 @@ public class PostService {
             like.setUserId(user.getId());
             like.setPostLikeId(post.getId());
             like.setUsername(user.getUsername());
-            likeRepository.save(like);
+            if (reactionWriteBehindQueue.isEnabled()) {
+                /* like is written in the next batch, cache is refreshed after that */
+                reactionWriteBehindQueue.addPostLike(postId, user.getId(), user.getUsername());
+            } else {
+                saveLike(like, user, post);
+                postRepository.addToLikeCount(postId, 1);
+                reactionBitmapCache.addPostLike(postId, user.getId());
+                feedCacheInvalidator.evictPostChanged(postId);
+            }
 
             List<Like> likeList = new LinkedList<>();
             likeList.addAll(post.getLikeList());
@@ -198,20 +351,35 @@ public class PostService {
             List<Dislike> dislikeList = new LinkedList<>();
             dislikeList.addAll(post.getDislikeList());
             List<DislikeDto> dislikeDtoList = dislikeMapper.dislikeListToDislikeDtoList(dislikeList);
-            return postMapper.postToPostDto(postRepository.save(post), user, likeDtoList, dislikeDtoList);
+            return postMapper.postToPostDto(post, user, likeDtoList, dislikeDtoList);
         } else {
             log.error("Error in method: addOneLikeToPost! Post with id: '" + postId + "' not found in our database!");
             throw new PostNotFoundException("Post with id: '" + postId + "' not found in our database!");
         }
     }
 
-    private void checkUserNotAlreadyAddOneLikeToPost(User user, Post post) {
-        if (post.getLikeList().stream().anyMatch(currentLike -> currentLike.getUserId().equals(user.getId()))) {
+    /* package-private for benchmarks */
+    void checkUserNotAlreadyAddOneLikeToPost(User user, Post post) {
+        boolean alreadyLiked = reactionBitmapCache.hasLikedPost(post.getId(), user.getId(), post.getLikeCount())
+                .orElseGet(() -> likeRepository.existsByPostLikeIdAndUserId(post.getId(), user.getId()));
+        if (alreadyLiked) {
             log.error("Error in method checkUserNotAlreadyAddOneLikeToPost! User can add only once like to specified post!");
             throw new DuplicateUsernameException("User can add only once like to specified post!");
         }
     }
 
+    /* unique index rejects like added in the same time by parallel request */
+    private void saveLike(Like like, User user, Post post) {
+        try {
+            likeRepository.save(like);
+        } catch (DataIntegrityViolationException ex) {
+            reactionBitmapCache.addExistingPostLike(post.getId(), user.getId());
+            log.error("Error in method saveLike! User can add only once like to specified post!");
+            throw new DuplicateUsernameException("User can add only once like to specified post!");
+        }
+    }
+
+    @Transactional(rollbackFor = PostNotFoundException.class)
     public PostDto addOneDisLikeToPost(Integer postId) throws PostNotFoundException {
         User user = userService.getLoginUser();
         Optional<Post> optionalPost = postRepository.findById(postId);
@@ -222,7 +390,14 @@ public class PostService {
             dislike.setPostDislikeId(post.getId());
             dislike.setUserId(user.getId());
             dislike.setUsername(user.getUsername());
-            dislikeRepository.save(dislike);
+            if (reactionWriteBehindQueue.isEnabled()) {
+                reactionWriteBehindQueue.addPostDislike(postId, user.getId(), user.getUsername());
+            } else {
+                saveDislike(dislike, user, post);
+                postRepository.addToDislikeCount(postId, 1);
+                reactionBitmapCache.addPostDislike(postId, user.getId());
+                feedCacheInvalidator.evictPostChanged(postId);
+            }
 
             List<Like> likeList = new LinkedList<>();
             likeList.addAll(post.getLikeList());
@@ -232,7 +407,7 @@ public class PostService {
             dislikeList.addAll(post.getDislikeList());
             dislikeList.add(dislike);
             List<DislikeDto> dislikeDtoList = dislikeMapper.dislikeListToDislikeDtoList(dislikeList);
-            return postMapper.postToPostDto(postRepository.save(post), user, likeDtoList, dislikeDtoList);
+            return postMapper.postToPostDto(post, user, likeDtoList, dislikeDtoList);
         } else {
             log.error("Error in method: addOneDisLikeToPost! Post with id: '" + postId + "' not found in our database!");
             throw new PostNotFoundException("Post with id: '" + postId + "' not found in our database!");
@@ -240,27 +415,52 @@ public class PostService {
     }
 
     private void checkIfUserNotAlreadyAddOneDislikeToPost(User user, Post post) {
-        if (post.getDislikeList().stream().anyMatch(userInDislikeList -> userInDislikeList.getUserId().equals(user.getId()))) {
+        boolean alreadyDisliked = reactionBitmapCache.hasDislikedPost(post.getId(), user.getId(), post.getDislikeCount())
+                .orElseGet(() -> dislikeRepository.existsByPostDislikeIdAndUserId(post.getId(), user.getId()));
+        if (alreadyDisliked) {
             log.error("Error in method addOneDisLikeToPost! User can add only once dislike to specified post!");
             throw new DuplicateUsernameException("User can add only once dislike to specified post!");
         }
     }
 
-    public void subtractOneCommentForNumberOfCommentForPostByPostId(Integer postId) throws PostNotFoundException {
-        Post postById = findPostById(postId);
-        postById.setNumberOfComments(postById.getNumberOfComments() - 1);
+    private void saveDislike(Dislike dislike, User user, Post post) {
+        try {
+            dislikeRepository.save(dislike);
+        } catch (DataIntegrityViolationException ex) {
+            reactionBitmapCache.addExistingPostDislike(post.getId(), user.getId());
+            log.error("Error in method saveDislike! User can add only once dislike to specified post!");
+            throw new DuplicateUsernameException("User can add only once dislike to specified post!");
+        }
+    }
+
+    /**
+     * Adds delta to number of comments of post with one update, so comments added or deleted in parallel are all counted.
+     */
+    public void addToNumberOfComments(Integer postId, Integer delta) throws PostNotFoundException {
+        if (postRepository.addToNumberOfComments(postId, delta) == 0) {
+            log.error("Error in method: addToNumberOfComments! Post with id: " + postId + " doesn't found in database!");
+            throw new PostNotFoundException("Post with id: " + postId + " doesn't found in database!");
+        }
     }
 
     public Integer getNumberOfLikesByPostId(Integer postId) throws PostNotFoundException {
-        findPostById(postId);
-        List<Like> postLikeList = likeRepository.findByPostLikeId(postId);
-        return postLikeList.size();
+        Optional<Integer> likeCount = postRepository.findLikeCountById(postId);
+        if (likeCount.isPresent()) {
+            return likeCount.get();
+        } else {
+            log.error("Error in method: getNumberOfLikesByPostId! Post with id: " + postId + " doesn't found in database!");
+            throw new PostNotFoundException("Post with id: " + postId + " doesn't found in database!");
+        }
     }
 
     public Integer getNumberOfDislikesByPostId(Integer postId) throws PostNotFoundException {
-        findPostById(postId);
-        List<Dislike> postDislikeList = dislikeRepository.findByPostDislikeId(postId);
-        return postDislikeList.size();
+        Optional<Integer> dislikeCount = postRepository.findDislikeCountById(postId);
+        if (dislikeCount.isPresent()) {
+            return dislikeCount.get();
+        } else {
+            log.error("Error in method: getNumberOfDislikesByPostId! Post with id: " + postId + " doesn't found in database!");
+            throw new PostNotFoundException("Post with id: " + postId + " doesn't found in database!");
+        }
     }
 
 }
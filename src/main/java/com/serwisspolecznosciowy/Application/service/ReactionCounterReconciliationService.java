@@ -0,0 +1,81 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.repository.CommentRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Like and dislike counters of posts and comments are updated with every reaction, so they can drift from real number
+ * of rows in tables likes and dislikes (e.g. after manual changes in database or failed request).
+ * Job compares counters with real number of reactions and repairs them. Tables are checked in batches of ids,
+ * so one run never locks or reads a whole table at once. Cached pages and ETags of repaired posts and comments are evicted.
+ */
+@Service
+@Slf4j
+public class ReactionCounterReconciliationService {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Value("${reactions.reconciliation.batch-size:500}")
+    private Integer batchSize;
+
+    @Scheduled(fixedDelayString = "${reactions.reconciliation.interval-minutes:60}",
+            initialDelayString = "${reactions.reconciliation.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void reconcileReactionCounters() {
+        log.info("Start to reconcile like and dislike counters.");
+        int repairedPosts = reconcilePostCounters();
+        int repairedComments = reconcileCommentCounters();
+        log.info("Reconciliation of like and dislike counters finished. Repaired posts: {}, repaired comments: {}.", repairedPosts, repairedComments);
+    }
+
+    public int reconcilePostCounters() {
+        return reconcile(postRepository::findIdsAfter, postRepository::findIdsWithDriftedReactionCounters, postRepository::repairReactionCounters,
+                postIds -> postIds.forEach(feedCacheInvalidator::evictPostChanged));
+    }
+
+    public int reconcileCommentCounters() {
+        return reconcile(commentRepository::findIdsAfter, commentRepository::findIdsWithDriftedReactionCounters, commentRepository::repairReactionCounters,
+                commentIds -> commentRepository.findAllById(commentIds).forEach(comment -> feedCacheInvalidator.evictCommentChanged(comment.getId(), comment.getPostId())));
+    }
+
+    private int reconcile(BiFunction<Integer, Pageable, List<Integer>> findIdsAfter,
+                          Function<List<Integer>, List<Integer>> findIdsWithDriftedCounters,
+                          Function<List<Integer>, Integer> repairCounters,
+                          Consumer<List<Integer>> evictRepaired) {
+        int repaired = 0;
+        Integer lastId = 0;
+        List<Integer> ids = findIdsAfter.apply(lastId, PageRequest.of(0, batchSize));
+        while (!ids.isEmpty()) {
+            List<Integer> driftedIds = findIdsWithDriftedCounters.apply(ids);
+            if (!driftedIds.isEmpty()) {
+                log.info("Found drifted reaction counters for ids: {}", driftedIds);
+                repaired += repairCounters.apply(driftedIds);
+                evictRepaired.accept(driftedIds);
+            }
+            lastId = ids.get(ids.size() - 1);
+            ids = ids.size() < batchSize ? List.of() : findIdsAfter.apply(lastId, PageRequest.of(0, batchSize));
+        }
+        return repaired;
+    }
+
+}
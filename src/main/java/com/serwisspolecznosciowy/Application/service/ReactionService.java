@@ -0,0 +1,198 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionPageDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionSummaryDto;
+import com.serwisspolecznosciowy.Application.entity.*;
+import com.serwisspolecznosciowy.Application.exception.CommentNotFoundException;
+import com.serwisspolecznosciowy.Application.exception.PostNotFoundException;
+import com.serwisspolecznosciowy.Application.mappers.UserMapper;
+import com.serwisspolecznosciowy.Application.repository.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compact representation of likes and dislikes: number of reactions, first usernames and flag if login user reacted.
+ * Viral post can have thousands of reactions - instead of embedding all of them in every post, full lists of usernames
+ * are available page by page.
+ */
+@Service
+@Slf4j
+public class ReactionService {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private DislikeRepository dislikeRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Value("${reactions.summary.first-usernames:3}")
+    private Integer firstUsernamesLimit;
+
+    /**
+     * Builds summaries without 'reactedByCurrentUser' flag, so they can be cached and shared by all users.
+     */
+    public List<PostSummaryDto> postListToPostSummaryDtoList(List<Post> postList) {
+        if (postList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> postIds = postList.stream().map(Post::getId).collect(Collectors.toList());
+        Map<Integer, List<String>> firstLikeUsernames = groupByTargetId(likeRepository.findFirstUsernamesByPostIds(postIds, firstUsernamesLimit));
+        Map<Integer, List<String>> firstDislikeUsernames = groupByTargetId(dislikeRepository.findFirstUsernamesByPostIds(postIds, firstUsernamesLimit));
+        List<PostSummaryDto> postSummaryDtoList = new ArrayList<>();
+        for (Post post : postList) {
+            User user = post.getUser();
+            postSummaryDtoList.add(new PostSummaryDto(post.getId(), post.getBody(), post.getCreated(), post.getUpdated(),
+                    new ReactionSummaryDto(post.getLikeCount(), null, firstLikeUsernames.getOrDefault(post.getId(), Collections.emptyList())),
+                    new ReactionSummaryDto(post.getDislikeCount(), null, firstDislikeUsernames.getOrDefault(post.getId(), Collections.emptyList())),
+                    user.getUsername(), user.getProfilePicture(), post.getNumberOfComments(), null));
+        }
+        return postSummaryDtoList;
+    }
+
+    public List<CommentSummaryDto> commentListToCommentSummaryDtoList(List<Comment> commentList) {
+        if (commentList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> commentIds = commentList.stream().map(Comment::getId).collect(Collectors.toList());
+        Map<Integer, List<String>> firstLikeUsernames = groupByTargetId(likeRepository.findFirstUsernamesByCommentIds(commentIds, firstUsernamesLimit));
+        Map<Integer, List<String>> firstDislikeUsernames = groupByTargetId(dislikeRepository.findFirstUsernamesByCommentIds(commentIds, firstUsernamesLimit));
+        List<CommentSummaryDto> commentSummaryDtoList = new ArrayList<>();
+        for (Comment comment : commentList) {
+            commentSummaryDtoList.add(new CommentSummaryDto(comment.getId(), comment.getPostId(), comment.getBody(), comment.getCreated(), comment.getUpdated(),
+                    new ReactionSummaryDto(comment.getLikeCount(), null, firstLikeUsernames.getOrDefault(comment.getId(), Collections.emptyList())),
+                    new ReactionSummaryDto(comment.getDislikeCount(), null, firstDislikeUsernames.getOrDefault(comment.getId(), Collections.emptyList())),
+                    userMapper.userToUserDto(comment.getUser())));
+        }
+        return commentSummaryDtoList;
+    }
+
+    private Map<Integer, List<String>> groupByTargetId(List<ReactionUsername> reactionUsernames) {
+        return reactionUsernames.stream().collect(Collectors.groupingBy(ReactionUsername::getTargetId,
+                Collectors.mapping(ReactionUsername::getUsername, Collectors.toList())));
+    }
+
+    /**
+     * Returns copies of summaries (they can come from cache) with 'reactedByCurrentUser' flag set for given user.
+     */
+    public List<PostSummaryDto> markPostReactionsOfUser(List<PostSummaryDto> postSummaryDtoList, User user) {
+        if (user == null || postSummaryDtoList.isEmpty()) {
+            return postSummaryDtoList;
+        }
+        List<Integer> postIds = postSummaryDtoList.stream().map(PostSummaryDto::getId).collect(Collectors.toList());
+        Set<Integer> likedPostIds = new HashSet<>(likeRepository.findPostIdsLikedByUser(user.getId(), postIds));
+        Set<Integer> dislikedPostIds = new HashSet<>(dislikeRepository.findPostIdsDislikedByUser(user.getId(), postIds));
+        Map<Integer, CommentSummaryDto> markedNewestComments = markNewestCommentReactionsOfUser(postSummaryDtoList, user);
+        List<PostSummaryDto> markedPostSummaryDtoList = new ArrayList<>();
+        for (PostSummaryDto post : postSummaryDtoList) {
+            List<CommentSummaryDto> newestComments = post.getNewestComments() == null ? null : post.getNewestComments().stream()
+                    .map(comment -> markedNewestComments.get(comment.getId()))
+                    .collect(Collectors.toList());
+            markedPostSummaryDtoList.add(new PostSummaryDto(post.getId(), post.getBody(), post.getCreated(), post.getUpdated(),
+                    markReaction(post.getLikes(), likedPostIds.contains(post.getId())),
+                    markReaction(post.getDislikes(), dislikedPostIds.contains(post.getId())),
+                    post.getUsername(), post.getProfilePicture(), post.getNumberOfComments(), newestComments));
+        }
+        return markedPostSummaryDtoList;
+    }
+
+    /* comments of all posts are marked together, so it costs two queries for the whole page */
+    private Map<Integer, CommentSummaryDto> markNewestCommentReactionsOfUser(List<PostSummaryDto> postSummaryDtoList, User user) {
+        List<CommentSummaryDto> newestComments = postSummaryDtoList.stream()
+                .filter(post -> post.getNewestComments() != null)
+                .flatMap(post -> post.getNewestComments().stream())
+                .collect(Collectors.toList());
+        return markCommentReactionsOfUser(newestComments, user).stream()
+                .collect(Collectors.toMap(CommentSummaryDto::getId, Function.identity()));
+    }
+
+    public List<CommentSummaryDto> markCommentReactionsOfUser(List<CommentSummaryDto> commentSummaryDtoList, User user) {
+        if (user == null || commentSummaryDtoList.isEmpty()) {
+            return commentSummaryDtoList;
+        }
+        List<Integer> commentIds = commentSummaryDtoList.stream().map(CommentSummaryDto::getId).collect(Collectors.toList());
+        Set<Integer> likedCommentIds = new HashSet<>(likeRepository.findCommentIdsLikedByUser(user.getId(), commentIds));
+        Set<Integer> dislikedCommentIds = new HashSet<>(dislikeRepository.findCommentIdsDislikedByUser(user.getId(), commentIds));
+        List<CommentSummaryDto> markedCommentSummaryDtoList = new ArrayList<>();
+        for (CommentSummaryDto comment : commentSummaryDtoList) {
+            markedCommentSummaryDtoList.add(new CommentSummaryDto(comment.getId(), comment.getPostId(), comment.getBody(), comment.getCreated(), comment.getUpdated(),
+                    markReaction(comment.getLikes(), likedCommentIds.contains(comment.getId())),
+                    markReaction(comment.getDislikes(), dislikedCommentIds.contains(comment.getId())),
+                    comment.getUser()));
+        }
+        return markedCommentSummaryDtoList;
+    }
+
+    private ReactionSummaryDto markReaction(ReactionSummaryDto reactionSummaryDto, boolean reactedByCurrentUser) {
+        return new ReactionSummaryDto(reactionSummaryDto.getCount(), reactedByCurrentUser, reactionSummaryDto.getFirstUsernames());
+    }
+
+    public ReactionPageDto getPostLikes(Integer postId, Integer cursor, Integer pageSize) throws PostNotFoundException {
+        checkPostExists(postId);
+        List<Like> likeList = likeRepository.findByPostLikeIdAndIdGreaterThanOrderById(postId, cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        return toReactionPage(likeList.stream().map(Like::getUsername).collect(Collectors.toList()),
+                likeList.isEmpty() ? null : likeList.get(likeList.size() - 1).getId(), pageSize);
+    }
+
+    public ReactionPageDto getPostDislikes(Integer postId, Integer cursor, Integer pageSize) throws PostNotFoundException {
+        checkPostExists(postId);
+        List<Dislike> dislikeList = dislikeRepository.findByPostDislikeIdAndIdGreaterThanOrderById(postId, cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        return toReactionPage(dislikeList.stream().map(Dislike::getUsername).collect(Collectors.toList()),
+                dislikeList.isEmpty() ? null : dislikeList.get(dislikeList.size() - 1).getId(), pageSize);
+    }
+
+    public ReactionPageDto getCommentLikes(Integer commentId, Integer cursor, Integer pageSize) throws CommentNotFoundException {
+        checkCommentExists(commentId);
+        List<Like> likeList = likeRepository.findByCommentLikeIdAndIdGreaterThanOrderById(commentId, cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        return toReactionPage(likeList.stream().map(Like::getUsername).collect(Collectors.toList()),
+                likeList.isEmpty() ? null : likeList.get(likeList.size() - 1).getId(), pageSize);
+    }
+
+    public ReactionPageDto getCommentDislikes(Integer commentId, Integer cursor, Integer pageSize) throws CommentNotFoundException {
+        checkCommentExists(commentId);
+        List<Dislike> dislikeList = dislikeRepository.findByCommentDislikeIdAndIdGreaterThanOrderById(commentId, cursorOrStart(cursor), PageRequest.of(0, pageSize));
+        return toReactionPage(dislikeList.stream().map(Dislike::getUsername).collect(Collectors.toList()),
+                dislikeList.isEmpty() ? null : dislikeList.get(dislikeList.size() - 1).getId(), pageSize);
+    }
+
+    private Integer cursorOrStart(Integer cursor) {
+        return cursor != null ? cursor : 0;
+    }
+
+    private ReactionPageDto toReactionPage(List<String> usernames, Integer lastReactionId, Integer pageSize) {
+        /* full page means there can be more reactions, id of the last one is cursor of the next page */
+        return new ReactionPageDto(usernames, usernames.size() == pageSize ? lastReactionId : null);
+    }
+
+    private void checkPostExists(Integer postId) throws PostNotFoundException {
+        if (!postRepository.existsById(postId)) {
+            log.error("Error in method: checkPostExists! Post with id: " + postId + " doesn't found in database!");
+            throw new PostNotFoundException("Post with id: " + postId + " doesn't found in database!");
+        }
+    }
+
+    private void checkCommentExists(Integer commentId) throws CommentNotFoundException {
+        if (!commentRepository.existsById(commentId)) {
+            log.error("Error in method: checkCommentExists! Comment with id: " + commentId + " doesn't found in database!");
+            throw new CommentNotFoundException("Comment with id: " + commentId + " doesn't found in database!");
+        }
+    }
+
+}
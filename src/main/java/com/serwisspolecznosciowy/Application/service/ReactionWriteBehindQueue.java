@@ -0,0 +1,308 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.cache.ReactionBitmapCache;
+import com.serwisspolecznosciowy.Application.exception.DuplicateUsernameException;
+import com.serwisspolecznosciowy.Application.exception.ReactionQueueFullException;
+import com.serwisspolecznosciowy.Application.service.PendingReaction.Kind;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in asynchronous writing of likes and dislikes ('reactions.write-behind.enabled').
+ * Request only puts reaction into bounded queue and the background thread inserts queued reactions with JDBC batches
+ * every 'flush-interval-ms' milliseconds or when 'batch-size' reactions are waiting. Counters of posts and comments are increased
+ * once per post/comment for the whole batch. When queue is full request waits 'offer-timeout-ms' and then gets 503.
+ * Batch which failed is written again after 'retry-backoff-ms', doubled after every failure up to 'max-retry-backoff-ms',
+ * until it is written - meanwhile queue fills up and requests get 503. Batch rejected by database constraint is written
+ * reaction by reaction, so one wrong reaction doesn't block the others - e.g. reaction to post, comment or user deleted
+ * after it was queued violates foreign key of likes/dislikes (migration addForeignKeysToLikesAndDislikes) and is dropped.
+ * On shutdown new reactions are rejected and all queued ones are written before database connection is closed, if database
+ * is not available for 'shutdown-timeout-ms' the rest is logged as lost.
+ */
+@Service
+@Slf4j
+public class ReactionWriteBehindQueue {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Autowired
+    private ReactionBitmapCache reactionBitmapCache;
+
+    @Value("${reactions.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reactions.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${reactions.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reactions.write-behind.flush-interval-ms:10}")
+    private long flushIntervalInMillis;
+
+    @Value("${reactions.write-behind.offer-timeout-ms:50}")
+    private long offerTimeoutInMillis;
+
+    @Value("${reactions.write-behind.retry-backoff-ms:100}")
+    private long retryBackoffInMillis;
+
+    @Value("${reactions.write-behind.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffInMillis;
+
+    @Value("${reactions.write-behind.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutInMillis;
+
+    private BlockingQueue<PendingReaction> queue;
+
+    /* reactions waiting in queue or being written, used to reject the same reaction sent twice */
+    private final Set<PendingReaction> pendingReactions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean accepting;
+
+    /* System.nanoTime() after which failed batches are not written again, set when shutdown starts */
+    private volatile Long shutdownDeadline;
+
+    private Thread flushThread;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        accepting = true;
+        flushThread = new Thread(this::flushContinuously, "reaction-write-behind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        log.info("Write-behind of reactions started with capacity: {}, batch size: {}, flush interval: {} ms", capacity, batchSize, flushIntervalInMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addPostLike(Integer postId, Integer userId, String username) {
+        add(new PendingReaction(Kind.POST_LIKE, postId, userId, username, postId), "User can add only once like to specified post!");
+    }
+
+    public void addPostDislike(Integer postId, Integer userId, String username) {
+        add(new PendingReaction(Kind.POST_DISLIKE, postId, userId, username, postId), "User can add only once dislike to specified post!");
+    }
+
+    public void addCommentLike(Integer commentId, Integer postId, Integer userId, String username) {
+        add(new PendingReaction(Kind.COMMENT_LIKE, commentId, userId, username, postId), "User can add only once like to specified comment!");
+    }
+
+    public void addCommentDislike(Integer commentId, Integer postId, Integer userId, String username) {
+        add(new PendingReaction(Kind.COMMENT_DISLIKE, commentId, userId, username, postId), "User can add only once dislike to specified comment!");
+    }
+
+    private void add(PendingReaction reaction, String duplicateMessage) {
+        if (!accepting) {
+            log.error("Error in method add! Reaction queue is not accepting reactions.");
+            throw new ReactionQueueFullException("Reactions are not accepted now, please try again later.");
+        }
+        if (!pendingReactions.add(reaction)) {
+            log.error("Error in method add! " + duplicateMessage);
+            throw new DuplicateUsernameException(duplicateMessage);
+        }
+        boolean queued;
+        try {
+            queued = queue.offer(reaction, offerTimeoutInMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            pendingReactions.remove(reaction);
+            log.error("Error in method add! Reaction queue is full.");
+            throw new ReactionQueueFullException("Too many reactions at the moment, please try again later.");
+        }
+    }
+
+    private void flushContinuously() {
+        /* after shutdown started thread writes everything what is left in queue and stops */
+        while (accepting || !queue.isEmpty()) {
+            try {
+                List<PendingReaction> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /* waits for the first reaction, then collects more until batch is full or flush interval passes */
+    private List<PendingReaction> takeBatch() throws InterruptedException {
+        List<PendingReaction> batch = new ArrayList<>();
+        PendingReaction first = queue.poll(flushIntervalInMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalInMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remainingNanos <= 0) {
+                break;
+            }
+            PendingReaction next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    void flush(List<PendingReaction> batch) throws InterruptedException {
+        try {
+            long backoffInMillis = retryBackoffInMillis;
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Map<PendingReaction, Boolean> inserted = transactionTemplate.execute(status -> insert(batch));
+                    afterFlush(inserted);
+                    return;
+                } catch (DataIntegrityViolationException ex) {
+                    /* the same batch would fail again */
+                    if (batch.size() == 1) {
+                        log.error("Error in method flush! Reaction {} was rejected by database.", batch.get(0), ex);
+                        return;
+                    }
+                    log.error("Error in method flush! Batch of {} reactions was rejected by database, reactions are written one by one.", batch.size(), ex);
+                    for (PendingReaction reaction : batch) {
+                        flush(List.of(reaction));
+                    }
+                    return;
+                } catch (RuntimeException ex) {
+                    Long deadline = shutdownDeadline;
+                    if (deadline != null && System.nanoTime() - deadline > 0) {
+                        log.error("Error in method flush! Database not available before shutdown, lost {} reactions: {}", batch.size(), batch, ex);
+                        return;
+                    }
+                    log.error("Error in method flush! Attempt {} of writing {} reactions failed, next attempt in {} ms.",
+                            attempt, batch.size(), backoffInMillis, ex);
+                }
+                try {
+                    Thread.sleep(backoffInMillis);
+                } catch (InterruptedException ex) {
+                    log.error("Error in method flush! Interrupted, lost {} reactions: {}", batch.size(), batch);
+                    throw ex;
+                }
+                backoffInMillis = Math.min(backoffInMillis * 2, maxRetryBackoffInMillis);
+            }
+        } finally {
+            batch.forEach(pendingReactions::remove);
+        }
+    }
+
+    private Map<PendingReaction, Boolean> insert(List<PendingReaction> batch) {
+        Map<PendingReaction, Boolean> inserted = new LinkedHashMap<>();
+        Map<Kind, List<PendingReaction>> reactionsByKind = batch.stream().collect(Collectors.groupingBy(PendingReaction::getKind));
+        for (Map.Entry<Kind, List<PendingReaction>> entry : reactionsByKind.entrySet()) {
+            Kind kind = entry.getKey();
+            List<PendingReaction> reactions = entry.getValue();
+            int[] insertedRows = jdbcTemplate.batchUpdate(kind.getInsertSql(), reactions.stream()
+                    .map(reaction -> new Object[]{reaction.getUserId(), reaction.getTargetId(), reaction.getUsername()})
+                    .collect(Collectors.toList()));
+            /* number of inserted reactions per post/comment */
+            Map<Integer, Integer> addedToCounter = new LinkedHashMap<>();
+            Set<Integer> recounted = new LinkedHashSet<>();
+            for (int i = 0; i < reactions.size(); i++) {
+                PendingReaction reaction = reactions.get(i);
+                if (insertedRows[i] == Statement.SUCCESS_NO_INFO) {
+                    /* driver didn't tell if row was inserted (e.g. rewritten batch), counter is counted again */
+                    inserted.put(reaction, true);
+                    recounted.add(reaction.getTargetId());
+                    continue;
+                }
+                boolean rowInserted = insertedRows[i] > 0;
+                inserted.put(reaction, rowInserted);
+                if (rowInserted) {
+                    addedToCounter.merge(reaction.getTargetId(), 1, Integer::sum);
+                }
+            }
+            recounted.forEach(addedToCounter::remove);
+            jdbcTemplate.batchUpdate(kind.getAddToCounterSql(), addedToCounter.entrySet().stream()
+                    .map(counter -> new Object[]{counter.getValue(), counter.getKey()})
+                    .collect(Collectors.toList()));
+            if (!recounted.isEmpty()) {
+                jdbcTemplate.batchUpdate(kind.getRecountSql(), recounted.stream()
+                        .map(targetId -> new Object[]{targetId, targetId})
+                        .collect(Collectors.toList()));
+            }
+        }
+        return inserted;
+    }
+
+    private void afterFlush(Map<PendingReaction, Boolean> inserted) {
+        Set<Integer> changedPosts = new HashSet<>();
+        Map<Integer, Integer> changedComments = new HashMap<>();
+        for (Map.Entry<PendingReaction, Boolean> entry : inserted.entrySet()) {
+            PendingReaction reaction = entry.getKey();
+            if (reaction.getKind() == Kind.POST_LIKE) {
+                reactionBitmapCache.addExistingPostLike(reaction.getTargetId(), reaction.getUserId());
+            } else if (reaction.getKind() == Kind.POST_DISLIKE) {
+                reactionBitmapCache.addExistingPostDislike(reaction.getTargetId(), reaction.getUserId());
+            }
+            if (!entry.getValue()) {
+                log.info("Reaction {} was already saved and has been skipped.", reaction);
+            } else if (reaction.getKind().isPostReaction()) {
+                changedPosts.add(reaction.getTargetId());
+            } else {
+                changedComments.put(reaction.getTargetId(), reaction.getPostId());
+            }
+        }
+        changedPosts.forEach(feedCacheInvalidator::evictPostChanged);
+        changedComments.forEach(feedCacheInvalidator::evictCommentChanged);
+    }
+
+    public int getQueuedReactions() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    @PreDestroy
+    void drain() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutInMillis);
+        accepting = false;
+        flushThread.join();
+        /* reactions offered by requests which passed the check just before shutdown started */
+        List<PendingReaction> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        log.info("Write-behind of reactions stopped, writing {} remaining reactions.", remaining.size());
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
+import com.serwisspolecznosciowy.Application.entity.PendingUserDeletion;
+import com.serwisspolecznosciowy.Application.repository.*;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto.*;
+
+/**
+ * Deletes user with all posts, comments, likes and dislikes with set-based statements instead of deleting them one by one.
+ * Counters of posts and comments of other users (likes, dislikes, number of comments) are decreased by the same statements.
+ * Very large accounts can be deleted in background: posts and comments are deleted in chunks, each in separate transaction.
+ * Search index, feed caches and timelines are changed after transaction is committed, so deleted rows are not loaded into them again.
+ * Background deletion is recorded in table pending_user_deletions until the user is deleted. On shutdown it stops after
+ * the current chunk and it is started again with the next start of application (UserService.resumeUserDeletions).
+ */
+@Service
+@Slf4j
+public class UserDeletionService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private DislikeRepository dislikeRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Autowired
+    private PendingUserDeletionRepository pendingUserDeletionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Autowired
+    private BodySearchIndex bodySearchIndex;
+
+    @Autowired
+    private TimelineStore timelineStore;
+
+    @Value("${users.deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${users.deletion.progress-ttl-minutes:60}")
+    private long progressTimeToLiveInMinutes;
+
+    /* progress of running deletion is written again after every chunk, so only finished deletions expire */
+    private Cache<Integer, UserDeletionProgressDto> progressByUserId;
+
+    private ExecutorService executor;
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    void start() {
+        progressByUserId = Caffeine.newBuilder()
+                .expireAfterWrite(progressTimeToLiveInMinutes, TimeUnit.MINUTES)
+                .build();
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "user-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Deletes user, posts and comments of user with their likes and dislikes, comments of other users to user's posts
+     * likes and dislikes added by user, follows and home timeline of user - twelve statements in one transaction.
+     */
+    public void deleteUserWithContent(Integer userId) {
+        DeletedContent deleted = transactionTemplate.execute(status -> deleteRowsOfUser(userId));
+        afterContentDeleted(deleted.postIds, deleted.commentIds);
+        timelineStore.userDeleted(userId);
+        log.info("User with id: {} deleted with {} posts, {} comments, {} likes and {} dislikes.",
+                userId, deleted.postIds.size(), deleted.commentIds.size(), deleted.likes, deleted.dislikes);
+    }
+
+    private DeletedContent deleteRowsOfUser(Integer userId) {
+        List<Integer> postIds = postRepository.findAllIdsByUserId(userId);
+        List<Integer> commentIds = commentRepository.findIdsByUserIdOrPostUserId(userId);
+        /* counters of other users' posts and comments are decreased before reactions and comments of user are deleted */
+        postRepository.subtractLikesOfUser(userId);
+        postRepository.subtractDislikesOfUser(userId);
+        commentRepository.subtractLikesOfUser(userId);
+        commentRepository.subtractDislikesOfUser(userId);
+        postRepository.subtractCommentsOfUser(userId);
+        int likes = likeRepository.deleteAllOfUser(userId);
+        int dislikes = dislikeRepository.deleteAllOfUser(userId);
+        commentRepository.deleteAllByUserIdOrPostUserId(userId);
+        postRepository.deleteAllByUserId(userId);
+        followRepository.deleteAllOfUser(userId);
+        timelineEntryRepository.deleteAllByUserId(userId);
+        userRepository.deleteUserById(userId);
+        pendingUserDeletionRepository.deleteByUserId(userId);
+        return new DeletedContent(postIds, commentIds, likes, dislikes);
+    }
+
+    /**
+     * Starts deleting user in background, when user is already being deleted returns progress of that deletion.
+     *
+     * @param afterUserDeleted called after user is deleted, e.g. to evict user from caches
+     */
+    public UserDeletionProgressDto deleteUserWithContentInBackground(Integer userId, Runnable afterUserDeleted) {
+        UserDeletionProgressDto newProgress = new UserDeletionProgressDto(userId, IN_PROGRESS, postRepository.countByUserId(userId), 0,
+                commentRepository.countByUserId(userId), 0, LocalDateTime.now(), null);
+        UserDeletionProgressDto progress = progressByUserId.asMap().compute(userId,
+                (id, current) -> current != null && IN_PROGRESS.equals(copyOf(current).getStatus()) ? current : newProgress);
+        if (progress == newProgress) {
+            pendingUserDeletionRepository.save(new PendingUserDeletion(userId, newProgress.getStarted()));
+            executor.execute(() -> deleteInChunks(progress, afterUserDeleted));
+        }
+        return copyOf(progress);
+    }
+
+    /**
+     * Users whose background deletion was not finished, e.g. because application was stopped.
+     */
+    public List<Integer> findPendingDeletions() {
+        return pendingUserDeletionRepository.findAllUserIds();
+    }
+
+    public Optional<UserDeletionProgressDto> getDeletionProgress(Integer userId) {
+        return Optional.ofNullable(progressByUserId.getIfPresent(userId)).map(this::copyOf);
+    }
+
+    void deleteInChunks(UserDeletionProgressDto progress, Runnable afterUserDeleted) {
+        Integer userId = progress.getUserId();
+        try {
+            List<Integer> commentIds;
+            while (!(commentIds = commentRepository.findIdsByUserId(userId, PageRequest.of(0, chunkSize))).isEmpty()) {
+                if (stopping) {
+                    log.info("Deleting user with id: {} stopped by shutdown, it is resumed after restart.", userId);
+                    return;
+                }
+                List<Integer> chunk = commentIds;
+                transactionTemplate.executeWithoutResult(status -> deleteComments(chunk));
+                afterContentDeleted(List.of(), chunk);
+                synchronized (progress) {
+                    progress.setDeletedComments(progress.getDeletedComments() + chunk.size());
+                }
+                progressByUserId.put(userId, progress);
+            }
+            List<Integer> postIds;
+            while (!(postIds = postRepository.findIdsByUserId(userId, PageRequest.of(0, chunkSize))).isEmpty()) {
+                if (stopping) {
+                    log.info("Deleting user with id: {} stopped by shutdown, it is resumed after restart.", userId);
+                    return;
+                }
+                List<Integer> chunk = postIds;
+                List<Integer> commentsOfChunk = transactionTemplate.execute(status -> deletePosts(chunk));
+                afterContentDeleted(chunk, commentsOfChunk);
+                synchronized (progress) {
+                    progress.setDeletedPosts(progress.getDeletedPosts() + chunk.size());
+                }
+                progressByUserId.put(userId, progress);
+            }
+            /* the rest: reactions added by user and posts or comments added while deleting */
+            deleteUserWithContent(userId);
+            afterUserDeleted.run();
+            finish(progress, FINISHED);
+        } catch (RuntimeException ex) {
+            log.error("Error in method deleteInChunks! Deleting user with id: {} failed, it can be started again.", userId, ex);
+            finish(progress, FAILED);
+        }
+    }
+
+    private void finish(UserDeletionProgressDto progress, String status) {
+        synchronized (progress) {
+            progress.setStatus(status);
+            progress.setFinished(LocalDateTime.now());
+        }
+        progressByUserId.put(progress.getUserId(), progress);
+    }
+
+    private void deleteComments(List<Integer> commentIds) {
+        postRepository.subtractComments(commentIds);
+        likeRepository.deleteAllByCommentIdIn(commentIds);
+        dislikeRepository.deleteAllByCommentIdIn(commentIds);
+        commentRepository.deleteAllByIdIn(commentIds);
+    }
+
+    /* returns ids of deleted comments to these posts */
+    private List<Integer> deletePosts(List<Integer> postIds) {
+        List<Integer> commentIds = commentRepository.findIdsByPostIdIn(postIds);
+        likeRepository.deleteAllOfPostsIn(postIds);
+        dislikeRepository.deleteAllOfPostsIn(postIds);
+        commentRepository.deleteAllByPostIdIn(postIds);
+        postRepository.deleteAllByIdIn(postIds);
+        return commentIds;
+    }
+
+    /* called outside of transaction - when it joined an outer one, index and caches still defer their changes until its commit */
+    private void afterContentDeleted(List<Integer> postIds, List<Integer> commentIds) {
+        postIds.forEach(bodySearchIndex::removePost);
+        bodySearchIndex.removeComments(commentIds);
+        feedCacheInvalidator.evictAllPostsAndComments();
+    }
+
+    /* progress is changed by deleting thread, so returned object is a copy */
+    private UserDeletionProgressDto copyOf(UserDeletionProgressDto progress) {
+        synchronized (progress) {
+            return new UserDeletionProgressDto(progress.getUserId(), progress.getStatus(), progress.getTotalPosts(), progress.getDeletedPosts(),
+                progress.getTotalComments(), progress.getDeletedComments(), progress.getStarted(), progress.getFinished());
+        }
+    }
+
+    private static class DeletedContent {
+
+        private final List<Integer> postIds;
+        private final List<Integer> commentIds;
+        private final int likes;
+        private final int dislikes;
+
+        private DeletedContent(List<Integer> postIds, List<Integer> commentIds, int likes, int dislikes) {
+            this.postIds = postIds;
+            this.commentIds = commentIds;
+            this.likes = likes;
+            this.dislikes = dislikes;
+        }
+
+    }
+
+    /* running deletion finishes its current chunk, the rest is resumed after restart */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Deleting user not stopped before shutdown, it and {} waiting deletions are resumed after restart.",
+                    executor.shutdownNow().size());
+        }
+    }
+
+}
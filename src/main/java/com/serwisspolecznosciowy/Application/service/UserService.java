@@ -1,44 +1,70 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
 import com.serwisspolecznosciowy.Application.dto.NewUserDto;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
 import com.serwisspolecznosciowy.Application.dto.UserDto;
-import com.serwisspolecznosciowy.Application.entity.Comment;
-import com.serwisspolecznosciowy.Application.entity.Post;
 import com.serwisspolecznosciowy.Application.entity.User;
 import com.serwisspolecznosciowy.Application.exception.*;
 import com.serwisspolecznosciowy.Application.mappers.UserMapper;
 import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import com.serwisspolecznosciowy.Application.search.UsernameAutocomplete;
+import com.serwisspolecznosciowy.Application.search.UsernameSearchIndex;
+import com.serwisspolecznosciowy.Application.security.AuthenticationCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.USERS_BY_USERNAME;
 
 @Service
 @Slf4j
 public class UserService {
 
     @Autowired
-    private CommentService commentService;
+    private UserMapper userMapper;
 
     @Autowired
-    private PostService postService;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserMapper userMapper;
+    private AuthenticationCache authenticationCache;
 
     @Autowired
-    private UserRepository userRepository;
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @Autowired
+    private UsernameAutocomplete usernameAutocomplete;
+
+    @Autowired
+    private UserDeletionService userDeletionService;
+
+    @Autowired
+    private FeedCacheInvalidator feedCacheInvalidator;
 
     private static final PasswordEncoder PASSWORD_ENCODER = new BCryptPasswordEncoder();
 
+    /* request attribute with login user resolved during current request */
+    private static final String LOGIN_USER_ATTRIBUTE = UserService.class.getName() + ".loginUser";
+
     public List<User> findAllUsers() {
         return this.userRepository.findAll();
     }
@@ -61,6 +87,8 @@ public class UserService {
         setAppropriateRoleForUser(user, username);
         user.setProfilePicture(user.getProfilePicture());
         userRepository.save(user);
+        usernameSearchIndex.indexUser(user.getId(), username);
+        usernameAutocomplete.addUser(user.getId(), username);
         return userMapper.userToUserDto(user);
     }
 
@@ -72,7 +100,8 @@ public class UserService {
         }
     }
 
-    private boolean checkPasswordSyntax(String password) {
+    /* package-private for benchmarks */
+    boolean checkPasswordSyntax(String password) {
         String reqex = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[!@#&()–[{}]:;',?/*~$^+=<>.]).{6,}$";
         if (!password.isBlank() && password.matches(reqex) && (password.length() >= 6)){
             return true;
@@ -84,7 +113,8 @@ public class UserService {
     }
 
     private void setAppropriateRoleForUser(User user, String username) throws UserNotFoundException {
-        if (getLoginUser() != null && getLoginUser().getRole().equals("ROLE_ADMIN")) {
+        User loginUser = getLoginUser();
+        if (loginUser != null && loginUser.getRole().equals("ROLE_ADMIN")) {
             log.info("Set 'ROLE_ADMIN' for username: {}", username);
             user.setRole("ROLE_ADMIN");
         } else {
@@ -113,6 +143,7 @@ public class UserService {
                 user.setPassword(encodePassword);
                 user.setUpdated(LocalDateTime.now());
                 userRepository.save(user);
+                evictUser(user.getUsername());
             } else {
                 log.error("New passwords are not the same!");
                 throw new NewPasswordNotMatchException("New passwords are not the same!");
@@ -126,11 +157,66 @@ public class UserService {
     }
 
     public void deleteUserById(Integer userId) throws UserNotFoundException, PostNotFoundException, UserForbiddenAccessException, CommentNotFoundException {
-        Optional<User> userFromDb = findUserById(userId);
-        deleteCommentsAndPostsByUserId(userFromDb);
-        userRepository.deleteById(userId);
+        User userFromDb = findUserById(userId).get();
+        checkLoginUserCanDeleteUser(userFromDb);
+        userDeletionService.deleteUserWithContent(userId);
+        afterUserDeleted(userFromDb);
+    }
+
+    /**
+     * For very large accounts - user is blocked at once and deleted in background, progress is returned.
+     */
+    public UserDeletionProgressDto deleteUserByIdInBackground(Integer userId) throws UserNotFoundException, UserForbiddenAccessException {
+        User userFromDb = findUserById(userId).get();
+        checkLoginUserCanDeleteUser(userFromDb);
+        updateUserEnable(userId, false);
+        return userDeletionService.deleteUserWithContentInBackground(userId, () -> afterUserDeleted(userFromDb));
+    }
+
+    /**
+     * Background deletions interrupted by shutdown are started again, their users are still disabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUserDeletions() {
+        try {
+            for (Integer userId : userDeletionService.findPendingDeletions()) {
+                Optional<User> user = userRepository.findById(userId);
+                log.info("Resuming deletion of user with id: {}", userId);
+                userDeletionService.deleteUserWithContentInBackground(userId, () -> user.ifPresent(this::afterUserDeleted));
+            }
+        } catch (RuntimeException ex) {
+            log.error("Error in method resumeUserDeletions! Pending deletions will be resumed with the next start.", ex);
+        }
+    }
+
+    public UserDeletionProgressDto getUserDeletionProgress(Integer userId) throws UserNotFoundException, UserForbiddenAccessException {
+        User loginUser = getLoginUser();
+        if (loginUser == null || !(loginUser.getId().equals(userId) || loginUser.getRole().equals("ROLE_ADMIN"))) {
+            log.error("Error in method: getUserDeletionProgress! User is not authorized to see deletion of user with id: {}", userId);
+            throw new UserForbiddenAccessException("User is not authorized to see deletion of user with id: " + userId + "!");
+        }
+        Optional<UserDeletionProgressDto> progress = userDeletionService.getDeletionProgress(userId);
+        if (progress.isPresent()) {
+            return progress.get();
+        } else {
+            log.error("Error in method: getUserDeletionProgress! Deletion of user with id: {} not found.", userId);
+            throw new UserNotFoundException("Deletion of user with id: " + userId + " not found!");
+        }
     }
 
+    private void checkLoginUserCanDeleteUser(User user) throws UserForbiddenAccessException {
+        User loginUser = getLoginUser();
+        if (loginUser == null || !(loginUser.getUsername().equals(user.getUsername()) || loginUser.getRole().equals("ROLE_ADMIN"))) {
+            log.error("Error in method: deleteUserById! User is not authorized to delete user with id: {}", user.getId());
+            throw new UserForbiddenAccessException("User is not authorized to delete user with id: " + user.getId() + "!");
+        }
+    }
+
+    private void afterUserDeleted(User user) {
+        usernameSearchIndex.removeUser(user.getId());
+        usernameAutocomplete.removeUser(user.getId());
+        evictUser(user.getUsername());
+    }
 
     public Optional<User> findUserById(Integer id) throws UserNotFoundException{
         Optional<User> optionalUser = userRepository.findById(id);
@@ -142,24 +228,6 @@ public class UserService {
         }
     }
 
-    private void deleteCommentsAndPostsByUserId(Optional<User> userFromDb) throws PostNotFoundException, UserForbiddenAccessException, CommentNotFoundException {
-        Integer userId = userFromDb.get().getId();
-
-        List<Comment> commentList = commentService.findAllCommentByUserId(userId);
-        if (commentList != null || !commentList.isEmpty()) {
-            for (Comment comment : commentList) {
-                commentService.deleteCommentById(comment.getId());
-            }
-        }
-
-        List<Post> postsList = postService.findAllPostsByUserId(userId);
-        if (postsList != null || !postsList.isEmpty()) {
-            for (Post post : postsList) {
-                postService.deletePostById(userFromDb, post.getId());
-            }
-        }
-    }
-
     public User getLoginUser() {
         Optional<Authentication> auth = Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication());
         String username = null;
@@ -169,11 +237,59 @@ public class UserService {
             log.info("No user is logged in.");
             return null;
         }
-        return userRepository.findByUsername(username).orElse(null);
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return findCachedUserByUsername(username);
+        }
+        /* user is resolved once per request, next calls in the same request return the same object */
+        Object resolvedUser = requestAttributes.getAttribute(LOGIN_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolvedUser instanceof User && ((User) resolvedUser).getUsername().equals(username)) {
+            return (User) resolvedUser;
+        }
+        User user = findCachedUserByUsername(username);
+        if (user != null) {
+            requestAttributes.setAttribute(LOGIN_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
     }
 
-    public List<UserDto> findUserByKeywordInUsername(String keyword) {
-        List<User> userList = userRepository.findByUsernameLike(keyword);
+    /**
+     * Users are cached by username for 'cache.UsersByUsername.ttl-seconds', changes of user evict the entry.
+     * User read before eviction is not cached after it, generation of user is shared with AuthenticationCache.
+     * Every call gets its own copy, so changing returned user doesn't change the cached one.
+     */
+    private User findCachedUserByUsername(String username) {
+        Cache cache = cacheManager.getCache(USERS_BY_USERNAME);
+        User cachedUser = cache.get(username, User.class);
+        if (cachedUser == null) {
+            long generation = authenticationCache.generation(username);
+            cachedUser = userRepository.findByUsername(username).orElse(null);
+            if (cachedUser == null) {
+                return null;
+            }
+            if (authenticationCache.generation(username) == generation) {
+                cache.put(username, cachedUser);
+                /* eviction between the check and put could miss this entry */
+                if (authenticationCache.generation(username) != generation) {
+                    cache.evict(username);
+                }
+            }
+        }
+        return new User(cachedUser.getId(), cachedUser.getUsername(), cachedUser.getPassword(), cachedUser.getCreated(),
+                cachedUser.getUpdated(), cachedUser.getRole(), cachedUser.getEnabled(), cachedUser.getProfilePicture());
+    }
+
+    /* generation is changed before cached user is evicted, so user being loaded now is not cached again */
+    private void evictUser(String username) {
+        authenticationCache.evictUser(username);
+        cacheManager.getCache(USERS_BY_USERNAME).evict(username);
+    }
+
+    public List<UserDto> findUserByKeywordInUsername(String keyword, Integer pageNumber, Integer pageSize) {
+        List<Integer> userIds = usernameSearchIndex.searchUserIds(keyword, pageNumber, pageSize);
+        Map<Integer, User> usersById = userRepository.findAllById(userIds).stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        /* users in order of search index, user deleted meanwhile is skipped */
+        List<User> userList = userIds.stream().map(usersById::get).filter(Objects::nonNull).collect(Collectors.toList());
         if (!userList.isEmpty()) {
             return userMapper.userListToUserDtoList(userList);
         } else {
@@ -182,6 +298,10 @@ public class UserService {
         }
     }
 
+    public List<String> findUsernamesByPrefix(String prefix, Integer size) {
+        return usernameAutocomplete.complete(prefix, size);
+    }
+
     public boolean checkProvidedPasswordWithPasswordFromDb(String passwordProvidedByUser, String passwordFromDb) {
         if (PASSWORD_ENCODER.matches(passwordProvidedByUser, passwordFromDb)) {
             return true;
@@ -199,6 +319,9 @@ public class UserService {
             user.setUpdated(LocalDateTime.now());
             user.setProfilePicture(profilePictureUrl);
             userRepository.save(user);
+            evictUser(user.getUsername());
+            /* profile picture is part of every cached post and comment of user */
+            feedCacheInvalidator.evictAllPostsAndComments();
             return "User profile picture saved successfully!";
         } else {
             log.error("Error in method: updateUserProfilePicture! User is not authorized to change profile picture!");
@@ -213,6 +336,7 @@ public class UserService {
         user.setUpdated(LocalDateTime.now());
         user.setEnabled(enabled);
         userRepository.save(user);
+        evictUser(username);
         return "Enabled saved successfully for '" + enabled + "' for username '" + username + "'!";
     }
 
@@ -0,0 +1,80 @@
+package com.serwisspolecznosciowy.Application.timeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ids of the newest posts in home timeline of one user, from the newest one, at most 'capacity' of them.
+ * Authors whose posts are not pushed to timelines (see TimelineStore) are kept with buffer, their posts
+ * are merged with it when timeline is read.
+ */
+public class TimelineBuffer {
+
+    /* sorted descending, ids of posts grow with time */
+    private final int[] postIds;
+
+    private int size;
+
+    private final List<Integer> fanOutOnReadAuthorIds;
+
+    public TimelineBuffer(int capacity, List<Integer> postIds, List<Integer> fanOutOnReadAuthorIds) {
+        this.postIds = new int[capacity];
+        this.fanOutOnReadAuthorIds = List.copyOf(fanOutOnReadAuthorIds);
+        postIds.forEach(this::add);
+    }
+
+    /**
+     * @return false when post is already in timeline or it is older than all posts of full buffer
+     */
+    public synchronized boolean add(int postId) {
+        int index = indexOfFirstNotNewerThan(postId);
+        if (index == postIds.length || (index < size && postIds[index] == postId)) {
+            return false;
+        }
+        /* the oldest post is dropped when buffer is full */
+        System.arraycopy(postIds, index, postIds, index + 1, Math.min(size, postIds.length - 1) - index);
+        postIds[index] = postId;
+        size = Math.min(size + 1, postIds.length);
+        return true;
+    }
+
+    /**
+     * @param beforePostId only posts older than this one are returned, null - from the newest post
+     */
+    public synchronized List<Integer> page(Integer beforePostId, int pageSize) {
+        int from = beforePostId == null ? 0 : indexOfFirstNotNewerThan(beforePostId - 1);
+        int to = Math.min(size, from + pageSize);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Integer> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(postIds[i]);
+        }
+        return page;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public List<Integer> getFanOutOnReadAuthorIds() {
+        return fanOutOnReadAuthorIds;
+    }
+
+    private int indexOfFirstNotNewerThan(int postId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (postIds[middle] > postId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
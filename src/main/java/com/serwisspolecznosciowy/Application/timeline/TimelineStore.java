@@ -0,0 +1,325 @@
+package com.serwisspolecznosciowy.Application.timeline;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serwisspolecznosciowy.Application.repository.FollowRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.repository.TimelineEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Home timelines (posts of followed users and own posts, from the newest) with fan-out on write: id of new post is pushed
+ * by background thread to timelines of author and all followers, so timeline is read with one lookup instead of query
+ * joining follows with posts. Buffers of active users are kept in memory, table timeline_entries is their backing store
+ * trimmed to 'timeline.buffer-size' newest posts of every user. Posts of authors with at least 'timeline.fan-out-threshold'
+ * followers are not pushed (one post would be millions of writes), they are read by index of posts and merged with buffer.
+ * Fan-out, backfill after follow and cleanup after unfollow run one by one in the same thread, so post pushed to follower
+ * just before unfollow is removed by the cleanup queued after it.
+ * Buffers are updated only in this instance; with more instances buffer of other instance misses pushed posts until
+ * it expires after 'timeline.buffer-ttl-minutes' and is read again from table.
+ */
+@Component
+@Slf4j
+public class TimelineStore {
+
+    private static final String INSERT_ENTRY = "insert into timeline_entries (user_id, post_id, author_id) values (?, ?, ?)";
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${timeline.buffer-size:500}")
+    private int bufferSize;
+
+    @Value("${timeline.fan-out-threshold:10000}")
+    private long fanOutThreshold;
+
+    @Value("${timeline.fan-out-batch-size:1000}")
+    private int fanOutBatchSize;
+
+    @Value("${timeline.max-cached-timelines:100000}")
+    private long maxCachedTimelines;
+
+    @Value("${timeline.backfill-size:50}")
+    private int backfillSize;
+
+    @Value("${timeline.buffer-ttl-minutes:10}")
+    private long bufferTimeToLiveInMinutes;
+
+    private Cache<Integer, TimelineBuffer> buffers;
+
+    /* authors with at least 'timeline.fan-out-threshold' followers */
+    private final Set<Integer> fanOutOnReadAuthorIds = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        buffers = Caffeine.newBuilder()
+                .maximumSize(maxCachedTimelines)
+                .expireAfterWrite(Duration.ofMinutes(bufferTimeToLiveInMinutes))
+                .build();
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "timeline-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFanOutOnReadAuthors() {
+        try {
+            fanOutOnReadAuthorIds.addAll(followRepository.findFollowedIdsWithFollowersAtLeast(fanOutThreshold));
+            log.info("{} authors with at least {} followers, their posts are merged with timelines when they are read.",
+                    fanOutOnReadAuthorIds.size(), fanOutThreshold);
+        } catch (RuntimeException ex) {
+            log.error("Error in method loadFanOutOnReadAuthors! Authors will be found when they add post or get new follower.", ex);
+        }
+    }
+
+    /**
+     * @param beforePostId only posts older than this one are returned, null - from the newest post
+     * @return ids of at most pageSize posts of user's home timeline, from the newest one
+     */
+    public List<Integer> getTimelinePostIds(Integer userId, Integer beforePostId, int pageSize) {
+        TimelineBuffer buffer = buffers.get(userId, this::load);
+        List<Integer> postIds = buffer.page(beforePostId, pageSize);
+        List<Integer> authorIds = buffer.getFanOutOnReadAuthorIds();
+        if (authorIds.isEmpty()) {
+            return postIds;
+        }
+        List<Integer> authorsPostIds = postRepository.findIdsByUserIdInBefore(authorIds,
+                beforePostId != null ? beforePostId : Integer.MAX_VALUE, PageRequest.of(0, pageSize));
+        /* post pushed before author got many followers can be in both lists */
+        return Stream.concat(postIds.stream(), authorsPostIds.stream())
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .limit(pageSize)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Pushes new post to timelines of author and followers in background, after transaction which added post is committed.
+     */
+    public void postAdded(Integer postId, Integer authorId) {
+        afterCommit(() -> executor.execute(() -> {
+            try {
+                fanOut(postId, authorId);
+            } catch (RuntimeException ex) {
+                log.error("Error in method postAdded! Post with id: {} was not pushed to all timelines of followers.", postId, ex);
+            }
+        }));
+    }
+
+    /**
+     * Adds the newest posts of followed user to timeline of follower in background, after follow is committed.
+     */
+    public void followed(Integer followerId, Integer followedId) {
+        afterCommit(() -> executor.execute(() -> {
+            try {
+                backfill(followerId, followedId);
+            } catch (RuntimeException ex) {
+                log.error("Error in method followed! Posts of user with id: {} were not added to timeline of user with id: {}.",
+                        followedId, followerId, ex);
+            }
+        }));
+    }
+
+    /**
+     * Removes posts of unfollowed user from timeline of follower in background, after posts queued before are pushed.
+     */
+    public void unfollowed(Integer followerId, Integer followedId) {
+        afterCommit(() -> executor.execute(() -> {
+            try {
+                removePostsOfUnfollowed(followerId, followedId);
+            } catch (RuntimeException ex) {
+                log.error("Error in method unfollowed! Posts of user with id: {} were not removed from timeline of user with id: {}.",
+                        followedId, followerId, ex);
+            }
+        }));
+    }
+
+    /* entries are deleted with posts by foreign key, posts of deleted user left in buffers of followers are skipped when timeline is read */
+    public void userDeleted(Integer userId) {
+        afterCommit(() -> {
+            buffers.invalidate(userId);
+            fanOutOnReadAuthorIds.remove(userId);
+        });
+    }
+
+    void backfill(Integer followerId, Integer followedId) {
+        if (!isFanOutOnRead(followedId)) {
+            List<Integer> postIds = postRepository.findIdsByUserIdInBefore(List.of(followedId), Integer.MAX_VALUE,
+                    PageRequest.of(0, backfillSize));
+            insertEntries(postIds.stream()
+                    .map(postId -> new Object[]{followerId, postId, followedId})
+                    .collect(Collectors.toList()));
+        }
+        buffers.invalidate(followerId);
+    }
+
+    void removePostsOfUnfollowed(Integer followerId, Integer followedId) {
+        timelineEntryRepository.deleteAllOfAuthor(followerId, followedId);
+        buffers.invalidate(followerId);
+    }
+
+    void fanOut(Integer postId, Integer authorId) {
+        if (isFanOutOnRead(authorId)) {
+            return;
+        }
+        push(postId, authorId, List.of(authorId));
+        forEachFollowers(authorId, followerIds -> push(postId, authorId, followerIds));
+    }
+
+    /**
+     * Deletes entries older than 'timeline.buffer-size' newest posts of user, they are never read.
+     */
+    @Scheduled(fixedDelayString = "${timeline.trim-interval-minutes:60}",
+            initialDelayString = "${timeline.trim-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void trim() {
+        List<Integer> userIds = timelineEntryRepository.findUserIdsWithEntriesMoreThan(bufferSize);
+        for (Integer userId : userIds) {
+            List<Integer> oldestKept = timelineEntryRepository.findNewestPostIds(userId, PageRequest.of(bufferSize - 1, 1));
+            if (!oldestKept.isEmpty()) {
+                timelineEntryRepository.deleteAllOlderThan(userId, oldestKept.get(0));
+            }
+        }
+        log.info("Timelines of {} users trimmed to {} newest posts.", userIds.size(), bufferSize);
+    }
+
+    private TimelineBuffer load(Integer userId) {
+        List<Integer> postIds = timelineEntryRepository.findNewestPostIds(userId, PageRequest.of(0, bufferSize));
+        List<Integer> authorIds = new ArrayList<>();
+        if (!fanOutOnReadAuthorIds.isEmpty()) {
+            followRepository.findFollowedIds(userId).stream()
+                    .filter(fanOutOnReadAuthorIds::contains)
+                    .forEach(authorIds::add);
+            if (fanOutOnReadAuthorIds.contains(userId)) {
+                authorIds.add(userId);
+            }
+        }
+        return new TimelineBuffer(bufferSize, postIds, authorIds);
+    }
+
+    private boolean isFanOutOnRead(Integer authorId) {
+        if (fanOutOnReadAuthorIds.contains(authorId)) {
+            return true;
+        }
+        if (followRepository.countByFollowedId(authorId) < fanOutThreshold) {
+            return false;
+        }
+        if (fanOutOnReadAuthorIds.add(authorId)) {
+            log.info("Author with id: {} has at least {} followers, his posts are merged with timelines when they are read.",
+                    authorId, fanOutThreshold);
+            buffers.invalidate(authorId);
+            forEachFollowers(authorId, buffers::invalidateAll);
+        }
+        return true;
+    }
+
+    private void forEachFollowers(Integer authorId, Consumer<List<Integer>> action) {
+        int lastFollowerId = 0;
+        List<Integer> followerIds;
+        while (!(followerIds = followRepository.findFollowerIdsAfter(authorId, lastFollowerId, PageRequest.of(0, fanOutBatchSize))).isEmpty()) {
+            action.accept(followerIds);
+            lastFollowerId = followerIds.get(followerIds.size() - 1);
+        }
+    }
+
+    private void push(Integer postId, Integer authorId, List<Integer> userIds) {
+        insertEntries(userIds.stream()
+                .map(userId -> new Object[]{userId, postId, authorId})
+                .collect(Collectors.toList()));
+        for (Integer userId : userIds) {
+            /* only loaded buffers are updated, the others will be read from table with this post; buffer being loaded is
+               updated after its loader finished */
+            buffers.asMap().computeIfPresent(userId, (id, buffer) -> {
+                buffer.add(postId);
+                return buffer;
+            });
+        }
+    }
+
+    /* entry already exists when post was pushed while follower was added, post or follower can be deleted meanwhile,
+       then rows are inserted one by one */
+    private void insertEntries(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_ENTRY, rows));
+        } catch (DataIntegrityViolationException ex) {
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_ENTRY, row);
+                } catch (DuplicateKeyException duplicate) {
+                    log.debug("Post with id: {} is already in timeline of user with id: {}.", row[1], row[0]);
+                } catch (DataIntegrityViolationException deleted) {
+                    log.debug("Post with id: {} or user with id: {} was deleted.", row[1], row[0]);
+                }
+            }
+        }
+    }
+
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        /* queued posts are pushed before database is closed */
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Fan-out of {} posts not finished before shutdown.", executor.shutdownNow().size());
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+-- Index used by keyset pagination of posts feed (/post/feed/dto).
+
+use `portal-spolecznosciowy`;
+
+create index idx_posts_created_id on posts (created, id);
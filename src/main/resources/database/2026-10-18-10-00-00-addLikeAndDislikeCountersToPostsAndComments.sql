@@ -0,0 +1,17 @@
+-- Denormalized number of likes and dislikes, updated atomically on every reaction.
+
+use `portal-spolecznosciowy`;
+
+alter table posts add column like_count int not null default 0;
+alter table posts add column dislike_count int not null default 0;
+alter table comments add column like_count int not null default 0;
+alter table comments add column dislike_count int not null default 0;
+
+-- Fill counters with current number of reactions
+update posts p set
+    p.like_count = (select count(*) from likes l where l.post_like_id = p.id),
+    p.dislike_count = (select count(*) from dislikes d where d.post_dislike_id = p.id);
+
+update comments c set
+    c.like_count = (select count(*) from likes l where l.comment_like_id = c.id),
+    c.dislike_count = (select count(*) from dislikes d where d.comment_dislike_id = c.id);
@@ -0,0 +1,23 @@
+-- One user can add only one like and one dislike to post or comment. Unique indexes make duplicate check an index probe.
+
+use `portal-spolecznosciowy`;
+
+-- Remove duplicated reactions, keep the oldest one
+delete l1 from likes l1 join likes l2 on l1.post_like_id = l2.post_like_id and l1.user_id = l2.user_id and l1.id > l2.id;
+delete l1 from likes l1 join likes l2 on l1.comment_like_id = l2.comment_like_id and l1.user_id = l2.user_id and l1.id > l2.id;
+delete d1 from dislikes d1 join dislikes d2 on d1.post_dislike_id = d2.post_dislike_id and d1.user_id = d2.user_id and d1.id > d2.id;
+delete d1 from dislikes d1 join dislikes d2 on d1.comment_dislike_id = d2.comment_dislike_id and d1.user_id = d2.user_id and d1.id > d2.id;
+
+create unique index uk_likes_post_like_id_user_id on likes (post_like_id, user_id);
+create unique index uk_likes_comment_like_id_user_id on likes (comment_like_id, user_id);
+create unique index uk_dislikes_post_dislike_id_user_id on dislikes (post_dislike_id, user_id);
+create unique index uk_dislikes_comment_dislike_id_user_id on dislikes (comment_dislike_id, user_id);
+
+-- Counters included removed duplicates
+update posts p set
+    p.like_count = (select count(*) from likes l where l.post_like_id = p.id),
+    p.dislike_count = (select count(*) from dislikes d where d.post_dislike_id = p.id);
+
+update comments c set
+    c.like_count = (select count(*) from likes l where l.comment_like_id = c.id),
+    c.dislike_count = (select count(*) from dislikes d where d.comment_dislike_id = c.id);
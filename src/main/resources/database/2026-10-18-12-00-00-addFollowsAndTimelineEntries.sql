@@ -0,0 +1,25 @@
+-- Users follow other users. New posts are pushed to home timelines of followers (fan-out on write), at most
+-- 'timeline.buffer-size' newest posts are kept for every user.
+
+use `portal-spolecznosciowy`;
+
+create table follows (
+    id int not null auto_increment,
+    follower_id int,
+    followed_id int,
+    created datetime(6),
+    primary key (id),
+    constraint uk_follows_follower_id_followed_id unique (follower_id, followed_id)
+);
+
+-- followers of author are read in chunks when post is pushed
+create index idx_follows_followed_id_follower_id on follows (followed_id, follower_id);
+
+create table timeline_entries (
+    id int not null auto_increment,
+    user_id int,
+    post_id int,
+    author_id int,
+    primary key (id),
+    constraint uk_timeline_entries_user_id_post_id unique (user_id, post_id)
+);
@@ -0,0 +1,20 @@
+-- Follows and timeline entries reference users and posts. Entries are copies of follows and posts,
+-- so they are deleted together with user or post.
+
+use `portal-spolecznosciowy`;
+
+-- Remove rows of users and posts deleted before foreign keys existed
+delete f from follows f left join users u on f.follower_id = u.id where u.id is null;
+delete f from follows f left join users u on f.followed_id = u.id where u.id is null;
+delete t from timeline_entries t left join users u on t.user_id = u.id where u.id is null;
+delete t from timeline_entries t left join users u on t.author_id = u.id where u.id is null;
+delete t from timeline_entries t left join posts p on t.post_id = p.id where p.id is null;
+
+alter table follows
+    add constraint fk_follows_follower_id foreign key (follower_id) references users (id) on delete cascade,
+    add constraint fk_follows_followed_id foreign key (followed_id) references users (id) on delete cascade;
+
+alter table timeline_entries
+    add constraint fk_timeline_entries_user_id foreign key (user_id) references users (id) on delete cascade,
+    add constraint fk_timeline_entries_author_id foreign key (author_id) references users (id) on delete cascade,
+    add constraint fk_timeline_entries_post_id foreign key (post_id) references posts (id) on delete cascade;
@@ -0,0 +1,22 @@
+-- Likes and dislikes reference posts, comments and users. Reaction written later by ReactionWriteBehindQueue
+-- to post, comment or user deleted meanwhile is rejected instead of being inserted as orphan row.
+
+use `portal-spolecznosciowy`;
+
+-- Remove reactions of posts, comments and users deleted before foreign keys existed
+delete l from likes l left join posts p on l.post_like_id = p.id where l.post_like_id is not null and p.id is null;
+delete l from likes l left join comments c on l.comment_like_id = c.id where l.comment_like_id is not null and c.id is null;
+delete l from likes l left join users u on l.user_id = u.id where u.id is null;
+delete d from dislikes d left join posts p on d.post_dislike_id = p.id where d.post_dislike_id is not null and p.id is null;
+delete d from dislikes d left join comments c on d.comment_dislike_id = c.id where d.comment_dislike_id is not null and c.id is null;
+delete d from dislikes d left join users u on d.user_id = u.id where u.id is null;
+
+alter table likes
+    add constraint fk_likes_post_like_id foreign key (post_like_id) references posts (id) on delete cascade,
+    add constraint fk_likes_comment_like_id foreign key (comment_like_id) references comments (id) on delete cascade,
+    add constraint fk_likes_user_id foreign key (user_id) references users (id) on delete cascade;
+
+alter table dislikes
+    add constraint fk_dislikes_post_dislike_id foreign key (post_dislike_id) references posts (id) on delete cascade,
+    add constraint fk_dislikes_comment_dislike_id foreign key (comment_dislike_id) references comments (id) on delete cascade,
+    add constraint fk_dislikes_user_id foreign key (user_id) references users (id) on delete cascade;
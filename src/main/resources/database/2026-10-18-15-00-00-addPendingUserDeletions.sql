@@ -0,0 +1,9 @@
+-- Users deleted in background in chunks. Deletion interrupted by shutdown is started again with the next start.
+
+use `portal-spolecznosciowy`;
+
+create table pending_user_deletions (
+    user_id int not null,
+    started datetime(6),
+    primary key (user_id)
+);
@@ -0,0 +1,100 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serwisspolecznosciowy.Application.dto.LikeDto;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionSummaryDto;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheEntryWeigherTest {
+
+    private final CacheEntryWeigher cacheEntryWeigher = new CacheEntryWeigher();
+
+    private final TestData testData = new TestData();
+
+    @Test
+    void weighPostDtoListGrowsWithNumberOfLikes() {
+        //given
+        List<PostDto> postDtoListWithoutLikes = testData.preparedPostDtoWithAuthorList();
+        List<PostDto> postDtoListWithLikes = testData.preparedPostDtoWithAuthorList();
+        postDtoListWithLikes.get(0).setLikeDtoList(preparedLikeDtoList(1000));
+
+        //when
+        int weightWithoutLikes = cacheEntryWeigher.weigh("key", postDtoListWithoutLikes);
+        int weightWithLikes = cacheEntryWeigher.weigh("key", postDtoListWithLikes);
+
+        //then
+        assertTrue(weightWithLikes - weightWithoutLikes > 1000 * testData.preparedLikeDto().getUsername().length());
+    }
+
+    @Test
+    void weighPostSummaryDtoDoesNotGrowWithNumberOfLikes() {
+        //given
+        PostDto postDto = testData.preparedPostDto();
+        postDto.setLikeDtoList(preparedLikeDtoList(1000));
+        PostSummaryDto postSummaryDto = new PostSummaryDto(1, postDto.getBody(), postDto.getCreated(), null,
+                new ReactionSummaryDto(1000, null, List.of("username0", "username1", "username2")),
+                new ReactionSummaryDto(0, null, List.of()), postDto.getUsername(), null, 0, null);
+
+        //when
+        int postDtoWeight = cacheEntryWeigher.weigh("key", List.of(postDto));
+        int postSummaryDtoWeight = cacheEntryWeigher.weigh("key", List.of(postSummaryDto));
+
+        //then
+        assertTrue(postSummaryDtoWeight * 50 < postDtoWeight);
+    }
+
+    @Test
+    void weighSerializedPageCountsJsonAndGzippedBytes() {
+        //given
+        SerializedPage smallPage = SerializedPage.of(new byte[100]);
+        SerializedPage bigPage = SerializedPage.of(new byte[100_000]);
+
+        //when
+        int smallPageWeight = cacheEntryWeigher.weigh("key", smallPage);
+        int bigPageWeight = cacheEntryWeigher.weigh("key", bigPage);
+
+        //then
+        assertTrue(smallPageWeight > 100);
+        assertTrue(bigPageWeight > 100_000 + bigPage.getGzippedJson().length);
+    }
+
+    @Test
+    void cacheIsLimitedByEstimatedSizeOfValues() {
+        //given
+        List<PostDto> postDtoList = testData.preparedPostDtoWithAuthorList();
+        postDtoList.get(0).setLikeDtoList(preparedLikeDtoList(1000));
+        long maxWeight = cacheEntryWeigher.weigh("page", postDtoList) * 3L;
+        Cache<Object, Object> cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(cacheEntryWeigher)
+                .executor(Runnable::run)
+                .build();
+
+        //when
+        for (int page = 0; page < 10; page++) {
+            cache.put(page, postDtoList);
+        }
+        cache.cleanUp();
+
+        //then
+        assertTrue(cache.estimatedSize() <= 3);
+    }
+
+    private List<LikeDto> preparedLikeDtoList(int numberOfLikes) {
+        List<LikeDto> likeDtoList = new ArrayList<>();
+        for (int i = 0; i < numberOfLikes; i++) {
+            likeDtoList.add(new LikeDto("username" + i));
+        }
+        return likeDtoList;
+    }
+
+}
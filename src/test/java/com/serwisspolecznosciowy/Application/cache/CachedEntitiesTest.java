@@ -0,0 +1,85 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.entity.*;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CachedEntitiesTest {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final CacheEntryWeigher cacheEntryWeigher = new CacheEntryWeigher();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        User user = new User(created, "ROLE_USER", true);
+        user.setUsername("author");
+        user.setPassword("password");
+        testEntityManager.persist(user);
+        for (int i = 0; i < 3; i++) {
+            Post post = new Post();
+            post.setBody("post " + i);
+            post.setCreated(created.plusMinutes(i));
+            post.setUser(user);
+            post.setNumberOfComments(5);
+            testEntityManager.persist(post);
+            for (int j = 0; j < 5; j++) {
+                Comment comment = testEntityManager.persist(new Comment("comment " + j + " of post " + i, created, post.getId(), user));
+                testEntityManager.persist(new Like(null, user.getId(), null, comment.getId(), user.getUsername()));
+            }
+            testEntityManager.persist(new Like(null, user.getId(), post.getId(), null, user.getUsername()));
+            testEntityManager.persist(new Dislike(null, user.getId(), post.getId(), null, user.getUsername()));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void weightOfCachedPageDoesNotChangeWhenPageIsSerialized() throws Exception {
+        //given
+        List<Post> cachedPage = CachedEntities.initializePosts(postRepository.findAllPostsWithComments(PageRequest.of(0, 10)));
+        int weightWhenCached = cacheEntryWeigher.weigh("page0", cachedPage);
+
+        //when
+        String json = objectMapper.writeValueAsString(cachedPage);
+
+        //then
+        assertEquals(weightWhenCached, cacheEntryWeigher.weigh("page0", cachedPage));
+        assertTrue(weightWhenCached > json.length());
+    }
+
+    @Test
+    void pageWithNotInitializedCollectionIsNotWeighable() {
+        //given
+        List<Post> page = postRepository.findAllPostsWithComments(PageRequest.of(0, 10));
+
+        //when
+        int weight = cacheEntryWeigher.weigh("page0", page);
+
+        //then
+        assertEquals(Integer.MAX_VALUE, weight);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentVersionsTest {
+
+    private final ContentVersions contentVersions = new ContentVersions();
+
+    @Test
+    void postETagChangesOnlyWhenPostOrAllPostsChange() {
+        //given
+        String eTag = contentVersions.postETag(1);
+
+        //when
+        contentVersions.postChanged(2);
+
+        //then
+        assertEquals(eTag, contentVersions.postETag(1));
+        contentVersions.postChanged(1);
+        String changedETag = contentVersions.postETag(1);
+        assertNotEquals(eTag, changedETag);
+        contentVersions.allPostsChanged();
+        assertNotEquals(changedETag, contentVersions.postETag(1));
+    }
+
+    @Test
+    void eTagExpiresAfterTtl() {
+        //given
+        ReflectionTestUtils.setField(contentVersions, "ttlSeconds", 300L);
+        contentVersions.clock = () -> 900_000L;
+        String eTag = contentVersions.postETag(1);
+
+        //when
+        contentVersions.clock = () -> 900_000L + 299_999L;
+        String eTagBeforeTtl = contentVersions.postETag(1);
+        contentVersions.clock = () -> 900_000L + 300_000L;
+        String eTagAfterTtl = contentVersions.postETag(1);
+
+        //then
+        assertEquals(eTag, eTagBeforeTtl);
+        assertNotEquals(eTag, eTagAfterTtl);
+    }
+
+    @Test
+    void reloadedPageHasNewETag() {
+        //given
+        contentVersions.registerPage("AllPostsDto", "page0", List.of(1, 2));
+        String eTag = contentVersions.pageETag("AllPostsDto", "page0", false);
+
+        //when
+        contentVersions.registerPage("AllPostsDto", "page0", List.of(1, 2));
+
+        //then
+        assertNotEquals(eTag, contentVersions.pageETag("AllPostsDto", "page0", false));
+        assertNotEquals(contentVersions.pageETag("AllPostsDto", "page0", false), contentVersions.pageETag("AllPostsDto", "page0", true));
+        assertNull(contentVersions.pageETag("AllPostsDto", "page1", false));
+    }
+
+    @Test
+    void ifNoneMatchIsComparedWeakly() {
+        //given
+        String eTag = contentVersions.postETag(1);
+
+        //when
+        //then
+        assertTrue(ContentVersions.matches(eTag, eTag));
+        assertTrue(ContentVersions.matches("\"other\", W/" + eTag, eTag));
+        assertTrue(ContentVersions.matches("*", eTag));
+        assertFalse(ContentVersions.matches("\"other\"", eTag));
+        assertFalse(ContentVersions.matches(null, eTag));
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedCacheInvalidatorTest {
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(POSTS_WITH_COMMENTS, ALL_POSTS_DTO, ALL_POSTS_DTO_JSON, ALL_COMMENTS, ALL_COMMENTS_DTO);
+
+    @Spy
+    private ContentVersions contentVersions = new ContentVersions();
+
+    @InjectMocks
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    private Cache postsDtoCache;
+
+    private Cache commentsDtoCache;
+
+    private Cache postsDtoJsonCache;
+
+    @BeforeEach
+    void setUp() {
+        postsDtoCache = cacheManager.getCache(ALL_POSTS_DTO);
+        commentsDtoCache = cacheManager.getCache(ALL_COMMENTS_DTO);
+        postsDtoJsonCache = cacheManager.getCache(ALL_POSTS_DTO_JSON);
+        postsDtoCache.put("page0", "posts 1, 2");
+        postsDtoCache.put("page1", "posts 3, 4");
+        postsDtoJsonCache.put("page0", "[posts 1, 2]");
+        postsDtoJsonCache.put("page1", "[posts 3, 4]");
+        commentsDtoCache.put("page0", "comments 10, 11");
+        commentsDtoCache.put("page1", "comments 12, 13");
+        feedCacheInvalidator.registerPage(ALL_POSTS_DTO, "page0", List.of(1, 2));
+        feedCacheInvalidator.registerPage(ALL_POSTS_DTO, "page1", List.of(3, 4));
+        feedCacheInvalidator.registerPage(ALL_COMMENTS_DTO, "page0", List.of(10, 11));
+        feedCacheInvalidator.registerPage(ALL_COMMENTS_DTO, "page1", List.of(12, 13));
+    }
+
+    @Test
+    void evictPostChangedEvictsOnlyPagesWithPost() {
+        //when
+        feedCacheInvalidator.evictPostChanged(3);
+        //then
+        assertNotNull(postsDtoCache.get("page0"));
+        assertNull(postsDtoCache.get("page1"));
+        assertNotNull(commentsDtoCache.get("page0"));
+        assertNotNull(commentsDtoCache.get("page1"));
+    }
+
+    @Test
+    void evictPostAddedOrDeletedClearsAllPostPages() {
+        //when
+        feedCacheInvalidator.evictPostAddedOrDeleted();
+        //then
+        assertNull(postsDtoCache.get("page0"));
+        assertNull(postsDtoCache.get("page1"));
+        assertNotNull(commentsDtoCache.get("page0"));
+    }
+
+    @Test
+    void serializedPagesAreEvictedTogetherWithDtoPages() {
+        //when
+        feedCacheInvalidator.evictPostChanged(3);
+        //then
+        assertNotNull(postsDtoJsonCache.get("page0"));
+        assertNull(postsDtoJsonCache.get("page1"));
+
+        //when
+        feedCacheInvalidator.evictPostAddedOrDeleted();
+        //then
+        assertNull(postsDtoJsonCache.get("page0"));
+    }
+
+    @Test
+    void evictCommentChangedEvictsPagesWithCommentAndItsPost() {
+        //when
+        feedCacheInvalidator.evictCommentChanged(11, 4);
+        //then
+        assertNull(commentsDtoCache.get("page0"));
+        assertNotNull(commentsDtoCache.get("page1"));
+        assertNotNull(postsDtoCache.get("page0"));
+        assertNull(postsDtoCache.get("page1"));
+    }
+
+    @Test
+    void evictCommentAddedOrDeletedClearsAllCommentPagesAndPagesWithPost() {
+        //when
+        feedCacheInvalidator.evictCommentAddedOrDeleted(1);
+        //then
+        assertNull(commentsDtoCache.get("page0"));
+        assertNull(commentsDtoCache.get("page1"));
+        assertNull(postsDtoCache.get("page0"));
+        assertNotNull(postsDtoCache.get("page1"));
+    }
+
+    @Test
+    void changeOfPostChangesETagOnlyOfPagesWithPost() {
+        //given
+        String page0ETag = contentVersions.pageETag(ALL_POSTS_DTO, "page0", false);
+        String page1ETag = contentVersions.pageETag(ALL_POSTS_DTO, "page1", false);
+        //when
+        feedCacheInvalidator.evictCommentChanged(11, 4);
+        //then
+        assertEquals(page0ETag, contentVersions.pageETag(ALL_POSTS_DTO, "page0", false));
+        assertNotEquals(page1ETag, contentVersions.pageETag(ALL_POSTS_DTO, "page1", false));
+
+        //when
+        feedCacheInvalidator.evictPostAddedOrDeleted();
+        //then
+        assertNull(contentVersions.pageETag(ALL_POSTS_DTO, "page0", false));
+    }
+
+    @Test
+    void pagesAreEvictedAfterCommit() {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            feedCacheInvalidator.evictPostChanged(3);
+            feedCacheInvalidator.evictCommentAddedOrDeleted(1);
+            //then
+            assertNotNull(postsDtoCache.get("page1"));
+            assertNotNull(commentsDtoCache.get("page0"));
+
+            //when
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            //then
+            assertNull(postsDtoCache.get("page1"));
+            assertNull(postsDtoCache.get("page0"));
+            assertNull(commentsDtoCache.get("page0"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void pageLoadedWhilePostChangedIsNotKeptInCache() {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache(ALL_POSTS_SUMMARY_DTO));
+        FeedCacheInvalidator invalidator = invalidatorOf(cache);
+
+        //when
+        cache.get("page0", () -> {
+            invalidator.registerPage(ALL_POSTS_SUMMARY_DTO, "page0", List.of(1, 2));
+            /* page is not registered yet, post 2 was changed after it was read from database */
+            invalidator.evictPostChanged(2);
+            return "posts 1, 2";
+        });
+
+        //then
+        assertNull(cache.get("page0"));
+        assertNull(contentVersions.pageETag(ALL_POSTS_SUMMARY_DTO, "page0", false));
+        assertTrue(pageKeysByIdForCache(invalidator).get(ALL_POSTS_SUMMARY_DTO).isEmpty());
+    }
+
+    @Test
+    void pageLoadedWhileOtherPostIsLikedIsKeptInCache() {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache(ALL_POSTS_SUMMARY_DTO));
+        FeedCacheInvalidator invalidator = invalidatorOf(cache);
+
+        //when
+        cache.get("page0", () -> {
+            invalidator.registerPage(ALL_POSTS_SUMMARY_DTO, "page0", List.of(1, 2));
+            /* like of post 5 which is on no cached page */
+            invalidator.evictPostChanged(5);
+            return "posts 1, 2";
+        });
+
+        //then
+        assertEquals("posts 1, 2", cache.get("page0").get());
+        assertNotNull(contentVersions.pageETag(ALL_POSTS_SUMMARY_DTO, "page0", false));
+        assertEquals(Map.of(1, Set.of("page0"), 2, Set.of("page0")), pageKeysByIdForCache(invalidator).get(ALL_POSTS_SUMMARY_DTO));
+    }
+
+    @Test
+    void pageRemovedByCacheIsForgotten() {
+        //given
+        EvictionNotifier evictionNotifier = new EvictionNotifier();
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache(ALL_POSTS_SUMMARY_DTO), evictionNotifier);
+        FeedCacheInvalidator invalidator = invalidatorOf(cache);
+        cache.get("page0", () -> {
+            invalidator.registerPage(ALL_POSTS_SUMMARY_DTO, "page0", List.of(1, 2));
+            return "posts 1, 2";
+        });
+        cache.get("page1", () -> {
+            invalidator.registerPage(ALL_POSTS_SUMMARY_DTO, "page1", List.of(2, 3));
+            return "posts 2, 3";
+        });
+
+        //when
+        evictionNotifier.evicted("page0");
+
+        //then
+        assertEquals(Map.of(2, Set.of("page1"), 3, Set.of("page1")), pageKeysByIdForCache(invalidator).get(ALL_POSTS_SUMMARY_DTO));
+        assertNull(contentVersions.pageETag(ALL_POSTS_SUMMARY_DTO, "page0", false));
+        assertNotNull(contentVersions.pageETag(ALL_POSTS_SUMMARY_DTO, "page1", false));
+    }
+
+    private FeedCacheInvalidator invalidatorOf(SingleFlightCache cache) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(cache));
+        cacheManager.afterPropertiesSet();
+        FeedCacheInvalidator invalidator = new FeedCacheInvalidator();
+        ReflectionTestUtils.setField(invalidator, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(invalidator, "contentVersions", contentVersions);
+        invalidator.forgetPagesEvictedByCache();
+        return invalidator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<Integer, Set<Object>>> pageKeysByIdForCache(FeedCacheInvalidator invalidator) {
+        return (Map<String, Map<Integer, Set<Object>>>) ReflectionTestUtils.getField(invalidator, "pageKeysByIdForCache");
+    }
+
+}
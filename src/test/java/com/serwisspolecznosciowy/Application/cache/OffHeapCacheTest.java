@@ -0,0 +1,74 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final TestData testData = new TestData();
+
+    @Test
+    void pageOfDtoIsReadBackFromOffHeap() {
+        //given
+        ValueCodec codec = ValueCodec.json(objectMapper, objectMapper.getTypeFactory().constructCollectionType(List.class, PostDto.class));
+        OffHeapCache cache = new OffHeapCache("AllPostsDto", new OffHeapStore(1024 * 1024, 64 * 1024, 300, 0.1), codec);
+        List<PostDto> page = List.of(testData.preparedPostDto());
+
+        //when
+        List<?> result = cache.get("page 0", () -> page);
+
+        //then
+        assertSame(page, result);
+        assertEquals(page, cache.get("page 0", List.class));
+        assertNotSame(page, cache.get("page 0", List.class));
+        assertEquals(1, cache.getNativeCache().getEntries());
+    }
+
+    @Test
+    void serializedPageIsReadBackFromOffHeap() {
+        //given
+        OffHeapCache cache = new OffHeapCache("AllPostsDtoJson", new OffHeapStore(1024 * 1024, 64 * 1024, 300, 0.1),
+                ValueCodec.serializedPage());
+        SerializedPage smallPage = SerializedPage.of("[]".getBytes());
+        SerializedPage bigPage = SerializedPage.of(new byte[SerializedPage.MIN_GZIP_SIZE]);
+
+        //when
+        cache.put("small", smallPage);
+        cache.put("big", bigPage);
+
+        //then
+        SerializedPage smallResult = cache.get("small", SerializedPage.class);
+        assertArrayEquals(smallPage.getJson(), smallResult.getJson());
+        assertNull(smallResult.getGzippedJson());
+        SerializedPage bigResult = cache.get("big", SerializedPage.class);
+        assertArrayEquals(bigPage.getJson(), bigResult.getJson());
+        assertArrayEquals(bigPage.getGzippedJson(), bigResult.getGzippedJson());
+    }
+
+    @Test
+    void evictedPageIsLoadedAgain() {
+        //given
+        OffHeapCache cache = new OffHeapCache("AllPostsDtoJson", new OffHeapStore(1024 * 1024, 64 * 1024, 300, 0.1),
+                ValueCodec.serializedPage());
+        cache.put("page 0", SerializedPage.of("[]".getBytes()));
+
+        //when
+        boolean evicted = cache.evictIfPresent("page 0");
+
+        //then
+        assertTrue(evicted);
+        assertNull(cache.get("page 0"));
+        assertFalse(cache.evictIfPresent("page 0"));
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTest {
+
+    private static final int SLAB_SIZE = 100;
+
+    @Test
+    void storedBytesAreReturnedAsCopy() {
+        //given
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 300, 0);
+        byte[] bytes = {1, 2, 3};
+        store.put("page 0", bytes);
+
+        //when
+        byte[] result = store.get("page 0");
+        result[0] = 9;
+
+        //then
+        assertArrayEquals(new byte[]{1, 2, 3}, store.get("page 0"));
+        assertNull(store.get("page 1"));
+        assertEquals(2, store.getHits());
+        assertEquals(1, store.getMisses());
+        assertEquals(SLAB_SIZE, store.getAllocatedBytes());
+    }
+
+    @Test
+    void expiredEntryIsNotReturned() {
+        //given
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 0, 0);
+        store.put("page 0", new byte[]{1});
+
+        //when
+        //then
+        assertNull(store.get("page 0"));
+    }
+
+    @Test
+    void expiredEntryIsRemovedWhenItIsReadAndReportedAsEvicted() {
+        //given
+        List<Object> evictedKeys = new ArrayList<>();
+        EvictionNotifier evictionNotifier = new EvictionNotifier();
+        evictionNotifier.setListener(evictedKeys::add);
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 0, 0, evictionNotifier);
+        store.put("page 0", new byte[]{1});
+
+        //when
+        byte[] result = store.get("page 0");
+
+        //then
+        assertNull(result);
+        assertEquals(List.of("page 0"), evictedKeys);
+        assertEquals(0, store.getEntries());
+        assertEquals(0, store.getLiveBytes());
+        assertEquals(1, store.getExpirations());
+    }
+
+    @Test
+    void expiredEntriesWhichAreNotReadAreRemovedBySweep() {
+        //given
+        List<Object> evictedKeys = new ArrayList<>();
+        EvictionNotifier evictionNotifier = new EvictionNotifier();
+        evictionNotifier.setListener(evictedKeys::add);
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 0, 0, evictionNotifier);
+        store.put("page 0", new byte[]{1});
+        store.put("page 1", new byte[]{2});
+
+        //when
+        int removed = store.removeExpired();
+
+        //then
+        assertEquals(2, removed);
+        assertEquals(List.of("page 0", "page 1"), evictedKeys.stream().sorted().collect(Collectors.toList()));
+        assertEquals(0, store.getEntries());
+        assertEquals(0, store.removeExpired());
+    }
+
+    @Test
+    void oldestSlabIsReusedAndAccessedEntryGetsSecondChance() {
+        //given
+        OffHeapStore store = new OffHeapStore(2 * SLAB_SIZE, SLAB_SIZE, 300, 0);
+        store.put("page 0", new byte[60]);
+        store.put("page 1", new byte[30]);
+        store.put("page 2", new byte[60]);
+        store.get("page 0");
+
+        //when
+        store.put("page 3", new byte[60]);
+
+        //then
+        assertNotNull(store.get("page 0"));
+        assertNull(store.get("page 1"));
+        assertNull(store.get("page 2"));
+        assertNotNull(store.get("page 3"));
+        assertEquals(2, store.getEvictions());
+        assertEquals(2 * SLAB_SIZE, store.getAllocatedBytes());
+    }
+
+    @Test
+    void slabWithoutLiveEntriesIsReleased() {
+        //given
+        OffHeapStore store = new OffHeapStore(2 * SLAB_SIZE, SLAB_SIZE, 300, 0);
+        store.put("page 0", new byte[60]);
+        store.put("page 1", new byte[60]);
+        store.evict("page 0");
+
+        //when
+        store.put("page 2", new byte[60]);
+
+        //then
+        assertNotNull(store.get("page 1"));
+        assertNotNull(store.get("page 2"));
+        assertEquals(0, store.getEvictions());
+        assertEquals(2 * SLAB_SIZE, store.getAllocatedBytes());
+    }
+
+    @Test
+    void evictedBytesAreReportedAsFragmentation() {
+        //given
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 300, 0);
+        store.put("page 0", new byte[50]);
+        store.put("page 1", new byte[50]);
+
+        //when
+        store.evict("page 0");
+
+        //then
+        assertEquals(50, store.getLiveBytes());
+        assertEquals(0.5, store.getFragmentation(), 0.001);
+        store.clear();
+        assertEquals(0, store.getEntries());
+        assertEquals(0, store.getFragmentation());
+    }
+
+    @Test
+    void valueBiggerThanSlabIsRejected() {
+        //given
+        OffHeapStore store = new OffHeapStore(10 * SLAB_SIZE, SLAB_SIZE, 300, 0);
+        store.put("page 0", new byte[10]);
+
+        //when
+        boolean stored = store.put("page 0", new byte[SLAB_SIZE + 1]);
+
+        //then
+        assertFalse(stored);
+        assertNull(store.get("page 0"));
+        assertEquals(1, store.getRejected());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
+import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactionBitmapCacheTest {
+
+    private static final int MIN_REACTIONS = 100;
+
+    @InjectMocks
+    private ReactionBitmapCache reactionBitmapCache;
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private DislikeRepository dislikeRepository;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reactionBitmapCache, "enabled", true);
+        ReflectionTestUtils.setField(reactionBitmapCache, "minReactions", MIN_REACTIONS);
+        ReflectionTestUtils.setField(reactionBitmapCache, "maxWeightInMegabytes", 1L);
+        reactionBitmapCache.buildCaches();
+    }
+
+    @Test
+    void postWithFewReactionsIsNotTracked() {
+        //given
+        //when
+        Optional<Boolean> liked = reactionBitmapCache.hasLikedPost(1, 7, MIN_REACTIONS - 1);
+
+        //then
+        assertTrue(liked.isEmpty());
+        verifyNoInteractions(likeRepository);
+    }
+
+    @Test
+    void hotPostIsLoadedOnceAndAnswersFromMemory() {
+        //given
+        when(likeRepository.findUserIdsByPostLikeId(1)).thenReturn(List.of(7, 8, 1_000_000));
+
+        //when
+        Optional<Boolean> likedByReactor = reactionBitmapCache.hasLikedPost(1, 1_000_000, MIN_REACTIONS);
+        Optional<Boolean> likedByOtherUser = reactionBitmapCache.hasLikedPost(1, 9, MIN_REACTIONS);
+
+        //then
+        assertEquals(Optional.of(true), likedByReactor);
+        assertEquals(Optional.of(false), likedByOtherUser);
+        verify(likeRepository, times(1)).findUserIdsByPostLikeId(1);
+    }
+
+    @Test
+    void newReactionIsAddedToLoadedBitmap() {
+        //given
+        when(dislikeRepository.findUserIdsByPostDislikeId(1)).thenReturn(List.of(7));
+        reactionBitmapCache.hasDislikedPost(1, 9, MIN_REACTIONS);
+
+        //when
+        reactionBitmapCache.addPostDislike(1, 9);
+
+        //then
+        assertEquals(Optional.of(true), reactionBitmapCache.hasDislikedPost(1, 9, MIN_REACTIONS));
+    }
+
+    @Test
+    void disabledCacheIsNeverUsed() {
+        //given
+        ReflectionTestUtils.setField(reactionBitmapCache, "enabled", false);
+
+        //when
+        Optional<Boolean> liked = reactionBitmapCache.hasLikedPost(1, 7, 1_000_000);
+
+        //then
+        assertTrue(liked.isEmpty());
+        verifyNoInteractions(likeRepository);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.serwisspolecznosciowy.Application.dto.LikeDto;
+import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializedPageTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final TestData testData = new TestData();
+
+    @Test
+    void smallPageIsNotGzipped() {
+        //given
+        //when
+        SerializedPage serializedPage = SerializedPage.of("[]".getBytes());
+
+        //then
+        assertNull(serializedPage.getGzippedJson());
+        assertFalse(serializedPage.canBeSentGzipped("gzip"));
+    }
+
+    @Test
+    void gzippedPageHasTheSameJson() throws IOException {
+        //given
+        byte[] json = objectMapper.writeValueAsBytes(preparedPage(10, 100));
+
+        //when
+        SerializedPage serializedPage = SerializedPage.of(json);
+
+        //then
+        assertTrue(serializedPage.getGzippedJson().length < json.length / 5);
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(serializedPage.getGzippedJson())).readAllBytes());
+    }
+
+    @Test
+    void gzipIsSentOnlyWhenClientAcceptsIt() {
+        //given
+        SerializedPage serializedPage = SerializedPage.of(new byte[SerializedPage.MIN_GZIP_SIZE]);
+
+        //when
+        //then
+        assertTrue(serializedPage.canBeSentGzipped("gzip, deflate, br"));
+        assertTrue(serializedPage.canBeSentGzipped("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(serializedPage.canBeSentGzipped("gzip;q=0"));
+        assertFalse(serializedPage.canBeSentGzipped("deflate, br"));
+        assertFalse(serializedPage.canBeSentGzipped(null));
+    }
+
+    @Test
+    void serializedPageHasTheSameJsonAsCachedObjects() throws IOException {
+        //given
+        List<PostDto> cachedPage = preparedPage(10, 100);
+
+        //when
+        SerializedPage serializedPage = SerializedPage.of(objectMapper.writeValueAsBytes(cachedPage));
+
+        //then
+        assertEquals(cachedPage, objectMapper.readValue(serializedPage.getJson(), new TypeReference<List<PostDto>>() {
+        }));
+        assertArrayEquals(serializedPage.getJson(), new GZIPInputStream(new ByteArrayInputStream(serializedPage.getGzippedJson())).readAllBytes());
+    }
+
+    private List<PostDto> preparedPage(int numberOfPosts, int numberOfLikes) {
+        List<PostDto> page = new ArrayList<>();
+        for (int i = 0; i < numberOfPosts; i++) {
+            PostDto postDto = testData.preparedPostDto();
+            List<LikeDto> likeDtoList = new ArrayList<>();
+            for (int j = 0; j < numberOfLikes; j++) {
+                likeDtoList.add(new LikeDto("username" + j));
+            }
+            postDto.setLikeDtoList(likeDtoList);
+            page.add(postDto);
+        }
+        return page;
+    }
+
+}
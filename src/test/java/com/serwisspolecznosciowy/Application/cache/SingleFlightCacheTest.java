@@ -0,0 +1,160 @@
+package com.serwisspolecznosciowy.Application.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightCacheTest {
+
+    private static final int NUMBER_OF_REQUESTS = 50;
+
+    private final TestData testData = new TestData();
+
+    @Test
+    void parallelMissesForTheSameKeyRunOneQuery() throws Exception {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new CaffeineCache("AllPostsDto", Caffeine.newBuilder().build()));
+        PostRepository postRepository = mock(PostRepository.class);
+        Pageable pageable = PageRequest.of(0, 10);
+        List<Post> expectedPostList = testData.preparedPostsList();
+        when(postRepository.findAllPostsWithComments(pageable)).thenAnswer(invocation -> {
+            /* hold the query until every other request is waiting for it */
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getSavedLoads() < NUMBER_OF_REQUESTS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            return expectedPostList;
+        });
+        ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_REQUESTS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<List<Post>>> results = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < NUMBER_OF_REQUESTS; i++) {
+            results.add(executorService.submit(() -> {
+                startLatch.await();
+                return cache.get("page0", () -> postRepository.findAllPostsWithComments(pageable));
+            }));
+        }
+        startLatch.countDown();
+        for (Future<List<Post>> result : results) {
+            assertEquals(expectedPostList, result.get(10, TimeUnit.SECONDS));
+        }
+        executorService.shutdown();
+
+        //then
+        verify(postRepository, times(1)).findAllPostsWithComments(pageable);
+        assertEquals(1, cache.getLoads());
+        assertEquals(NUMBER_OF_REQUESTS - 1, cache.getSavedLoads());
+        assertNotNull(cache.get("page0"));
+    }
+
+    @Test
+    void failedLoadIsPropagatedAndNotCached() {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new CaffeineCache("AllPostsDto", Caffeine.newBuilder().build()));
+
+        //when
+        //then
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("page0", () -> {
+            throw new IllegalStateException("database is down");
+        }));
+        assertNull(cache.get("page0"));
+    }
+
+    @Test
+    void pageEvictedWhileItIsLoadedIsReturnedButNotCached() {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new CaffeineCache("AllPostsDto", Caffeine.newBuilder().build()));
+
+        //when
+        String page = cache.get("page0", () -> {
+            /* post on the page changed after the page was read from database */
+            cache.evict("page0");
+            return "old posts";
+        });
+
+        //then
+        assertEquals("old posts", page);
+        assertNull(cache.get("page0"));
+    }
+
+    @Test
+    void pageIsNotCachedOnlyWhenItsOwnIdChangedWhileItIsLoaded() throws Exception {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new CaffeineCache("AllPostsDto", Caffeine.newBuilder().build()));
+        CountDownLatch pagesRead = new CountDownLatch(2);
+        CountDownLatch postChanged = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        //when
+        Future<String> page0 = executorService.submit(() -> cache.get("page0", () -> loadPage(List.of(1, 2), pagesRead, postChanged)));
+        Future<String> page1 = executorService.submit(() -> cache.get("page1", () -> loadPage(List.of(3, 4), pagesRead, postChanged)));
+        assertTrue(pagesRead.await(10, TimeUnit.SECONDS));
+        cache.invalidateLoadsWithId(3);
+        postChanged.countDown();
+        page0.get(10, TimeUnit.SECONDS);
+        page1.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        //then
+        assertEquals("posts [1, 2]", cache.get("page0").get());
+        assertNull(cache.get("page1"));
+    }
+
+    private static String loadPage(List<Integer> ids, CountDownLatch pagesRead, CountDownLatch postChanged) throws InterruptedException {
+        SingleFlightCache.loadedIds(ids);
+        pagesRead.countDown();
+        postChanged.await(10, TimeUnit.SECONDS);
+        return "posts " + ids;
+    }
+
+    @Test
+    void actionsOfLoaderRunAfterValueIsStored() {
+        //given
+        SingleFlightCache cache = new SingleFlightCache(new CaffeineCache("AllPostsDto", Caffeine.newBuilder().build()));
+        List<Object> storedWhenActionRun = new ArrayList<>();
+
+        //when
+        cache.get("page0", () -> {
+            SingleFlightCache.afterStore(() -> storedWhenActionRun.add(cache.get("page0").get()));
+            return "posts";
+        });
+        SingleFlightCache.afterStore(() -> storedWhenActionRun.add("outside of loader"));
+
+        //then
+        assertEquals(List.of("posts", "outside of loader"), storedWhenActionRun);
+    }
+
+    @Test
+    void valueRemovedByCacheBeforeItsActionsRunIsReportedAgain() {
+        //given
+        EvictionNotifier evictionNotifier = new EvictionNotifier();
+        List<Object> evictedKeys = new ArrayList<>();
+        evictionNotifier.setListener(evictedKeys::add);
+        /* value is bigger than off-heap slab, so it is removed at once */
+        OffHeapStore store = new OffHeapStore(1024, 16, 300, 0, evictionNotifier);
+        SingleFlightCache cache = new SingleFlightCache(new OffHeapCache("AllPostsDtoJson", store, ValueCodec.serializedPage()), evictionNotifier);
+
+        //when
+        cache.get("page0", () -> SerializedPage.of(new byte[64]));
+
+        //then
+        assertNull(cache.get("page0"));
+        assertEquals(List.of("page0", "page0"), evictedKeys);
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.serwisspolecznosciowy.Application.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheConfigTest {
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    @Test
+    void offHeapCachesFittingIntoDirectMemoryAreNotShrunk() {
+        //given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.AllPostsDto.off-heap-mb", "64")
+                .withProperty("cache.AllCommentsDto.off-heap-mb", "32");
+
+        //when
+        double result = CacheConfig.offHeapScale(environment, 256 * BYTES_IN_MEGABYTE);
+
+        //then
+        assertEquals(1, result);
+    }
+
+    @Test
+    void offHeapCachesBiggerThanDirectMemoryPartAreShrunkProportionally() {
+        //given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.AllPostsDto.off-heap-mb", "64")
+                .withProperty("cache.AllCommentsDto.off-heap-mb", "64")
+                .withProperty("cache.off-heap.max-direct-memory-part", "0.5");
+
+        //when
+        double result = CacheConfig.offHeapScale(environment, 128 * BYTES_IN_MEGABYTE);
+
+        //then
+        assertEquals(0.5, result);
+    }
+
+}
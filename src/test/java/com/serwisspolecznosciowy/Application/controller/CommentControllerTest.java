@@ -2,11 +2,13 @@ package com.serwisspolecznosciowy.Application.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.cache.ContentVersions;
 import com.serwisspolecznosciowy.Application.dto.*;
 import com.serwisspolecznosciowy.Application.entity.*;
 import com.serwisspolecznosciowy.Application.exception.*;
 import com.serwisspolecznosciowy.Application.service.CommentService;
 import com.serwisspolecznosciowy.Application.service.PostService;
+import com.serwisspolecznosciowy.Application.service.ReactionService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import com.serwisspolecznosciowy.Application.testData.TestData;
 import org.junit.jupiter.api.Test;
@@ -15,6 +17,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -46,6 +49,9 @@ class CommentControllerTest {
     @MockBean
     UserService userService;
 
+    @MockBean
+    ReactionService reactionService;
+
     @Autowired
     private WebApplicationContext context;
 
@@ -55,6 +61,9 @@ class CommentControllerTest {
     @Autowired
     private TestData testData;
 
+    @Autowired
+    private ContentVersions contentVersions;
+
     @Test
     void addNewCommentByPostId() throws Exception, PostNotFoundException {
         //Given
@@ -206,7 +215,7 @@ class CommentControllerTest {
     }
 
     @Test
-    void deleteCommentByIdAndPostId() throws CommentNotFoundException, Exception, UserForbiddenAccessException {
+    void deleteCommentByIdAndPostId() throws CommentNotFoundException, Exception, UserForbiddenAccessException, PostNotFoundException {
         //Given
         Integer commentId = testData.preparedComment().getId();
         Integer postId = testData.preparedPost().getId();
@@ -220,7 +229,7 @@ class CommentControllerTest {
     }
 
     @Test
-    void deleteCommentByIdAndPostIdWithCommentNotFoundException() throws CommentNotFoundException, Exception, UserForbiddenAccessException {
+    void deleteCommentByIdAndPostIdWithCommentNotFoundException() throws CommentNotFoundException, Exception, UserForbiddenAccessException, PostNotFoundException {
         //Given
         Integer incorrectCommentId = 9999;
         Integer postId = testData.preparedPost().getId();
@@ -234,11 +243,11 @@ class CommentControllerTest {
     }
 
     @Test
-    void deleteCommentByIdAndPostIdWithPostNotFoundException() throws PostNotFoundException, Exception {
+    void deleteCommentByIdAndPostIdWithPostNotFoundException() throws PostNotFoundException, Exception, CommentNotFoundException, UserForbiddenAccessException {
         //Given
         Integer commentId = testData.preparedComment().getId();
         Integer incorrectPostId = 9999;
-        doThrow(PostNotFoundException.class).when(postService).subtractOneCommentForNumberOfCommentForPostByPostId(incorrectPostId);
+        doThrow(PostNotFoundException.class).when(commentService).deleteCommentById(commentId);
         //When
         //Then
         mockMvc.perform(delete("/comment/delete/{commentId}/{postId}", commentId, incorrectPostId))
@@ -249,7 +258,7 @@ class CommentControllerTest {
 
     @WithMockUser(username = "test123!A", password = "test123!A", roles = {"USER"})
     @Test
-    void deleteCommentByIdAndPostIdWithUserNotAuthorizedException() throws CommentNotFoundException, Exception, UserForbiddenAccessException {
+    void deleteCommentByIdAndPostIdWithUserNotAuthorizedException() throws CommentNotFoundException, Exception, UserForbiddenAccessException, PostNotFoundException {
         //Given
         Integer commentId = testData.preparedComment().getId();
         Integer postId = testData.preparedPost().getId();
@@ -267,7 +276,7 @@ class CommentControllerTest {
         //Given
         String body = testData.preparedComment().getBody();
         List<Comment> expectedCommentList = testData.preparedCommentList();
-        when(commentService.getCommentsByBody(body)).thenReturn(expectedCommentList);
+        when(commentService.getCommentsByBody(body, 0, 10)).thenReturn(expectedCommentList);
         //When
         //Then
         MvcResult mvcResult = mockMvc.perform(get("/comment/body")
@@ -285,7 +294,7 @@ class CommentControllerTest {
     void getCommentsListByKeywordInCommentBodyWithCommentNotFoundException() throws CommentNotFoundException, Exception {
         //Given
         String body = "wrong body";
-        when(commentService.getCommentsByBody(body)).thenThrow(CommentNotFoundException.class);
+        when(commentService.getCommentsByBody(body, 0, 10)).thenThrow(CommentNotFoundException.class);
         //When
         //Then
         MvcResult mvcResult = mockMvc.perform(get("/comment/body")
@@ -300,7 +309,7 @@ class CommentControllerTest {
         //Given
         String body = testData.preparedComment().getBody();
         List<CommentDto> expectedCommentDtoList = testData.preparedCommentDtoList();
-        when(commentService.getCommentsDtoByBody(body)).thenReturn(expectedCommentDtoList);
+        when(commentService.getCommentsDtoByBody(body, 0, 10)).thenReturn(expectedCommentDtoList);
         //When
         //Then
         MvcResult mvcResult = mockMvc.perform(get("/comment/body/dto")
@@ -318,7 +327,7 @@ class CommentControllerTest {
     void getCommentsDtoListByKeywordInCommentBodyWithCommentNotFoundException() throws CommentNotFoundException, Exception {
         //Given
         String body = "wrong body";
-        when(commentService.getCommentsDtoByBody(body)).thenThrow(CommentNotFoundException.class);
+        when(commentService.getCommentsDtoByBody(body, 0, 10)).thenThrow(CommentNotFoundException.class);
         //When
         //Then
         MvcResult mvcResult = mockMvc.perform(get("/comment/body/dto")
@@ -532,6 +541,27 @@ class CommentControllerTest {
         assertEquals(expectedCommentDtoWithAuthorsList.get(0).getUser().getUsername(), actualCommentDtoWithAuthorsList.get(0).getUser().getUsername());
     }
 
+    @Test
+    void getCommentDtoListByPostIdReturnsNotModifiedUntilCommentOfPostChanges() throws PostNotFoundException, Exception {
+        //Given
+        Integer postId = testData.preparedPost().getId();
+        when(commentService.getCommentsDtoListByPostId(postId)).thenReturn(testData.preparedCommentDtoList());
+        String eTag = mockMvc.perform(get("/comment/all/dto/{postId}", postId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        //When
+        //Then
+        mockMvc.perform(get("/comment/all/dto/{postId}", postId)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+        contentVersions.postChanged(postId);
+        mockMvc.perform(get("/comment/all/dto/{postId}", postId)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(commentService, times(2)).getCommentsDtoListByPostId(postId);
+    }
+
     @Test
     void getCommentDtoListByPostIdWithPostNotFoundException() throws PostNotFoundException, Exception {
         //Given
@@ -546,4 +576,49 @@ class CommentControllerTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    void getNumberOfLikesByCommentId() throws CommentNotFoundException, Exception {
+        //Given
+        Integer commentId = testData.preparedComment().getId();
+        Integer expectedNumberOfLikes = 5;
+        when(commentService.getNumberOfLikesByCommentId(commentId)).thenReturn(expectedNumberOfLikes);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/comment/likes/dto/{commentId}", commentId))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andReturn();
+        //Then
+        Integer actualNumberOfLikes = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), Integer.class);
+        assertEquals(expectedNumberOfLikes, actualNumberOfLikes);
+    }
+
+    @Test
+    void getNumberOfDislikesByCommentIdWithCommentNotFoundException() throws CommentNotFoundException, Exception {
+        //Given
+        Integer incorrectCommentId = 9999;
+        when(commentService.getNumberOfDislikesByCommentId(incorrectCommentId)).thenThrow(CommentNotFoundException.class);
+        //When
+        //Then
+        mockMvc.perform(get("/comment/dislikes/dto/{commentId}", incorrectCommentId))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andReturn();
+    }
+
+    @Test
+    void getCommentLikes() throws CommentNotFoundException, Exception {
+        //Given
+        Integer commentId = testData.preparedComment().getId();
+        ReactionPageDto expectedReactionPageDto = new ReactionPageDto(List.of("first"), null);
+        when(reactionService.getCommentLikes(commentId, 5, 50)).thenReturn(expectedReactionPageDto);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/comment/{commentId}/likes", commentId).param("cursor", "5"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andReturn();
+        //Then
+        ReactionPageDto actualReactionPageDto = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), ReactionPageDto.class);
+        assertEquals(expectedReactionPageDto, actualReactionPageDto);
+    }
+}
@@ -2,16 +2,27 @@ package com.serwisspolecznosciowy.Application.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serwisspolecznosciowy.Application.cache.ContentVersions;
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.cache.SerializedPage;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
 import com.serwisspolecznosciowy.Application.dto.DislikeDto;
 import com.serwisspolecznosciowy.Application.dto.LikeDto;
 import com.serwisspolecznosciowy.Application.dto.PostBodyDto;
 import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostFeedDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryFeedDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionPageDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionSummaryDto;
 import com.serwisspolecznosciowy.Application.entity.Dislike;
 import com.serwisspolecznosciowy.Application.entity.Like;
 import com.serwisspolecznosciowy.Application.exception.*;
 import com.serwisspolecznosciowy.Application.entity.Post;
 import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.service.FeedJsonService;
 import com.serwisspolecznosciowy.Application.service.PostService;
+import com.serwisspolecznosciowy.Application.service.ReactionService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import com.serwisspolecznosciowy.Application.testData.TestData;
 import org.junit.jupiter.api.Test;
@@ -19,15 +30,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.ALL_POSTS_DTO;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -46,9 +63,17 @@ class PostControllerTest {
     @MockBean
     PostService postService;
     @MockBean
+    FeedJsonService feedJsonService;
+    @MockBean
     UserService userService;
+    @MockBean
+    ReactionService reactionService;
     @Autowired
     TestData testData;
+    @Autowired
+    ContentVersions contentVersions;
+    @Autowired
+    FeedCacheInvalidator feedCacheInvalidator;
 
     @WithMockUser
     @Test
@@ -114,7 +139,8 @@ class PostControllerTest {
         Integer pageSize = 10;
         Sort.Direction wayOfSort = Sort.Direction.ASC;
         List<PostDto> expectedPostDtoWithAuthorstList = testData.preparedPostDtoWithAuthorList();
-        when(postService.getAllPostsDto(pageNumber, pageSize, wayOfSort)).thenReturn(expectedPostDtoWithAuthorstList);
+        when(feedJsonService.getAllPostsDtoJson(pageNumber, pageSize, wayOfSort))
+                .thenReturn(SerializedPage.of(objectMapper.writeValueAsBytes(expectedPostDtoWithAuthorstList)));
         //When
         MvcResult mvcResult = mockMvc.perform(get("/post/all/dto")
                         .param("page", String.valueOf(pageNumber))
@@ -130,6 +156,161 @@ class PostControllerTest {
         assertEquals(expectedPostDtoWithAuthorstList.get(0).getUsername(), actualPostDtoList.get(0).getUsername());
     }
 
+    @Test
+    void getAllPostsDtoSendsCachedGzipWhenClientAcceptsIt() throws Exception {
+        //Given
+        List<PostDto> expectedPostDtoList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expectedPostDtoList.addAll(testData.preparedPostDtoWithAuthorList());
+        }
+        SerializedPage serializedPage = SerializedPage.of(objectMapper.writeValueAsBytes(expectedPostDtoList));
+        when(feedJsonService.getAllPostsDtoJson(0, 10, Sort.Direction.DESC)).thenReturn(serializedPage);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/all/dto")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        //Then
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray())).readAllBytes();
+        List<PostDto> actualPostDtoList = objectMapper.readValue(json, new TypeReference<List<PostDto>>() {
+        });
+        assertEquals(expectedPostDtoList, actualPostDtoList);
+        verify(postService, never()).getAllPostsDto(any(), any(), any());
+    }
+
+    @Test
+    void getAllPostsDtoReturnsNotModifiedWhenPageDidNotChange() throws Exception {
+        //Given
+        SerializedPage serializedPage = SerializedPage.of(objectMapper.writeValueAsBytes(testData.preparedPostDtoWithAuthorList()));
+        when(feedJsonService.getAllPostsDtoJson(0, 10, Sort.Direction.DESC)).thenReturn(serializedPage);
+        contentVersions.registerPage(ALL_POSTS_DTO, SimpleKeyGenerator.generateKey(0, 10, Sort.Direction.DESC), List.of(1, 2));
+        String eTag = mockMvc.perform(get("/post/all/dto"))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        //When
+        mockMvc.perform(get("/post/all/dto")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        contentVersions.postChanged(2);
+        mockMvc.perform(get("/post/all/dto")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().is(200));
+        //Then
+        verify(feedJsonService, times(2)).getAllPostsDtoJson(0, 10, Sort.Direction.DESC);
+    }
+
+    @Test
+    void getAllPostsDtoTooSmallToGzipHasPlainETagForClientAcceptingGzip() throws Exception {
+        //Given
+        SerializedPage serializedPage = SerializedPage.of(objectMapper.writeValueAsBytes(testData.preparedPostDtoWithAuthorList()));
+        when(feedJsonService.getAllPostsDtoJson(0, 10, Sort.Direction.DESC)).thenReturn(serializedPage);
+        Object pageKey = SimpleKeyGenerator.generateKey(0, 10, Sort.Direction.DESC);
+        contentVersions.registerPage(ALL_POSTS_DTO, pageKey, List.of(1, 2));
+        String plainETag = contentVersions.pageETag(ALL_POSTS_DTO, pageKey, false);
+        //When
+        String eTag = mockMvc.perform(get("/post/all/dto")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().is(200))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/post/all/dto")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, plainETag));
+        //Then
+        assertEquals(plainETag, eTag);
+        verify(feedJsonService, times(1)).getAllPostsDtoJson(0, 10, Sort.Direction.DESC);
+    }
+
+    @Test
+    void getPostsFeed() throws Exception {
+        //Given
+        Integer pageSize = 10;
+        PostFeedDto expectedPostFeedDto = new PostFeedDto(testData.preparedPostDtoWithAuthorList(), "nextCursor");
+        when(postService.getPostsFeed(null, pageSize)).thenReturn(expectedPostFeedDto);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/feed/dto"))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andReturn();
+        //Then
+        PostFeedDto actualPostFeedDto = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), PostFeedDto.class);
+        assertEquals(expectedPostFeedDto.getNextCursor(), actualPostFeedDto.getNextCursor());
+        assertEquals(expectedPostFeedDto.getPostDtoList().get(0).getBody(), actualPostFeedDto.getPostDtoList().get(0).getBody());
+    }
+
+    @Test
+    void getPostsFeedWithInvalidCursorException() throws Exception {
+        //Given
+        String invalidCursor = "not-a-cursor";
+        when(postService.getPostsFeed(invalidCursor, 10)).thenThrow(InvalidCursorException.class);
+        //When
+        mockMvc.perform(get("/post/feed/dto")
+                        .param("after", invalidCursor))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    @Test
+    void getHomeTimeline() throws Exception {
+        //Given
+        PostFeedDto expectedPostFeedDto = new PostFeedDto(testData.preparedPostDtoWithAuthorList(), "5");
+        when(postService.getHomeTimeline("9", 2)).thenReturn(expectedPostFeedDto);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/timeline/dto")
+                        .param("after", "9")
+                        .param("size", "2"))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andReturn();
+        //Then
+        PostFeedDto actualPostFeedDto = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), PostFeedDto.class);
+        assertEquals(expectedPostFeedDto.getNextCursor(), actualPostFeedDto.getNextCursor());
+        assertEquals(expectedPostFeedDto.getPostDtoList().get(0).getBody(), actualPostFeedDto.getPostDtoList().get(0).getBody());
+    }
+
+    @Test
+    void getHomeTimelineWithInvalidCursorException() throws Exception {
+        //Given
+        when(postService.getHomeTimeline("not-a-cursor", 10)).thenThrow(InvalidCursorException.class);
+        //When
+        mockMvc.perform(get("/post/timeline/dto")
+                        .param("after", "not-a-cursor"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    @Test
+    void getPostsSummaryFeedWithNewestComments() throws Exception {
+        //Given
+        User user = testData.preparedUser();
+        CommentSummaryDto commentSummaryDto = new CommentSummaryDto(10, 1, "comment", null, null,
+                new ReactionSummaryDto(0, false, List.of()), new ReactionSummaryDto(0, false, List.of()), null);
+        PostSummaryDto postSummaryDto = new PostSummaryDto(1, "body", null, null,
+                new ReactionSummaryDto(0, false, List.of()), new ReactionSummaryDto(0, false, List.of()), "author", null, 1, List.of(commentSummaryDto));
+        PostSummaryFeedDto expectedPostSummaryFeedDto = new PostSummaryFeedDto(List.of(postSummaryDto), null);
+        when(postService.getPostsSummaryFeed(null, 10, 3)).thenReturn(new PostSummaryFeedDto(List.of(postSummaryDto), null));
+        when(userService.getLoginUser()).thenReturn(user);
+        when(reactionService.markPostReactionsOfUser(List.of(postSummaryDto), user)).thenReturn(List.of(postSummaryDto));
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/feed/summary/dto")
+                        .param("comments", "3"))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andReturn();
+        //Then
+        PostSummaryFeedDto actualPostSummaryFeedDto = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), PostSummaryFeedDto.class);
+        assertEquals(expectedPostSummaryFeedDto, actualPostSummaryFeedDto);
+    }
+
     @Test
     void editPostByPostDtoByAdmin() throws Exception, PostNotFoundException, UserForbiddenAccessException {
         //Given
@@ -365,6 +546,43 @@ class PostControllerTest {
         assertEquals(expectedPostDto.getBody(), actualPostDto.getBody());
     }
 
+    @Test
+    void getPostDtoByIdReturnsNotModifiedWhenPostDidNotChange() throws PostNotFoundException, Exception {
+        //Given
+        Integer postId = testData.preparedPost().getId();
+        when(postService.findPostDtoById(postId)).thenReturn(testData.preparedPostDto());
+        String eTag = mockMvc.perform(get("/post/dto/{id}", postId))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        //When
+        mockMvc.perform(get("/post/dto/{id}", postId)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        //Then
+        verify(postService, times(1)).findPostDtoById(postId);
+    }
+
+    @Test
+    void getPostDtoByIdReturnsNotFoundAfterPostWithoutCommentsIsDeleted() throws PostNotFoundException, Exception {
+        //Given
+        Integer postId = 4242;
+        when(postService.findPostDtoById(postId)).thenReturn(testData.preparedPostDto());
+        String eTag = mockMvc.perform(get("/post/dto/{id}", postId))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        /* what PostService.deletePostById calls for post without comments */
+        feedCacheInvalidator.evictPostDeleted(postId);
+        when(postService.findPostDtoById(postId)).thenThrow(PostNotFoundException.class);
+        //When
+        //Then
+        mockMvc.perform(get("/post/dto/{id}", postId)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void getPostDtoByIdWithPostNotFoundException() throws PostNotFoundException, Exception {
         //Given
@@ -384,7 +602,7 @@ class PostControllerTest {
         postDto.setBody("test post body - java in great!");
         List<PostDto> expectedPostDtoList = testData.preparedPostDtoWithAuthorList();
         String keyword = "java";
-        when(postService.getPostDtoListByBody(keyword)).thenReturn(expectedPostDtoList);
+        when(postService.getPostDtoListByBody(keyword, 0, 10)).thenReturn(expectedPostDtoList);
         //When
         MvcResult mvcResult = mockMvc.perform(get("/post/body/dto")
                         .param("keywordInBody", keyword))
@@ -403,7 +621,7 @@ class PostControllerTest {
         //Given
         List<PostDto> expectedPostDtoList = testData.preparedPostDtoWithAuthorList();
         String keyword = "java";
-        when(postService.getPostDtoListByBody(keyword)).thenThrow(PostNotFoundException.class);
+        when(postService.getPostDtoListByBody(keyword, 0, 10)).thenThrow(PostNotFoundException.class);
         //When
         MvcResult mvcResult = mockMvc.perform(get("/post/body/dto")
                         .param("keywordInBody", keyword))
@@ -561,4 +779,54 @@ class PostControllerTest {
                 .andReturn();
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void getAllPostsSummaryDtoMarksReactionsOfLoginUser() throws Exception {
+        //Given
+        User user = testData.preparedUser();
+        List<PostSummaryDto> cachedPostSummaryDtoList = List.of(new PostSummaryDto(1, "body", null, null,
+                new ReactionSummaryDto(1, null, List.of(user.getUsername())), new ReactionSummaryDto(0, null, List.of()), "author", null, 0, null));
+        List<PostSummaryDto> expectedPostSummaryDtoList = List.of(new PostSummaryDto(1, "body", null, null,
+                new ReactionSummaryDto(1, true, List.of(user.getUsername())), new ReactionSummaryDto(0, false, List.of()), "author", null, 0, null));
+        when(postService.getAllPostsSummaryDto(0, 10, Sort.Direction.DESC)).thenReturn(cachedPostSummaryDtoList);
+        when(userService.getLoginUser()).thenReturn(user);
+        when(reactionService.markPostReactionsOfUser(cachedPostSummaryDtoList, user)).thenReturn(expectedPostSummaryDtoList);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/all/summary/dto"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andReturn();
+        //Then
+        List<PostSummaryDto> actualPostSummaryDtoList = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertEquals(expectedPostSummaryDtoList, actualPostSummaryDtoList);
+    }
+
+    @Test
+    void getPostLikes() throws Exception, PostNotFoundException {
+        //Given
+        Integer postId = testData.preparedPost().getId();
+        ReactionPageDto expectedReactionPageDto = new ReactionPageDto(List.of("first", "second"), 2);
+        when(reactionService.getPostLikes(postId, null, 2)).thenReturn(expectedReactionPageDto);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/post/{postId}/likes", postId).param("size", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andReturn();
+        //Then
+        ReactionPageDto actualReactionPageDto = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), ReactionPageDto.class);
+        assertEquals(expectedReactionPageDto, actualReactionPageDto);
+    }
+
+    @Test
+    void getPostDislikesWithPostNotFoundException() throws Exception, PostNotFoundException {
+        //Given
+        Integer incorrectPostId = 999999999;
+        when(reactionService.getPostDislikes(incorrectPostId, null, 50)).thenThrow(PostNotFoundException.class);
+        //When
+        //Then
+        mockMvc.perform(get("/post/{postId}/dislikes", incorrectPostId))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+}
@@ -3,9 +3,11 @@ package com.serwisspolecznosciowy.Application.controller;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.serwisspolecznosciowy.Application.dto.NewUserDto;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
 import com.serwisspolecznosciowy.Application.dto.UserDto;
 import com.serwisspolecznosciowy.Application.entity.User;
 import com.serwisspolecznosciowy.Application.exception.*;
+import com.serwisspolecznosciowy.Application.service.FollowService;
 import com.serwisspolecznosciowy.Application.service.UserService;
 import com.serwisspolecznosciowy.Application.testData.TestData;
 import org.junit.jupiter.api.Test;
@@ -39,6 +41,8 @@ class UserControllerTest {
     ObjectMapper objectMapper;
     @MockBean
     UserService userService;
+    @MockBean
+    FollowService followService;
     @Autowired
     TestData testData;
 
@@ -101,7 +105,7 @@ class UserControllerTest {
         User user = testData.preparedUser();
         user.setUsername("Adam MałysZ");
         List<UserDto> expectedUserDtoList = testData.preparedUsersDtoList();
-        when(userService.findUserByKeywordInUsername(keyword)).thenReturn(expectedUserDtoList);
+        when(userService.findUserByKeywordInUsername(keyword, 0, 10)).thenReturn(expectedUserDtoList);
         //When
         MvcResult mvcResult = mockMvc.perform(get("/user/all/username/dto")
                         .param("keyword", keyword))
@@ -120,7 +124,7 @@ class UserControllerTest {
     void getUserDtoListByKeywordInUsernameWithUserNotFoundException() throws Exception {
         //Given
         String keyword = "małysz";
-        when(userService.findUserByKeywordInUsername(keyword)).thenReturn(Collections.emptyList());
+        when(userService.findUserByKeywordInUsername(keyword, 0, 10)).thenReturn(Collections.emptyList());
         //When
         mockMvc.perform(get("/user/all/username/dto")
                         .param("keyword", keyword))
@@ -129,6 +133,25 @@ class UserControllerTest {
                 .andReturn();
     }
 
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void getUsernamesByPrefix() throws Exception {
+        //Given
+        String prefix = "ada";
+        List<String> expectedUsernames = List.of("adam_malysz", "adam_nowak");
+        when(userService.findUsernamesByPrefix(prefix, 10)).thenReturn(expectedUsernames);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/user/autocomplete")
+                        .param("prefix", prefix))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andReturn();
+        //Then
+        List<String> actualUsernames = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), new TypeReference<List<String>>() {
+        });
+        assertEquals(expectedUsernames, actualUsernames);
+    }
+
     @WithMockUser(username = "test12Az~!", password = "test12Az~!")
     @Test
     void addNewUser() throws Exception {
@@ -425,6 +448,52 @@ class UserControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void deleteUserByIdInBackground() throws Exception, PostNotFoundException, CommentNotFoundException {
+        //Given
+        Integer userId = testData.preparedUser().getId();
+        UserDeletionProgressDto expectedProgress = new UserDeletionProgressDto(userId, UserDeletionProgressDto.IN_PROGRESS, 5000, 0, 20000, 0, null, null);
+        when(userService.deleteUserByIdInBackground(userId)).thenReturn(expectedProgress);
+        //When
+        MvcResult mvcResult = mockMvc.perform(delete("/user/delete/dto/{userId}", userId)
+                        .param("async", "true"))
+                .andDo(print())
+                .andExpect(status().is(202))
+                .andReturn();
+        //Then
+        UserDeletionProgressDto actualProgress = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), UserDeletionProgressDto.class);
+        assertEquals(expectedProgress, actualProgress);
+        verify(userService, never()).deleteUserById(userId);
+    }
+
+    @Test
+    void getUserDeletionProgress() throws Exception {
+        //Given
+        Integer userId = testData.preparedUser().getId();
+        UserDeletionProgressDto expectedProgress = new UserDeletionProgressDto(userId, UserDeletionProgressDto.FINISHED, 5000, 5000, 20000, 20000, null, null);
+        when(userService.getUserDeletionProgress(userId)).thenReturn(expectedProgress);
+        //When
+        MvcResult mvcResult = mockMvc.perform(get("/user/delete/progress/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().is(200))
+                .andReturn();
+        //Then
+        UserDeletionProgressDto actualProgress = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), UserDeletionProgressDto.class);
+        assertEquals(expectedProgress, actualProgress);
+    }
+
+    @Test
+    void getUserDeletionProgressWithUserNotFoundException() throws Exception {
+        //Given
+        Integer userId = testData.preparedUser().getId();
+        when(userService.getUserDeletionProgress(userId)).thenThrow(UserNotFoundException.class);
+        //When
+        mockMvc.perform(get("/user/delete/progress/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().is(404))
+                .andReturn();
+    }
+
     @Test
     void deleteUserByIdWithUserNotFoundException() throws Exception, PostNotFoundException, UserForbiddenAccessException, CommentNotFoundException {
         //Given
@@ -505,4 +574,56 @@ class UserControllerTest {
                 .andReturn();
     }
 
-}
\ No newline at end of file
+    @Test
+    void followUser() throws Exception {
+        //Given
+        Integer userId = 2;
+        //When
+        mockMvc.perform(post("/user/follow/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().isNoContent())
+                .andReturn();
+        //Then
+        verify(followService).followUser(userId);
+    }
+
+    @Test
+    void followUserWithAlreadyFollowedException() throws Exception {
+        //Given
+        Integer userId = 2;
+        doThrow(new AlreadyFollowedException("User with id: 2 is already followed!")).when(followService).followUser(userId);
+        //When
+        //Then
+        mockMvc.perform(post("/user/follow/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().isConflict())
+                .andReturn();
+    }
+
+    @Test
+    void followUserWithSelfFollowException() throws Exception {
+        //Given
+        Integer userId = 1;
+        doThrow(new SelfFollowException("User can not follow himself!")).when(followService).followUser(userId);
+        //When
+        //Then
+        mockMvc.perform(post("/user/follow/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    @Test
+    void unfollowUserWithFollowNotFoundException() throws Exception {
+        //Given
+        Integer userId = 2;
+        doThrow(new FollowNotFoundException("User with id: 2 is not followed!")).when(followService).unfollowUser(userId);
+        //When
+        //Then
+        mockMvc.perform(delete("/user/follow/{userId}", userId))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andReturn();
+    }
+
+}
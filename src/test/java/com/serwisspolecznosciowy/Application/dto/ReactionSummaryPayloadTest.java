@@ -0,0 +1,52 @@
+package com.serwisspolecznosciowy.Application.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares response size of post with full lists of likes (PostDto) and with summary (PostSummaryDto),
+ * serialization time is compared by ReactionSummaryPayloadBenchmark.
+ */
+@Slf4j
+class ReactionSummaryPayloadTest {
+
+    private static final int NUMBER_OF_LIKES = 50_000;
+    private static final int NUMBER_OF_DISLIKES = 5_000;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void summaryOfViralPostIsMuchSmallerThanFullLists() throws Exception {
+        //given
+        LocalDateTime created = LocalDateTime.now();
+        List<LikeDto> likeDtoList = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_LIKES; i++) {
+            likeDtoList.add(new LikeDto("user" + i));
+        }
+        List<DislikeDto> dislikeDtoList = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DISLIKES; i++) {
+            dislikeDtoList.add(new DislikeDto("user" + i));
+        }
+        PostDto postDto = new PostDto("viral post", created, null, likeDtoList, dislikeDtoList, "author", null, 0);
+        PostSummaryDto postSummaryDto = new PostSummaryDto(1, "viral post", created, null,
+                new ReactionSummaryDto(NUMBER_OF_LIKES, true, List.of("user0", "user1", "user2")),
+                new ReactionSummaryDto(NUMBER_OF_DISLIKES, false, List.of("user0", "user1", "user2")), "author", null, 0, null);
+
+        //when
+        int postDtoBytes = objectMapper.writeValueAsBytes(postDto).length;
+        int postSummaryDtoBytes = objectMapper.writeValueAsBytes(postSummaryDto).length;
+
+        //then
+        log.info("PostDto: {} bytes. PostSummaryDto: {} bytes.", postDtoBytes, postSummaryDtoBytes);
+        assertTrue(postSummaryDtoBytes * 1000 < postDtoBytes);
+    }
+
+}
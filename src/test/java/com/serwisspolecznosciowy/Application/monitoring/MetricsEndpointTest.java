@@ -0,0 +1,102 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "management.server.port=0"
+}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+class MetricsEndpointTest {
+
+    private static final String USERNAME = "reader";
+
+    private static final String PASSWORD = "reader12!A";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername(USERNAME);
+        user.setPassword(new BCryptPasswordEncoder(12).encode(PASSWORD));
+        userRepository.save(user);
+        Post post = new Post();
+        post.setBody("post");
+        post.setCreated(LocalDateTime.now());
+        post.setUser(user);
+        post.setNumberOfComments(0);
+        postRepository.save(post);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
+    }
+
+    @Test
+    void latencyCacheJdbcAndPasswordMetricsAreScraped() throws Exception {
+        //given
+        TestRestTemplate authenticated = restTemplate.withBasicAuth(USERNAME, PASSWORD);
+        assertEquals(HttpStatus.OK, authenticated.getForEntity("/post/all/dto", String.class).getStatusCode());
+        assertEquals(HttpStatus.OK, authenticated.getForEntity("/post/all/dto", String.class).getStatusCode());
+
+        //when
+        ResponseEntity<String> response = restTemplate.getForEntity("http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+        String scrape = response.getBody();
+
+        //then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"), "latency histogram");
+        assertTrue(scrape.matches("(?s).*http_server_requests_seconds_count\\{[^}]*status=\"200\"[^}]*uri=\"/post/all/dto\"[^}]*} 2\\.0.*"),
+                "latency per endpoint and status");
+        assertTrue(scrape.matches("(?s).*cache_gets_total\\{cache=\"AllPostsDtoJson\"[^}]*result=\"hit\"[^}]*} 1\\.0.*"), "cache hits");
+        assertTrue(scrape.matches("(?s).*cache_loads_seconds_count\\{cache=\"AllPostsDto\"[^}]*} 1\\.0.*"), "cache loads");
+        assertTrue(scrape.contains("cache_off_heap_fragmentation{cache=\"AllPostsDto\""), "off-heap cache");
+        assertTrue(scrape.contains("hikaricp_connections_pending{"), "JDBC pool");
+        assertTrue(scrape.matches("(?s).*security_password_verification_seconds_count\\{[^}]*result=\"matched\"[^}]*} 1\\.0.*"),
+                "BCrypt verification of the first request only, the second one has session");
+        assertTrue(scrape.contains("sql_statements_count{"), "SQL statements");
+    }
+
+}
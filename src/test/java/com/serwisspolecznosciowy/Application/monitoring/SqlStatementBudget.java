@@ -0,0 +1,27 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc matchers which fail test when request executed more SQL statements than its budget, e.g.
+ * mockMvc.perform(get("/post/all/dto")).andExpect(SqlStatementBudget.atMost(3)).
+ * Requests need SqlStatisticsFilter (@AutoConfigureMockMvc adds it) and real DataSource.
+ */
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            SqlStatistics statistics = (SqlStatistics) result.getRequest().getAttribute(SqlStatistics.REQUEST_ATTRIBUTE);
+            assertNotNull(statistics, "SQL statistics were not collected - is SqlStatisticsFilter added to MockMvc?");
+            assertTrue(statistics.getStatements() <= statements, () -> "Request " + result.getRequest().getRequestURI()
+                    + " exceeded budget of " + statements + " SQL statements: " + statistics);
+        };
+    }
+
+}
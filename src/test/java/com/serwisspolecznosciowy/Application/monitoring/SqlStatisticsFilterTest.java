@@ -0,0 +1,150 @@
+package com.serwisspolecznosciowy.Application.monitoring;
+
+import com.serwisspolecznosciowy.Application.entity.Comment;
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.CommentRepository;
+import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlStatistics;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "sql.statistics.header-enabled=true"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "reader", roles = {"USER"})
+class SqlStatisticsFilterTest {
+
+    private static final int NUMBER_OF_POSTS = 10;
+
+    private static final int LIKES_PER_POST = 5;
+
+    private static final int COMMENTS_PER_POST = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    private Post firstPost;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < LIKES_PER_POST; i++) {
+            User user = new User(created, "ROLE_USER", true);
+            user.setUsername("user" + i);
+            user.setPassword("password");
+            users.add(userRepository.save(user));
+        }
+        for (int i = 0; i < NUMBER_OF_POSTS; i++) {
+            Post post = new Post();
+            post.setBody("post " + i);
+            post.setCreated(created.plusMinutes(i));
+            post.setUser(users.get(i % users.size()));
+            post.setNumberOfComments(COMMENTS_PER_POST);
+            post = postRepository.save(post);
+            for (User user : users) {
+                likeRepository.save(new Like(null, user.getId(), post.getId(), null, user.getUsername()));
+            }
+            for (int j = 0; j < COMMENTS_PER_POST; j++) {
+                commentRepository.save(new Comment("comment " + j, created.plusMinutes(i), post.getId(), users.get(j % users.size())));
+            }
+            if (firstPost == null) {
+                firstPost = post;
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeRepository.deleteAll();
+        commentRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
+    }
+
+    @Test
+    void pageOfPostsIsLoadedWithoutStatementPerPost() throws Exception {
+        //given
+        //when
+        MvcResult mvcResult = mockMvc.perform(get("/post/all/dto").param("size", String.valueOf(NUMBER_OF_POSTS)))
+                .andExpect(status().isOk())
+                .andExpect(SqlStatementBudget.atMost(3))
+                .andReturn();
+
+        //then
+        SqlStatistics statistics = (SqlStatistics) mvcResult.getRequest().getAttribute(SqlStatistics.REQUEST_ATTRIBUTE);
+        assertEquals(String.valueOf(statistics.getStatements()), mvcResult.getResponse().getHeader(SqlStatisticsFilter.STATEMENTS_HEADER));
+        assertTrue(statistics.getRows() >= NUMBER_OF_POSTS * LIKES_PER_POST);
+        DistributionSummary statements = meterRegistry.find("sql.statements")
+                .tags("controller", "PostController", "method", "getAllPostsDto").summary();
+        assertNotNull(statements);
+        assertEquals(statistics.getStatements(), (long) statements.max());
+    }
+
+    @Test
+    void commentsOfPostAreLoadedWithTheirAuthorsByOneStatement() throws Exception {
+        //given
+        //when
+        //then
+        mockMvc.perform(get("/comment/all/dto/{postId}", firstPost.getId()))
+                .andExpect(status().isOk())
+                .andExpect(SqlStatementBudget.atMost(1));
+    }
+
+    @Test
+    void requestOverBudgetFailsTest() {
+        //given
+        //when
+        //then
+        assertThrows(AssertionError.class, () -> mockMvc.perform(get("/post/all/dto"))
+                .andExpect(SqlStatementBudget.atMost(0)));
+    }
+
+}
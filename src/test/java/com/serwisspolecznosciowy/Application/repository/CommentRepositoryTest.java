@@ -0,0 +1,98 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.Comment;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CommentRepositoryTest {
+
+    private static final int NUMBER_OF_COMMENTS = 20;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private User user;
+
+    private Post hotPost;
+
+    private Post quietPost;
+
+    private final List<Comment> commentsOfHotPost = new ArrayList<>();
+
+    private Comment commentOfQuietPost;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        user = new User(created, "ROLE_USER", true);
+        user.setUsername("commentator");
+        user.setPassword("password");
+        testEntityManager.persist(user);
+        hotPost = persistPost(created, "hot post");
+        quietPost = persistPost(created, "quiet post");
+        for (int i = 0; i < NUMBER_OF_COMMENTS; i++) {
+            commentsOfHotPost.add(testEntityManager.persist(new Comment("comment " + i, created.plusMinutes(i), hotPost.getId(), user)));
+        }
+        commentOfQuietPost = testEntityManager.persist(new Comment("only comment", created, quietPost.getId(), user));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    private Post persistPost(LocalDateTime created, String body) {
+        Post post = new Post();
+        post.setBody(body);
+        post.setCreated(created);
+        post.setUser(user);
+        post.setNumberOfComments(0);
+        return testEntityManager.persist(post);
+    }
+
+    @Test
+    void findNewestIdsByPostIdInReturnsOnlyNewestCommentsOfEveryPost() {
+        //given
+        List<Integer> postIds = List.of(hotPost.getId(), quietPost.getId());
+
+        //when
+        List<Integer> newestIds = commentRepository.findNewestIdsByPostIdIn(postIds, 3);
+
+        //then
+        List<Integer> expectedIds = List.of(commentsOfHotPost.get(19).getId(), commentsOfHotPost.get(18).getId(),
+                commentsOfHotPost.get(17).getId(), commentOfQuietPost.getId());
+        assertEquals(expectedIds.stream().sorted().collect(Collectors.toList()), newestIds.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void findAllWithUserByIdInLoadsAuthorsWithTheSameQuery() {
+        //given
+        List<Integer> ids = List.of(commentsOfHotPost.get(0).getId(), commentsOfHotPost.get(1).getId());
+
+        //when
+        List<Comment> comments = commentRepository.findAllWithUserByIdIn(ids);
+
+        //then
+        assertEquals(List.of(commentsOfHotPost.get(1).getId(), commentsOfHotPost.get(0).getId()),
+                comments.stream().map(Comment::getId).collect(Collectors.toList()));
+        assertTrue(comments.stream().allMatch(comment -> Hibernate.isInitialized(comment.getUser())));
+    }
+
+}
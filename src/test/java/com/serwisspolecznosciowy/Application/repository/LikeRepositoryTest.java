@@ -0,0 +1,133 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class LikeRepositoryTest {
+
+    private static final int NUMBER_OF_LIKES = 20;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final List<User> users = new ArrayList<>();
+
+    private Post viralPost;
+
+    private Post quietPost;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        for (int i = 0; i < NUMBER_OF_LIKES; i++) {
+            User user = new User(created, "ROLE_USER", true);
+            user.setUsername("fan" + i);
+            user.setPassword("password");
+            users.add(testEntityManager.persist(user));
+        }
+        viralPost = persistPost(created, "viral post");
+        quietPost = persistPost(created, "quiet post");
+        for (User user : users) {
+            testEntityManager.persist(new Like(null, user.getId(), viralPost.getId(), null, user.getUsername()));
+        }
+        testEntityManager.persist(new Like(null, users.get(3).getId(), quietPost.getId(), null, users.get(3).getUsername()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    private Post persistPost(LocalDateTime created, String body) {
+        Post post = new Post();
+        post.setBody(body);
+        post.setCreated(created);
+        post.setUser(users.get(0));
+        post.setNumberOfComments(0);
+        return testEntityManager.persist(post);
+    }
+
+    @Test
+    void findFirstUsernamesByPostIdsReturnsOnlyFirstUsernamesOfEveryPost() {
+        //given
+        List<Integer> postIds = List.of(viralPost.getId(), quietPost.getId());
+
+        //when
+        List<ReactionUsername> firstUsernames = likeRepository.findFirstUsernamesByPostIds(postIds, 3);
+
+        //then
+        assertEquals(List.of("fan0", "fan1", "fan2"), usernamesOfPost(firstUsernames, viralPost.getId()));
+        assertEquals(List.of("fan3"), usernamesOfPost(firstUsernames, quietPost.getId()));
+    }
+
+    @Test
+    void findPostIdsLikedByUser() {
+        //given
+        User user = users.get(3);
+
+        //when
+        List<Integer> likedPostIds = likeRepository.findPostIdsLikedByUser(user.getId(), List.of(viralPost.getId(), quietPost.getId()));
+
+        //then
+        assertEquals(2, likedPostIds.size());
+        assertTrue(likeRepository.findPostIdsLikedByUser(users.get(5).getId(), List.of(quietPost.getId())).isEmpty());
+    }
+
+    @Test
+    void findLikesOfPostPageByPage() {
+        //given
+        List<String> usernames = new ArrayList<>();
+        Integer cursor = 0;
+
+        //when
+        List<Like> page = likeRepository.findByPostLikeIdAndIdGreaterThanOrderById(viralPost.getId(), cursor, PageRequest.of(0, 7));
+        while (!page.isEmpty()) {
+            page.forEach(like -> usernames.add(like.getUsername()));
+            cursor = page.get(page.size() - 1).getId();
+            page = likeRepository.findByPostLikeIdAndIdGreaterThanOrderById(viralPost.getId(), cursor, PageRequest.of(0, 7));
+        }
+
+        //then
+        assertEquals(users.stream().map(User::getUsername).collect(Collectors.toList()), usernames);
+    }
+
+    @Test
+    void secondLikeOfTheSameUserIsRejectedByUniqueIndex() {
+        //given
+        User user = users.get(3);
+
+        //when
+        //then
+        assertTrue(likeRepository.existsByPostLikeIdAndUserId(quietPost.getId(), user.getId()));
+        assertFalse(likeRepository.existsByPostLikeIdAndUserId(quietPost.getId(), users.get(4).getId()));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> likeRepository.saveAndFlush(new Like(null, user.getId(), quietPost.getId(), null, user.getUsername())));
+    }
+
+    private List<String> usernamesOfPost(List<ReactionUsername> reactionUsernames, Integer postId) {
+        return reactionUsernames.stream()
+                .filter(reactionUsername -> reactionUsername.getTargetId().equals(postId))
+                .map(ReactionUsername::getUsername)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.serwisspolecznosciowy.Application.repository;
+
+import com.serwisspolecznosciowy.Application.entity.Dislike;
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class PostRepositoryTest {
+
+    private static final int NUMBER_OF_POSTS = 40;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime created = LocalDateTime.now();
+        for (int i = 0; i < NUMBER_OF_POSTS; i++) {
+            User user = new User(created, "ROLE_USER", true);
+            user.setUsername("author" + i);
+            user.setPassword("password");
+            testEntityManager.persist(user);
+            Post post = new Post();
+            post.setBody("post body " + i);
+            post.setCreated(created.minusMinutes(i));
+            post.setUser(user);
+            post.setNumberOfComments(0);
+            testEntityManager.persist(post);
+            testEntityManager.persist(new Like(null, user.getId(), post.getId(), null, user.getUsername()));
+            testEntityManager.persist(new Dislike(null, user.getId(), post.getId(), null, user.getUsername()));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void loadingPageWithAuthorsLikesAndDislikesUsesConstantNumberOfStatements() {
+        //given
+        //when
+        long statementsForSmallPage = countStatementsToLoadPage(5);
+        long statementsForBigPage = countStatementsToLoadPage(NUMBER_OF_POSTS);
+
+        //then
+        /* one query for posts with authors, one batch for likes and one for dislikes */
+        assertEquals(3, statementsForSmallPage);
+        assertEquals(statementsForSmallPage, statementsForBigPage);
+    }
+
+    @Test
+    void addToLikeCountAndRepairDriftedReactionCounters() {
+        //given
+        List<Integer> postIds = postRepository.findIdsAfter(0, PageRequest.of(0, NUMBER_OF_POSTS));
+        Integer postId = postIds.get(0);
+        /* likes and dislikes of test data are inserted without counters */
+        assertEquals(NUMBER_OF_POSTS, postRepository.repairReactionCounters(postIds));
+
+        //when
+        postRepository.addToLikeCount(postId, 1);
+        List<Integer> driftedIds = postRepository.findIdsWithDriftedReactionCounters(postIds);
+        int repaired = postRepository.repairReactionCounters(driftedIds);
+
+        //then
+        assertEquals(List.of(postId), driftedIds);
+        assertEquals(1, repaired);
+        assertEquals(1, postRepository.findLikeCountById(postId).get());
+        assertEquals(1, postRepository.findDislikeCountById(postId).get());
+        assertTrue(postRepository.findIdsWithDriftedReactionCounters(postIds).isEmpty());
+    }
+
+    private long countStatementsToLoadPage(int pageSize) {
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Post> postList = postRepository.findAllPostsWithComments(PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "created")));
+        for (Post post : postList) {
+            assertNotNull(post.getUser().getUsername());
+            assertEquals(1, post.getLikeList().size());
+            assertEquals(1, post.getDislikeList().size());
+        }
+        assertEquals(pageSize, postList.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+}
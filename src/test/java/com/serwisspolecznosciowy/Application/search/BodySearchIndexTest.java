@@ -0,0 +1,151 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.entity.Comment;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.CommentRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class BodySearchIndexTest {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @TempDir
+    Path directory;
+
+    private User user;
+
+    @Test
+    void indexIsBuiltFromDatabaseWithTheFirstSearchAndSavedToSnapshot() {
+        //given
+        Post post = persistPost("Wycieczka w góry");
+        persistPost("Wycieczka nad morze");
+        Comment comment = persistComment(post, "Piękne góry!");
+        BodySearchIndex bodySearchIndex = newBodySearchIndex();
+
+        //when
+        List<Integer> postIds = bodySearchIndex.searchPostIds("gory wycieczka", 0, 10);
+        List<Integer> commentIds = bodySearchIndex.searchCommentIds("piekne", 0, 10);
+
+        //then
+        assertEquals(List.of(post.getId()), postIds);
+        assertEquals(List.of(comment.getId()), commentIds);
+        assertTrue(Files.exists(directory.resolve("body-search-index.bin")));
+    }
+
+    @Test
+    void indexReadFromSnapshotCatchesUpWithChangesMadeInDatabase() {
+        //given
+        Post deletedPost = persistPost("Stary post o górach");
+        Post editedPost = persistPost("Post o morzu");
+        BodySearchIndex firstInstance = newBodySearchIndex();
+        firstInstance.searchPostIds("post", 0, 10);
+        firstInstance.saveOnShutdown();
+
+        postRepository.delete(deletedPost);
+        editedPost.setBody("Post o jeziorach");
+        editedPost.setUpdated(LocalDateTime.now());
+        Post newPost = persistPost("Nowy post o górach");
+        testEntityManager.flush();
+
+        //when
+        BodySearchIndex secondInstance = newBodySearchIndex();
+        List<Integer> gory = secondInstance.searchPostIds("gorach", 0, 10);
+        List<Integer> jeziora = secondInstance.searchPostIds("jezior", 0, 10);
+        List<Integer> morze = secondInstance.searchPostIds("morzu", 0, 10);
+
+        //then
+        assertEquals(List.of(newPost.getId()), gory);
+        assertEquals(List.of(editedPost.getId()), jeziora);
+        assertTrue(morze.isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void changesOutsideOfTransactionAreVisibleInLoadedIndexAtOnce() {
+        //given
+        BodySearchIndex bodySearchIndex = newBodySearchIndex();
+        bodySearchIndex.searchPostIds("post", 0, 10);
+
+        //when
+        bodySearchIndex.indexPost(1000, "Pierwszy post");
+        bodySearchIndex.indexPost(1001, "Drugi post");
+        bodySearchIndex.removePost(1000);
+
+        //then
+        assertEquals(List.of(1001), bodySearchIndex.searchPostIds("post", 0, 10));
+    }
+
+    @Test
+    void changesInTransactionAreNotVisibleBeforeCommit() {
+        //given
+        BodySearchIndex bodySearchIndex = newBodySearchIndex();
+        bodySearchIndex.searchPostIds("post", 0, 10);
+
+        //when
+        bodySearchIndex.indexPost(1000, "Pierwszy post");
+
+        //then
+        assertTrue(bodySearchIndex.searchPostIds("post", 0, 10).isEmpty());
+    }
+
+    private BodySearchIndex newBodySearchIndex() {
+        BodySearchIndex bodySearchIndex = new BodySearchIndex();
+        ReflectionTestUtils.setField(bodySearchIndex, "postRepository", postRepository);
+        ReflectionTestUtils.setField(bodySearchIndex, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(bodySearchIndex, "directory", directory.toString());
+        ReflectionTestUtils.setField(bodySearchIndex, "batchSize", 1);
+        return bodySearchIndex;
+    }
+
+    private User author() {
+        if (user == null) {
+            user = new User(LocalDateTime.now(), "ROLE_USER", true);
+            user.setUsername("author");
+            user.setPassword("password");
+            user = testEntityManager.persist(user);
+        }
+        return user;
+    }
+
+    private Post persistPost(String body) {
+        Post post = new Post();
+        post.setBody(body);
+        post.setCreated(LocalDateTime.now());
+        post.setUser(author());
+        post.setNumberOfComments(0);
+        return testEntityManager.persistAndFlush(post);
+    }
+
+    private Comment persistComment(Post post, String body) {
+        Comment comment = new Comment(body, LocalDateTime.now(), post.getId(), author());
+        return testEntityManager.persistAndFlush(comment);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private InvertedIndex invertedIndex;
+
+    @BeforeEach
+    void setUp() {
+        invertedIndex = new InvertedIndex();
+        invertedIndex.add(1, "Zażółć gęślą jaźń");
+        invertedIndex.add(2, "Wakacje nad morzem, morze było ciepłe");
+        invertedIndex.add(3, "Morze, morze, morze! Najlepsze wakacje nad morzem");
+        invertedIndex.add(4, "Góry zimą");
+    }
+
+    @Test
+    void searchIgnoresCaseAndPolishMarks() {
+        //given
+        //when
+        List<Integer> actualIds = invertedIndex.search("ZAZOLC gesla", 0, 10);
+
+        //then
+        assertEquals(List.of(1), actualIds);
+    }
+
+    @Test
+    void everyWordOfQueryHasToMatchAsWordOrBeginningOfWord() {
+        //given
+        //when
+        List<Integer> wakacjeAndMorze = invertedIndex.search("wakac mor", 0, 10);
+        List<Integer> wakacjeAndGory = invertedIndex.search("wakacje góry", 0, 10);
+
+        //then
+        assertEquals(2, wakacjeAndMorze.size());
+        assertTrue(wakacjeAndGory.isEmpty());
+    }
+
+    @Test
+    void documentWithMoreOccurrencesIsRankedFirst() {
+        //given
+        //when
+        List<Integer> actualIds = invertedIndex.search("morze", 0, 10);
+
+        //then
+        assertEquals(List.of(3, 2), actualIds);
+    }
+
+    @Test
+    void searchReturnsRequestedPage() {
+        //given
+        for (int id = 10; id < 35; id++) {
+            invertedIndex.add(id, "lato " + id);
+        }
+
+        //when
+        List<Integer> firstPage = invertedIndex.search("lato", 0, 10);
+        List<Integer> lastPage = invertedIndex.search("lato", 2, 10);
+        List<Integer> pageAfterLast = invertedIndex.search("lato", 3, 10);
+
+        //then
+        assertEquals(10, firstPage.size());
+        assertEquals(5, lastPage.size());
+        assertTrue(pageAfterLast.isEmpty());
+    }
+
+    @Test
+    void editedAndRemovedDocumentsAreNotFoundByOldWords() {
+        //given
+        invertedIndex.add(4, "Jezioro latem");
+        invertedIndex.remove(2);
+
+        //when
+        //then
+        assertTrue(invertedIndex.search("gory", 0, 10).isEmpty());
+        assertEquals(List.of(4), invertedIndex.search("jezioro", 0, 10));
+        assertEquals(List.of(3), invertedIndex.search("wakacje", 0, 10));
+        assertEquals(3, invertedIndex.size());
+    }
+
+    @Test
+    void indexReadFromSnapshotFindsTheSameDocuments() throws IOException {
+        //given
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        invertedIndex.writeTo(new DataOutputStream(snapshot));
+        InvertedIndex readIndex = new InvertedIndex();
+
+        //when
+        readIndex.readFrom(new DataInputStream(new ByteArrayInputStream(snapshot.toByteArray())));
+
+        //then
+        assertEquals(invertedIndex.size(), readIndex.size());
+        assertEquals(invertedIndex.search("morze", 0, 10), readIndex.search("morze", 0, 10));
+        assertEquals(invertedIndex.search("jazn", 0, 10), readIndex.search("jazn", 0, 10));
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private final TestData testData = new TestData();
+
+    private TrigramIndex trigramIndex;
+
+    @BeforeEach
+    void setUp() {
+        trigramIndex = new TrigramIndex();
+        trigramIndex.add(1, "Adam Małysz");
+        trigramIndex.add(2, "kamil_stoch");
+        trigramIndex.add(3, "Dawid Kubacki");
+        trigramIndex.add(4, "adam.malysz.fan");
+    }
+
+    @Test
+    void searchFindsKeywordInAnyPartOfTextIgnoringCaseAndPolishMarks() {
+        //given
+        //when
+        List<Integer> actualIds = trigramIndex.search("MAŁYSZ", 10);
+
+        //then
+        assertEquals(List.of(1, 4), actualIds);
+    }
+
+    @Test
+    void allTrigramsOfKeywordHaveToFollowEachOther() {
+        //given
+        trigramIndex.add(5, "abcxyz bcd");
+
+        //when
+        List<Integer> actualIds = trigramIndex.search("abcd", 10);
+
+        //then
+        assertTrue(actualIds.isEmpty());
+    }
+
+    @Test
+    void keywordShorterThanTrigramIsSearchedInAllTexts() {
+        //given
+        //when
+        List<Integer> actualIds = trigramIndex.search("St", 10);
+
+        //then
+        assertEquals(List.of(2), actualIds);
+    }
+
+    @Test
+    void searchReturnsNotMoreIdsThanLimit() {
+        //given
+        //when
+        List<Integer> actualIds = trigramIndex.search("a", 2);
+
+        //then
+        assertEquals(List.of(1, 2), actualIds);
+    }
+
+    @Test
+    void removedTextIsNotFound() {
+        //given
+        trigramIndex.remove(1);
+
+        //when
+        List<Integer> actualIds = trigramIndex.search("malysz", 10);
+
+        //then
+        assertEquals(List.of(4), actualIds);
+        assertEquals(3, trigramIndex.size());
+    }
+
+    @Test
+    void searchFindsTheSameIdsAsScanningAllTexts() {
+        //given
+        int numberOfUsers = 10_000;
+        int queries = 200;
+        Random random = new Random(42);
+        List<String> usernames = new ArrayList<>(numberOfUsers);
+        TrigramIndex manyUsernames = new TrigramIndex();
+        for (int id = 1; id <= numberOfUsers; id++) {
+            String username = testData.randomWord(random) + "_" + testData.randomWord(random) + id;
+            usernames.add(TextTokenizer.normalize(username));
+            manyUsernames.add(id, username);
+        }
+        List<String> keywords = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            String username = usernames.get(random.nextInt(numberOfUsers));
+            int start = random.nextInt(username.length() - 5);
+            keywords.add(username.substring(start, start + 5));
+        }
+
+        //when
+        List<List<Integer>> indexResults = new ArrayList<>(queries);
+        for (String keyword : keywords) {
+            indexResults.add(manyUsernames.search(keyword, 100));
+        }
+
+        //then
+        /* the same work as 'like %keyword%' query - every username is compared with keyword */
+        List<List<Integer>> scanResults = new ArrayList<>(queries);
+        for (String keyword : keywords) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < numberOfUsers && ids.size() < 100; i++) {
+                if (usernames.get(i).contains(keyword)) {
+                    ids.add(i + 1);
+                }
+            }
+            scanResults.add(ids);
+        }
+        assertEquals(scanResults, indexResults);
+    }
+
+}
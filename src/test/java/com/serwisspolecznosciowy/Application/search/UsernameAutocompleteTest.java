@@ -0,0 +1,90 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class UsernameAutocompleteTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UsernameAutocomplete usernameAutocomplete;
+
+    @BeforeEach
+    void setUp() {
+        usernameAutocomplete = new UsernameAutocomplete();
+        ReflectionTestUtils.setField(usernameAutocomplete, "userRepository", userRepository);
+        ReflectionTestUtils.setField(usernameAutocomplete, "batchSize", 2);
+        ReflectionTestUtils.setField(usernameAutocomplete, "maxSize", 10);
+    }
+
+    @Test
+    void usersWithMorePostsAreSuggestedFirst() {
+        //given
+        User adamMalysz = persistUser("Adam Małysz");
+        User adamNowak = persistUser("adam_nowak");
+        persistUser("Kamil Stoch");
+        persistPost(adamNowak);
+        persistPost(adamNowak);
+        persistPost(adamMalysz);
+
+        //when
+        List<String> actualUsernames = usernameAutocomplete.complete("ada", 10);
+
+        //then
+        assertEquals(List.of("adam_nowak", "Adam Małysz"), actualUsernames);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void usersAddedAndDeletedAfterLoadingAreMergedWithIndex() {
+        //given
+        usernameAutocomplete.rebuild();
+
+        //when
+        usernameAutocomplete.addUser(1000, "Adamek");
+        usernameAutocomplete.addUser(1001, "adam_nowak");
+        usernameAutocomplete.removeUser(1001);
+
+        //then
+        assertEquals(List.of("Adamek"), usernameAutocomplete.complete("ADA", 10));
+    }
+
+    private User persistUser(String username) {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername(username);
+        user.setPassword("password");
+        return testEntityManager.persistAndFlush(user);
+    }
+
+    private void persistPost(User user) {
+        Post post = new Post();
+        post.setBody("Post of " + user.getUsername());
+        post.setCreated(LocalDateTime.now());
+        post.setUser(user);
+        post.setNumberOfComments(0);
+        testEntityManager.persistAndFlush(post);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.search.UsernamePrefixIndex.Suggestion;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernamePrefixIndexTest {
+
+    private final TestData testData = new TestData();
+
+    private final UsernamePrefixIndex usernamePrefixIndex = UsernamePrefixIndex.build(List.of(
+            new Suggestion(1, "Adam Małysz", 5),
+            new Suggestion(2, "adam_nowak", 20),
+            new Suggestion(3, "Adamek", 5),
+            new Suggestion(4, "Kamil Stoch", 50),
+            new Suggestion(5, "Łukasz", 1)), 10);
+
+    @Test
+    void usernamesStartingWithPrefixAreOrderedByPopularityThenAlphabetically() {
+        //given
+        //when
+        List<String> actualUsernames = usernames(usernamePrefixIndex.complete("ADA", 10, Collections.emptySet()));
+
+        //then
+        assertEquals(List.of("adam_nowak", "Adam Małysz", "Adamek"), actualUsernames);
+    }
+
+    @Test
+    void prefixIgnoresPolishMarks() {
+        //given
+        //when
+        List<String> actualUsernames = usernames(usernamePrefixIndex.complete("lu", 10, Collections.emptySet()));
+
+        //then
+        assertEquals(List.of("Łukasz"), actualUsernames);
+    }
+
+    @Test
+    void excludedUsersAreNotSuggested() {
+        //given
+        //when
+        List<String> actualUsernames = usernames(usernamePrefixIndex.complete("adam", 2, Set.of(2)));
+
+        //then
+        assertEquals(List.of("Adam Małysz", "Adamek"), actualUsernames);
+    }
+
+    @Test
+    void topUsersOfLargePrefixAreTheSameAsFoundByScanning() {
+        //given
+        Random random = new Random(7);
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (int id = 1; id <= 10_000; id++) {
+            suggestions.add(new Suggestion(id, testData.randomWord(random) + id, random.nextInt(100)));
+        }
+        UsernamePrefixIndex largeIndex = UsernamePrefixIndex.build(suggestions, 10);
+
+        //when
+        List<Suggestion> actualSuggestions = largeIndex.complete("a", 10, Collections.emptySet());
+        List<Suggestion> withoutExcluded = largeIndex.complete("a", 10, Set.of(actualSuggestions.get(0).getId()));
+
+        //then
+        List<Integer> expectedIds = suggestions.stream()
+                .filter(suggestion -> suggestion.getUsername().startsWith("a"))
+                .sorted(Comparator.comparingInt(Suggestion::getPopularity).reversed().thenComparing(Suggestion::getUsername))
+                .limit(11)
+                .map(Suggestion::getId)
+                .collect(Collectors.toList());
+        assertEquals(expectedIds.subList(0, 10), ids(actualSuggestions));
+        assertEquals(expectedIds.subList(1, 11), ids(withoutExcluded));
+    }
+
+    private static List<String> usernames(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getUsername).collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getId).collect(Collectors.toList());
+    }
+
+}
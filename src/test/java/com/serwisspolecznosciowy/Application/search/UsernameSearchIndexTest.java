@@ -0,0 +1,82 @@
+package com.serwisspolecznosciowy.Application.search;
+
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class UsernameSearchIndexTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        usernameSearchIndex = new UsernameSearchIndex();
+        ReflectionTestUtils.setField(usernameSearchIndex, "userRepository", userRepository);
+        ReflectionTestUtils.setField(usernameSearchIndex, "batchSize", 2);
+        ReflectionTestUtils.setField(usernameSearchIndex, "maxResults", 3);
+    }
+
+    @Test
+    void indexIsBuiltFromDatabaseAndResultsArePaginatedUpToMaxResults() {
+        //given
+        User first = persistUser("Adam Małysz");
+        User second = persistUser("adam_nowak");
+        User third = persistUser("Adamek");
+        persistUser("adam kowalski");
+        persistUser("Kamil Stoch");
+
+        //when
+        List<Integer> firstPage = usernameSearchIndex.searchUserIds("ADAM", 0, 2);
+        List<Integer> secondPage = usernameSearchIndex.searchUserIds("ADAM", 1, 2);
+        List<Integer> thirdPage = usernameSearchIndex.searchUserIds("ADAM", 2, 2);
+
+        //then
+        assertEquals(List.of(first.getId(), second.getId()), firstPage);
+        assertEquals(List.of(third.getId()), secondPage);
+        assertTrue(thirdPage.isEmpty());
+    }
+
+    @Test
+    void catchUpFindsUsersAddedAndDeletedInDatabase() {
+        //given
+        User deletedUser = persistUser("Adam Małysz");
+        usernameSearchIndex.searchUserIds("adam", 0, 10);
+        userRepository.delete(deletedUser);
+        User newUser = persistUser("adam_nowak");
+        testEntityManager.flush();
+
+        //when
+        usernameSearchIndex.catchUp();
+
+        //then
+        assertEquals(List.of(newUser.getId()), usernameSearchIndex.searchUserIds("adam", 0, 10));
+    }
+
+    private User persistUser(String username) {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername(username);
+        user.setPassword("password");
+        return testEntityManager.persistAndFlush(user);
+    }
+
+}
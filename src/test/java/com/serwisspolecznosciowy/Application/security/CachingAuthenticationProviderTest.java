@@ -0,0 +1,126 @@
+package com.serwisspolecznosciowy.Application.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingAuthenticationProviderTest {
+
+    private static final String USERNAME = "test12!A";
+
+    private static final String PASSWORD = "tesT12@";
+
+    /* the same cost as in WebSecurityConfig */
+    private static final BCryptPasswordEncoder PASSWORD_ENCODER = new BCryptPasswordEncoder(12);
+
+    private static final String ENCODED_PASSWORD = PASSWORD_ENCODER.encode(PASSWORD);
+
+    private AuthenticationCache authenticationCache;
+
+    private UserDetailsService userDetailsService;
+
+    private CachingAuthenticationProvider cachingAuthenticationProvider;
+
+    @BeforeEach
+    void setUp() {
+        authenticationCache = new AuthenticationCache();
+        ReflectionTestUtils.setField(authenticationCache, "enabled", true);
+        ReflectionTestUtils.setField(authenticationCache, "ttlInSeconds", 60L);
+        ReflectionTestUtils.setField(authenticationCache, "maxSize", 100L);
+        authenticationCache.buildCache();
+
+        userDetailsService = spy(new InMemoryUserDetailsManager(User.withUsername(USERNAME).password(ENCODED_PASSWORD).roles("USER").build()));
+        DaoAuthenticationProvider jdbcAuthenticationProvider = new DaoAuthenticationProvider();
+        jdbcAuthenticationProvider.setUserDetailsService(userDetailsService);
+        jdbcAuthenticationProvider.setPasswordEncoder(PASSWORD_ENCODER);
+        cachingAuthenticationProvider = new CachingAuthenticationProvider(jdbcAuthenticationProvider, authenticationCache);
+    }
+
+    @Test
+    void repeatedRequestsOfUserAreAuthenticatedFromCache() {
+        //given
+        int requests = 1000;
+
+        //when
+        Authentication first = cachingAuthenticationProvider.authenticate(credentials(PASSWORD));
+        Authentication last = null;
+        for (int i = 0; i < requests; i++) {
+            last = cachingAuthenticationProvider.authenticate(credentials(PASSWORD));
+        }
+
+        //then
+        verify(userDetailsService, times(1)).loadUserByUsername(USERNAME);
+        assertTrue(last.isAuthenticated());
+        assertEquals(first.getAuthorities(), last.getAuthorities());
+        assertNull(last.getCredentials());
+    }
+
+    @Test
+    void wrongPasswordIsNeverCached() {
+        //given
+        cachingAuthenticationProvider.authenticate(credentials(PASSWORD));
+
+        //when
+        //then
+        assertThrows(BadCredentialsException.class, () -> cachingAuthenticationProvider.authenticate(credentials("wrong")));
+        assertThrows(BadCredentialsException.class, () -> cachingAuthenticationProvider.authenticate(credentials("wrong")));
+        verify(userDetailsService, times(3)).loadUserByUsername(USERNAME);
+    }
+
+    @Test
+    void evictedUserIsAuthenticatedAgainstDatabase() {
+        //given
+        cachingAuthenticationProvider.authenticate(credentials(PASSWORD));
+
+        //when
+        authenticationCache.evictUser(USERNAME);
+        cachingAuthenticationProvider.authenticate(credentials(PASSWORD));
+
+        //then
+        verify(userDetailsService, times(2)).loadUserByUsername(USERNAME);
+    }
+
+    private UsernamePasswordAuthenticationToken credentials(String password) {
+        return new UsernamePasswordAuthenticationToken(USERNAME, password);
+    }
+
+    @Test
+    void authenticationWithOldPasswordFinishedAfterEvictionIsNotCached() throws Exception {
+        //given
+        CountDownLatch oldPasswordLoaded = new CountDownLatch(1);
+        CountDownLatch passwordChanged = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Object user = invocation.callRealMethod();
+            oldPasswordLoaded.countDown();
+            passwordChanged.await(10, TimeUnit.SECONDS);
+            return user;
+        }).doCallRealMethod().when(userDetailsService).loadUserByUsername(USERNAME);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when
+        Future<Authentication> authenticationWithOldPassword = executorService.submit(() -> cachingAuthenticationProvider.authenticate(credentials(PASSWORD)));
+        assertTrue(oldPasswordLoaded.await(10, TimeUnit.SECONDS));
+        ((InMemoryUserDetailsManager) userDetailsService).updateUser(User.withUsername(USERNAME).password(PASSWORD_ENCODER.encode("newPassword12!A")).roles("USER").build());
+        authenticationCache.evictUser(USERNAME);
+        passwordChanged.countDown();
+        executorService.shutdown();
+
+        //then
+        assertTrue(authenticationWithOldPassword.get(10, TimeUnit.SECONDS).isAuthenticated());
+        assertThrows(BadCredentialsException.class, () -> cachingAuthenticationProvider.authenticate(credentials(PASSWORD)));
+    }
+
+}
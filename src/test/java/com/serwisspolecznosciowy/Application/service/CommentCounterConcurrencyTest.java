@@ -0,0 +1,149 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.dto.CommentBodyDto;
+import com.serwisspolecznosciowy.Application.entity.Comment;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.mappers.CommentMapper;
+import com.serwisspolecznosciowy.Application.repository.CommentRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comments are added and deleted by many threads at once, number of comments of post has to be exact.
+ * H2 doesn't lock parent row for foreign key check like InnoDB, so order of locks is checked by CommentServiceTest.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CommentCounterConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ADDED_COMMENTS = 2000;
+    private static final int DELETED_COMMENTS = 200;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private CommentService commentService;
+
+    private User user;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername("commentator");
+        user.setPassword("password");
+        user = userRepository.save(user);
+        post = new Post();
+        post.setBody("Hot post");
+        post.setCreated(LocalDateTime.now());
+        post.setUser(user);
+        post.setNumberOfComments(DELETED_COMMENTS);
+        post = postRepository.save(post);
+
+        FeedCacheInvalidator feedCacheInvalidator = mock(FeedCacheInvalidator.class);
+        PostService postService = new PostService();
+        ReflectionTestUtils.setField(postService, "postRepository", postRepository);
+        ReflectionTestUtils.setField(postService, "feedCacheInvalidator", feedCacheInvalidator);
+        UserService userService = mock(UserService.class);
+        when(userService.getLoginUser()).thenReturn(user);
+        commentService = new CommentService();
+        ReflectionTestUtils.setField(commentService, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(commentService, "commentMapper", mock(CommentMapper.class));
+        ReflectionTestUtils.setField(commentService, "userService", userService);
+        ReflectionTestUtils.setField(commentService, "postService", postService);
+        ReflectionTestUtils.setField(commentService, "feedCacheInvalidator", feedCacheInvalidator);
+        ReflectionTestUtils.setField(commentService, "bodySearchIndex", mock(BodySearchIndex.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void numberOfCommentsIsExactAfterParallelAddingAndDeleting() throws InterruptedException, ExecutionException {
+        //given
+        List<Integer> commentIdsToDelete = new ArrayList<>();
+        for (int i = 0; i < DELETED_COMMENTS; i++) {
+            commentIdsToDelete.add(commentRepository.save(new Comment("Old comment " + i, LocalDateTime.now(), post.getId(), user)).getId());
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < ADDED_COMMENTS; i++) {
+            CommentBodyDto commentBodyDto = new CommentBodyDto("Comment " + i);
+            /* the same as @Transactional of CommentService, which is not proxied in this test */
+            tasks.add(() -> transactionTemplate.execute(status -> {
+                try {
+                    commentService.addNewComment(post.getId(), commentBodyDto);
+                } catch (Throwable ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return null;
+            }));
+        }
+        for (Integer commentId : commentIdsToDelete) {
+            tasks.add(() -> transactionTemplate.execute(status -> {
+                try {
+                    commentService.deleteCommentById(commentId);
+                } catch (Throwable ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return null;
+            }));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        //when
+        List<Future<Void>> results;
+        try {
+            results = executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        //then
+        int actualNumberOfComments = postRepository.findById(post.getId()).get().getNumberOfComments();
+        assertEquals(ADDED_COMMENTS, actualNumberOfComments);
+        assertEquals(commentRepository.count(), actualNumberOfComments);
+    }
+
+}
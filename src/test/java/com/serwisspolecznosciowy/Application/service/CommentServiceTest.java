@@ -1,5 +1,6 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
 import com.serwisspolecznosciowy.Application.dto.CommentBodyDto;
 import com.serwisspolecznosciowy.Application.dto.CommentDto;
 import com.serwisspolecznosciowy.Application.dto.DislikeDto;
@@ -12,9 +13,11 @@ import com.serwisspolecznosciowy.Application.mappers.LikeMapper;
 import com.serwisspolecznosciowy.Application.repository.CommentRepository;
 import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
 import com.serwisspolecznosciowy.Application.repository.LikeRepository;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
 import com.serwisspolecznosciowy.Application.testData.TestData;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +57,14 @@ public class CommentServiceTest {
     private DislikeRepository dislikeRepository;
     @Mock
     private LikeRepository likeRepository;
+    @Mock
+    private FeedCacheInvalidator feedCacheInvalidator;
+    @Mock
+    private ReactionService reactionService;
+    @Mock
+    private ReactionWriteBehindQueue reactionWriteBehindQueue;
+    @Mock
+    private BodySearchIndex bodySearchIndex;
 
     @Test
     void addNewComment() throws PostNotFoundException {
@@ -68,8 +79,6 @@ public class CommentServiceTest {
 
         Post post = testData.preparedPost();
         Integer postId = post.getId();
-        post.setNumberOfComments(1);
-        when(postService.findPostById(anyInt())).thenReturn(post);
 
         when(commentMapper.commentToCommentDto(any(Comment.class), any(User.class), any(), any())).thenReturn(expectedCommentDto);
         //when
@@ -77,6 +86,25 @@ public class CommentServiceTest {
         //then
         assertEquals(expectedCommentDto.getBody(), actualCommentDto.getBody());
         assertEquals(expectedCommentDto.getUser().getUsername(), actualCommentDto.getUser().getUsername());
+        /* lock of post row is taken before insert of comment */
+        InOrder inOrder = inOrder(postService, commentRepository);
+        inOrder.verify(postService, times(1)).addToNumberOfComments(postId, 1);
+        inOrder.verify(commentRepository, times(1)).save(any(Comment.class));
+    }
+
+    @Test
+    void addNewCommentWithPostNotFoundException() throws PostNotFoundException {
+        //given
+        User user = testData.preparedUser();
+        when(userService.getLoginUser()).thenReturn(user);
+        CommentBodyDto commentBodyDto = testData.prepareCommentBodyDto();
+        Integer incorrectPostId = 9999;
+        doThrow(PostNotFoundException.class).when(postService).addToNumberOfComments(incorrectPostId, 1);
+        //when
+        //then
+        assertThrows(PostNotFoundException.class, () -> commentService.addNewComment(incorrectPostId, commentBodyDto));
+        verify(commentRepository, never()).save(any());
+        verify(bodySearchIndex, never()).indexComment(any(), any());
     }
 
     @Test
@@ -211,7 +239,7 @@ public class CommentServiceTest {
     }
 
     @Test
-    void deleteCommentById() throws UserForbiddenAccessException, CommentNotFoundException {
+    void deleteCommentById() throws UserForbiddenAccessException, CommentNotFoundException, PostNotFoundException {
         //Given
         Comment comment = testData.preparedComment();
         Integer commentId = comment.getId();
@@ -222,11 +250,13 @@ public class CommentServiceTest {
         //When
         commentService.deleteCommentById(commentId);
         //Then
-        verify(commentRepository, times(1)).deleteById(commentId);
+        InOrder inOrder = inOrder(postService, commentRepository);
+        inOrder.verify(postService, times(1)).addToNumberOfComments(comment.getPostId(), -1);
+        inOrder.verify(commentRepository, times(1)).deleteById(commentId);
     }
 
     @Test
-    void deleteCommentByIdWithUserForbiddenAccessException() throws UserForbiddenAccessException, CommentNotFoundException {
+    void deleteCommentByIdWithUserForbiddenAccessException() throws UserForbiddenAccessException, CommentNotFoundException, PostNotFoundException {
         //Given
         Comment comment = testData.preparedComment();
         Integer commentId = comment.getId();
@@ -243,6 +273,7 @@ public class CommentServiceTest {
         });
         //Then
         assertEquals("You are not authorized to delete this comment!", exception.getMessage());
+        verify(postService, never()).addToNumberOfComments(any(), any());
     }
 
     @Test
@@ -276,9 +307,10 @@ public class CommentServiceTest {
         //Given
         String body = testData.preparedComment().getBody();
         List<Comment> expectedCommentsList = testData.preparedCommentList();
-        when(commentRepository.findAllByBodyContaining(body)).thenReturn(expectedCommentsList);
+        when(bodySearchIndex.searchCommentIds(body, 0, 10)).thenReturn(List.of(1));
+        when(commentRepository.findAllById(List.of(1))).thenReturn(expectedCommentsList);
         //When
-        List<Comment> actualCommentsList = commentService.getCommentsByBody(body);
+        List<Comment> actualCommentsList = commentService.getCommentsByBody(body, 0, 10);
         //Then
         assertEquals(expectedCommentsList.get(0).getBody().contains(body), actualCommentsList.get(0).getBody().contains(body));
         assertEquals(expectedCommentsList.get(0).getBody(), actualCommentsList.get(0).getBody());
@@ -291,11 +323,10 @@ public class CommentServiceTest {
     void getCommentsByBodyWithCommentNotFoundException() throws CommentNotFoundException {
         //Given
         String body = testData.preparedComment().getBody();
-        List<Comment> expectedCommentsList = Collections.emptyList();
-        when(commentRepository.findAllByBodyContaining(body)).thenReturn(expectedCommentsList);
+        when(bodySearchIndex.searchCommentIds(body, 0, 10)).thenReturn(Collections.emptyList());
         //When
         //Then
-        assertThrows(CommentNotFoundException.class, () -> commentService.getCommentsByBody(body),
+        assertThrows(CommentNotFoundException.class, () -> commentService.getCommentsByBody(body, 0, 10),
                 "Not found any comment with keyword: '" + body  + "' in our database!");
     }
 
@@ -305,10 +336,11 @@ public class CommentServiceTest {
         String body = testData.preparedComment().getBody();
         List<Comment> commentList = testData.preparedCommentList();
         List<CommentDto> expectedCommentDtoList = testData.preparedCommentDtoList();
-        when(commentRepository.findAllByBodyContaining(body)).thenReturn(commentList);
+        when(bodySearchIndex.searchCommentIds(body, 0, 10)).thenReturn(List.of(1));
+        when(commentRepository.findAllById(List.of(1))).thenReturn(commentList);
         when(commentMapper.commentListToCommentDtoList(commentList)).thenReturn(expectedCommentDtoList);
         //When
-        List<CommentDto> actualCommentDtoList = commentService.getCommentsDtoByBody(body);
+        List<CommentDto> actualCommentDtoList = commentService.getCommentsDtoByBody(body, 0, 10);
         //Then
         assertEquals(expectedCommentDtoList.get(0).getBody().contains(body), actualCommentDtoList.get(0).getBody().contains(body));
         assertEquals(expectedCommentDtoList.get(0).getBody(), actualCommentDtoList.get(0).getBody());
@@ -321,10 +353,10 @@ public class CommentServiceTest {
     void getCommentsDtoByBodyWithCommentNotFoundException() throws CommentNotFoundException {
         //Given
         String body = testData.preparedComment().getBody();
-        when(commentRepository.findAllByBodyContaining(body)).thenReturn(null);
+        when(bodySearchIndex.searchCommentIds(body, 0, 10)).thenReturn(Collections.emptyList());
         //When
         //Then
-        assertThrows(CommentNotFoundException.class, () -> commentService.getCommentsDtoByBody(body),
+        assertThrows(CommentNotFoundException.class, () -> commentService.getCommentsDtoByBody(body, 0, 10),
                 "Not found any comment with keyword: '" + body  + "' in our database!");
     }
 
@@ -348,8 +380,6 @@ public class CommentServiceTest {
         when(likeMapper.likeListToLikeDtoList(likeList)).thenReturn(likeDtoList);
         when(dislikeMapper.dislikeListToDislikeDtoList(dislikeList)).thenReturn(dislikeDtoList);
 
-        when(commentRepository.save(comment)).thenReturn(comment);
-
         CommentDto expectedCommentDto = testData.preparedCommentDto();
         expectedCommentDto.setLikeDtoList(likeDtoList);
         expectedCommentDto.setDislikeDtoList(dislikeDtoList);
@@ -360,7 +390,8 @@ public class CommentServiceTest {
         commentService.addOneLikeToComment(commentId);
 
         //Then
-        verify(commentRepository, times(1)).save(comment);
+        verify(likeRepository, times(1)).save(any(Like.class));
+        verify(commentRepository, never()).save(comment);
     }
 
     @Test
@@ -383,9 +414,7 @@ public class CommentServiceTest {
         Comment comment = testData.preparedComment();
         Integer commentId = comment.getId();
         when(commentRepository.findById(commentId)).thenReturn(Optional.of(comment));
-
-        List<Like> likeList = testData.preparedLikeList();
-        comment.setLikeList(likeList);
+        when(likeRepository.existsByCommentLikeIdAndUserId(commentId, user.getId())).thenReturn(true);
 
         //When
         //Then
@@ -414,8 +443,6 @@ public class CommentServiceTest {
         when(likeMapper.likeListToLikeDtoList(likeList)).thenReturn(likeDtoList);
         when(dislikeMapper.dislikeListToDislikeDtoList(dislikeList)).thenReturn(dislikeDtoList);
 
-        when(commentRepository.save(comment)).thenReturn(comment);
-
         CommentDto expectedCommentDto = testData.preparedCommentDto();
         expectedCommentDto.setLikeDtoList(likeDtoList);
         expectedCommentDto.setDislikeDtoList(dislikeDtoList);
@@ -426,7 +453,8 @@ public class CommentServiceTest {
         commentService.addOneDisLikeToComment(commentId);
 
         //Then
-        verify(commentRepository, times(1)).save(comment);
+        verify(dislikeRepository, times(1)).save(any(Dislike.class));
+        verify(commentRepository, never()).save(comment);
     }
 
     @Test
@@ -449,9 +477,7 @@ public class CommentServiceTest {
         Comment comment = testData.preparedComment();
         Integer commentId = comment.getId();
         when(commentRepository.findById(commentId)).thenReturn(Optional.of(comment));
-
-        List<Dislike> dislikeList = testData.preparedDislikeList();
-        comment.setDislikeList(dislikeList);
+        when(dislikeRepository.existsByCommentDislikeIdAndUserId(commentId, user.getId())).thenReturn(true);
 
         //When
         //Then
@@ -538,4 +564,26 @@ public class CommentServiceTest {
     }
 
 
+
+    @Test
+    void getNumberOfLikesByCommentId() throws CommentNotFoundException {
+        //Given
+        Integer commentId = testData.preparedComment().getId();
+        Integer expectedNumberOfLikes = 5;
+        when(commentRepository.findLikeCountById(commentId)).thenReturn(Optional.of(expectedNumberOfLikes));
+        //When
+        Integer actualNumberOfLikes = commentService.getNumberOfLikesByCommentId(commentId);
+        //Then
+        assertEquals(expectedNumberOfLikes, actualNumberOfLikes);
+    }
+
+    @Test
+    void getNumberOfDislikesByCommentIdWithCommentNotFoundException() {
+        //Given
+        Integer incorrectCommentId = 9999;
+        when(commentRepository.findDislikeCountById(incorrectCommentId)).thenReturn(Optional.empty());
+        //When
+        //Then
+        assertThrows(CommentNotFoundException.class, () -> commentService.getNumberOfDislikesByCommentId(incorrectCommentId));
+    }
 }
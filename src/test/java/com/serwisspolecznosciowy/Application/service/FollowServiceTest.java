@@ -0,0 +1,122 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.entity.Follow;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.exception.AlreadyFollowedException;
+import com.serwisspolecznosciowy.Application.exception.FollowNotFoundException;
+import com.serwisspolecznosciowy.Application.exception.SelfFollowException;
+import com.serwisspolecznosciowy.Application.exception.UserNotFoundException;
+import com.serwisspolecznosciowy.Application.repository.FollowRepository;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class FollowServiceTest {
+
+    @InjectMocks
+    private FollowService followService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private FollowRepository followRepository;
+
+    @Mock
+    private TimelineStore timelineStore;
+
+    @Autowired
+    public TestData testData;
+
+    @Test
+    void followUser() throws UserNotFoundException {
+        //given
+        User user = testData.preparedUser();
+        Integer followedId = user.getId() + 1;
+        when(userService.getLoginUser()).thenReturn(user);
+
+        //when
+        followService.followUser(followedId);
+
+        //then
+        verify(userService).findUserById(followedId);
+        verify(followRepository).save(any(Follow.class));
+        verify(timelineStore).followed(user.getId(), followedId);
+    }
+
+    @Test
+    void followUserWithSelfFollowException() {
+        //given
+        User user = testData.preparedUser();
+        when(userService.getLoginUser()).thenReturn(user);
+        //when
+        //then
+        assertThrows(SelfFollowException.class, () -> followService.followUser(user.getId()));
+        verify(followRepository, never()).save(any());
+    }
+
+    @Test
+    void followUserWithAlreadyFollowedException() {
+        //given
+        User user = testData.preparedUser();
+        Integer followedId = user.getId() + 1;
+        when(userService.getLoginUser()).thenReturn(user);
+        when(followRepository.existsByFollowerIdAndFollowedId(user.getId(), followedId)).thenReturn(true);
+        //when
+        //then
+        assertThrows(AlreadyFollowedException.class, () -> followService.followUser(followedId));
+        verify(timelineStore, never()).followed(any(), any());
+    }
+
+    @Test
+    void followUserWithUserNotFoundException() throws UserNotFoundException {
+        //given
+        User user = testData.preparedUser();
+        Integer followedId = user.getId() + 1;
+        when(userService.getLoginUser()).thenReturn(user);
+        when(userService.findUserById(followedId)).thenThrow(UserNotFoundException.class);
+        //when
+        //then
+        assertThrows(UserNotFoundException.class, () -> followService.followUser(followedId));
+        verify(followRepository, never()).save(any());
+    }
+
+    @Test
+    void unfollowUser() throws FollowNotFoundException {
+        //given
+        User user = testData.preparedUser();
+        Integer followedId = user.getId() + 1;
+        when(userService.getLoginUser()).thenReturn(user);
+        when(followRepository.deleteByFollowerIdAndFollowedId(user.getId(), followedId)).thenReturn(1);
+
+        //when
+        followService.unfollowUser(followedId);
+
+        //then
+        verify(timelineStore).unfollowed(user.getId(), followedId);
+    }
+
+    @Test
+    void unfollowUserWithFollowNotFoundException() {
+        //given
+        User user = testData.preparedUser();
+        Integer followedId = user.getId() + 1;
+        when(userService.getLoginUser()).thenReturn(user);
+        //when
+        //then
+        assertThrows(FollowNotFoundException.class, () -> followService.unfollowUser(followedId));
+        verify(timelineStore, never()).unfollowed(any(), any());
+    }
+
+}
@@ -1,28 +1,40 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.cache.ReactionBitmapCache;
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
 import com.serwisspolecznosciowy.Application.dto.DislikeDto;
 import com.serwisspolecznosciowy.Application.dto.LikeDto;
 import com.serwisspolecznosciowy.Application.dto.PostBodyDto;
 import com.serwisspolecznosciowy.Application.dto.PostDto;
+import com.serwisspolecznosciowy.Application.dto.PostFeedDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryFeedDto;
 import com.serwisspolecznosciowy.Application.entity.*;
 import com.serwisspolecznosciowy.Application.exception.*;
 import com.serwisspolecznosciowy.Application.mappers.DislikeMapper;
 import com.serwisspolecznosciowy.Application.mappers.LikeMapper;
 import com.serwisspolecznosciowy.Application.mappers.PostMapper;
+import com.serwisspolecznosciowy.Application.pagination.FeedCursor;
 import com.serwisspolecznosciowy.Application.repository.CommentRepository;
 import com.serwisspolecznosciowy.Application.repository.DislikeRepository;
 import com.serwisspolecznosciowy.Application.repository.LikeRepository;
 import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
 import com.serwisspolecznosciowy.Application.testData.TestData;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.List;
@@ -65,6 +77,29 @@ class PostServiceTest {
     @Mock
     private DislikeMapper dislikeMapper;
 
+    @Mock
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Mock
+    private ReactionService reactionService;
+
+    @Mock
+    private ReactionBitmapCache reactionBitmapCache;
+
+    @Mock
+    private ReactionWriteBehindQueue reactionWriteBehindQueue;
+
+    @Mock
+    private BodySearchIndex bodySearchIndex;
+
+    @Mock
+    private TimelineStore timelineStore;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(postService, "maxCommentsPerPost", 10);
+    }
+
     @Test
     void addNewPost() throws PostEmptyBodyException, UserNotFoundException {
         //given
@@ -84,6 +119,7 @@ class PostServiceTest {
         assertEquals(expectedPost.getBody(), actualPost.getBody());
         assertEquals(expectedPost.getCreated(), actualPost.getCreated());
         assertEquals(expectedPost.getUsername(), actualPost.getUsername());
+        verify(timelineStore).postAdded(any(), eq(user.getId()));
     }
 
     @Test
@@ -142,6 +178,158 @@ class PostServiceTest {
         assertEquals(expectedPostDtoList.get(0).getUsername(), actualPostDtoList.get(0).getUsername());
     }
 
+    @Test
+    void getPostsFeedFirstPage() {
+        //given
+        Integer pageSize = 1;
+        List<Post> postList = testData.preparedPostsList();
+        Post lastPost = postList.get(0);
+        PostDto postDto = testData.preparedPostDto();
+        when(postRepository.findPostsFeedFirstPage(PageRequest.of(0, pageSize))).thenReturn(postList);
+        when(postMapper.postToPostDto(any(Post.class), any(User.class), any(), any())).thenReturn(postDto);
+
+        //when
+        PostFeedDto actualPostFeedDto = postService.getPostsFeed(null, pageSize);
+
+        //then
+        assertEquals(1, actualPostFeedDto.getPostDtoList().size());
+        assertEquals(postDto.getBody(), actualPostFeedDto.getPostDtoList().get(0).getBody());
+        FeedCursor nextCursor = FeedCursor.decode(actualPostFeedDto.getNextCursor());
+        assertEquals(lastPost.getCreated(), nextCursor.getCreated());
+        assertEquals(lastPost.getId(), nextCursor.getId());
+    }
+
+    @Test
+    void getPostsSummaryFeedFirstPage() {
+        //given
+        Integer pageSize = 1;
+        List<Post> postList = testData.preparedPostsList();
+        Post lastPost = postList.get(0);
+        List<PostSummaryDto> postSummaryDtoList = List.of(new PostSummaryDto());
+        when(postRepository.findPostsFeedFirstPage(PageRequest.of(0, pageSize))).thenReturn(postList);
+        when(reactionService.postListToPostSummaryDtoList(postList)).thenReturn(postSummaryDtoList);
+
+        //when
+        PostSummaryFeedDto actualPostSummaryFeedDto = postService.getPostsSummaryFeed(null, pageSize, 0);
+
+        //then
+        assertEquals(postSummaryDtoList, actualPostSummaryFeedDto.getPostSummaryDtoList());
+        assertEquals(new FeedCursor(lastPost.getCreated(), lastPost.getId()).encode(), actualPostSummaryFeedDto.getNextCursor());
+        verify(likeMapper, never()).likeListToLikeDtoList(any());
+        verify(commentRepository, never()).findNewestIdsByPostIdIn(any(), any());
+    }
+
+    @Test
+    void getPostsSummaryFeedWithNewestCommentsOfEveryPost() {
+        //given
+        Integer pageSize = 10;
+        List<Post> postList = testData.preparedPostsList();
+        List<Integer> postIds = List.of(postList.get(0).getId());
+        PostSummaryDto postSummaryDto = new PostSummaryDto();
+        postSummaryDto.setId(postList.get(0).getId());
+        Comment comment = testData.preparedComment();
+        CommentSummaryDto commentSummaryDto = new CommentSummaryDto();
+        commentSummaryDto.setId(comment.getId());
+        commentSummaryDto.setPostId(postSummaryDto.getId());
+        when(postRepository.findPostsFeedFirstPage(PageRequest.of(0, pageSize))).thenReturn(postList);
+        when(reactionService.postListToPostSummaryDtoList(postList)).thenReturn(List.of(postSummaryDto));
+        when(commentRepository.findNewestIdsByPostIdIn(postIds, 10)).thenReturn(List.of(comment.getId()));
+        when(commentRepository.findAllWithUserByIdIn(List.of(comment.getId()))).thenReturn(List.of(comment));
+        when(reactionService.commentListToCommentSummaryDtoList(List.of(comment))).thenReturn(List.of(commentSummaryDto));
+
+        //when
+        /* more than 'feed.comments.max-per-post' comments are not loaded */
+        PostSummaryFeedDto actualPostSummaryFeedDto = postService.getPostsSummaryFeed(null, pageSize, 50);
+
+        //then
+        assertEquals(List.of(commentSummaryDto), actualPostSummaryFeedDto.getPostSummaryDtoList().get(0).getNewestComments());
+        verify(commentRepository, never()).findAllCommentsByPostId(any());
+    }
+
+    @Test
+    void getPostsFeedAfterCursorOnLastPage() {
+        //given
+        Integer pageSize = 10;
+        Post post = testData.preparedPost();
+        FeedCursor cursor = new FeedCursor(post.getCreated(), post.getId());
+        List<Post> postList = testData.preparedPostsList();
+        when(postRepository.findPostsFeedPageAfter(post.getCreated(), post.getId(), PageRequest.of(0, pageSize))).thenReturn(postList);
+        when(postMapper.postToPostDto(any(Post.class), any(User.class), any(), any())).thenReturn(testData.preparedPostDto());
+
+        //when
+        PostFeedDto actualPostFeedDto = postService.getPostsFeed(cursor.encode(), pageSize);
+
+        //then
+        assertEquals(postList.size(), actualPostFeedDto.getPostDtoList().size());
+        assertNull(actualPostFeedDto.getNextCursor());
+        verify(postRepository, never()).findAllPostsWithComments(any());
+    }
+
+    @Test
+    void getPostsFeedWithInvalidCursorException() {
+        //given
+        String invalidCursor = "not-a-cursor";
+        //when
+        //then
+        assertThrows(InvalidCursorException.class, () -> postService.getPostsFeed(invalidCursor, 10));
+    }
+
+    @Test
+    void getHomeTimelineInOrderOfTimeline() {
+        //given
+        User user = testData.preparedUser();
+        Post newerPost = testData.preparedPost();
+        newerPost.setId(7);
+        newerPost.setBody("newer post");
+        Post olderPost = testData.preparedPost();
+        olderPost.setId(3);
+        olderPost.setBody("older post");
+        when(userService.getLoginUser()).thenReturn(user);
+        when(timelineStore.getTimelinePostIds(user.getId(), 10, 3)).thenReturn(List.of(7, 5, 3));
+        /* post with id 5 was deleted */
+        when(postRepository.findAllWithUserByIdIn(List.of(7, 5, 3))).thenReturn(List.of(olderPost, newerPost));
+        when(postMapper.postToPostDto(any(Post.class), any(User.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    PostDto postDto = new PostDto();
+                    postDto.setBody(invocation.<Post>getArgument(0).getBody());
+                    return postDto;
+                });
+
+        //when
+        PostFeedDto actualPostFeedDto = postService.getHomeTimeline("10", 3);
+
+        //then
+        assertEquals(2, actualPostFeedDto.getPostDtoList().size());
+        assertEquals("newer post", actualPostFeedDto.getPostDtoList().get(0).getBody());
+        assertEquals("older post", actualPostFeedDto.getPostDtoList().get(1).getBody());
+        assertEquals("3", actualPostFeedDto.getNextCursor());
+    }
+
+    @Test
+    void getHomeTimelineOnLastPage() {
+        //given
+        User user = testData.preparedUser();
+        when(userService.getLoginUser()).thenReturn(user);
+        when(timelineStore.getTimelinePostIds(user.getId(), null, 10)).thenReturn(Collections.emptyList());
+
+        //when
+        PostFeedDto actualPostFeedDto = postService.getHomeTimeline(null, 10);
+
+        //then
+        assertTrue(actualPostFeedDto.getPostDtoList().isEmpty());
+        assertNull(actualPostFeedDto.getNextCursor());
+        verify(postRepository, never()).findAllWithUserByIdIn(any());
+    }
+
+    @Test
+    void getHomeTimelineWithInvalidCursorException() {
+        //given
+        when(userService.getLoginUser()).thenReturn(testData.preparedUser());
+        //when
+        //then
+        assertThrows(InvalidCursorException.class, () -> postService.getHomeTimeline("not-a-cursor", 10));
+    }
+
     @Test
     void editPost() throws PostNotFoundException, UserForbiddenAccessException, PostEmptyBodyException {
         //given
@@ -273,6 +461,22 @@ class PostServiceTest {
         verify(postRepository, times(1)).deleteById(postId);
     }
 
+    @Test
+    void deletePostWithoutCommentsChangesItsVersion() throws PostNotFoundException, UserForbiddenAccessException {
+        //given
+        Post post = testData.preparedPost();
+        Integer postId = post.getId();
+        when(commentRepository.findAllCommentsByPostId(postId)).thenReturn(Collections.emptyList());
+        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
+
+        //when
+        postService.deletePostById(Optional.of(testData.preparedUser()), postId);
+
+        //then
+        verify(feedCacheInvalidator, times(1)).evictPostDeleted(postId);
+        verify(feedCacheInvalidator, never()).evictCommentAddedOrDeleted(any());
+    }
+
     @Test
     void deletePostByIdWithUserForbiddenAccessException() throws PostNotFoundException, UserForbiddenAccessException {
         //given
@@ -324,11 +528,12 @@ class PostServiceTest {
         User user = testData.preparedUser();
         String keywordInBody = "post";
 
-        when(postRepository.findAllByBodyContaining(anyString())).thenReturn(postList);
+        when(bodySearchIndex.searchPostIds(keywordInBody, 0, 10)).thenReturn(List.of(post.getId()));
+        when(postRepository.findAllById(List.of(post.getId()))).thenReturn(postList);
         when(postMapper.postToPostDto(any(Post.class), any(User.class), any(), any())).thenReturn(postDto);
 
         //When
-        List<PostDto> actualPostDtoList = postService.getPostDtoListByBody(keywordInBody);
+        List<PostDto> actualPostDtoList = postService.getPostDtoListByBody(keywordInBody, 0, 10);
 
         //Then
         assertEquals(expectedPostDtoList.size(), actualPostDtoList.size());
@@ -340,10 +545,10 @@ class PostServiceTest {
     void getPostDtoListByBodyWithPostNotFoundException() throws PostNotFoundException {
         //Given
         String keywordInBody = "post";
-        when(postRepository.findAllByBodyContaining(anyString())).thenReturn(Collections.emptyList());
+        when(bodySearchIndex.searchPostIds(keywordInBody, 0, 10)).thenReturn(Collections.emptyList());
         //When
         //Then
-        assertThrows(PostNotFoundException.class, () -> postService.getPostDtoListByBody(keywordInBody),
+        assertThrows(PostNotFoundException.class, () -> postService.getPostDtoListByBody(keywordInBody, 0, 10),
                 "Not found any post with keyword: '" + keywordInBody + "' in our database!");
     }
 
@@ -364,8 +569,6 @@ class PostServiceTest {
         when(likeRepository.save(like)).thenReturn(like);
         when(likeMapper.likeListToLikeDtoList(likeList)).thenReturn(likeDtoList);
 
-        when(postRepository.save(post)).thenReturn(post);
-
         PostDto expectedPostDto = testData.preparedPostDto();
         expectedPostDto.setLikeDtoList(likeDtoList);
         when(postMapper.postToPostDto(post, user, likeDtoList, dislikeDtoList)).thenReturn(expectedPostDto);
@@ -374,7 +577,30 @@ class PostServiceTest {
         postService.addOneLikeToPost(postId);
 
         //Then
-        verify(postRepository, times(1)).save(post);
+        verify(likeRepository, times(1)).save(any(Like.class));
+        verify(postRepository, never()).save(post);
+        verify(postRepository, times(1)).addToLikeCount(postId, 1);
+        verify(feedCacheInvalidator, times(1)).evictPostChanged(postId);
+    }
+
+    @Test
+    void addOneLikeToPostWithWriteBehindEnabledOnlyQueuesLike() throws PostNotFoundException {
+        //Given
+        User user = testData.preparedUser();
+        when(userService.getLoginUser()).thenReturn(user);
+        Post post = testData.preparedPost();
+        Integer postId = post.getId();
+        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
+        when(reactionWriteBehindQueue.isEnabled()).thenReturn(true);
+
+        //When
+        postService.addOneLikeToPost(postId);
+
+        //Then
+        verify(reactionWriteBehindQueue, times(1)).addPostLike(postId, user.getId(), user.getUsername());
+        verify(likeRepository, never()).save(any(Like.class));
+        verify(postRepository, never()).addToLikeCount(any(), any());
+        verify(feedCacheInvalidator, never()).evictPostChanged(any());
     }
 
     @Test
@@ -401,14 +627,47 @@ class PostServiceTest {
         Post post = testData.preparedPost();
         Integer postId = post.getId();
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
-
-        List<Like> likeList = testData.preparedLikeList();
-        post.setLikeList(likeList);
+        when(likeRepository.existsByPostLikeIdAndUserId(postId, user.getId())).thenReturn(true);
 
         //When
         //Then
         assertThrows(DuplicateUsernameException.class, () -> postService.addOneLikeToPost(postId),
                 "User can add only once like to specified post!");
+        verify(likeRepository, never()).save(any(Like.class));
+    }
+
+    @Test
+    void addOneLikeToHotPostReturnDuplicateUsernameExceptionWithoutQueryingDatabase() throws PostNotFoundException {
+        //Given
+        User user = testData.preparedUser();
+        Post post = testData.preparedPost();
+        Integer postId = post.getId();
+        post.setLikeCount(5000);
+        when(userService.getLoginUser()).thenReturn(user);
+        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
+        when(reactionBitmapCache.hasLikedPost(postId, user.getId(), 5000)).thenReturn(Optional.of(true));
+
+        //When
+        //Then
+        assertThrows(DuplicateUsernameException.class, () -> postService.addOneLikeToPost(postId));
+        verify(likeRepository, never()).existsByPostLikeIdAndUserId(any(), any());
+    }
+
+    @Test
+    void addOneLikeToPostRejectedByUniqueIndexReturnDuplicateUsernameException() throws PostNotFoundException {
+        //Given
+        User user = testData.preparedUser();
+        Post post = testData.preparedPost();
+        Integer postId = post.getId();
+        when(userService.getLoginUser()).thenReturn(user);
+        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
+        when(likeRepository.save(any(Like.class))).thenThrow(DataIntegrityViolationException.class);
+
+        //When
+        //Then
+        assertThrows(DuplicateUsernameException.class, () -> postService.addOneLikeToPost(postId));
+        verify(postRepository, never()).addToLikeCount(any(), any());
+        verify(reactionBitmapCache, times(1)).addExistingPostLike(postId, user.getId());
     }
 
     @Test
@@ -423,8 +682,6 @@ class PostServiceTest {
         when(userService.getLoginUser()).thenReturn(user);
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
         when(dislikeRepository.save(dislike)).thenReturn(dislike);
-        when(postRepository.save(post)).thenReturn(post);
-
         PostDto expectedPostDto = testData.preparedPostDto();
         List<DislikeDto> dislikeDtoList = testData.preparedDislikeDtoList();
         expectedPostDto.setDislikeDtoList(dislikeDtoList);
@@ -435,7 +692,8 @@ class PostServiceTest {
         postService.addOneDisLikeToPost(postId);
 
         //Then
-        verify(postRepository, times(1)).save(post);
+        verify(dislikeRepository, times(1)).save(any(Dislike.class));
+        verify(postRepository, never()).save(post);
     }
 
     @Test
@@ -459,11 +717,10 @@ class PostServiceTest {
         Post post = testData.preparedPost();
         Integer postId = post.getId();
         User user = testData.preparedUser();
-        List<Dislike> dislikeList = testData.preparedDislikeList();
-        post.setDislikeList(dislikeList);
 
         when(userService.getLoginUser()).thenReturn(user);
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
+        when(dislikeRepository.existsByPostDislikeIdAndUserId(postId, user.getId())).thenReturn(true);
 
         //When
         //Then
@@ -472,18 +729,25 @@ class PostServiceTest {
     }
 
     @Test
-    void subtractOneCommentForNumberOfCommentForPostByPostId() throws PostNotFoundException {
+    void addToNumberOfComments() throws PostNotFoundException {
         //Given
-        Post post = testData.preparedPost();
-        post.setNumberOfComments(3);
-        Integer postId = post.getId();
-        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
-        when(postRepository.save(post)).thenReturn(post);
+        Integer postId = testData.preparedPost().getId();
+        when(postRepository.addToNumberOfComments(postId, -1)).thenReturn(1);
+        //When
+        postService.addToNumberOfComments(postId, -1);
+        //Then
+        verify(postRepository, times(1)).addToNumberOfComments(postId, -1);
+        verify(postRepository, never()).save(any(Post.class));
+    }
+
+    @Test
+    void addToNumberOfCommentsWithPostNotFoundException() {
+        //Given
+        Integer incorrectPostId = 9999;
+        when(postRepository.addToNumberOfComments(incorrectPostId, 1)).thenReturn(0);
         //When
-        postService.subtractOneCommentForNumberOfCommentForPostByPostId(postId);
         //Then
-        assertEquals(post.getNumberOfComments(), 2);
-        verify(postRepository, times(1)).findById(postId);
+        assertThrows(PostNotFoundException.class, () -> postService.addToNumberOfComments(incorrectPostId, 1));
     }
 
     @Test
@@ -491,16 +755,26 @@ class PostServiceTest {
         //Given
         Post post = testData.preparedPost();
         int postId = post.getId();
-        List<Like> expectedLikeList = testData.preparedLikeList();
-        post.setLikeList(expectedLikeList);
-        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
-        when(likeRepository.findByPostLikeId(postId)).thenReturn(expectedLikeList);
+        Integer expectedNumberOfLikes = 3;
+        when(postRepository.findLikeCountById(postId)).thenReturn(Optional.of(expectedNumberOfLikes));
 
         //When
         Integer actualNumberOfLikes = postService.getNumberOfLikesByPostId(postId);
 
         //Then
-        assertEquals(expectedLikeList.size(), actualNumberOfLikes);
+        assertEquals(expectedNumberOfLikes, actualNumberOfLikes);
+        verify(likeRepository, never()).findByPostLikeId(postId);
+    }
+
+    @Test
+    void getNumberOfLikesByPostIdWithPostNotFoundException() {
+        //Given
+        Integer incorrectPostId = 999999999;
+        when(postRepository.findLikeCountById(incorrectPostId)).thenReturn(Optional.empty());
+
+        //When
+        //Then
+        assertThrows(PostNotFoundException.class, () -> postService.getNumberOfLikesByPostId(incorrectPostId));
     }
 
     @Test
@@ -508,16 +782,15 @@ class PostServiceTest {
         //Given
         Post post = testData.preparedPost();
         int postId = post.getId();
-        List<Dislike> expectedDislikeList = testData.preparedDislikeList();
-        post.setDislikeList(expectedDislikeList);
-        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
-        when(dislikeRepository.findByPostDislikeId(postId)).thenReturn(expectedDislikeList);
+        Integer expectedNumberOfDislikes = 2;
+        when(postRepository.findDislikeCountById(postId)).thenReturn(Optional.of(expectedNumberOfDislikes));
 
         //When
         Integer actualNumberOfDislikes = postService.getNumberOfDislikesByPostId(postId);
 
         //Then
-        assertEquals(expectedDislikeList.size(), actualNumberOfDislikes);
+        assertEquals(expectedNumberOfDislikes, actualNumberOfDislikes);
+        verify(dislikeRepository, never()).findByPostDislikeId(postId);
     }
 
 }
\ No newline at end of file
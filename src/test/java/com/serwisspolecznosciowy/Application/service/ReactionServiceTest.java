@@ -0,0 +1,197 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.dto.CommentSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.PostSummaryDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionPageDto;
+import com.serwisspolecznosciowy.Application.dto.ReactionSummaryDto;
+import com.serwisspolecznosciowy.Application.entity.Like;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.exception.CommentNotFoundException;
+import com.serwisspolecznosciowy.Application.exception.PostNotFoundException;
+import com.serwisspolecznosciowy.Application.mappers.UserMapper;
+import com.serwisspolecznosciowy.Application.repository.*;
+import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class ReactionServiceTest {
+
+    private static final int FIRST_USERNAMES_LIMIT = 2;
+
+    @InjectMocks
+    private ReactionService reactionService;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private DislikeRepository dislikeRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Autowired
+    public TestData testData;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reactionService, "firstUsernamesLimit", FIRST_USERNAMES_LIMIT);
+    }
+
+    @Test
+    void postListToPostSummaryDtoList() {
+        //given
+        Post post = testData.preparedPost();
+        post.setLikeCount(1000);
+        post.setDislikeCount(0);
+        List<Integer> postIds = List.of(post.getId());
+        when(likeRepository.findFirstUsernamesByPostIds(postIds, FIRST_USERNAMES_LIMIT))
+                .thenReturn(List.of(reactionUsername(post.getId(), "first"), reactionUsername(post.getId(), "second")));
+        when(dislikeRepository.findFirstUsernamesByPostIds(postIds, FIRST_USERNAMES_LIMIT)).thenReturn(List.of());
+
+        //when
+        List<PostSummaryDto> actualPostSummaryDtoList = reactionService.postListToPostSummaryDtoList(List.of(post));
+
+        //then
+        PostSummaryDto actualPostSummaryDto = actualPostSummaryDtoList.get(0);
+        assertEquals(post.getId(), actualPostSummaryDto.getId());
+        assertEquals(post.getUser().getUsername(), actualPostSummaryDto.getUsername());
+        assertEquals(new ReactionSummaryDto(1000, null, List.of("first", "second")), actualPostSummaryDto.getLikes());
+        assertEquals(new ReactionSummaryDto(0, null, List.of()), actualPostSummaryDto.getDislikes());
+        verify(likeRepository, never()).findByPostLikeId(any());
+    }
+
+    @Test
+    void markPostReactionsOfUserDoesNotChangeCachedSummaries() {
+        //given
+        User user = testData.preparedUser();
+        PostSummaryDto cachedPostSummaryDto = new PostSummaryDto(1, "body", null, null,
+                new ReactionSummaryDto(1, null, List.of(user.getUsername())), new ReactionSummaryDto(0, null, List.of()), "author", null, 0, null);
+        when(likeRepository.findPostIdsLikedByUser(user.getId(), List.of(1))).thenReturn(List.of(1));
+        when(dislikeRepository.findPostIdsDislikedByUser(user.getId(), List.of(1))).thenReturn(List.of());
+
+        //when
+        List<PostSummaryDto> actualPostSummaryDtoList = reactionService.markPostReactionsOfUser(List.of(cachedPostSummaryDto), user);
+
+        //then
+        assertTrue(actualPostSummaryDtoList.get(0).getLikes().getReactedByCurrentUser());
+        assertFalse(actualPostSummaryDtoList.get(0).getDislikes().getReactedByCurrentUser());
+        assertNull(cachedPostSummaryDto.getLikes().getReactedByCurrentUser());
+    }
+
+    @Test
+    void markPostReactionsOfUserMarksNewestCommentsOfAllPostsTogether() {
+        //given
+        User user = testData.preparedUser();
+        CommentSummaryDto firstComment = new CommentSummaryDto(10, 1, "first", null, null,
+                new ReactionSummaryDto(1, null, List.of(user.getUsername())), new ReactionSummaryDto(0, null, List.of()), null);
+        CommentSummaryDto secondComment = new CommentSummaryDto(20, 2, "second", null, null,
+                new ReactionSummaryDto(0, null, List.of()), new ReactionSummaryDto(0, null, List.of()), null);
+        List<PostSummaryDto> postSummaryDtoList = List.of(
+                new PostSummaryDto(1, "first post", null, null, new ReactionSummaryDto(0, null, List.of()), new ReactionSummaryDto(0, null, List.of()),
+                        "author", null, 1, List.of(firstComment)),
+                new PostSummaryDto(2, "second post", null, null, new ReactionSummaryDto(0, null, List.of()), new ReactionSummaryDto(0, null, List.of()),
+                        "author", null, 1, List.of(secondComment)));
+        when(likeRepository.findCommentIdsLikedByUser(user.getId(), List.of(10, 20))).thenReturn(List.of(10));
+        when(dislikeRepository.findCommentIdsDislikedByUser(user.getId(), List.of(10, 20))).thenReturn(List.of());
+
+        //when
+        List<PostSummaryDto> actualPostSummaryDtoList = reactionService.markPostReactionsOfUser(postSummaryDtoList, user);
+
+        //then
+        assertTrue(actualPostSummaryDtoList.get(0).getNewestComments().get(0).getLikes().getReactedByCurrentUser());
+        assertFalse(actualPostSummaryDtoList.get(1).getNewestComments().get(0).getLikes().getReactedByCurrentUser());
+        assertNull(firstComment.getLikes().getReactedByCurrentUser());
+        verify(likeRepository, times(1)).findCommentIdsLikedByUser(any(), any());
+    }
+
+    @Test
+    void getPostLikesReturnsCursorOfNextPage() throws PostNotFoundException {
+        //given
+        Integer postId = 1;
+        Like like = testData.preparedLike();
+        like.setId(7);
+        when(postRepository.existsById(postId)).thenReturn(true);
+        when(likeRepository.findByPostLikeIdAndIdGreaterThanOrderById(postId, 0, PageRequest.of(0, 1))).thenReturn(List.of(like));
+
+        //when
+        ReactionPageDto actualReactionPageDto = reactionService.getPostLikes(postId, null, 1);
+
+        //then
+        assertEquals(List.of(like.getUsername()), actualReactionPageDto.getUsernames());
+        assertEquals(7, actualReactionPageDto.getNextCursor());
+    }
+
+    @Test
+    void getPostLikesOnLastPageHasNoCursor() throws PostNotFoundException {
+        //given
+        Integer postId = 1;
+        when(postRepository.existsById(postId)).thenReturn(true);
+        when(likeRepository.findByPostLikeIdAndIdGreaterThanOrderById(postId, 7, PageRequest.of(0, 10))).thenReturn(List.of(testData.preparedLike()));
+
+        //when
+        ReactionPageDto actualReactionPageDto = reactionService.getPostLikes(postId, 7, 10);
+
+        //then
+        assertNull(actualReactionPageDto.getNextCursor());
+    }
+
+    @Test
+    void getPostDislikesWithPostNotFoundException() {
+        //given
+        Integer incorrectPostId = 999999999;
+        when(postRepository.existsById(incorrectPostId)).thenReturn(false);
+
+        //when
+        //then
+        assertThrows(PostNotFoundException.class, () -> reactionService.getPostDislikes(incorrectPostId, null, 10));
+    }
+
+    @Test
+    void getCommentLikesWithCommentNotFoundException() {
+        //given
+        Integer incorrectCommentId = 9999;
+        when(commentRepository.existsById(incorrectCommentId)).thenReturn(false);
+
+        //when
+        //then
+        assertThrows(CommentNotFoundException.class, () -> reactionService.getCommentLikes(incorrectCommentId, null, 10));
+    }
+
+    private ReactionUsername reactionUsername(Integer targetId, String username) {
+        return new ReactionUsername() {
+            @Override
+            public Integer getTargetId() {
+                return targetId;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.cache.ReactionBitmapCache;
+import com.serwisspolecznosciowy.Application.exception.DuplicateUsernameException;
+import com.serwisspolecznosciowy.Application.exception.ReactionQueueFullException;
+import com.serwisspolecznosciowy.Application.service.PendingReaction.Kind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactionWriteBehindQueueTest {
+
+    @InjectMocks
+    private ReactionWriteBehindQueue reactionWriteBehindQueue;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    @Mock
+    private ReactionBitmapCache reactionBitmapCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "enabled", true);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "capacity", 100);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "batchSize", 10);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "flushIntervalInMillis", 10L);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "offerTimeoutInMillis", 1L);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "retryBackoffInMillis", 1L);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "maxRetryBackoffInMillis", 4L);
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "shutdownTimeoutInMillis", 100L);
+    }
+
+    @Test
+    void sameReactionWaitingInQueueReturnDuplicateUsernameException() {
+        //given
+        acceptWithoutFlushing(100);
+        reactionWriteBehindQueue.addPostLike(1, 7, "user");
+
+        //when
+        //then
+        assertThrows(DuplicateUsernameException.class, () -> reactionWriteBehindQueue.addPostLike(1, 7, "user"));
+        reactionWriteBehindQueue.addPostDislike(1, 7, "user");
+        reactionWriteBehindQueue.addCommentLike(1, 1, 7, "user");
+        assertEquals(3, reactionWriteBehindQueue.getQueuedReactions());
+    }
+
+    @Test
+    void fullQueueReturnReactionQueueFullException() {
+        //given
+        acceptWithoutFlushing(1);
+        reactionWriteBehindQueue.addPostLike(1, 7, "user");
+
+        //when
+        //then
+        assertThrows(ReactionQueueFullException.class, () -> reactionWriteBehindQueue.addPostLike(1, 8, "other"));
+        assertEquals(1, reactionWriteBehindQueue.getQueuedReactions());
+        /* rejected reaction can be sent again later */
+        assertThrows(ReactionQueueFullException.class, () -> reactionWriteBehindQueue.addPostLike(1, 8, "other"));
+    }
+
+    @Test
+    void flushAddsToCounterOnlyInsertedReactionsOncePerPost() throws InterruptedException {
+        //given
+        List<PendingReaction> batch = List.of(
+                new PendingReaction(Kind.POST_LIKE, 1, 7, "first", 1),
+                new PendingReaction(Kind.POST_LIKE, 1, 8, "second", 1),
+                new PendingReaction(Kind.POST_LIKE, 1, 9, "alreadySaved", 1),
+                new PendingReaction(Kind.POST_LIKE, 2, 7, "first", 2));
+        when(jdbcTemplate.batchUpdate(eq(Kind.POST_LIKE.getInsertSql()), anyList())).thenReturn(new int[]{1, 1, 0, 1});
+
+        //when
+        reactionWriteBehindQueue.flush(batch);
+
+        //then
+        ArgumentCaptor<List<Object[]>> counterCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(Kind.POST_LIKE.getAddToCounterSql()), counterCaptor.capture());
+        List<Object[]> counters = counterCaptor.getValue();
+        assertEquals(2, counters.size());
+        assertArrayEquals(new Object[]{2, 1}, counters.get(0));
+        assertArrayEquals(new Object[]{1, 2}, counters.get(1));
+        verify(reactionBitmapCache, times(1)).addExistingPostLike(1, 9);
+        verify(feedCacheInvalidator, times(1)).evictPostChanged(1);
+        verify(feedCacheInvalidator, times(1)).evictPostChanged(2);
+    }
+
+    @Test
+    void flushCountsAgainReactionsOfRowsWithoutInfo() throws InterruptedException {
+        //given
+        List<PendingReaction> batch = List.of(
+                new PendingReaction(Kind.COMMENT_DISLIKE, 3, 7, "first", 1),
+                new PendingReaction(Kind.COMMENT_DISLIKE, 4, 7, "first", 1));
+        when(jdbcTemplate.batchUpdate(eq(Kind.COMMENT_DISLIKE.getInsertSql()), anyList())).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 1});
+
+        //when
+        reactionWriteBehindQueue.flush(batch);
+
+        //then
+        ArgumentCaptor<List<Object[]>> counterCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(Kind.COMMENT_DISLIKE.getAddToCounterSql()), counterCaptor.capture());
+        assertEquals(1, counterCaptor.getValue().size());
+        assertArrayEquals(new Object[]{1, 4}, counterCaptor.getValue().get(0));
+        ArgumentCaptor<List<Object[]>> recountCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(Kind.COMMENT_DISLIKE.getRecountSql()), recountCaptor.capture());
+        assertEquals(1, recountCaptor.getValue().size());
+        assertArrayEquals(new Object[]{3, 3}, recountCaptor.getValue().get(0));
+        verify(feedCacheInvalidator, times(1)).evictCommentChanged(3, 1);
+        verify(feedCacheInvalidator, times(1)).evictCommentChanged(4, 1);
+    }
+
+    @Test
+    void failedFlushIsRepeatedUntilReactionsAreWritten() throws InterruptedException {
+        //given
+        List<PendingReaction> batch = List.of(new PendingReaction(Kind.POST_LIKE, 1, 7, "first", 1));
+        when(jdbcTemplate.batchUpdate(eq(Kind.POST_LIKE.getInsertSql()), anyList()))
+                .thenThrow(new TransientDataAccessResourceException("database is down"))
+                .thenThrow(new TransientDataAccessResourceException("database is down"))
+                .thenThrow(new TransientDataAccessResourceException("database is down"))
+                .thenThrow(new TransientDataAccessResourceException("database is down"))
+                .thenReturn(new int[]{1});
+
+        //when
+        reactionWriteBehindQueue.flush(batch);
+
+        //then
+        verify(jdbcTemplate, times(5)).batchUpdate(eq(Kind.POST_LIKE.getInsertSql()), anyList());
+        verify(feedCacheInvalidator, times(1)).evictPostChanged(1);
+    }
+
+    @Test
+    void batchRejectedByDatabaseIsWrittenReactionByReaction() throws InterruptedException {
+        //given
+        PendingReaction reactionToDeletedPost = new PendingReaction(Kind.POST_LIKE, 99, 7, "first", 99);
+        PendingReaction reaction = new PendingReaction(Kind.POST_LIKE, 1, 7, "first", 1);
+        when(jdbcTemplate.batchUpdate(eq(Kind.POST_LIKE.getInsertSql()), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(row -> row[1].equals(99))) {
+                throw new DataIntegrityViolationException("post with id 99 doesn't exist");
+            }
+            return new int[]{1};
+        });
+
+        //when
+        reactionWriteBehindQueue.flush(List.of(reactionToDeletedPost, reaction));
+
+        //then
+        verify(jdbcTemplate, times(3)).batchUpdate(eq(Kind.POST_LIKE.getInsertSql()), anyList());
+        verify(feedCacheInvalidator, times(1)).evictPostChanged(1);
+        verify(feedCacheInvalidator, never()).evictPostChanged(99);
+    }
+
+    @Test
+    void drainWritesAllQueuedReactionsAndRejectsNewOnes() throws InterruptedException {
+        //given
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            int[] insertedRows = new int[invocation.<List<Object[]>>getArgument(1).size()];
+            Arrays.fill(insertedRows, 1);
+            return insertedRows;
+        });
+        reactionWriteBehindQueue.start();
+        for (int userId = 1; userId <= 25; userId++) {
+            reactionWriteBehindQueue.addCommentLike(3, 1, userId, "user" + userId);
+        }
+
+        //when
+        reactionWriteBehindQueue.drain();
+
+        //then
+        ArgumentCaptor<List<Object[]>> insertCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(eq(Kind.COMMENT_LIKE.getInsertSql()), insertCaptor.capture());
+        assertEquals(25, insertCaptor.getAllValues().stream().mapToInt(List::size).sum());
+        assertEquals(0, reactionWriteBehindQueue.getQueuedReactions());
+        verify(feedCacheInvalidator, atLeastOnce()).evictCommentChanged(3, 1);
+        assertThrows(ReactionQueueFullException.class, () -> reactionWriteBehindQueue.addCommentLike(3, 1, 26, "late"));
+    }
+
+    /* queue without flush thread, reactions stay in queue */
+    private void acceptWithoutFlushing(int capacity) {
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "queue", new ArrayBlockingQueue<PendingReaction>(capacity));
+        ReflectionTestUtils.setField(reactionWriteBehindQueue, "accepting", true);
+    }
+
+}
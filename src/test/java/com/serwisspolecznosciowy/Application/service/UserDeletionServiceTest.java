@@ -0,0 +1,212 @@
+package com.serwisspolecznosciowy.Application.service;
+
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
+import com.serwisspolecznosciowy.Application.entity.*;
+import com.serwisspolecznosciowy.Application.repository.*;
+import com.serwisspolecznosciowy.Application.search.BodySearchIndex;
+import com.serwisspolecznosciowy.Application.timeline.TimelineStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class UserDeletionServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private DislikeRepository dislikeRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Autowired
+    private PendingUserDeletionRepository pendingUserDeletionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UserDeletionService userDeletionService;
+
+    private User deletedUser;
+
+    private Post postOfOtherUser;
+
+    private Comment commentOfOtherUser;
+
+    @BeforeEach
+    void setUp() {
+        userDeletionService = new UserDeletionService();
+        ReflectionTestUtils.setField(userDeletionService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userDeletionService, "postRepository", postRepository);
+        ReflectionTestUtils.setField(userDeletionService, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(userDeletionService, "likeRepository", likeRepository);
+        ReflectionTestUtils.setField(userDeletionService, "dislikeRepository", dislikeRepository);
+        ReflectionTestUtils.setField(userDeletionService, "followRepository", followRepository);
+        ReflectionTestUtils.setField(userDeletionService, "timelineEntryRepository", timelineEntryRepository);
+        ReflectionTestUtils.setField(userDeletionService, "pendingUserDeletionRepository", pendingUserDeletionRepository);
+        ReflectionTestUtils.setField(userDeletionService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(userDeletionService, "feedCacheInvalidator", mock(FeedCacheInvalidator.class));
+        ReflectionTestUtils.setField(userDeletionService, "bodySearchIndex", mock(BodySearchIndex.class));
+        ReflectionTestUtils.setField(userDeletionService, "timelineStore", mock(TimelineStore.class));
+        ReflectionTestUtils.setField(userDeletionService, "chunkSize", 1);
+        ReflectionTestUtils.setField(userDeletionService, "progressTimeToLiveInMinutes", 60L);
+        userDeletionService.start();
+
+        deletedUser = persistUser("deletedUser");
+        User otherUser = persistUser("otherUser");
+        Post firstPostOfDeletedUser = persistPost(deletedUser, 2);
+        persistPost(deletedUser, 0);
+        postOfOtherUser = persistPost(otherUser, 2);
+        /* comments of deleted user to own and other user's post, comment of other user to deleted user's post */
+        Comment commentToOtherUser = persistComment(deletedUser, postOfOtherUser);
+        persistComment(deletedUser, firstPostOfDeletedUser);
+        persistComment(otherUser, firstPostOfDeletedUser);
+        commentOfOtherUser = persistComment(otherUser, postOfOtherUser);
+
+        testEntityManager.persist(new Like(null, deletedUser.getId(), postOfOtherUser.getId(), null, deletedUser.getUsername()));
+        testEntityManager.persist(new Like(null, otherUser.getId(), firstPostOfDeletedUser.getId(), null, otherUser.getUsername()));
+        testEntityManager.persist(new Like(null, otherUser.getId(), null, commentToOtherUser.getId(), otherUser.getUsername()));
+        testEntityManager.persist(new Dislike(null, deletedUser.getId(), null, commentOfOtherUser.getId(), deletedUser.getUsername()));
+        testEntityManager.persist(new Follow(null, deletedUser.getId(), otherUser.getId(), LocalDateTime.now()));
+        testEntityManager.persist(new Follow(null, otherUser.getId(), deletedUser.getId(), LocalDateTime.now()));
+        testEntityManager.persist(new TimelineEntry(null, deletedUser.getId(), postOfOtherUser.getId(), otherUser.getId()));
+        testEntityManager.persist(new TimelineEntry(null, otherUser.getId(), postOfOtherUser.getId(), otherUser.getId()));
+        postRepository.addToLikeCount(postOfOtherUser.getId(), 1);
+        commentRepository.addToDislikeCount(commentOfOtherUser.getId(), 1);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void userIsDeletedWithAllContentAndCountersOfOtherUsersAreDecreased() {
+        //given
+        //when
+        userDeletionService.deleteUserWithContent(deletedUser.getId());
+        testEntityManager.clear();
+
+        //then
+        assertOnlyContentOfOtherUserIsLeft();
+    }
+
+    @Test
+    void userDeletedInChunksHasTheSameResultAndProgress() {
+        //given
+        UserDeletionProgressDto progress = new UserDeletionProgressDto(deletedUser.getId(), UserDeletionProgressDto.IN_PROGRESS,
+                postRepository.countByUserId(deletedUser.getId()), 0, commentRepository.countByUserId(deletedUser.getId()), 0, LocalDateTime.now(), null);
+        AtomicBoolean afterUserDeletedCalled = new AtomicBoolean();
+
+        //when
+        userDeletionService.deleteInChunks(progress, () -> afterUserDeletedCalled.set(true));
+        testEntityManager.clear();
+
+        //then
+        assertOnlyContentOfOtherUserIsLeft();
+        assertEquals(UserDeletionProgressDto.FINISHED, progress.getStatus());
+        assertEquals(2, progress.getTotalPosts());
+        assertEquals(2, progress.getDeletedPosts());
+        assertEquals(2, progress.getTotalComments());
+        assertEquals(2, progress.getDeletedComments());
+        assertNotNull(progress.getFinished());
+        assertTrue(afterUserDeletedCalled.get());
+        assertEquals(Optional.of(UserDeletionProgressDto.FINISHED),
+                userDeletionService.getDeletionProgress(deletedUser.getId()).map(UserDeletionProgressDto::getStatus));
+    }
+
+    @Test
+    void deletionStoppedByShutdownStaysPendingAndIsFinishedAfterRestart() throws InterruptedException {
+        //given
+        pendingUserDeletionRepository.save(new PendingUserDeletion(deletedUser.getId(), LocalDateTime.now()));
+        UserDeletionProgressDto progress = new UserDeletionProgressDto(deletedUser.getId(), UserDeletionProgressDto.IN_PROGRESS,
+                2, 0, 2, 0, LocalDateTime.now(), null);
+        userDeletionService.stop();
+
+        //when
+        userDeletionService.deleteInChunks(progress, () -> { });
+        List<Integer> pendingAfterShutdown = userDeletionService.findPendingDeletions();
+        /* next start of application */
+        ReflectionTestUtils.setField(userDeletionService, "stopping", false);
+        userDeletionService.deleteInChunks(progress, () -> { });
+        testEntityManager.clear();
+
+        //then
+        assertEquals(List.of(deletedUser.getId()), pendingAfterShutdown);
+        assertOnlyContentOfOtherUserIsLeft();
+        assertTrue(userDeletionService.findPendingDeletions().isEmpty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        userDeletionService.stop();
+    }
+
+    private void assertOnlyContentOfOtherUserIsLeft() {
+        assertTrue(userRepository.findById(deletedUser.getId()).isEmpty());
+        assertEquals(List.of(postOfOtherUser.getId()), postRepository.findIdsAfter(0, Pageable.unpaged()));
+        assertEquals(List.of(commentOfOtherUser.getId()), commentRepository.findIdsAfter(0, Pageable.unpaged()));
+        assertEquals(0, likeRepository.count());
+        assertEquals(0, dislikeRepository.count());
+        assertEquals(0, followRepository.count());
+        assertEquals(1, timelineEntryRepository.count());
+        assertTrue(timelineEntryRepository.findNewestPostIds(deletedUser.getId(), Pageable.unpaged()).isEmpty());
+        Post post = postRepository.findById(postOfOtherUser.getId()).get();
+        assertEquals(0, post.getLikeCount());
+        assertEquals(1, post.getNumberOfComments());
+        assertEquals(0, commentRepository.findById(commentOfOtherUser.getId()).get().getDislikeCount());
+    }
+
+    private User persistUser(String username) {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername(username);
+        user.setPassword("password");
+        return testEntityManager.persistAndFlush(user);
+    }
+
+    private Post persistPost(User user, int numberOfComments) {
+        Post post = new Post();
+        post.setBody("Post of " + user.getUsername());
+        post.setCreated(LocalDateTime.now());
+        post.setUser(user);
+        post.setNumberOfComments(numberOfComments);
+        return testEntityManager.persistAndFlush(post);
+    }
+
+    private Comment persistComment(User user, Post post) {
+        return testEntityManager.persistAndFlush(new Comment("Comment of " + user.getUsername(), LocalDateTime.now(), post.getId(), user));
+    }
+
+}
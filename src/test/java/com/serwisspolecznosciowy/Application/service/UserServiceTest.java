@@ -1,6 +1,8 @@
 package com.serwisspolecznosciowy.Application.service;
 
+import com.serwisspolecznosciowy.Application.cache.FeedCacheInvalidator;
 import com.serwisspolecznosciowy.Application.dto.NewUserDto;
+import com.serwisspolecznosciowy.Application.dto.UserDeletionProgressDto;
 import com.serwisspolecznosciowy.Application.dto.UserDto;
 import com.serwisspolecznosciowy.Application.entity.Comment;
 import com.serwisspolecznosciowy.Application.entity.Post;
@@ -10,21 +12,35 @@ import com.serwisspolecznosciowy.Application.mappers.UserMapper;
 import com.serwisspolecznosciowy.Application.repository.CommentRepository;
 import com.serwisspolecznosciowy.Application.repository.PostRepository;
 import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import com.serwisspolecznosciowy.Application.search.UsernameAutocomplete;
+import com.serwisspolecznosciowy.Application.search.UsernameSearchIndex;
+import com.serwisspolecznosciowy.Application.security.AuthenticationCache;
 import com.serwisspolecznosciowy.Application.testData.TestData;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import static com.serwisspolecznosciowy.Application.config.CacheConfig.USERS_BY_USERNAME;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -59,6 +75,31 @@ class UserServiceTest {
     @Mock
     public UserMapper userMapper;
 
+    @Mock
+    private AuthenticationCache authenticationCache;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @Mock
+    private UsernameAutocomplete usernameAutocomplete;
+
+    @Mock
+    private UserDeletionService userDeletionService;
+
+    @Mock
+    private FeedCacheInvalidator feedCacheInvalidator;
+
+    private final Cache usersByUsernameCache = new ConcurrentMapCache(USERS_BY_USERNAME);
+
+    @BeforeEach
+    void setUp() {
+        when(cacheManager.getCache(USERS_BY_USERNAME)).thenReturn(usersByUsernameCache);
+    }
+
     @Test
     void shouldFindAllUsers() {
         //given
@@ -86,6 +127,8 @@ class UserServiceTest {
         //then
         assertEquals(expectedUserDto.getUsername(), actualUserDto.getUsername());
         assertEquals(expectedUserDto.getProfilePicture(), actualUserDto.getProfilePicture());
+        verify(usernameSearchIndex).indexUser(any(), eq(newUserDto.getUsername()));
+        verify(usernameAutocomplete).addUser(any(), eq(newUserDto.getUsername()));
     }
 
     @WithMockUser(username = "admin12!A", password = "admin12!A", roles = {"ADMIN"})
@@ -191,6 +234,7 @@ class UserServiceTest {
 
         //then
         assertEquals(expectedResponse, actualResponse);
+        verify(authenticationCache, times(1)).evictUser(user.getUsername());
     }
 
     @Test
@@ -244,22 +288,60 @@ class UserServiceTest {
                 "Incorrect old password!");
     }
 
+    @WithMockUser(username = "test12!A", password = "test12!A")
     @Test
-    void deleteUserById() throws CommentNotFoundException, UserNotFoundException, PostNotFoundException {
+    void deleteUserById() throws CommentNotFoundException, UserNotFoundException, PostNotFoundException, UserForbiddenAccessException {
         //Given
         User user = testData.preparedUser();
-        userRepository.save(user);
         int userId = user.getId();
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(commentService.findAllCommentByUserId(userId)).thenReturn(Collections.emptyList());
-        when(postService.findAllPostsByUserId(userId)).thenReturn(Collections.emptyList());
-        doNothing().when(userRepository).deleteById(userId);
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
 
         //When
         userService.deleteUserById(userId);
 
         //Then
-        verify(userRepository, times(1)).deleteById(userId);
+        verify(userDeletionService, times(1)).deleteUserWithContent(userId);
+        verify(usernameSearchIndex).removeUser(userId);
+        verify(usernameAutocomplete).removeUser(userId);
+        verify(authenticationCache).evictUser(user.getUsername());
+    }
+
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void deleteUserByIdOfOtherUserReturnUserForbiddenAccessException() {
+        //Given
+        User loginUser = testData.preparedUser();
+        User otherUser = testData.preparedUser();
+        otherUser.setId(2);
+        otherUser.setUsername("otherUser");
+        when(userRepository.findById(2)).thenReturn(Optional.of(otherUser));
+        when(userRepository.findByUsername(loginUser.getUsername())).thenReturn(Optional.of(loginUser));
+
+        //When
+        //Then
+        assertThrows(UserForbiddenAccessException.class, () -> userService.deleteUserById(2));
+        verify(userDeletionService, never()).deleteUserWithContent(any());
+    }
+
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void deleteUserByIdInBackgroundBlocksUserAndReturnsProgress() throws UserNotFoundException, UserForbiddenAccessException {
+        //Given
+        User user = testData.preparedUser();
+        int userId = user.getId();
+        UserDeletionProgressDto expectedProgress = new UserDeletionProgressDto(userId, UserDeletionProgressDto.IN_PROGRESS, 5000, 0, 20000, 0, LocalDateTime.now(), null);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+        when(userDeletionService.deleteUserWithContentInBackground(eq(userId), any())).thenReturn(expectedProgress);
+
+        //When
+        UserDeletionProgressDto actualProgress = userService.deleteUserByIdInBackground(userId);
+
+        //Then
+        assertEquals(expectedProgress, actualProgress);
+        assertFalse(user.getEnabled());
+        verify(userRepository).save(user);
     }
 
     @Test
@@ -311,6 +393,73 @@ class UserServiceTest {
         assertNull(loginUser);
     }
 
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void getLoginUserIsResolvedOncePerRequest() {
+        //Given
+        User expectedUser = testData.preparedUser();
+        String username = expectedUser.getUsername();
+        when(userRepository.findByUsername(username)).thenReturn(Optional.of(expectedUser));
+        //When
+        User firstUser = userService.getLoginUser();
+        User secondUser = userService.getLoginUser();
+        //Then
+        assertSame(firstUser, secondUser);
+        verify(userRepository, times(1)).findByUsername(username);
+    }
+
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void getLoginUserInNextRequestIsTakenFromCacheUntilUserChanges() throws UserNotFoundException, UserForbiddenAccessException {
+        //Given
+        User user = testData.preparedUser();
+        String username = user.getUsername();
+        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        RequestAttributes firstRequest = RequestContextHolder.getRequestAttributes();
+        //When
+        userService.getLoginUser();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        User cachedUser = userService.getLoginUser();
+        userService.updateUserProfilePicture(user.getId(), "https://picture.com/new.png");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        userService.getLoginUser();
+        RequestContextHolder.setRequestAttributes(firstRequest);
+        //Then
+        assertEquals(user.getId(), cachedUser.getId());
+        verify(userRepository, times(2)).findByUsername(username);
+        verify(authenticationCache, times(1)).evictUser(username);
+    }
+
+    @WithMockUser(username = "test12!A", password = "test12!A")
+    @Test
+    void userLoadedWhileItIsChangedIsNotCachedAfterEviction() throws UserNotFoundException {
+        //Given
+        AuthenticationCache generationsOfUsers = new AuthenticationCache();
+        ReflectionTestUtils.invokeMethod(generationsOfUsers, "buildCache");
+        ReflectionTestUtils.setField(userService, "authenticationCache", generationsOfUsers);
+        User user = testData.preparedUser();
+        String username = user.getUsername();
+        User userReadBeforeChange = new User(user.getId(), username, user.getPassword(), user.getCreated(), user.getUpdated(),
+                user.getRole(), true, user.getProfilePicture());
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(userRepository.findByUsername(username)).thenAnswer(invocation -> {
+            /* admin disables user after the old row was read and before it is cached */
+            userService.updateUserEnable(user.getId(), false);
+            return Optional.of(userReadBeforeChange);
+        }).thenReturn(Optional.of(user));
+        RequestAttributes firstRequest = RequestContextHolder.getRequestAttributes();
+        //When
+        User userOfFirstRequest = userService.getLoginUser();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        User userOfNextRequest = userService.getLoginUser();
+        RequestContextHolder.setRequestAttributes(firstRequest);
+        //Then
+        assertTrue(userOfFirstRequest.getEnabled());
+        assertFalse(userOfNextRequest.getEnabled());
+        verify(userRepository, times(2)).findByUsername(username);
+    }
+
     @WithMockUser(username = "test12!A", password = "test12!A")
     @Test
      void getLoginUserWithNullOptionalUser() {
@@ -330,12 +479,14 @@ class UserServiceTest {
         User user = testData.preparedUser();
         String keyword = "12";
         List<User> userList = testData.preparedUsersList();
+        userList.get(1).setId(2);
         List<UserDto> expectedUserDtoList = testData.preparedUsersDtoList();
-        when(userRepository.findByUsernameLike(any())).thenReturn(userList);
-        when(userMapper.userListToUserDtoList(userList)).thenReturn(expectedUserDtoList);
+        when(usernameSearchIndex.searchUserIds(keyword, 0, 10)).thenReturn(List.of(2, 1));
+        when(userRepository.findAllById(List.of(2, 1))).thenReturn(userList);
+        when(userMapper.userListToUserDtoList(List.of(userList.get(1), userList.get(0)))).thenReturn(expectedUserDtoList);
 
         //When
-        List<UserDto> actualUserDtoList = userService.findUserByKeywordInUsername(keyword);
+        List<UserDto> actualUserDtoList = userService.findUserByKeywordInUsername(keyword, 0, 10);
 
         //Then
         assertTrue(actualUserDtoList.get(0).getUsername().contains(keyword));
@@ -352,9 +503,9 @@ class UserServiceTest {
         String keyword = "12";
         List<User> userList = testData.preparedUsersList();
         List<UserDto> expectedUserDtoList = testData.preparedUsersDtoList();
-        when(userRepository.findByUsernameLike(any())).thenReturn(Collections.emptyList());
+        when(usernameSearchIndex.searchUserIds(keyword, 0, 10)).thenReturn(Collections.emptyList());
         //When
-        List<UserDto> actualUserDtoList = userService.findUserByKeywordInUsername(keyword);
+        List<UserDto> actualUserDtoList = userService.findUserByKeywordInUsername(keyword, 0, 10);
         //Then
         assertEquals(0, actualUserDtoList.size());
     }
@@ -406,6 +557,7 @@ class UserServiceTest {
 
         //then
         assertEquals(expectedResponse, actualResponse);
+        verify(feedCacheInvalidator).evictAllPostsAndComments();
     }
 
     @WithMockUser(username = "test12!A", password = "test12!A")
@@ -446,6 +598,7 @@ class UserServiceTest {
 
         //then
         assertEquals(expectedResponse, actualResponse);
+        verify(authenticationCache, times(1)).evictUser(username);
     }
 
     @Test
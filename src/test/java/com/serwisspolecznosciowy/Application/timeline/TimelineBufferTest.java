@@ -0,0 +1,60 @@
+package com.serwisspolecznosciowy.Application.timeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineBufferTest {
+
+    @Test
+    void postsArePagedFromTheNewest() {
+        //given
+        TimelineBuffer timelineBuffer = new TimelineBuffer(10, List.of(9, 7, 5, 3, 1), List.of());
+
+        //when
+        List<Integer> firstPage = timelineBuffer.page(null, 2);
+        List<Integer> nextPage = timelineBuffer.page(7, 2);
+        List<Integer> lastPage = timelineBuffer.page(2, 2);
+
+        //then
+        assertEquals(List.of(9, 7), firstPage);
+        assertEquals(List.of(5, 3), nextPage);
+        assertEquals(List.of(1), lastPage);
+        assertTrue(timelineBuffer.page(1, 2).isEmpty());
+    }
+
+    @Test
+    void postPushedLateIsInsertedInOrderOnlyOnce() {
+        //given
+        TimelineBuffer timelineBuffer = new TimelineBuffer(10, List.of(9, 5), List.of());
+
+        //when
+        boolean added = timelineBuffer.add(7);
+        boolean addedAgain = timelineBuffer.add(7);
+        timelineBuffer.add(11);
+
+        //then
+        assertTrue(added);
+        assertFalse(addedAgain);
+        assertEquals(List.of(11, 9, 7, 5), timelineBuffer.page(null, 10));
+    }
+
+    @Test
+    void fullBufferDropsTheOldestPost() {
+        //given
+        TimelineBuffer timelineBuffer = new TimelineBuffer(3, List.of(6, 4, 2), List.of());
+
+        //when
+        timelineBuffer.add(8);
+        timelineBuffer.add(5);
+        boolean olderThanAllAdded = timelineBuffer.add(1);
+
+        //then
+        assertFalse(olderThanAllAdded);
+        assertEquals(3, timelineBuffer.size());
+        assertEquals(List.of(8, 6, 5), timelineBuffer.page(null, 10));
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.serwisspolecznosciowy.Application.timeline;
+
+import com.serwisspolecznosciowy.Application.entity.Follow;
+import com.serwisspolecznosciowy.Application.entity.Post;
+import com.serwisspolecznosciowy.Application.entity.User;
+import com.serwisspolecznosciowy.Application.repository.FollowRepository;
+import com.serwisspolecznosciowy.Application.repository.PostRepository;
+import com.serwisspolecznosciowy.Application.repository.TimelineEntryRepository;
+import com.serwisspolecznosciowy.Application.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Posts are pushed to timelines by calling fan-out directly, without background thread, except test of fan-out racing with unfollow.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TimelineStoreTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TimelineStore timelineStore;
+
+    private User author;
+
+    private User follower;
+
+    @BeforeEach
+    void setUp() {
+        timelineStore = new TimelineStore();
+        ReflectionTestUtils.setField(timelineStore, "followRepository", followRepository);
+        ReflectionTestUtils.setField(timelineStore, "timelineEntryRepository", timelineEntryRepository);
+        ReflectionTestUtils.setField(timelineStore, "postRepository", postRepository);
+        ReflectionTestUtils.setField(timelineStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(timelineStore, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(timelineStore, "bufferSize", 3);
+        ReflectionTestUtils.setField(timelineStore, "fanOutThreshold", 2L);
+        ReflectionTestUtils.setField(timelineStore, "fanOutBatchSize", 1);
+        ReflectionTestUtils.setField(timelineStore, "maxCachedTimelines", 100L);
+        ReflectionTestUtils.setField(timelineStore, "backfillSize", 2);
+        ReflectionTestUtils.setField(timelineStore, "bufferTimeToLiveInMinutes", 10L);
+        timelineStore.start();
+
+        author = saveUser("author");
+        follower = saveUser("follower");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        timelineStore.stop();
+        timelineEntryRepository.deleteAll();
+        followRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void postIsPushedToTimelinesOfAuthorAndFollowers() {
+        //given
+        follow(follower, author);
+        /* timeline loaded before post is added is updated in memory */
+        assertTrue(timelineStore.getTimelinePostIds(follower.getId(), null, 10).isEmpty());
+        Post post = savePost(author);
+
+        //when
+        timelineStore.fanOut(post.getId(), author.getId());
+
+        //then
+        assertEquals(List.of(post.getId()), timelineStore.getTimelinePostIds(follower.getId(), null, 10));
+        assertEquals(List.of(post.getId()), timelineStore.getTimelinePostIds(author.getId(), null, 10));
+        assertEquals(List.of(post.getId()), timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.unpaged()));
+    }
+
+    @Test
+    void followBackfillsNewestPostsAndUnfollowRemovesThem() {
+        //given
+        savePost(author);
+        Post secondPost = savePost(author);
+        Post thirdPost = savePost(author);
+        follow(follower, author);
+
+        //when
+        timelineStore.backfill(follower.getId(), author.getId());
+        List<Integer> timelineAfterFollow = timelineStore.getTimelinePostIds(follower.getId(), null, 10);
+        followRepository.deleteByFollowerIdAndFollowedId(follower.getId(), author.getId());
+        timelineStore.removePostsOfUnfollowed(follower.getId(), author.getId());
+
+        //then
+        assertEquals(List.of(thirdPost.getId(), secondPost.getId()), timelineAfterFollow);
+        assertTrue(timelineStore.getTimelinePostIds(follower.getId(), null, 10).isEmpty());
+    }
+
+    @Test
+    void postPushedWhileFollowerUnfollowsIsRemovedFromTimeline() throws InterruptedException {
+        //given
+        follow(follower, author);
+        Post post = savePost(author);
+        CountDownLatch fanOutQueued = new CountDownLatch(1);
+        ((ExecutorService) ReflectionTestUtils.getField(timelineStore, "executor")).execute(() -> {
+            try {
+                fanOutQueued.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        //when
+        /* fan-out reads follower before unfollow is committed */
+        timelineStore.postAdded(post.getId(), author.getId());
+        timelineStore.unfollowed(follower.getId(), author.getId());
+        fanOutQueued.countDown();
+        timelineStore.stop();
+
+        //then
+        assertEquals(List.of(post.getId()), timelineEntryRepository.findNewestPostIds(author.getId(), Pageable.unpaged()));
+        assertTrue(timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.unpaged()).isEmpty());
+    }
+
+    @Test
+    void postsOfAuthorWithManyFollowersAreMergedWhenTimelineIsRead() {
+        //given
+        User otherAuthor = saveUser("otherAuthor");
+        follow(follower, author);
+        follow(saveUser("secondFollower"), author);
+        follow(follower, otherAuthor);
+        Post postOfOtherAuthor = savePost(otherAuthor);
+        timelineStore.fanOut(postOfOtherAuthor.getId(), otherAuthor.getId());
+        Post postOfAuthor = savePost(author);
+
+        //when
+        timelineStore.fanOut(postOfAuthor.getId(), author.getId());
+
+        //then
+        assertTrue(timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.unpaged()).contains(postOfOtherAuthor.getId()));
+        assertFalse(timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.unpaged()).contains(postOfAuthor.getId()));
+        assertEquals(List.of(postOfAuthor.getId(), postOfOtherAuthor.getId()), timelineStore.getTimelinePostIds(follower.getId(), null, 10));
+        assertEquals(List.of(postOfOtherAuthor.getId()), timelineStore.getTimelinePostIds(follower.getId(), postOfAuthor.getId(), 10));
+        assertEquals(List.of(postOfAuthor.getId()), timelineStore.getTimelinePostIds(author.getId(), null, 10));
+    }
+
+    @Test
+    void timelineKeepsOnlyNewestPosts() {
+        //given
+        follow(follower, author);
+        for (int i = 0; i < 5; i++) {
+            Post post = savePost(author);
+            timelineStore.fanOut(post.getId(), author.getId());
+        }
+        List<Integer> newestPostIds = timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.ofSize(3));
+
+        //when
+        timelineStore.trim();
+
+        //then
+        assertEquals(newestPostIds, timelineEntryRepository.findNewestPostIds(follower.getId(), Pageable.unpaged()));
+        assertEquals(newestPostIds, timelineStore.getTimelinePostIds(follower.getId(), null, 10));
+    }
+
+    private User saveUser(String username) {
+        User user = new User(LocalDateTime.now(), "ROLE_USER", true);
+        user.setUsername(username);
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private Post savePost(User user) {
+        Post post = new Post();
+        post.setBody("Post of " + user.getUsername());
+        post.setCreated(LocalDateTime.now());
+        post.setUser(user);
+        post.setNumberOfComments(0);
+        return postRepository.save(post);
+    }
+
+    private void follow(User follower, User followed) {
+        followRepository.save(new Follow(null, follower.getId(), followed.getId(), LocalDateTime.now()));
+    }
+
+}